@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdDoubleMap;
+import org.matsim.api.core.v01.IdIntMap;
+import org.matsim.api.core.v01.IdLongMap;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdSet;
+import org.matsim.api.core.v01.population.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the id-indexed collections with the hash based collections they replace in the event handlers. Each
+ * benchmark processes a stream of "events" for randomly chosen persons, similar to what an event handler does with the
+ * person ids of the events it receives.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar:libs/* org.openjdk.jmh.Main IdCollectionsBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdCollectionsBenchmark {
+
+	private static final int NUMBER_OF_EVENTS = 100_000;
+
+	@Param({"10000", "1000000"})
+	public int numberOfPersons;
+
+	private Id<Person>[] events;
+
+	@Setup
+	public void setup() {
+		@SuppressWarnings("unchecked")
+		Id<Person>[] personIds = new Id[numberOfPersons];
+		for (int i = 0; i < numberOfPersons; i++) {
+			personIds[i] = Id.createPersonId("benchmark_" + i);
+		}
+		Random random = new Random(4711);
+		@SuppressWarnings("unchecked")
+		Id<Person>[] events = new Id[NUMBER_OF_EVENTS];
+		for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+			events[i] = personIds[random.nextInt(numberOfPersons)];
+		}
+		this.events = events;
+	}
+
+	@Benchmark
+	public void hashMapObject(Blackhole blackhole) {
+		Map<Id<Person>, Id<Person>> map = new HashMap<>();
+		for (Id<Person> id : events) {
+			blackhole.consume(map.put(id, id));
+		}
+		blackhole.consume(map);
+	}
+
+	@Benchmark
+	public void idMapObject(Blackhole blackhole) {
+		IdMap<Person, Id<Person>> map = new IdMap<>(Person.class);
+		for (Id<Person> id : events) {
+			blackhole.consume(map.put(id, id));
+		}
+		blackhole.consume(map);
+	}
+
+	@Benchmark
+	public void hashSet(Blackhole blackhole) {
+		Set<Id<Person>> set = new HashSet<>();
+		for (Id<Person> id : events) {
+			if (!set.add(id)) {
+				set.remove(id);
+			}
+		}
+		blackhole.consume(set);
+	}
+
+	@Benchmark
+	public void idSet(Blackhole blackhole) {
+		IdSet<Person> set = new IdSet<>(Person.class);
+		for (Id<Person> id : events) {
+			if (!set.add(id)) {
+				set.remove(id);
+			}
+		}
+		blackhole.consume(set);
+	}
+
+	@Benchmark
+	public void hashMapInt(Blackhole blackhole) {
+		Map<Id<Person>, Integer> map = new HashMap<>();
+		for (Id<Person> id : events) {
+			blackhole.consume(map.merge(id, 1, Integer::sum));
+		}
+		blackhole.consume(map);
+	}
+
+	@Benchmark
+	public void idIntMap(Blackhole blackhole) {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class);
+		for (Id<Person> id : events) {
+			blackhole.consume(map.addTo(id, 1));
+		}
+		blackhole.consume(map);
+	}
+
+	@Benchmark
+	public void hashMapLong(Blackhole blackhole) {
+		Map<Id<Person>, Long> map = new HashMap<>();
+		for (Id<Person> id : events) {
+			blackhole.consume(map.merge(id, 1L, Long::sum));
+		}
+		blackhole.consume(map);
+	}
+
+	@Benchmark
+	public void idLongMap(Blackhole blackhole) {
+		IdLongMap<Person> map = new IdLongMap<>(Person.class);
+		for (Id<Person> id : events) {
+			blackhole.consume(map.addTo(id, 1L));
+		}
+		blackhole.consume(map);
+	}
+
+	@Benchmark
+	public void hashMapDouble(Blackhole blackhole) {
+		Map<Id<Person>, Double> map = new HashMap<>();
+		for (Id<Person> id : events) {
+			blackhole.consume(map.merge(id, 0.5, Double::sum));
+		}
+		blackhole.consume(map);
+	}
+
+	@Benchmark
+	public void idDoubleMap(Blackhole blackhole) {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class);
+		for (Id<Person> id : events) {
+			blackhole.consume(map.addTo(id, 0.5));
+		}
+		blackhole.consume(map);
+	}
+}
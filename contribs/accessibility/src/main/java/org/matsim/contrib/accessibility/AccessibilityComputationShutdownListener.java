@@ -22,8 +22,8 @@ package org.matsim.contrib.accessibility;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.google.common.collect.Iterables;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.BasicLocation;
 import org.matsim.api.core.v01.Id;
@@ -110,58 +110,55 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 
 
 	public final void computeAccessibilities(Double departureTime, ActivityFacilities opportunities) {
-		for (String mode : calculators.keySet()) {
-			AccessibilityContributionCalculator calculator = calculators.get(mode);
-			calculator.initialize(measuringPoints, opportunities);
-
-			// TODO
-            Map<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> aggregatedOrigins = calculator.getAggregatedMeasurePoints();
-            Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities = calculator.getAgregatedOpportunities();
-
-            Collection<Id<? extends BasicLocation>> aggregatedOriginIds = new LinkedList<>();
-			for (Id<? extends BasicLocation> nodeId : aggregatedOrigins.keySet()) {
-				aggregatedOriginIds.add(nodeId);
-			}
+		int numberOfProcessors = Runtime.getRuntime().availableProcessors();
+		ExecutorService service = null;
+		if (acg.isUseParallelization()) {
+			LOG.info("There are " + numberOfProcessors + " available processors.");
+			service = Executors.newFixedThreadPool(numberOfProcessors);
+		}
 
-			LOG.info("Iterating over all aggregated measuring points...");
+		try {
+			for (String mode : calculators.keySet()) {
+				AccessibilityContributionCalculator calculator = calculators.get(mode);
+				calculator.initialize(measuringPoints, opportunities);
 
-			if (acg.isUseParallelization()) {
-				int numberOfProcessors = Runtime.getRuntime().availableProcessors();
-				LOG.info("There are " + numberOfProcessors + " available processors.");
+				// TODO
+				Map<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> aggregatedOrigins = calculator.getAggregatedMeasurePoints();
+				Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities = calculator.getAgregatedOpportunities();
 
-				final int partitionSize = (int) ((double) aggregatedOrigins.size() / numberOfProcessors) + 1;
-				LOG.info("Size of partitions = " + partitionSize);
-				Iterable<List<Id<? extends BasicLocation>>> partitions = Iterables.partition(aggregatedOriginIds, partitionSize);
+				List<Id<? extends BasicLocation>> aggregatedOriginIds = new ArrayList<>(aggregatedOrigins.keySet());
 
+				LOG.info("Iterating over all aggregated measuring points...");
 				ProgressBar progressBar = new ProgressBar(aggregatedOrigins.size());
-
-				ExecutorService service = Executors.newFixedThreadPool(numberOfProcessors);
-				List<Callable<Void>> tasks = new ArrayList<>();
-				for (final List<Id<? extends BasicLocation>> partition : partitions) {
-					tasks.add(() -> {
-						try {
-							compute(mode, departureTime, aggregatedOpportunities, aggregatedOrigins, partition, progressBar);
-						} catch (Exception e) {
-							throw new RuntimeException(e);
+				// the origin nodes are handed out one by one, so that no thread runs out of work while others are still busy
+				AtomicInteger nextOrigin = new AtomicInteger();
+
+				if (service != null) {
+					List<Callable<Void>> tasks = new ArrayList<>();
+					for (int i = 0; i < numberOfProcessors; i++) {
+						tasks.add(() -> {
+							compute(mode, departureTime, aggregatedOpportunities, aggregatedOrigins, aggregatedOriginIds, nextOrigin, progressBar);
+							return null;
+						});
+					}
+					try {
+						List<Future<Void>> futures = service.invokeAll(tasks);
+						for (Future<Void> future : futures) {
+							future.get();
 						}
-						return null;
-					});
-				}
-				try {
-					List<Future<Void>> futures = service.invokeAll(tasks);
-					for (Future<Void> future : futures) {
-						future.get();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					} catch (ExecutionException e) {
+						throw new RuntimeException(e);
 					}
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (ExecutionException e) {
-					throw new RuntimeException(e);
+				} else {
+					LOG.info("Performing the computation without parallelization.");
+					compute(mode, departureTime, aggregatedOpportunities, aggregatedOrigins, aggregatedOriginIds, nextOrigin, progressBar);
 				}
+			}
+		} finally {
+			if (service != null) {
 				service.shutdown();
-			} else {
-				LOG.info("Performing the computation without parallelization.");
-				ProgressBar progressBar = new ProgressBar(aggregatedOrigins.size());
-				compute(mode, departureTime, aggregatedOpportunities, aggregatedOrigins, aggregatedOriginIds, progressBar);
 			}
 		}
 		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
@@ -172,12 +169,13 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
 
 	private void compute(String mode, Double departureTime, Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities,
 						 Map<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> aggregatedOrigins,
-						 Collection<Id<? extends BasicLocation>> subsetOfNodes, ProgressBar progressBar) {
+						 List<Id<? extends BasicLocation>> originNodeIds, AtomicInteger nextOrigin, ProgressBar progressBar) {
 
 		AccessibilityContributionCalculator calculator = calculators.get(mode).duplicate();
 
 		// Go through all nodes that have a measuring point assigned
-		for (Id<? extends BasicLocation> fromNodeId : subsetOfNodes) {
+		for (int i = nextOrigin.getAndIncrement(); i < originNodeIds.size(); i = nextOrigin.getAndIncrement()) {
+			Id<? extends BasicLocation> fromNodeId = originNodeIds.get(i);
 			progressBar.update();
 
 			Gbl.assertNotNull(calculator);
@@ -200,8 +198,11 @@ final class AccessibilityComputationShutdownListener implements ShutdownListener
                     throw new IllegalArgumentException("No valid accessibility measure type chosen.");
                 }
 
-				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, mode, accessibility);
+				// the listeners are not necessarily thread-safe
+				synchronized (this.zoneDataExchangeListeners) {
+					for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
+						zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, mode, accessibility);
+					}
 				}
 			}
 		}
@@ -67,10 +67,18 @@ final class ConstantSpeedAccessibilityExpContributionCalculator implements Acces
 	private double walkSpeed_m_h;
 
 	private Node fromNode = null;
+	// sum over all opportunities of exp(beta * utility of the network route from the origin node), i.e. the part
+	// of the contribution that is the same for all measuring points of the current origin node
+	private double networkExpSum;
 
 	Map<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> aggregatedMeasurePoints;
 	Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities;
 
+	private ActivityFacilities measuringPoints;
+	private ActivityFacilities opportunities;
+	private Id<Node>[] opportunityNodeIds;
+	private double[] opportunitySums;
+
 
 	public ConstantSpeedAccessibilityExpContributionCalculator(final String mode, final Scenario scenario) {
 		this.mode = mode;
@@ -104,8 +112,24 @@ final class ConstantSpeedAccessibilityExpContributionCalculator implements Acces
 
 	@Override
 	public void initialize(ActivityFacilities measuringPoints, ActivityFacilities opportunities) {
+		if (measuringPoints == this.measuringPoints && opportunities == this.opportunities) {
+			LOG.info("Calculator for mode " + mode + " is already initialized.");
+			return;
+		}
+		this.measuringPoints = measuringPoints;
+		this.opportunities = opportunities;
+
 		this.aggregatedMeasurePoints = AccessibilityUtils.aggregateMeasurePointsWithSameNearestNode(measuringPoints, network);
 		this.aggregatedOpportunities = AccessibilityUtils.aggregateOpportunitiesWithSameNearestNode(opportunities, network, scenario.getConfig());
+
+		this.opportunityNodeIds = new Id[aggregatedOpportunities.size()];
+		this.opportunitySums = new double[aggregatedOpportunities.size()];
+		int i = 0;
+		for (AggregationObject destination : aggregatedOpportunities.values()) {
+			opportunityNodeIds[i] = ((Node) destination.getNearestBasicLocation()).getId();
+			opportunitySums[i] = destination.getSum();
+			i++;
+		}
 	}
 
 
@@ -114,45 +138,67 @@ final class ConstantSpeedAccessibilityExpContributionCalculator implements Acces
 	public void notifyNewOriginNode(Id<? extends BasicLocation> fromNodeId, Double departureTime) {
 		this.fromNode = network.getNodes().get(fromNodeId);
 		this.lcptTravelDistance.calculate(network, fromNode, departureTime);
+
+		Map<Id<Node>, LeastCostPathTree.NodeData> tree = lcptTravelDistance.getTree();
+		double sum = 0.;
+		for (int i = 0; i < opportunityNodeIds.length; i++) {
+			// Uutility on the network from first node to destination node
+			double travelDistance_m = tree.get(opportunityNodeIds[i]).getCost(); // travel link distances on road network for bicycle and walk
+			double utility = ((travelDistance_m / modeSpeed_m_h * betaModeTT) + (travelDistance_m * betaModeTD)); // toll or money ???
+
+			// Utility based on opportunities that are attached to destination node
+			sum += Math.exp(logitScaleParameter * utility) * opportunitySums[i];
+		}
+		this.networkExpSum = sum;
 	}
 
 	
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin,
 			Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities, Double departureTime) {
-		double expSum = 0.;
-
-		for (final AggregationObject destination : aggregatedOpportunities.values()) {
-			// TODO departure time is not used, dz, apr'17
-			Link nearestLinkToOrigin = NetworkUtils.getNearestLinkExactly(network, origin.getCoord());
+		// TODO departure time is not used, dz, apr'17
+		Link nearestLinkToOrigin = NetworkUtils.getNearestLinkExactly(network, origin.getCoord());
 
-			// Captures the distance between the origin via the link to the node:
-			Distances distances = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLinkToOrigin, fromNode);
+		// Captures the distance between the origin via the link to the node:
+		Distances distances = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLinkToOrigin, fromNode);
 
-			// TODO: extract this walk part?
-			// In the state found before modularization (june 15), this was anyway not consistent accross modes
-			// (different for PtMatrix), pointing to the fact that making this mode-specific might make sense.
-			// distance to road, and then to node:
+		// TODO: extract this walk part?
+		// In the state found before modularization (june 15), this was anyway not consistent accross modes
+		// (different for PtMatrix), pointing to the fact that making this mode-specific might make sense.
+		// distance to road, and then to node:
 
-			// Utility to get on the network by walking
-			double distancePoint2Intersection_m = distances.getDistancePoint2Intersection();
-			double utilityMeasuringPoint2Road = (distancePoint2Intersection_m / this.walkSpeed_m_h * betaWalkTT)	+ (distancePoint2Intersection_m * betaWalkTD);
+		// Utility to get on the network by walking
+		double distancePoint2Intersection_m = distances.getDistancePoint2Intersection();
+		double utilityMeasuringPoint2Road = (distancePoint2Intersection_m / this.walkSpeed_m_h * betaWalkTT)	+ (distancePoint2Intersection_m * betaWalkTD);
 
-			// Utility on the network to first node
-			double distanceIntersection2Node_m = distances.getDistanceIntersection2Node();
-			double utilityRoad2Node = (distanceIntersection2Node_m / modeSpeed_m_h * betaModeTT)	+ (distanceIntersection2Node_m * betaModeTD); // toll or money ???
+		// Utility on the network to first node
+		double distanceIntersection2Node_m = distances.getDistanceIntersection2Node();
+		double utilityRoad2Node = (distanceIntersection2Node_m / modeSpeed_m_h * betaModeTT)	+ (distanceIntersection2Node_m * betaModeTD); // toll or money ???
 
-			// Uutility on the network from first node to destination node
-			double travelDistance_m = lcptTravelDistance.getTree().get(((Node) destination.getNearestBasicLocation()).getId()).getCost(); // travel link distances on road network for bicycle and walk
-			double utility = ((travelDistance_m / modeSpeed_m_h * betaModeTT) + (travelDistance_m * betaModeTD)); // toll or money ???
+		// exp(beta * a) * exp(beta * b) = exp(beta * (a+b)); the network part is the same for all measuring points of the
+		// origin node
+		double expSum = Math.exp(logitScaleParameter * (constMode + utilityMeasuringPoint2Road + utilityRoad2Node))
+				* getNetworkExpSum(aggregatedOpportunities);
+		return expSum;
+	}
 
-			// Utility based on opportunities that are attached to destination node
-			double sumExpVjkWalk = destination.getSum();
 
-			// exp(beta * a) * exp(beta * b) = exp(beta * (a+b))
-			expSum += Math.exp(logitScaleParameter * (constMode + utilityMeasuringPoint2Road + utilityRoad2Node + utility)) * sumExpVjkWalk;
+	/**
+	 * @return the sum computed in notifyNewOriginNode if the opportunities are the ones aggregated in initialize, otherwise
+	 * the sum over the given opportunities
+	 */
+	private double getNetworkExpSum(Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities) {
+		if (aggregatedOpportunities == this.aggregatedOpportunities) {
+			return this.networkExpSum;
 		}
-		return expSum;
+		Map<Id<Node>, LeastCostPathTree.NodeData> tree = lcptTravelDistance.getTree();
+		double sum = 0.;
+		for (AggregationObject destination : aggregatedOpportunities.values()) {
+			double travelDistance_m = tree.get(((Node) destination.getNearestBasicLocation()).getId()).getCost();
+			double utility = ((travelDistance_m / modeSpeed_m_h * betaModeTT) + (travelDistance_m * betaModeTD));
+			sum += Math.exp(logitScaleParameter * utility) * destination.getSum();
+		}
+		return sum;
 	}
 
 
@@ -163,6 +209,10 @@ final class ConstantSpeedAccessibilityExpContributionCalculator implements Acces
 				new ConstantSpeedAccessibilityExpContributionCalculator(this.mode, this.scenario);
 		constantSpeedAccessibilityExpContributionCalculator.aggregatedMeasurePoints = this.aggregatedMeasurePoints;
 		constantSpeedAccessibilityExpContributionCalculator.aggregatedOpportunities = this.aggregatedOpportunities;
+		constantSpeedAccessibilityExpContributionCalculator.measuringPoints = this.measuringPoints;
+		constantSpeedAccessibilityExpContributionCalculator.opportunities = this.opportunities;
+		constantSpeedAccessibilityExpContributionCalculator.opportunityNodeIds = this.opportunityNodeIds;
+		constantSpeedAccessibilityExpContributionCalculator.opportunitySums = this.opportunitySums;
 		return constantSpeedAccessibilityExpContributionCalculator;
 	}
 
@@ -9,7 +9,6 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.contrib.accessibility.utils.*;
-import org.matsim.contrib.roadpricing.RoadPricingScheme;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkUtils;
@@ -19,6 +18,7 @@ import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -45,7 +45,10 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 	private double walkSpeed_m_s;
 
 	private Node fromNode = null;
-	private LeastCostPathTreeExtended lcpt;
+	private LeastCostPathTree lcpt;
+	// sum over all opportunities of exp(beta * utility of the network route from the origin node), i.e. the part
+	// of the contribution that is the same for all measuring points of the current origin node
+	private double networkExpSum;
 	//private final DijkstraTree dijkstraTree;
 	//private final MultiNodePathCalculator multiNodePathCalculator;
 	//private ImaginaryNode aggregatedToNodes;
@@ -53,6 +56,10 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 	private Map<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> aggregatedMeasurePoints;
 	private Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities;
 
+	private ActivityFacilities measuringPoints;
+	private ActivityFacilities opportunities;
+	private Id<Node>[] opportunityNodeIds;
+	private double[] opportunitySums;
 
 
 	public NetworkModeAccessibilityExpContributionCalculator(String mode, final TravelTime travelTime, final TravelDisutilityFactory travelDisutilityFactory, Scenario scenario) {
@@ -66,8 +73,8 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 
 		planCalcScoreConfigGroup = scenario.getConfig().planCalcScore();
 
-		RoadPricingScheme scheme = (RoadPricingScheme) scenario.getScenarioElement( RoadPricingScheme.ELEMENT_NAME );
-		this.lcpt = new LeastCostPathTreeExtended(travelTime, travelDisutility, scheme);
+		// (tolls are part of the travel disutility; distances and tolls are not needed separately)
+		this.lcpt = new LeastCostPathTree(travelTime, travelDisutility);
 		//this.dijkstraTree = new DijkstraTree(network, travelDisutility, travelTime);
 		//FastMultiNodeDijkstraFactory fastMultiNodeDijkstraFactory = new FastMultiNodeDijkstraFactory(true);
 		//this.multiNodePathCalculator = (MultiNodePathCalculator) fastMultiNodeDijkstraFactory.createPathCalculator(network, travelDisutility, travelTime);
@@ -80,6 +87,14 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 
 	@Override
 	public void initialize(ActivityFacilities measuringPoints, ActivityFacilities opportunities) {
+		if (measuringPoints == this.measuringPoints && opportunities == this.opportunities) {
+			// e.g. only the travel times have changed, the aggregation can be reused
+			LOG.info("Calculator for mode " + mode + " is already initialized.");
+			return;
+		}
+		this.measuringPoints = measuringPoints;
+		this.opportunities = opportunities;
+
 		LOG.warn("Initializing calculator for mode " + mode + "...");
 		LOG.warn("Full network has " + scenario.getNetwork().getNodes().size() + " nodes.");
         subNetwork = NetworkUtils.createNetwork();
@@ -96,13 +111,33 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 
         this.aggregatedMeasurePoints = AccessibilityUtils.aggregateMeasurePointsWithSameNearestNode(measuringPoints, subNetwork);
 		this.aggregatedOpportunities = AccessibilityUtils.aggregateOpportunitiesWithSameNearestNode(opportunities, subNetwork, scenario.getConfig());
+
+		this.opportunityNodeIds = new Id[aggregatedOpportunities.size()];
+		this.opportunitySums = new double[aggregatedOpportunities.size()];
+		int i = 0;
+		for (AggregationObject destination : aggregatedOpportunities.values()) {
+			opportunityNodeIds[i] = ((Node) destination.getNearestBasicLocation()).getId();
+			opportunitySums[i] = destination.getSum();
+			i++;
+		}
 	}
 
 
 	@Override
 	public void notifyNewOriginNode(Id<? extends BasicLocation> fromNodeId, Double departureTime) {
 		this.fromNode = subNetwork.getNodes().get(fromNodeId);
-		this.lcpt.calculateExtended(subNetwork, fromNode, departureTime);
+		this.lcpt.calculate(subNetwork, fromNode, departureTime);
+
+		Map<Id<Node>, LeastCostPathTree.NodeData> tree = lcpt.getTree();
+		double beta = this.planCalcScoreConfigGroup.getBrainExpBeta();
+		double sum = 0.;
+		for (int i = 0; i < opportunityNodeIds.length; i++) {
+			// Remaining travel on network
+			double congestedCarUtility = -tree.get(opportunityNodeIds[i]).getCost();
+			// Pre-computed effect of all opportunities reachable from destination network node
+			sum += Math.exp(beta * congestedCarUtility) * opportunitySums[i];
+		}
+		this.networkExpSum = sum;
 		//this.dijkstraTree.calcLeastCostPathTree(fromNode, departureTime);
 		//multiNodePathCalculator.calcLeastCostPath(fromNode, aggregatedToNodes, departureTime, null, null);
 	}
@@ -111,40 +146,48 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin,
 			Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities, Double departureTime) {
-		double expSum = 0.;
-
-		for (final AggregationObject destination : aggregatedOpportunities.values()) {
-			Link nearestLink = NetworkUtils.getNearestLinkExactly(subNetwork, origin.getCoord());
-
-			// Orthogonal walk to nearest link
-			Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
-			double walkTravelTimeMeasuringPoint2Road_h = distance.getDistancePoint2Intersection() / (this.walkSpeed_m_s * 3600);
-			double walkUtilityMeasuringPoint2Road = (walkTravelTimeMeasuringPoint2Road_h * betaWalkTT);
-
-			// NEW AV MODE
-			//		double waitingTime_h = (Double) origin.getAttributes().getAttribute("waitingTime_s") / 3600.;
-			//		double walkUtilityMeasuringPoint2Road = ((walkTravelTimeMeasuringPoint2Road_h + waitingTime_h) * betaWalkTT)
-			//					+ (distance.getDistancePoint2Intersection() * betaWalkTD);
-			// END NEW AV MODE
-
-			// Travel on section of first link to first node
-			double distanceFraction = distance.getDistanceIntersection2Node() / nearestLink.getLength();
-			double congestedCarUtilityRoad2Node = -travelDisutility.getLinkTravelDisutility(nearestLink, departureTime, null, null) * distanceFraction;
-
-			// Remaining travel on network
-			double congestedCarUtility = -lcpt.getTree().get(((Node) destination.getNearestBasicLocation()).getId()).getCost();
-			//double congestedCarUtility = - dijkstraTree.getLeastCostPath(destination.getNearestNode()).travelCost;
-			//double congestedCarUtility = - multiNodePathCalculator.constructPath(fromNode, destination.getNearestNode(), departureTime).travelCost;
+		Link nearestLink = NetworkUtils.getNearestLinkExactly(subNetwork, origin.getCoord());
+
+		// Orthogonal walk to nearest link
+		Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
+		double walkTravelTimeMeasuringPoint2Road_h = distance.getDistancePoint2Intersection() / (this.walkSpeed_m_s * 3600);
+		double walkUtilityMeasuringPoint2Road = (walkTravelTimeMeasuringPoint2Road_h * betaWalkTT);
+
+		// NEW AV MODE
+		//		double waitingTime_h = (Double) origin.getAttributes().getAttribute("waitingTime_s") / 3600.;
+		//		double walkUtilityMeasuringPoint2Road = ((walkTravelTimeMeasuringPoint2Road_h + waitingTime_h) * betaWalkTT)
+		//					+ (distance.getDistancePoint2Intersection() * betaWalkTD);
+		// END NEW AV MODE
+
+		// Travel on section of first link to first node
+		double distanceFraction = distance.getDistanceIntersection2Node() / nearestLink.getLength();
+		double congestedCarUtilityRoad2Node = -travelDisutility.getLinkTravelDisutility(nearestLink, departureTime, null, null) * distanceFraction;
+
+		// Combine all utility components (using the identity: exp(a+b) = exp(a) * exp(b)); the network part is the
+		// same for all measuring points of the origin node
+		double modeSpecificConstant = AccessibilityUtils.getModeSpecificConstantForAccessibilities(mode, planCalcScoreConfigGroup);
+		double expSum = Math.exp(this.planCalcScoreConfigGroup.getBrainExpBeta() * (walkUtilityMeasuringPoint2Road + modeSpecificConstant
+				+ congestedCarUtilityRoad2Node)) * getNetworkExpSum(aggregatedOpportunities);
+		return expSum;
+	}
 
-			// Pre-computed effect of all opportunities reachable from destination network node
-			double sumExpVjkWalk = destination.getSum();
 
-			// Combine all utility components (using the identity: exp(a+b) = exp(a) * exp(b))
-			double modeSpecificConstant = AccessibilityUtils.getModeSpecificConstantForAccessibilities(mode, planCalcScoreConfigGroup);
-			expSum += Math.exp(this.planCalcScoreConfigGroup.getBrainExpBeta() * (walkUtilityMeasuringPoint2Road + modeSpecificConstant
-					+ congestedCarUtilityRoad2Node + congestedCarUtility)) * sumExpVjkWalk;
+	/**
+	 * @return the sum computed in notifyNewOriginNode if the opportunities are the ones aggregated in initialize, otherwise
+	 * the sum over the given opportunities
+	 */
+	private double getNetworkExpSum(Map<Id<? extends BasicLocation>, AggregationObject> aggregatedOpportunities) {
+		if (aggregatedOpportunities == this.aggregatedOpportunities) {
+			return this.networkExpSum;
 		}
-		return expSum;
+		Map<Id<Node>, LeastCostPathTree.NodeData> tree = lcpt.getTree();
+		double beta = this.planCalcScoreConfigGroup.getBrainExpBeta();
+		double sum = 0.;
+		for (AggregationObject destination : aggregatedOpportunities.values()) {
+			double congestedCarUtility = -tree.get(((Node) destination.getNearestBasicLocation()).getId()).getCost();
+			sum += Math.exp(beta * congestedCarUtility) * destination.getSum();
+		}
+		return sum;
 	}
 
 
@@ -162,6 +205,10 @@ final class NetworkModeAccessibilityExpContributionCalculator implements Accessi
 		networkModeAccessibilityExpContributionCalculator.subNetwork = this.subNetwork;
 		networkModeAccessibilityExpContributionCalculator.aggregatedMeasurePoints = this.aggregatedMeasurePoints;
 		networkModeAccessibilityExpContributionCalculator.aggregatedOpportunities = this.aggregatedOpportunities;
+		networkModeAccessibilityExpContributionCalculator.measuringPoints = this.measuringPoints;
+		networkModeAccessibilityExpContributionCalculator.opportunities = this.opportunities;
+		networkModeAccessibilityExpContributionCalculator.opportunityNodeIds = this.opportunityNodeIds;
+		networkModeAccessibilityExpContributionCalculator.opportunitySums = this.opportunitySums;
 		return networkModeAccessibilityExpContributionCalculator;
 	}
 
@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkModeAccessibilityExpContributionCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.accessibility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.BasicLocation;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.accessibility.utils.AggregationObject;
+import org.matsim.contrib.accessibility.utils.Distances;
+import org.matsim.contrib.accessibility.utils.NetworkUtil;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
+
+public class NetworkModeAccessibilityExpContributionCalculatorTest {
+
+	private static final double DEPARTURE_TIME = 8 * 3600.;
+
+	/**
+	 * Compares the contributions, which use the network part computed once per origin node, with the sum over all
+	 * opportunities computed for every measuring point.
+	 */
+	@Test
+	public void testContributionsMatchComputationPerMeasuringPoint() {
+		Scenario scenario = createScenario();
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		OnlyTimeDependentTravelDisutilityFactory disutilityFactory = new OnlyTimeDependentTravelDisutilityFactory();
+		NetworkModeAccessibilityExpContributionCalculator calculator = new NetworkModeAccessibilityExpContributionCalculator(
+				TransportMode.car, travelTime, disutilityFactory, scenario);
+		calculator.initialize(createFacilities("mp", 50., 250., 1650., 1900.), createFacilities("opp", 300., 20., 1200., 1950., 980.));
+
+		Map<Id<? extends BasicLocation>, AggregationObject> opportunities = calculator.getAgregatedOpportunities();
+		Assert.assertTrue(opportunities.size() > 1);
+		// a copy and a subset are not the opportunities of initialize and are summed up for every call
+		Map<Id<? extends BasicLocation>, AggregationObject> copy = new HashMap<>(opportunities);
+		Map.Entry<Id<? extends BasicLocation>, AggregationObject> first = opportunities.entrySet().iterator().next();
+		Map<Id<? extends BasicLocation>, AggregationObject> subset = Collections.singletonMap(first.getKey(), first.getValue());
+
+		TravelDisutility travelDisutility = disutilityFactory.createTravelDisutility(travelTime);
+		LeastCostPathTree lcpt = new LeastCostPathTree(travelTime, travelDisutility);
+		int measuringPoints = 0;
+		for (Map.Entry<Id<? extends BasicLocation>, ArrayList<ActivityFacility>> e : calculator.getAggregatedMeasurePoints().entrySet()) {
+			calculator.notifyNewOriginNode(e.getKey(), DEPARTURE_TIME);
+			Node fromNode = scenario.getNetwork().getNodes().get(e.getKey());
+			lcpt.calculate(scenario.getNetwork(), fromNode, DEPARTURE_TIME);
+			for (ActivityFacility origin : e.getValue()) {
+				double expected = computePerMeasuringPoint(scenario, travelDisutility, lcpt, fromNode, origin, opportunities);
+				Assert.assertTrue(expected > 0.);
+				Assert.assertEquals(expected, calculator.computeContributionOfOpportunity(origin, opportunities, DEPARTURE_TIME), expected * 1e-10);
+				Assert.assertEquals(expected, calculator.computeContributionOfOpportunity(origin, copy, DEPARTURE_TIME), expected * 1e-10);
+
+				double expectedSubset = computePerMeasuringPoint(scenario, travelDisutility, lcpt, fromNode, origin, subset);
+				Assert.assertEquals(expectedSubset, calculator.computeContributionOfOpportunity(origin, subset, DEPARTURE_TIME), expectedSubset * 1e-10);
+				measuringPoints++;
+			}
+		}
+		Assert.assertEquals(4, measuringPoints);
+	}
+
+	/**
+	 * The computation per measuring point and opportunity, as it was done before the network part was computed once
+	 * per origin node.
+	 */
+	private static double computePerMeasuringPoint(Scenario scenario, TravelDisutility travelDisutility, LeastCostPathTree lcpt,
+			Node fromNode, ActivityFacility origin, Map<Id<? extends BasicLocation>, AggregationObject> opportunities) {
+		Config config = scenario.getConfig();
+		double beta = config.planCalcScore().getBrainExpBeta();
+		double betaWalkTT = config.planCalcScore().getModes().get(TransportMode.walk).getMarginalUtilityOfTraveling()
+				- config.planCalcScore().getPerforming_utils_hr();
+		double walkSpeed_m_s = config.plansCalcRoute().getTeleportedModeSpeeds().get(TransportMode.walk);
+		double modeSpecificConstant = AccessibilityUtils.getModeSpecificConstantForAccessibilities(TransportMode.car, config.planCalcScore());
+
+		double expSum = 0.;
+		for (AggregationObject destination : opportunities.values()) {
+			Link nearestLink = NetworkUtils.getNearestLinkExactly(scenario.getNetwork(), origin.getCoord());
+			Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
+			double walkUtilityMeasuringPoint2Road = distance.getDistancePoint2Intersection() / (walkSpeed_m_s * 3600) * betaWalkTT;
+			double distanceFraction = distance.getDistanceIntersection2Node() / nearestLink.getLength();
+			double congestedCarUtilityRoad2Node = -travelDisutility.getLinkTravelDisutility(nearestLink, DEPARTURE_TIME, null, null) * distanceFraction;
+			double congestedCarUtility = -lcpt.getTree().get(((Node) destination.getNearestBasicLocation()).getId()).getCost();
+			expSum += Math.exp(beta * (walkUtilityMeasuringPoint2Road + modeSpecificConstant + congestedCarUtilityRoad2Node
+					+ congestedCarUtility)) * destination.getSum();
+		}
+		return expSum;
+	}
+
+	/**
+	 * A 3x3 grid with links of different speeds in both directions.
+	 */
+	private static Scenario createScenario() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[3][3];
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 1000., y * 1000.));
+			}
+		}
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				if (x < 2) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], 5. + 5. * y);
+				}
+				if (y < 2) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], 25. - 5. * x);
+				}
+			}
+		}
+		return scenario;
+	}
+
+	private static void addLinks(Network network, Node node1, Node node2, double freespeed) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node1.getId() + "-" + node2.getId()), node1, node2, 1000., freespeed, 1800., 1.);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node2.getId() + "-" + node1.getId()), node2, node1, 1000., freespeed, 1800., 1.);
+	}
+
+	private static ActivityFacilities createFacilities(String prefix, double... coordinates) {
+		ActivityFacilities facilities = FacilitiesUtils.createActivityFacilities();
+		List<Coord> coords = new ArrayList<>();
+		for (int i = 0; i < coordinates.length; i++) {
+			coords.add(new Coord(coordinates[i], coordinates[coordinates.length - 1 - i]));
+		}
+		for (int i = 0; i < coords.size(); i++) {
+			facilities.addActivityFacility(facilities.getFactory().createActivityFacility(Id.create(prefix + i, ActivityFacility.class), coords.get(i)));
+		}
+		return facilities;
+	}
+}
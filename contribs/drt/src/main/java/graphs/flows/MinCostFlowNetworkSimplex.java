@@ -0,0 +1,340 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package graphs.flows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import graphs.flows.MinCostFlow.Edge;
+
+/**
+ * Primal network simplex for the min cost flow problem on the graph representation of {@link MinCostFlow}. Sends (at
+ * most) {@code maxf} units from {@code s} to {@code t}; if not all units can be sent, the result is a maximum flow of
+ * minimum cost. Unlike {@link MinCostFlow}, the running time does not grow with the flow value (each unit of flow
+ * requires one run of Dijkstra there), so this is much faster for transport problems with many producers and
+ * consumers.
+ * <p>
+ * The implementation follows the standard approach (see e.g. the LEMON library): the initial strongly feasible spanning
+ * tree consists of artificial arcs connecting all nodes with an artificial root, the entering arc is chosen using the
+ * block search pivot rule, and the leaving arc is chosen so that the tree remains strongly feasible (prevents cycling).
+ */
+public class MinCostFlowNetworkSimplex {
+	private static final int STATE_UPPER = -1;
+	private static final int STATE_TREE = 0;
+	private static final int STATE_LOWER = 1;
+
+	private static final int DIR_UP = 1;// arc from node to parent
+	private static final int DIR_DOWN = -1;// arc from parent to node
+
+	private static final int INF = Integer.MAX_VALUE;
+
+	/**
+	 * @return {flow, flowCost}
+	 */
+	public static long[] minCostFlow(List<Edge>[] graph, int s, int t, int maxf) {
+		return new MinCostFlowNetworkSimplex(graph, s, t, maxf).solve();
+	}
+
+	private final List<Edge>[] graph;
+	private final Edge[] edges;
+	private final int s;
+	private final int arcCount;// real arcs (artificial arcs are indexed arcCount..arcCount+n-1)
+
+	// arcs
+	private final int[] source;
+	private final int[] target;
+	private final int[] cap;
+	private final long[] cost;
+	private final int[] flow;
+	private final int[] state;
+
+	// spanning tree
+	private final int[] parent;
+	private final int[] pred;
+	private final int[] predDir;
+	private final int[] depth;
+	private final long[] pot;
+	private final int[] firstChild;
+	private final int[] nextSibling;
+	private final int[] prevSibling;
+	private final int[] stack;
+
+	private final int blockSize;
+	private int nextArc = 0;
+
+	private MinCostFlowNetworkSimplex(List<Edge>[] graph, int s, int t, int maxf) {
+		this.graph = graph;
+		this.s = s;
+		int n = graph.length;
+		int root = n;
+
+		// reverse edges have zero capacity, so do forward edges that can be ignored
+		List<Edge> realEdges = new ArrayList<>();
+		List<Integer> realSources = new ArrayList<>();
+		for (int u = 0; u < n; u++) {
+			for (Edge e : graph[u]) {
+				if (e.cap > 0) {
+					realEdges.add(e);
+					realSources.add(u);
+				}
+			}
+		}
+		edges = realEdges.toArray(new Edge[0]);
+		arcCount = edges.length;
+
+		int totalArcCount = arcCount + n;
+		source = new int[totalArcCount];
+		target = new int[totalArcCount];
+		cap = new int[totalArcCount];
+		cost = new long[totalArcCount];
+		flow = new int[totalArcCount];
+		state = new int[totalArcCount];
+
+		long maxCost = 0;
+		for (int a = 0; a < arcCount; a++) {
+			Edge e = edges[a];
+			source[a] = realSources.get(a);
+			target[a] = e.to;
+			cap[a] = e.cap;
+			cost[a] = e.cost;
+			state[a] = STATE_LOWER;
+			maxCost = Math.max(maxCost, Math.abs((long)e.cost));
+		}
+
+		int nodeCount = n + 1;
+		parent = new int[nodeCount];
+		pred = new int[nodeCount];
+		predDir = new int[nodeCount];
+		depth = new int[nodeCount];
+		pot = new long[nodeCount];
+		firstChild = new int[nodeCount];
+		nextSibling = new int[nodeCount];
+		prevSibling = new int[nodeCount];
+		stack = new int[nodeCount];
+		Arrays.fill(firstChild, -1);
+
+		// artificial arcs are more expensive than any path made of real arcs
+		long artificialCost = (maxCost + 1) * nodeCount;
+		parent[root] = -1;
+		pred[root] = -1;
+		for (int u = 0; u < n; u++) {
+			int a = arcCount + u;
+			int supply = u == s ? maxf : (u == t ? -maxf : 0);
+			if (supply >= 0) {
+				source[a] = u;
+				target[a] = root;
+				flow[a] = supply;
+				predDir[u] = DIR_UP;
+				pot[u] = -artificialCost;
+			} else {
+				source[a] = root;
+				target[a] = u;
+				flow[a] = -supply;
+				predDir[u] = DIR_DOWN;
+				pot[u] = artificialCost;
+			}
+			cap[a] = INF;
+			cost[a] = artificialCost;
+			state[a] = STATE_TREE;
+			parent[u] = root;
+			pred[u] = a;
+			depth[u] = 1;
+			addChild(root, u);
+		}
+
+		blockSize = Math.max(10, (int)Math.ceil(Math.sqrt(arcCount)));
+	}
+
+	private long[] solve() {
+		int in;
+		while ((in = findEnteringArc()) >= 0) {
+			pivot(in);
+		}
+
+		long totalFlow = 0;
+		long totalCost = 0;
+		for (int a = 0; a < arcCount; a++) {
+			Edge e = edges[a];
+			e.f = flow[a];
+			graph[e.to].get(e.rev).f = -flow[a];
+			totalCost += flow[a] * cost[a];
+			if (source[a] == s) {
+				totalFlow += flow[a];
+			} else if (target[a] == s) {
+				totalFlow -= flow[a];
+			}
+		}
+		return new long[] { totalFlow, totalCost };
+	}
+
+	// block search pivot rule (artificial arcs never re-enter the tree)
+	private int findEnteringArc() {
+		long min = 0;
+		int minArc = -1;
+		int count = blockSize;
+		for (int k = 0; k < arcCount; k++) {
+			int a = nextArc;
+			nextArc = a + 1 == arcCount ? 0 : a + 1;
+			long c = state[a] * (cost[a] + pot[source[a]] - pot[target[a]]);
+			if (c < min) {
+				min = c;
+				minArc = a;
+			}
+			if (--count == 0) {
+				if (minArc >= 0) {
+					return minArc;
+				}
+				count = blockSize;
+			}
+		}
+		return minArc;
+	}
+
+	private void pivot(int in) {
+		// the flow is augmented along the cycle: first -> second -> ... -> join -> ... -> first
+		int first, second;
+		if (state[in] == STATE_LOWER) {
+			first = source[in];
+			second = target[in];
+		} else {
+			first = target[in];
+			second = source[in];
+		}
+		int join = findJoin(first, second);
+
+		// find the leaving arc (ties resolved to keep the tree strongly feasible)
+		int delta = cap[in];
+		int result = 0;
+		int uOut = -1;
+		for (int u = first; u != join; u = parent[u]) {
+			int d = predDir[u] == DIR_UP ? flow[pred[u]] : residualCapacity(pred[u]);
+			if (d < delta) {
+				delta = d;
+				uOut = u;
+				result = 1;
+			}
+		}
+		for (int u = second; u != join; u = parent[u]) {
+			int d = predDir[u] == DIR_DOWN ? flow[pred[u]] : residualCapacity(pred[u]);
+			if (d <= delta) {
+				delta = d;
+				uOut = u;
+				result = 2;
+			}
+		}
+		if (delta == INF) {
+			throw new IllegalStateException("Unbounded problem (negative cycle of infinite capacity)");
+		}
+
+		if (delta > 0) {
+			flow[in] += state[in] * delta;
+			for (int u = first; u != join; u = parent[u]) {
+				flow[pred[u]] -= predDir[u] * delta;
+			}
+			for (int u = second; u != join; u = parent[u]) {
+				flow[pred[u]] += predDir[u] * delta;
+			}
+		}
+
+		if (result == 0) {
+			// the entering arc goes from one bound to the other, the tree does not change
+			state[in] = -state[in];
+			return;
+		}
+
+		int out = pred[uOut];
+		state[out] = flow[out] == 0 ? STATE_LOWER : STATE_UPPER;
+		state[in] = STATE_TREE;
+
+		// re-hang the subtree cut off by the leaving arc: uIn becomes a child of vIn
+		int uIn = result == 1 ? first : second;
+		int vIn = result == 1 ? second : first;
+		int newParent = vIn;
+		int newPred = in;
+		int u = uIn;
+		while (true) {
+			int oldParent = parent[u];
+			int oldPred = pred[u];
+			removeChild(oldParent, u);
+			parent[u] = newParent;
+			pred[u] = newPred;
+			predDir[u] = source[newPred] == u ? DIR_UP : DIR_DOWN;
+			addChild(newParent, u);
+			if (u == uOut) {
+				break;
+			}
+			newParent = u;
+			newPred = oldPred;
+			u = oldParent;
+		}
+		updateSubtree(uIn);
+	}
+
+	private int residualCapacity(int arc) {
+		return cap[arc] == INF ? INF : cap[arc] - flow[arc];
+	}
+
+	private int findJoin(int u, int v) {
+		while (u != v) {
+			if (depth[u] > depth[v]) {
+				u = parent[u];
+			} else {
+				v = parent[v];
+			}
+		}
+		return u;
+	}
+
+	// recalculates depths and potentials (reduced costs of all tree arcs are 0)
+	private void updateSubtree(int subtreeRoot) {
+		int size = 0;
+		stack[size++] = subtreeRoot;
+		while (size > 0) {
+			int u = stack[--size];
+			int p = parent[u];
+			depth[u] = depth[p] + 1;
+			pot[u] = predDir[u] == DIR_UP ? pot[p] - cost[pred[u]] : pot[p] + cost[pred[u]];
+			for (int c = firstChild[u]; c >= 0; c = nextSibling[c]) {
+				stack[size++] = c;
+			}
+		}
+	}
+
+	private void addChild(int p, int c) {
+		nextSibling[c] = firstChild[p];
+		prevSibling[c] = -1;
+		if (firstChild[p] >= 0) {
+			prevSibling[firstChild[p]] = c;
+		}
+		firstChild[p] = c;
+	}
+
+	private void removeChild(int p, int c) {
+		if (prevSibling[c] >= 0) {
+			nextSibling[prevSibling[c]] = nextSibling[c];
+		} else {
+			firstChild[p] = nextSibling[c];
+		}
+		if (nextSibling[c] >= 0) {
+			prevSibling[nextSibling[c]] = prevSibling[c];
+		}
+	}
+}
@@ -28,6 +28,7 @@ import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
 
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.schedule.DrtStopTask;
@@ -106,15 +107,30 @@ public class VehicleData {
 	private final double currentTime;
 	private final EntryFactory entryFactory;
 	private final Map<Id<DvrpVehicle>, Entry> entries;
+	private final VehicleLocationIndex locationIndex;// null if not indexed
 
 	public VehicleData(double currentTime, Stream<? extends DvrpVehicle> vehicles, EntryFactory entryFactory,
 			ForkJoinPool forkJoinPool) {
+		this(currentTime, vehicles, entryFactory, forkJoinPool, null);
+	}
+
+	/**
+	 * @param locationIndex (empty) index to be filled with the locations of all entries and kept up to date in
+	 *                      {@link #updateEntry(DvrpVehicle)}; null if no spatial queries are needed
+	 */
+	public VehicleData(double currentTime, Stream<? extends DvrpVehicle> vehicles, EntryFactory entryFactory,
+			ForkJoinPool forkJoinPool, VehicleLocationIndex locationIndex) {
 		this.currentTime = currentTime;
 		this.entryFactory = entryFactory;
+		this.locationIndex = locationIndex;
 		entries = forkJoinPool.submit(() -> vehicles.parallel()
 				.map(v -> entryFactory.create(v, currentTime))
 				.filter(Objects::nonNull)
 				.collect(Collectors.toMap(e -> e.vehicle.getId(), e -> e))).join();
+
+		if (locationIndex != null) {
+			entries.values().forEach(locationIndex::add);
+		}
 	}
 
 	public void updateEntry(DvrpVehicle vehicle) {
@@ -124,6 +140,27 @@ public class VehicleData {
 		} else {
 			entries.remove(vehicle.getId());
 		}
+
+		if (locationIndex != null) {
+			locationIndex.remove(vehicle.getId());
+			if (e != null) {
+				locationIndex.add(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the entries of all vehicles that have their start location or at least one stop within the given
+	 * (beeline) distance from the coordinate. If there is no location index, all entries are returned.
+	 */
+	public Collection<Entry> getEntriesWithinDistance(Coord coord, double distance) {
+		if (locationIndex == null) {
+			return getEntries();
+		}
+		return locationIndex.getVehiclesWithinDistance(coord, distance)
+				.stream()
+				.map(entries::get)
+				.collect(Collectors.toList());
 	}
 
 	public int getSize() {
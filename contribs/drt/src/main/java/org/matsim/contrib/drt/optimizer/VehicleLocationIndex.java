@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleData.Stop;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+
+/**
+ * Uniform grid over the locations from which vehicles may start a detour to serve a new request, i.e. the start
+ * link and the links of all planned stops of each {@link Entry}. Link locations are represented by
+ * {@link Link#getCoord()}, which is also used by the beeline-based insertion filtering.
+ * <p>
+ * The index is not thread-safe; it is updated whenever {@link VehicleData} updates an entry.
+ */
+public class VehicleLocationIndex {
+	private static class Location {
+		private final Id<DvrpVehicle> vehicleId;
+		private final double x;
+		private final double y;
+
+		private Location(Id<DvrpVehicle> vehicleId, Coord coord) {
+			this.vehicleId = vehicleId;
+			this.x = coord.getX();
+			this.y = coord.getY();
+		}
+	}
+
+	private final double cellSize;
+	private final Map<Long, List<Location>> cells = new HashMap<>();
+	private final Map<Id<DvrpVehicle>, Set<Long>> cellsByVehicle = new HashMap<>();
+
+	public VehicleLocationIndex(double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("cellSize must be positive");
+		}
+		this.cellSize = cellSize;
+	}
+
+	public void add(Entry entry) {
+		Id<DvrpVehicle> vehicleId = entry.vehicle.getId();
+		addLocation(vehicleId, entry.start.link);
+		for (Stop s : entry.stops) {
+			addLocation(vehicleId, s.task.getLink());
+		}
+	}
+
+	private void addLocation(Id<DvrpVehicle> vehicleId, Link link) {
+		Coord coord = link.getCoord();
+		long cell = getCell(getColumn(coord.getX()), getRow(coord.getY()));
+		cells.computeIfAbsent(cell, c -> new ArrayList<>()).add(new Location(vehicleId, coord));
+		cellsByVehicle.computeIfAbsent(vehicleId, v -> new HashSet<>()).add(cell);
+	}
+
+	public void remove(Id<DvrpVehicle> vehicleId) {
+		Set<Long> vehicleCells = cellsByVehicle.remove(vehicleId);
+		if (vehicleCells == null) {
+			return;
+		}
+		for (long cell : vehicleCells) {
+			List<Location> locations = cells.get(cell);
+			locations.removeIf(l -> l.vehicleId.equals(vehicleId));
+			if (locations.isEmpty()) {
+				cells.remove(cell);
+			}
+		}
+	}
+
+	/**
+	 * @return ids of all vehicles having at least one location within the given distance
+	 */
+	public Set<Id<DvrpVehicle>> getVehiclesWithinDistance(Coord coord, double distance) {
+		Set<Id<DvrpVehicle>> vehicleIds = new HashSet<>();
+		if (distance < 0) {
+			return vehicleIds;
+		}
+
+		int minColumn = getColumn(coord.getX() - distance);
+		int maxColumn = getColumn(coord.getX() + distance);
+		int minRow = getRow(coord.getY() - distance);
+		int maxRow = getRow(coord.getY() + distance);
+
+		if ((long)(maxColumn - minColumn + 1) * (maxRow - minRow + 1) > cells.size()) {
+			// large radius (compared to the occupied area): cheaper to check all non-empty cells
+			for (List<Location> locations : cells.values()) {
+				addVehiclesWithinDistance(vehicleIds, locations, coord, distance);
+			}
+		} else {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				for (int row = minRow; row <= maxRow; row++) {
+					List<Location> locations = cells.get(getCell(column, row));
+					if (locations != null) {
+						addVehiclesWithinDistance(vehicleIds, locations, coord, distance);
+					}
+				}
+			}
+		}
+		return vehicleIds;
+	}
+
+	private void addVehiclesWithinDistance(Set<Id<DvrpVehicle>> vehicleIds, List<Location> locations, Coord coord,
+			double distance) {
+		double squaredDistance = distance * distance;
+		for (Location l : locations) {
+			double dx = l.x - coord.getX();
+			double dy = l.y - coord.getY();
+			if (dx * dx + dy * dy <= squaredDistance) {
+				vehicleIds.add(l.vehicleId);
+			}
+		}
+	}
+
+	private int getColumn(double x) {
+		return (int)Math.floor(x / cellSize);
+	}
+
+	private int getRow(double y) {
+		return (int)Math.floor(y / cellSize);
+	}
+
+	private static long getCell(int column, int row) {
+		return ((long)column << 32) | (row & 0xffffffffL);
+	}
+}
@@ -0,0 +1,395 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
+import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.insertion.DetourLinksProvider.DetourLinksSet;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator.Insertion;
+import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.Fleet;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEvent;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.contrib.dvrp.run.ModalProviders;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Inserts all requests submitted within one optimisation step as a batch.
+ * <p>
+ * In contrast to {@link DefaultUnplannedRequestInserter}, which runs 4 one-to-many path searches per request (limited
+ * to {@link ParallelPathDataProvider#MAX_THREADS} threads), this inserter:
+ * <ol>
+ * <li>filters the feasible insertions of all requests against the fleet state at the beginning of the step,</li>
+ * <li>runs all resulting path searches in bulk on the {@link QSimScopeForkJoinPoolHolder} pool (i.e. on all
+ * {@link DrtConfigGroup#getNumberOfThreads()} threads); requests sharing the origin link and the departure time of a
+ * search (e.g. requests from the same stop in stop-based DRT) share a single search,</li>
+ * <li>inserts the requests one by one (in the original order). Insertions into vehicles that were re-scheduled by
+ * previous requests of the same step are re-generated, and only the paths missing for them are calculated.</li>
+ * </ol>
+ * The "nearest insertions at end" heuristic of {@link DetourLinksProvider} is applied separately to the initial fleet
+ * state and to the re-scheduled vehicles, so the results may slightly differ from those of
+ * {@link DefaultUnplannedRequestInserter}.
+ */
+public class BatchedUnplannedRequestInserter implements UnplannedRequestInserter {
+	private static final Logger log = Logger.getLogger(BatchedUnplannedRequestInserter.class);
+
+	private final DrtConfigGroup drtCfg;
+	private final Fleet fleet;
+	private final MobsimTimer mobsimTimer;
+	private final EventsManager eventsManager;
+	private final RequestInsertionScheduler insertionScheduler;
+	private final VehicleData.EntryFactory vehicleDataEntryFactory;
+	private final InsertionCostCalculator.PenaltyCalculator penaltyCalculator;
+	private final InsertionCostCalculator insertionCostCalculator;
+	private final SpatialVehicleFilter spatialVehicleFilter;
+
+	private final ForkJoinPool forkJoinPool;
+
+	// path searches are stateful, so each thread of the pool uses its own instances
+	private final ThreadLocal<OneToManyPathSearch> forwardPathSearch;
+	private final ThreadLocal<OneToManyPathSearch> backwardPathSearch;
+
+	private final double stopDuration;
+
+	public BatchedUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
+			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
+			VehicleData.EntryFactory vehicleDataEntryFactory, Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, InsertionCostCalculator.PenaltyCalculator penaltyCalculator,
+			QSimScopeForkJoinPoolHolder forkJoinPoolHolder) {
+		this.drtCfg = drtCfg;
+		this.fleet = fleet;
+		this.mobsimTimer = mobsimTimer;
+		this.eventsManager = eventsManager;
+		this.insertionScheduler = insertionScheduler;
+		this.vehicleDataEntryFactory = vehicleDataEntryFactory;
+		this.penaltyCalculator = penaltyCalculator;
+		this.forkJoinPool = forkJoinPoolHolder.getPool();
+		this.stopDuration = drtCfg.getStopDuration();
+
+		insertionCostCalculator = new InsertionCostCalculator(drtCfg, mobsimTimer, penaltyCalculator);
+		spatialVehicleFilter = new SpatialVehicleFilter(drtCfg);
+		forwardPathSearch = ThreadLocal.withInitial(
+				() -> OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility));
+		backwardPathSearch = ThreadLocal.withInitial(
+				() -> OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility));
+	}
+
+	@Override
+	public void scheduleUnplannedRequests(Collection<DrtRequest> unplannedRequests) {
+		if (unplannedRequests.isEmpty()) {
+			return;
+		}
+
+		VehicleData vData = spatialVehicleFilter.createVehicleData(mobsimTimer.getTimeOfDay(),
+				fleet.getVehicles().values().stream(), vehicleDataEntryFactory, forkJoinPool);
+
+		// 1. feasible insertions and detour links of all requests (initial fleet state)
+		Map<SearchKey, PathSearch> pathSearches = new HashMap<>();
+		List<RequestData> requestDataList = new ArrayList<>(unplannedRequests.size());
+		for (DrtRequest req : unplannedRequests) {
+			DetourLinksProvider detourLinksProvider = findInsertionsAndLinks(req, findCandidateEntries(req, vData));
+			requestDataList.add(new RequestData(req, detourLinksProvider.getFilteredInsertions(),
+					addPathSearches(pathSearches, req, detourLinksProvider.getDetourLinksSet())));
+		}
+
+		// 2. bulk path search
+		runPathSearches(pathSearches.values());
+
+		// 3. insertion (sequential, each insertion changes the fleet state)
+		Set<Id<DvrpVehicle>> rescheduledVehicles = new HashSet<>();
+		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
+		Iterator<RequestData> reqDataIter = requestDataList.iterator();
+		while (reqIter.hasNext()) {
+			DrtRequest req = reqIter.next();
+			Optional<BestInsertion> best = findBestInsertion(reqDataIter.next(), vData, rescheduledVehicles);
+			if (!best.isPresent()) {
+				eventsManager.processEvent(
+						new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+								req.getPassengerId(), DefaultUnplannedRequestInserter.NO_INSERTION_FOUND_CAUSE));
+				log.debug("No insertion found for drt request "
+						+ req
+						+ " from passenger id="
+						+ req.getPassengerId()
+						+ " fromLinkId="
+						+ req.getFromLink().getId());
+			} else {
+				BestInsertion bestInsertion = best.get();
+				insertionScheduler.scheduleRequest(bestInsertion.vehicleEntry, req, bestInsertion.insertion);
+				vData.updateEntry(bestInsertion.vehicleEntry.vehicle);
+				rescheduledVehicles.add(bestInsertion.vehicleEntry.vehicle.getId());
+				eventsManager.processEvent(
+						new PassengerRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+								req.getPassengerId(), bestInsertion.vehicleEntry.vehicle.getId(),
+								req.getPickupTask().getEndTime(), req.getDropoffTask().getBeginTime()));
+			}
+			reqIter.remove();
+		}
+	}
+
+	private Optional<BestInsertion> findBestInsertion(RequestData reqData, VehicleData vData,
+			Set<Id<DvrpVehicle>> rescheduledVehicles) {
+		Map<Entry, List<Insertion>> insertions = reqData.insertions;
+		PathSearch[] searches = reqData.searches;
+
+		if (!rescheduledVehicles.isEmpty()) {
+			// insertions into re-scheduled vehicles are outdated
+			insertions = new HashMap<>(reqData.insertions);
+			insertions.keySet().removeIf(e -> rescheduledVehicles.contains(e.vehicle.getId()));
+
+			List<Entry> rescheduledEntries = findCandidateEntries(reqData.request, vData).stream()
+					.filter(e -> rescheduledVehicles.contains(e.vehicle.getId()))
+					.collect(Collectors.toList());
+			DetourLinksProvider detourLinksProvider = findInsertionsAndLinks(reqData.request, rescheduledEntries);
+			insertions.putAll(detourLinksProvider.getFilteredInsertions());
+
+			// calculate only the paths not covered by the bulk search
+			DetourLinksSet links = detourLinksProvider.getDetourLinksSet();
+			PathSearch[] missingSearches = { searches[0].missing(links.pickupDetourStartLinks),
+					searches[1].missing(links.pickupDetourEndLinks), searches[2].missing(links.dropoffDetourStartLinks),
+					searches[3].missing(links.dropoffDetourEndLinks) };
+			runPathSearches(Stream.of(missingSearches).filter(Objects::nonNull).collect(Collectors.toList()));
+
+			searches = new PathSearch[4];
+			for (int i = 0; i < 4; i++) {
+				searches[i] = reqData.searches[i].merge(missingSearches[i]);
+			}
+		}
+
+		if (insertions.isEmpty()) {
+			return Optional.empty();
+		}
+
+		PathSearch[] finalSearches = searches;
+		PathDataProvider pathDataProvider = (drtRequest, vEntry) -> PrecalculablePathDataProvider.getPathDataSet(
+				drtRequest, vEntry, finalSearches[0].paths, finalSearches[1].paths, finalSearches[2].paths,
+				finalSearches[3].paths);
+		return evaluateInsertions(reqData.request, insertions, pathDataProvider);
+	}
+
+	private Optional<BestInsertion> evaluateInsertions(DrtRequest drtRequest, Map<Entry, List<Insertion>> insertions,
+			PathDataProvider pathDataProvider) {
+		return forkJoinPool.submit(() -> insertions.entrySet()
+				.parallelStream()
+				.map(e -> new SingleVehicleInsertionProblem(pathDataProvider,
+						insertionCostCalculator).findBestInsertion(drtRequest, e.getKey(), e.getValue()))
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.min(Comparator.comparingDouble(i -> i.cost))).join();
+	}
+
+	private Collection<Entry> findCandidateEntries(DrtRequest req, VehicleData vData) {
+		return spatialVehicleFilter.findCandidateEntries(req, vData, mobsimTimer.getTimeOfDay());
+	}
+
+	private DetourLinksProvider findInsertionsAndLinks(DrtRequest req, Collection<Entry> vEntries) {
+		DetourLinksProvider detourLinksProvider = new DetourLinksProvider(drtCfg, mobsimTimer, req, penaltyCalculator);
+		detourLinksProvider.findInsertionsAndLinks(forkJoinPool, vEntries);
+		return detourLinksProvider;
+	}
+
+	private PathSearch[] addPathSearches(Map<SearchKey, PathSearch> pathSearches, DrtRequest req,
+			DetourLinksSet links) {
+		Link pickup = req.getFromLink();
+		Link dropoff = req.getToLink();
+
+		// same (optimistic) time estimates as in ParallelPathDataProvider
+		double earliestPickupTime = req.getEarliestStartTime();
+		double earliestDropoffTime = ParallelPathDataProvider.estimateEarliestDropoffTime(req, stopDuration);
+
+		return new PathSearch[] {
+				addPathSearch(pathSearches, false, pickup, earliestPickupTime, links.pickupDetourStartLinks),
+				addPathSearch(pathSearches, true, pickup, earliestPickupTime, links.pickupDetourEndLinks),
+				addPathSearch(pathSearches, false, dropoff, earliestDropoffTime, links.dropoffDetourStartLinks),
+				addPathSearch(pathSearches, true, dropoff, earliestDropoffTime, links.dropoffDetourEndLinks) };
+	}
+
+	private PathSearch addPathSearch(Map<SearchKey, PathSearch> pathSearches, boolean forward, Link origin,
+			double time, Map<Id<Link>, Link> targets) {
+		PathSearch search = pathSearches.computeIfAbsent(new SearchKey(forward, origin.getId(), time),
+				k -> new PathSearch(forward, origin, time));
+		search.targets.putAll(targets);
+		return search;
+	}
+
+	private void runPathSearches(Collection<PathSearch> searches) {
+		forkJoinPool.submit(() -> searches.parallelStream().forEach(this::runPathSearch)).join();
+	}
+
+	private void runPathSearch(PathSearch search) {
+		if (search.targets.isEmpty()) {
+			search.paths = Collections.emptyMap();
+			return;
+		}
+		OneToManyPathSearch pathSearch = search.forward ? forwardPathSearch.get() : backwardPathSearch.get();
+		search.paths = pathSearch.calcPathDataMap(search.origin, search.targets.values(), search.time);
+	}
+
+	/**
+	 * Creates the inserter for the mode, with the modal fleet, scheduler, vehicle data entry factory and penalty
+	 * calculator bound in the QSim, so it can be used with both DRT and EDRT.
+	 */
+	public static class BatchedUnplannedRequestInserterProvider
+			extends ModalProviders.AbstractProvider<BatchedUnplannedRequestInserter> {
+		@Inject
+		@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
+		private TravelTime travelTime;
+
+		@Inject
+		private MobsimTimer timer;
+
+		@Inject
+		private EventsManager eventsManager;
+
+		private final DrtConfigGroup drtCfg;
+
+		public BatchedUnplannedRequestInserterProvider(DrtConfigGroup drtCfg) {
+			super(drtCfg.getMode());
+			this.drtCfg = drtCfg;
+		}
+
+		@Override
+		public BatchedUnplannedRequestInserter get() {
+			Network network = getModalInstance(Network.class);
+			TravelDisutility travelDisutility = getModalInstance(TravelDisutilityFactory.class).createTravelDisutility(
+					travelTime);
+			return new BatchedUnplannedRequestInserter(drtCfg, getModalInstance(Fleet.class), timer, eventsManager,
+					getModalInstance(RequestInsertionScheduler.class), getModalInstance(VehicleData.EntryFactory.class),
+					network, travelTime, travelDisutility,
+					getModalInstance(InsertionCostCalculator.PenaltyCalculator.class),
+					getModalInstance(QSimScopeForkJoinPoolHolder.class));
+		}
+	}
+
+	private static class RequestData {
+		private final DrtRequest request;
+		private final Map<Entry, List<Insertion>> insertions;
+		// to pickup, from pickup, to dropoff, from dropoff
+		private final PathSearch[] searches;
+
+		private RequestData(DrtRequest request, Map<Entry, List<Insertion>> insertions, PathSearch[] searches) {
+			this.request = request;
+			this.insertions = insertions;
+			this.searches = searches;
+		}
+	}
+
+	private static class SearchKey {
+		private final boolean forward;
+		private final Id<Link> origin;
+		private final double time;
+
+		private SearchKey(boolean forward, Id<Link> origin, double time) {
+			this.forward = forward;
+			this.origin = origin;
+			this.time = time;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey other = (SearchKey)o;
+			return forward == other.forward && time == other.time && origin.equals(other.origin);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(forward, origin, time);
+		}
+	}
+
+	private static class PathSearch {
+		private final boolean forward;
+		private final Link origin;
+		private final double time;
+		private final Map<Id<Link>, Link> targets = new HashMap<>();
+		private Map<Id<Link>, PathData> paths;
+
+		private PathSearch(boolean forward, Link origin, double time) {
+			this.forward = forward;
+			this.origin = origin;
+			this.time = time;
+		}
+
+		/**
+		 * @return a search for the links not covered by this search, or null if all links are covered
+		 */
+		private PathSearch missing(Map<Id<Link>, Link> links) {
+			PathSearch missing = new PathSearch(forward, origin, time);
+			for (Link link : links.values()) {
+				if (!targets.containsKey(link.getId())) {
+					missing.targets.put(link.getId(), link);
+				}
+			}
+			return missing.targets.isEmpty() ? null : missing;
+		}
+
+		private PathSearch merge(PathSearch other) {
+			if (other == null) {
+				return this;
+			}
+			PathSearch merged = new PathSearch(forward, origin, time);
+			merged.targets.putAll(targets);
+			merged.targets.putAll(other.targets);
+			merged.paths = new HashMap<>(paths);
+			merged.paths.putAll(other.paths);
+			return merged;
+		}
+	}
+}
@@ -53,6 +53,7 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 
 	private final ForkJoinPool forkJoinPool;
 	private final ParallelMultiVehicleInsertionProblem insertionProblem;
+	private final SpatialVehicleFilter spatialVehicleFilter;
 
 	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
 			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
@@ -69,6 +70,7 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 
 		insertionProblem = new ParallelMultiVehicleInsertionProblem(pathDataProvider, drtCfg, mobsimTimer, forkJoinPool,
 				penaltyCalculator);
+		spatialVehicleFilter = new SpatialVehicleFilter(drtCfg);
 	}
 
 	@Override
@@ -77,13 +79,15 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 			return;
 		}
 
-		VehicleData vData = new VehicleData(mobsimTimer.getTimeOfDay(), fleet.getVehicles().values().stream(),
+		double now = mobsimTimer.getTimeOfDay();
+		VehicleData vData = spatialVehicleFilter.createVehicleData(now, fleet.getVehicles().values().stream(),
 				vehicleDataEntryFactory, forkJoinPool);
 
 		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
 		while (reqIter.hasNext()) {
 			DrtRequest req = reqIter.next();
-			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req, vData.getEntries());
+			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req,
+					spatialVehicleFilter.findCandidateEntries(req, vData, now));
 			if (!best.isPresent()) {
 				eventsManager.processEvent(
 						new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
@@ -103,13 +103,17 @@ class DetourLinksProvider {
 		linksFromDropoff = new ConcurrentHashMap<>();
 
 		// TODO use more sophisticated DetourTimeEstimator
-		double optimisticBeelineSpeed = OPTIMISTIC_BEELINE_SPEED_COEFF * drtCfg.getEstimatedDrtSpeed()
-				/ drtCfg.getEstimatedBeelineDistanceFactor();
+		double optimisticBeelineSpeed = calcOptimisticBeelineSpeed(drtCfg);
 		insertionFilter = new SingleVehicleInsertionFilter(new DetourTimesProvider(
 				(from, to) -> DistanceUtils.calculateDistance(from, to) / optimisticBeelineSpeed,
 				drtCfg.getStopDuration()), new InsertionCostCalculator(drtCfg, timer, penaltyCalculator));
 	}
 
+	static double calcOptimisticBeelineSpeed(DrtConfigGroup drtCfg) {
+		return OPTIMISTIC_BEELINE_SPEED_COEFF * drtCfg.getEstimatedDrtSpeed()
+				/ drtCfg.getEstimatedBeelineDistanceFactor();
+	}
+
 	void findInsertionsAndLinks(ForkJoinPool forkJoinPool, Collection<Entry> vEntries) {
 		forkJoinPool.submit(() -> vEntries.parallelStream().forEach(this::addDetourLinks)).join();
 		processNearestInsertionsAtEnd();
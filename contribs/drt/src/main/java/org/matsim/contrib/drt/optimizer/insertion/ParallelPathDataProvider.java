@@ -78,8 +78,7 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 		Link dropoff = drtRequest.getToLink();
 
 		double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
-		double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
-		double earliestDropoffTime = earliestPickupTime + minTravelTime + stopDuration;
+		double earliestDropoffTime = estimateEarliestDropoffTime(drtRequest, stopDuration);
 
 		// with vehicle insertion filtering -- pathsToPickup is the most computationally demanding task, while
 		// pathsFromDropoff is the least demanding one
@@ -123,6 +122,14 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 		}
 	}
 
+	/**
+	 * Optimistic estimate of the dropoff time, used as the departure time of the path searches from/to the dropoff.
+	 */
+	static double estimateEarliestDropoffTime(DrtRequest drtRequest, double stopDuration) {
+		double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
+		return drtRequest.getEarliestStartTime() + minTravelTime + stopDuration;
+	}
+
 	@Override
 	public PathDataSet getPathDataSet(DrtRequest drtRequest, Entry vEntry) {
 		return PrecalculablePathDataProvider.getPathDataSet(drtRequest, vEntry, pathsToPickupMap, pathsFromPickupMap,
@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleLocationIndex;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+
+/**
+ * Pre-selects the vehicles that may serve a request before running the insertion filtering of
+ * {@link DetourLinksProvider}, so that per-request candidate generation does not iterate over the whole fleet.
+ * <p>
+ * A new pickup can be inserted only after the vehicle start or after one of its stops, and the vehicle cannot depart
+ * from there earlier than the current time. With the optimistic beeline speed used by {@link DetourLinksProvider},
+ * pickups farther than {@code (latestStartTime - stopDuration - currentTime) * optimisticBeelineSpeed} from all these
+ * locations violate the max wait time already in the beeline-based filtering. Since this holds only if the max wait
+ * time is a hard constraint, the pre-selection is used only if
+ * {@link DrtConfigGroup#isRejectRequestIfMaxWaitOrTravelTimeViolated()} is true (in which case it does not change the
+ * results); otherwise all vehicles are returned.
+ */
+public class SpatialVehicleFilter {
+	// safety margin for rounding errors
+	private static final double DISTANCE_MARGIN = 1;// m
+
+	private final boolean enabled;
+	private final double optimisticBeelineSpeed;
+	private final double stopDuration;
+	private final double cellSize;
+
+	public SpatialVehicleFilter(DrtConfigGroup drtCfg) {
+		enabled = drtCfg.isRejectRequestIfMaxWaitOrTravelTimeViolated();
+		optimisticBeelineSpeed = DetourLinksProvider.calcOptimisticBeelineSpeed(drtCfg);
+		stopDuration = drtCfg.getStopDuration();
+		// search radius for newly submitted requests
+		cellSize = Math.max(drtCfg.getMaxWaitTime() - stopDuration, 1) * optimisticBeelineSpeed;
+	}
+
+	/**
+	 * Creates vehicle data with a location index (if the pre-selection is enabled).
+	 */
+	public VehicleData createVehicleData(double currentTime, Stream<? extends DvrpVehicle> vehicles,
+			VehicleData.EntryFactory entryFactory, ForkJoinPool forkJoinPool) {
+		return new VehicleData(currentTime, vehicles, entryFactory, forkJoinPool,
+				enabled ? new VehicleLocationIndex(cellSize) : null);
+	}
+
+	public Collection<Entry> findCandidateEntries(DrtRequest drtRequest, VehicleData vData, double currentTime) {
+		if (!enabled) {
+			return vData.getEntries();
+		}
+		double maxDistance = (drtRequest.getLatestStartTime() - stopDuration - currentTime) * optimisticBeelineSpeed;
+		return vData.getEntriesWithinDistance(drtRequest.getFromLink().getCoord(), maxDistance + DISTANCE_MARGIN);
+	}
+}
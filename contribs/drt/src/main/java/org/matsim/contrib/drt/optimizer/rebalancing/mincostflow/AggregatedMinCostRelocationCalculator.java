@@ -20,46 +20,102 @@ package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ToIntBiFunction;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
-import org.locationtech.jts.geom.Geometry;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
 import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocation;
 import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
 import org.matsim.contrib.dvrp.schedule.Schedules;
 import org.matsim.contrib.util.distance.DistanceUtils;
+import org.matsim.contrib.zone.skims.DvrpTravelTimeMatrix;
+import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.utils.geometry.geotools.MGC;
 
 /**
  * @author michalm
  */
 public class AggregatedMinCostRelocationCalculator implements MinCostRelocationCalculator {
+	// high enough to avoid relocations between mutually unreachable zones, low enough not to overflow the total cost
+	private static final int UNREACHABLE_ZONE_COST = 1_000_000;
+
 	private final DrtZonalSystem zonalSystem;
 	private final Network network;
+	private final int relocationCandidateZones;
+	private final DvrpTravelTimeMatrix travelTimeMatrix;
+	private final MobsimTimer timer;
+
+	// zone centroids, central nodes and destination links do not change between rebalancing intervals
+	private final Map<String, Coord> zoneCentroids = new HashMap<>();
+	private final Map<String, Node> centralNodes = new HashMap<>();
+	private final Map<String, Link> destinationLinks = new HashMap<>();
 
 	public AggregatedMinCostRelocationCalculator(DrtZonalSystem zonalSystem, Network network) {
+		this(zonalSystem, network, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param relocationCandidateZones see {@link MinCostFlowRebalancingParams#getRelocationCandidateZones()}
+	 */
+	public AggregatedMinCostRelocationCalculator(DrtZonalSystem zonalSystem, Network network,
+			int relocationCandidateZones) {
+		this(zonalSystem, network, relocationCandidateZones, null, null);
+	}
+
+	/**
+	 * If {@code travelTimeMatrix} is not null, the relocation cost is the travel time between the zones (looked up in
+	 * the matrix for the current time), otherwise it is the straight-line distance between the zone centroids.
+	 *
+	 * @param relocationCandidateZones see {@link MinCostFlowRebalancingParams#getRelocationCandidateZones()}
+	 */
+	public AggregatedMinCostRelocationCalculator(DrtZonalSystem zonalSystem, Network network,
+			int relocationCandidateZones, DvrpTravelTimeMatrix travelTimeMatrix, MobsimTimer timer) {
 		this.zonalSystem = zonalSystem;
 		this.network = network;
+		this.relocationCandidateZones = relocationCandidateZones;
+		this.travelTimeMatrix = travelTimeMatrix;
+		this.timer = timer;
 	}
 
 	@Override
 	public List<Relocation> calcRelocations(List<Pair<String, Integer>> supply, List<Pair<String, Integer>> demand,
 			Map<String, List<DvrpVehicle>> rebalancableVehiclesPerZone) {
-		List<Triple<String, String, Integer>> interZonalRelocations = new TransportProblem<>(
-				this::calcStraightLineDistance).solve(supply, demand);
+		ToIntBiFunction<String, String> costFunction;
+		if (travelTimeMatrix == null) {
+			costFunction = this::calcStraightLineDistance;
+		} else {
+			double departureTime = timer.getTimeOfDay();
+			costFunction = (zone1, zone2) -> calcTravelTime(zone1, zone2, departureTime);
+		}
+		List<Triple<String, String, Integer>> interZonalRelocations = new TransportProblem<>(costFunction,
+				relocationCandidateZones).solve(supply, demand);
 		return calcRelocations(rebalancableVehiclesPerZone, interZonalRelocations);
 	}
 
 	private int calcStraightLineDistance(String zone1, String zone2) {
-		return (int)DistanceUtils.calculateDistance(zonalSystem.getZoneCentroid(zone1),
-				zonalSystem.getZoneCentroid(zone2));
+		return (int)DistanceUtils.calculateDistance(getZoneCentroid(zone1), getZoneCentroid(zone2));
+	}
+
+	private int calcTravelTime(String zone1, String zone2, double departureTime) {
+		double travelTime = travelTimeMatrix.getTravelTime(getCentralNode(zone1), getCentralNode(zone2),
+				departureTime);
+		return (int)Math.min(travelTime, UNREACHABLE_ZONE_COST);
+	}
+
+	private Node getCentralNode(String zone) {
+		return centralNodes.computeIfAbsent(zone, z -> NetworkUtils.getNearestNode(network, getZoneCentroid(z)));
+	}
+
+	private Coord getZoneCentroid(String zone) {
+		return zoneCentroids.computeIfAbsent(zone, zonalSystem::getZoneCentroid);
 	}
 
 	private List<Relocation> calcRelocations(Map<String, List<DvrpVehicle>> rebalancableVehiclesPerZone,
@@ -69,9 +125,8 @@ public class AggregatedMinCostRelocationCalculator implements MinCostRelocationC
 			List<DvrpVehicle> rebalancableVehicles = rebalancableVehiclesPerZone.get(r.getLeft());
 
 			String toZone = r.getMiddle();
-			Geometry z = zonalSystem.getZone(toZone);
-			Coord zoneCentroid = MGC.point2Coord(z.getCentroid());
-			Link destinationLink = NetworkUtils.getNearestLink(network, zoneCentroid);
+			Link destinationLink = destinationLinks.computeIfAbsent(toZone,
+					z -> NetworkUtils.getNearestLink(network, getZoneCentroid(z)));
 
 			int flow = r.getRight();
 			for (int f = 0; f < flow; f++) {
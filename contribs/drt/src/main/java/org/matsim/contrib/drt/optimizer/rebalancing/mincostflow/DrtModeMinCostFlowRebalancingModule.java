@@ -29,7 +29,10 @@ import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.fleet.Fleet;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeModule;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeQSimModule;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.contrib.zone.skims.DvrpTravelTimeMatrix;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimTimer;
 
 /**
  * @author michalm
@@ -45,6 +48,8 @@ public class DrtModeMinCostFlowRebalancingModule extends AbstractDvrpModeModule
 	@Override
 	public void install() {
 		MinCostFlowRebalancingParams params = drtCfg.getMinCostFlowRebalancing().get();
+		// use the DVRP travel time matrix (if enabled) instead of straight-line distances as relocation costs
+		boolean useTravelTimeMatrix = DvrpConfigGroup.get(getConfig()).getTravelTimeMatrixParams().isPresent();
 		bindModal(DrtZonalSystem.class).toProvider(
 				modalProvider(getter -> new DrtZonalSystem(getter.getModal(Network.class), params.getCellSize())));
 
@@ -62,7 +67,9 @@ public class DrtModeMinCostFlowRebalancingModule extends AbstractDvrpModeModule
 
 				bindModal(MinCostRelocationCalculator.class).toProvider(modalProvider(
 						getter -> new AggregatedMinCostRelocationCalculator(getter.getModal(DrtZonalSystem.class),
-								getter.getModal(Network.class)))).asEagerSingleton();
+								getter.getModal(Network.class), params.getRelocationCandidateZones(),
+								useTravelTimeMatrix ? getter.get(DvrpTravelTimeMatrix.class) : null,
+								getter.get(MobsimTimer.class)))).asEagerSingleton();
 			}
 		});
 
@@ -58,6 +58,13 @@ public final class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 	static final String CELL_SIZE_EXP = "size of square cells used for demand aggregation."
 			+ " Depends on demand, supply and network. Often used with values in the range of 500 - 2000 m";
 
+	public static final String RELOCATION_CANDIDATE_ZONES = "relocationCandidateZones";
+	static final String RELOCATION_CANDIDATE_ZONES_EXP = "Number of nearest zones (by relocation cost) to which each"
+			+ " zone with surplus vehicles, and from which each zone with missing vehicles, may relocate vehicles in the"
+			+ " transport problem. Limiting the number makes the problem sparse, which speeds up solving for large zonal"
+			+ " systems. If not all vehicles can be relocated, the number is doubled (as many times as needed)."
+			+ " Default is " + Integer.MAX_VALUE + " (dense problem).";
+
 	@Positive
 	private int interval = 1800;// [s]
 
@@ -76,6 +83,9 @@ public final class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 	@Positive
 	private double cellSize = Double.NaN;// [m]
 
+	@Positive
+	private int relocationCandidateZones = Integer.MAX_VALUE;
+
 	public MinCostFlowRebalancingParams() {
 		super(SET_NAME);
 	}
@@ -100,6 +110,7 @@ public final class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 		map.put(TARGET_ALPHA, TARGET_ALPHA_EXP);
 		map.put(TARGET_BETA, TARGET_BETA_EXP);
 		map.put(CELL_SIZE, CELL_SIZE_EXP);
+		map.put(RELOCATION_CANDIDATE_ZONES, RELOCATION_CANDIDATE_ZONES_EXP);
 		return map;
 	}
 
@@ -198,4 +209,20 @@ public final class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 	public void setCellSize(double cellSize) {
 		this.cellSize = cellSize;
 	}
+
+	/**
+	 * @return -- {@value #RELOCATION_CANDIDATE_ZONES_EXP}
+	 */
+	@StringGetter(RELOCATION_CANDIDATE_ZONES)
+	public int getRelocationCandidateZones() {
+		return relocationCandidateZones;
+	}
+
+	/**
+	 * @param relocationCandidateZones -- {@value #RELOCATION_CANDIDATE_ZONES_EXP}
+	 */
+	@StringSetter(RELOCATION_CANDIDATE_ZONES)
+	public void setRelocationCandidateZones(int relocationCandidateZones) {
+		this.relocationCandidateZones = relocationCandidateZones;
+	}
 }
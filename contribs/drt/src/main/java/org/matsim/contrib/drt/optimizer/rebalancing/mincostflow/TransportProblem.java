@@ -19,6 +19,7 @@
 package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.ToIntBiFunction;
@@ -29,18 +30,132 @@ import org.apache.commons.lang3.tuple.Triple;
 
 import graphs.flows.MinCostFlow;
 import graphs.flows.MinCostFlow.Edge;
+import graphs.flows.MinCostFlowNetworkSimplex;
 
 /**
  * @author michalm
  */
 public class TransportProblem<P, C> {
 	private final ToIntBiFunction<P, C> costFunction;
+	private final int nearestCandidates;
 
 	public TransportProblem(ToIntBiFunction<P, C> costFunction) {
+		this(costFunction, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Each producer is only connected to the {@code nearestCandidates} consumers with the lowest costs, and each
+	 * consumer to the {@code nearestCandidates} producers with the lowest costs, which makes the problem sparse and is
+	 * solved with {@link MinCostFlowNetworkSimplex}. The candidate edges are selected row by row (and column by column)
+	 * while the costs are evaluated, so the full producer-consumer cost matrix is never stored. If not all supply (or
+	 * demand) can be transported, the number of candidates is doubled and the problem is solved again, so the result
+	 * differs from the dense problem only if the optimal dense solution uses edges that are not among the candidates.
+	 * {@code Integer.MAX_VALUE} means no limit (dense problem solved with {@link MinCostFlow}).
+	 */
+	public TransportProblem(ToIntBiFunction<P, C> costFunction, int nearestCandidates) {
+		if (nearestCandidates <= 0) {
+			throw new IllegalArgumentException("nearestCandidates must be positive");
+		}
 		this.costFunction = costFunction;
+		this.nearestCandidates = nearestCandidates;
 	}
 
 	public List<Triple<P, C, Integer>> solve(List<Pair<P, Integer>> supply, List<Pair<C, Integer>> demand) {
+		if (nearestCandidates == Integer.MAX_VALUE) {
+			return solveDense(supply, demand);
+		}
+
+		final int P = supply.size();
+		final int C = demand.size();
+		final int N = P + C + 2;
+
+		int totalFlow = Math.min(sum(supply), sum(demand));
+		int candidates = nearestCandidates;
+		while (true) {
+			@SuppressWarnings("unchecked")
+			List<Edge>[] graph = Stream.generate(ArrayList::new).limit(N).toArray(List[]::new);
+			addSourceEdges(graph, supply);
+			addCandidateEdges(graph, supply, demand, candidates);
+			addSinkEdges(graph, P, demand);
+
+			long[] result = MinCostFlowNetworkSimplex.minCostFlow(graph, 0, N - 1, totalFlow);
+			if (result[0] == totalFlow || candidates >= Math.max(P, C)) {
+				return result[0] == 0 ? Collections.emptyList() : extractFlows(graph, supply, demand);
+			}
+			candidates = (int)Math.min(2L * candidates, Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Adds the edges from each producer to its nearest consumers, and from each consumer's nearest producers to the
+	 * consumer (unless already added).
+	 */
+	private void addCandidateEdges(List<Edge>[] graph, List<Pair<P, Integer>> supply, List<Pair<C, Integer>> demand,
+			int candidates) {
+		final int P = supply.size();
+		final int C = demand.size();
+
+		// producers --> their nearest consumers
+		int[][] consumersOfProducer = new int[P][];
+		long[] row = new long[C];
+		for (int i = 0; i < P; i++) {
+			P producer = supply.get(i).getKey();
+			for (int j = 0; j < C; j++) {
+				row[j] = packCostAndIndex(costFunction.applyAsInt(producer, demand.get(j).getKey()), j);
+			}
+			int count = selectNearest(row, candidates);
+			int[] consumers = new int[count];
+			for (int n = 0; n < count; n++) {
+				int j = (int)row[n];
+				consumers[n] = j;
+				addEdge(graph, supply, demand, i, j, (int)(row[n] >> 32));
+			}
+			Arrays.sort(consumers);
+			consumersOfProducer[i] = consumers;
+		}
+
+		// nearest producers --> consumers
+		long[] column = new long[P];
+		for (int j = 0; j < C; j++) {
+			C consumer = demand.get(j).getKey();
+			for (int i = 0; i < P; i++) {
+				column[i] = packCostAndIndex(costFunction.applyAsInt(supply.get(i).getKey(), consumer), i);
+			}
+			int count = selectNearest(column, candidates);
+			for (int n = 0; n < count; n++) {
+				int i = (int)column[n];
+				if (Arrays.binarySearch(consumersOfProducer[i], j) < 0) {
+					addEdge(graph, supply, demand, i, j, (int)(column[n] >> 32));
+				}
+			}
+		}
+	}
+
+	private static <P, C> void addEdge(List<Edge>[] graph, List<Pair<P, Integer>> supply,
+			List<Pair<C, Integer>> demand, int i, int j, int cost) {
+		int capacity = Math.min(supply.get(i).getValue(), demand.get(j).getValue());
+		MinCostFlow.addEdge(graph, 1 + i, 1 + supply.size() + j, capacity, cost);
+	}
+
+	// sorting by the packed value sorts by cost, then by index (which is non-negative)
+	private static long packCostAndIndex(int cost, int index) {
+		return ((long)cost << 32) | index;
+	}
+
+	/**
+	 * Moves the (at most) {@code candidates} values with the lowest costs to the beginning of the array.
+	 *
+	 * @return the number of selected values
+	 */
+	private static int selectNearest(long[] costsAndIndices, int candidates) {
+		if (candidates < costsAndIndices.length) {
+			Arrays.sort(costsAndIndices);
+			return candidates;
+		}
+		return costsAndIndices.length;
+	}
+
+	private List<Triple<P, C, Integer>> solveDense(List<Pair<P, Integer>> supply, List<Pair<C, Integer>> demand) {
 		final int P = supply.size();
 		final int C = demand.size();
 		final int N = P + C + 2;
@@ -55,12 +170,7 @@ public class TransportProblem<P, C> {
 		List<Edge>[] graph = Stream.generate(ArrayList::new).limit(N).toArray(List[]::new);
 
 		// source -> producers
-		int totalSupply = 0;
-		for (int i = 0; i < P; i++) {
-			int supplyValue = supply.get(i).getValue();
-			MinCostFlow.addEdge(graph, 0, 1 + i, supplyValue, 0);
-			totalSupply += supplyValue;
-		}
+		addSourceEdges(graph, supply);
 
 		// producers --> consumers
 		for (int i = 0; i < P; i++) {
@@ -74,20 +184,36 @@ public class TransportProblem<P, C> {
 		}
 
 		// consumers -> sink
-		int totalDemand = 0;
-		for (int j = 0; j < C; j++) {
-			int demandValue = demand.get(j).getValue();
-			MinCostFlow.addEdge(graph, 1 + P + j, N - 1, demandValue, 0);
-			totalDemand += demandValue;
-		}
+		addSinkEdges(graph, P, demand);
 
 		// solve min cost flow problem
-		int[] result = MinCostFlow.minCostFlow(graph, 0, N - 1, Math.min(totalSupply, totalDemand), false);
+		int[] result = MinCostFlow.minCostFlow(graph, 0, N - 1, Math.min(sum(supply), sum(demand)), false);
 		if (result[0] == 0) {
 			return Collections.emptyList();
 		}
+		return extractFlows(graph, supply, demand);
+	}
+
+	private static <P> void addSourceEdges(List<Edge>[] graph, List<Pair<P, Integer>> supply) {
+		for (int i = 0; i < supply.size(); i++) {
+			MinCostFlow.addEdge(graph, 0, 1 + i, supply.get(i).getValue(), 0);
+		}
+	}
+
+	private static <C> void addSinkEdges(List<Edge>[] graph, int P, List<Pair<C, Integer>> demand) {
+		int sink = graph.length - 1;
+		for (int j = 0; j < demand.size(); j++) {
+			MinCostFlow.addEdge(graph, 1 + P + j, sink, demand.get(j).getValue(), 0);
+		}
+	}
 
-		// extract flows
+	private static int sum(List<? extends Pair<?, Integer>> values) {
+		return values.stream().mapToInt(Pair::getValue).sum();
+	}
+
+	private List<Triple<P, C, Integer>> extractFlows(List<Edge>[] graph, List<Pair<P, Integer>> supply,
+			List<Pair<C, Integer>> demand) {
+		final int P = supply.size();
 		List<Triple<P, C, Integer>> flows = new ArrayList<>();
 		for (int i = 0; i < P; i++) {
 			P from = supply.get(i).getKey();
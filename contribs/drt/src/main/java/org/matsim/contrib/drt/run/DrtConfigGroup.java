@@ -141,6 +141,19 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 					+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 					+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String BATCHED_INSERTION_SEARCH = "batchedInsertionSearch";
+	static final String BATCHED_INSERTION_SEARCH_EXP =
+			"If true, all requests submitted within one optimisation step are inserted using one bulk path search"
+					+ " that runs on all " + NUMBER_OF_THREADS + " threads and is shared between requests"
+					+ " with the same pickup/dropoff links and times. Recommended for large fleets and high demand,"
+					+ " together with a higher " + NUMBER_OF_THREADS + ". False by default.";
+
+	public static final String INCREMENTAL_SCHEDULE_TIMING_UPDATES = "incrementalScheduleTimingUpdates";
+	static final String INCREMENTAL_SCHEDULE_TIMING_UPDATES_EXP =
+			"If true, delays of the current task of a vehicle are propagated through its schedule only until"
+					+ " they get absorbed (e.g. by a stay task or by waiting for a pickup), instead of updating"
+					+ " all remaining tasks. Reduces the per-step cost with long schedules. False by default.";
+
 	@NotBlank
 	private String mode = TransportMode.drt; // travel mode (passengers'/customers' perspective)
 
@@ -195,6 +208,10 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 	private int numberOfThreads = Math.min(Runtime.getRuntime().availableProcessors(),
 			ParallelPathDataProvider.MAX_THREADS);
 
+	private boolean batchedInsertionSearch = false;
+
+	private boolean incrementalScheduleTimingUpdates = false;
+
 	@PositiveOrZero
 	private double advanceRequestPlanningHorizon = 0; // beta-feature; planning horizon for advance (prebooked) requests
 
@@ -275,6 +292,8 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 		map.put(ESTIMATED_DRT_SPEED, ESTIMATED_DRT_SPEED_EXP);
 		map.put(ESTIMATED_BEELINE_DISTANCE_FACTOR, ESTIMATED_BEELINE_DISTANCE_FACTOR_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(BATCHED_INSERTION_SEARCH, BATCHED_INSERTION_SEARCH_EXP);
+		map.put(INCREMENTAL_SCHEDULE_TIMING_UPDATES, INCREMENTAL_SCHEDULE_TIMING_UPDATES_EXP);
 		map.put(REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED,
 				REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED_EXP);
 		map.put(DRT_SERVICE_AREA_SHAPE_FILE, DRT_SERVICE_AREA_SHAPE_FILE_EXP);
@@ -607,6 +626,40 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 		return this;
 	}
 
+	/**
+	 * @return -- {@value #BATCHED_INSERTION_SEARCH_EXP}
+	 */
+	@StringGetter(BATCHED_INSERTION_SEARCH)
+	public boolean isBatchedInsertionSearch() {
+		return batchedInsertionSearch;
+	}
+
+	/**
+	 * @param-- {@value #BATCHED_INSERTION_SEARCH_EXP}
+	 */
+	@StringSetter(BATCHED_INSERTION_SEARCH)
+	public DrtConfigGroup setBatchedInsertionSearch(final boolean batchedInsertionSearch) {
+		this.batchedInsertionSearch = batchedInsertionSearch;
+		return this;
+	}
+
+	/**
+	 * @return -- {@value #INCREMENTAL_SCHEDULE_TIMING_UPDATES_EXP}
+	 */
+	@StringGetter(INCREMENTAL_SCHEDULE_TIMING_UPDATES)
+	public boolean isIncrementalScheduleTimingUpdates() {
+		return incrementalScheduleTimingUpdates;
+	}
+
+	/**
+	 * @param-- {@value #INCREMENTAL_SCHEDULE_TIMING_UPDATES_EXP}
+	 */
+	@StringSetter(INCREMENTAL_SCHEDULE_TIMING_UPDATES)
+	public DrtConfigGroup setIncrementalScheduleTimingUpdates(final boolean incrementalScheduleTimingUpdates) {
+		this.incrementalScheduleTimingUpdates = incrementalScheduleTimingUpdates;
+		return this;
+	}
+
 	public double getAdvanceRequestPlanningHorizon() {
 		return advanceRequestPlanningHorizon;
 	}
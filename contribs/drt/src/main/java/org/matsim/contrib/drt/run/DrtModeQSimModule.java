@@ -28,6 +28,7 @@ import org.matsim.contrib.drt.optimizer.VehicleData;
 import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
 import org.matsim.contrib.drt.optimizer.depot.DepotFinder;
 import org.matsim.contrib.drt.optimizer.depot.NearestStartLinkAsDepot;
+import org.matsim.contrib.drt.optimizer.insertion.BatchedUnplannedRequestInserter.BatchedUnplannedRequestInserterProvider;
 import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
 import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
@@ -97,14 +98,19 @@ public class DrtModeQSimModule extends AbstractDvrpModeQSimModule {
 		addModalComponent(QSimScopeForkJoinPoolHolder.class,
 				() -> new QSimScopeForkJoinPoolHolder(drtCfg.getNumberOfThreads()));
 
-		bindModal(UnplannedRequestInserter.class).toProvider(modalProvider(
-				getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
-						getter.get(MobsimTimer.class), getter.get(EventsManager.class),
-						getter.getModal(RequestInsertionScheduler.class),
-						getter.getModal(VehicleData.EntryFactory.class),
-						getter.getModal(PrecalculablePathDataProvider.class),
-						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
-						getter.getModal(QSimScopeForkJoinPoolHolder.class)))).asEagerSingleton();
+		if (drtCfg.isBatchedInsertionSearch()) {
+			bindModal(UnplannedRequestInserter.class).toProvider(
+					new BatchedUnplannedRequestInserterProvider(drtCfg)).asEagerSingleton();
+		} else {
+			bindModal(UnplannedRequestInserter.class).toProvider(modalProvider(
+					getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
+							getter.get(MobsimTimer.class), getter.get(EventsManager.class),
+							getter.getModal(RequestInsertionScheduler.class),
+							getter.getModal(VehicleData.EntryFactory.class),
+							getter.getModal(PrecalculablePathDataProvider.class),
+							getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
+							getter.getModal(QSimScopeForkJoinPoolHolder.class)))).asEagerSingleton();
+		}
 
 		bindModal(VehicleData.EntryFactory.class).toInstance(new VehicleDataEntryFactoryImpl(drtCfg));
 
@@ -145,7 +151,8 @@ public class DrtModeQSimModule extends AbstractDvrpModeQSimModule {
 
 		bindModal(ScheduleTimingUpdater.class).toProvider(modalProvider(
 				getter -> new ScheduleTimingUpdater(getter.get(MobsimTimer.class),
-						new DrtStayTaskEndTimeCalculator(drtCfg)))).asEagerSingleton();
+						new DrtStayTaskEndTimeCalculator(drtCfg), drtCfg.isIncrementalScheduleTimingUpdates())))
+				.asEagerSingleton();
 
 		addModalComponent(ParallelPathDataProvider.class, new ModalProviders.AbstractProvider<>(getMode()) {
 			@Inject
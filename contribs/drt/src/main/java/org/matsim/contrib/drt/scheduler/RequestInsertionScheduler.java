@@ -169,6 +169,10 @@ public class RequestInsertionScheduler {
 					scheduleTimingUpdater.updateTimingsStartingFromTaskIdx(vehicleEntry.vehicle,
 							stopTask.getTaskIdx() + 2, driveFromPickupTask.getEndTime());
 					///////
+				} else {
+					// update timings (the stop may end later now)
+					scheduleTimingUpdater.updateTimingsStartingFromTaskIdx(vehicleEntry.vehicle,
+							stopTask.getTaskIdx() + 1, stopTask.getEndTime());
 				}
 
 				return;
@@ -26,6 +26,7 @@ import org.matsim.contrib.drt.optimizer.DrtOptimizer;
 import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
 import org.matsim.contrib.drt.optimizer.VehicleData;
 import org.matsim.contrib.drt.optimizer.depot.DepotFinder;
+import org.matsim.contrib.drt.optimizer.insertion.BatchedUnplannedRequestInserter.BatchedUnplannedRequestInserterProvider;
 import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
 import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
@@ -121,14 +122,19 @@ public class EDrtModeQSimModule extends AbstractDvrpModeQSimModule {
 		addModalComponent(QSimScopeForkJoinPoolHolder.class,
 				() -> new QSimScopeForkJoinPoolHolder(drtCfg.getNumberOfThreads()));
 
-		bindModal(UnplannedRequestInserter.class).toProvider(modalProvider(
-				getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
-						getter.get(MobsimTimer.class), getter.get(EventsManager.class),
-						getter.getModal(RequestInsertionScheduler.class),
-						getter.getModal(VehicleData.EntryFactory.class),
-						getter.getModal(PrecalculablePathDataProvider.class),
-						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
-						getter.getModal(QSimScopeForkJoinPoolHolder.class)))).asEagerSingleton();
+		if (drtCfg.isBatchedInsertionSearch()) {
+			bindModal(UnplannedRequestInserter.class).toProvider(
+					new BatchedUnplannedRequestInserterProvider(drtCfg)).asEagerSingleton();
+		} else {
+			bindModal(UnplannedRequestInserter.class).toProvider(modalProvider(
+					getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
+							getter.get(MobsimTimer.class), getter.get(EventsManager.class),
+							getter.getModal(RequestInsertionScheduler.class),
+							getter.getModal(VehicleData.EntryFactory.class),
+							getter.getModal(PrecalculablePathDataProvider.class),
+							getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
+							getter.getModal(QSimScopeForkJoinPoolHolder.class)))).asEagerSingleton();
+		}
 
 		bindModal(VehicleData.EntryFactory.class).toProvider(
 				EDrtVehicleDataEntryFactory.EDrtVehicleDataEntryFactoryProvider.class).asEagerSingleton();
@@ -169,7 +175,8 @@ public class EDrtModeQSimModule extends AbstractDvrpModeQSimModule {
 
 		bindModal(ScheduleTimingUpdater.class).toProvider(modalProvider(
 				getter -> new ScheduleTimingUpdater(getter.get(MobsimTimer.class),
-						new DrtStayTaskEndTimeCalculator(drtCfg)))).asEagerSingleton();
+						new DrtStayTaskEndTimeCalculator(drtCfg), drtCfg.isIncrementalScheduleTimingUpdates())))
+				.asEagerSingleton();
 
 		addModalComponent(ParallelPathDataProvider.class, new ModalProviders.AbstractProvider<>(getMode()) {
 			@Inject
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.util.LinkTimePair;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+
+public class VehicleLocationIndexTest {
+	private final Network network = NetworkUtils.createNetwork();
+
+	@Test
+	public void getVehiclesWithinDistance_startAndStops() {
+		VehicleLocationIndex index = new VehicleLocationIndex(1000);
+		index.add(entry("v1", link(0, 0)));
+		index.add(entry("v2", link(5000, 0), link(200, 300)));
+		index.add(entry("v3", link(-2500, -2500)));
+
+		assertThat(index.getVehiclesWithinDistance(new Coord(0, 0), 100)).containsExactlyInAnyOrder(vehicleId("v1"));
+		assertThat(index.getVehiclesWithinDistance(new Coord(0, 0), 500)).containsExactlyInAnyOrder(vehicleId("v1"),
+				vehicleId("v2"));
+		assertThat(index.getVehiclesWithinDistance(new Coord(0, 0), 3600)).containsExactlyInAnyOrder(vehicleId("v1"),
+				vehicleId("v2"), vehicleId("v3"));
+		assertThat(index.getVehiclesWithinDistance(new Coord(5100, 0), 100)).containsExactlyInAnyOrder(
+				vehicleId("v2"));
+		assertThat(index.getVehiclesWithinDistance(new Coord(0, 0), -1)).isEmpty();
+
+		// large radius, all cells are checked
+		assertThat(index.getVehiclesWithinDistance(new Coord(0, 0), 1e6)).containsExactlyInAnyOrder(vehicleId("v1"),
+				vehicleId("v2"), vehicleId("v3"));
+	}
+
+	@Test
+	public void removeAndAdd() {
+		VehicleLocationIndex index = new VehicleLocationIndex(1000);
+		index.add(entry("v1", link(0, 0)));
+		index.add(entry("v2", link(5000, 0), link(200, 300)));
+
+		index.remove(vehicleId("v2"));
+		assertThat(index.getVehiclesWithinDistance(new Coord(0, 0), 1e6)).containsExactlyInAnyOrder(vehicleId("v1"));
+
+		// re-scheduled vehicle: the previous locations are no longer indexed
+		index.remove(vehicleId("v1"));
+		index.add(entry("v1", link(3000, 3000)));
+		assertThat(index.getVehiclesWithinDistance(new Coord(0, 0), 1000)).isEmpty();
+		assertThat(index.getVehiclesWithinDistance(new Coord(3000, 3000), 1)).containsExactlyInAnyOrder(
+				vehicleId("v1"));
+
+		index.remove(vehicleId("unknown"));
+	}
+
+	private Id<DvrpVehicle> vehicleId(String id) {
+		return Id.create(id, DvrpVehicle.class);
+	}
+
+	private Link link(double x, double y) {
+		String id = x + "_" + y;
+		Node from = NetworkUtils.createNode(Id.createNodeId(id + "_from"), new Coord(x - 10, y));
+		Node to = NetworkUtils.createNode(Id.createNodeId(id + "_to"), new Coord(x + 10, y));
+		return NetworkUtils.createLink(Id.createLinkId(id), from, to, network, 20, 10, 1000, 1);
+	}
+
+	private VehicleData.Entry entry(String vehicleId, Link startLink, Link... stopLinks) {
+		DvrpVehicle vehicle = new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(vehicleId(vehicleId))
+				.capacity(4)
+				.startLinkId(startLink.getId())
+				.serviceBeginTime(0)
+				.serviceEndTime(24 * 3600)
+				.build(), startLink);
+		ImmutableList.Builder<VehicleData.Stop> stops = ImmutableList.builder();
+		for (Link link : stopLinks) {
+			stops.add(new VehicleData.Stop(new DrtStopTask(0, 0, link), 0));
+		}
+		return new VehicleData.Entry(vehicle, new LinkTimePair(startLink, 0), 0, stops.build());
+	}
+}
@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntBiFunction;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+public class TransportProblemTest {
+	private static final ToIntBiFunction<Integer, Integer> DISTANCE = (p, c) -> Math.abs(p - c);
+
+	@Test
+	public void sparse_candidatesDoubledUntilAllSupplyTransported() {
+		List<Pair<Integer, Integer>> supply = List.of(Pair.of(0, 2), Pair.of(100, 1));
+		List<Pair<Integer, Integer>> demand = List.of(Pair.of(10, 1), Pair.of(1000, 2));
+
+		// with 1 candidate, only 2 of 3 vehicles can be relocated (0->10, 100->1000)
+		List<Triple<Integer, Integer, Integer>> flows = new TransportProblem<>(DISTANCE, 1).solve(supply, demand);
+		assertThat(flows).containsExactlyInAnyOrder(Triple.of(0, 10, 1), Triple.of(0, 1000, 1),
+				Triple.of(100, 1000, 1));
+	}
+
+	@Test
+	public void sparse_sameCostAsDense() {
+		Random random = new Random(42);
+		for (int run = 0; run < 20; run++) {
+			List<Pair<Integer, Integer>> supply = randomZones(random, 30);
+			List<Pair<Integer, Integer>> demand = randomZones(random, 40);
+
+			List<Triple<Integer, Integer, Integer>> denseFlows = new TransportProblem<>(DISTANCE).solve(supply,
+					demand);
+			for (int candidates : new int[] { 1, 5, 40, Integer.MAX_VALUE - 1 }) {
+				List<Triple<Integer, Integer, Integer>> sparseFlows = new TransportProblem<>(DISTANCE,
+						candidates).solve(supply, demand);
+				assertThat(totalFlow(sparseFlows)).isEqualTo(totalFlow(denseFlows));
+				if (candidates >= 40) {// all edges are candidates
+					assertThat(totalCost(sparseFlows)).isEqualTo(totalCost(denseFlows));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void sparse_noSupply() {
+		assertThat(new TransportProblem<>(DISTANCE, 10).solve(List.of(), List.of(Pair.of(1, 5)))).isEmpty();
+	}
+
+	private static List<Pair<Integer, Integer>> randomZones(Random random, int count) {
+		List<Pair<Integer, Integer>> zones = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			zones.add(Pair.of(random.nextInt(1000), 1 + random.nextInt(5)));
+		}
+		return zones;
+	}
+
+	private static int totalFlow(List<Triple<Integer, Integer, Integer>> flows) {
+		return flows.stream().mapToInt(Triple::getRight).sum();
+	}
+
+	private static long totalCost(List<Triple<Integer, Integer, Integer>> flows) {
+		return flows.stream()
+				.mapToLong(f -> (long)DISTANCE.applyAsInt(f.getLeft(), f.getMiddle()) * f.getRight())
+				.sum();
+	}
+}
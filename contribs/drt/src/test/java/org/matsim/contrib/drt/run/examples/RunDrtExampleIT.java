@@ -24,12 +24,22 @@ package org.matsim.contrib.drt.run.examples;
 
 import java.net.URL;
 
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.run.DrtControlerCreator;
 import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEventHandler;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.contrib.zone.skims.DvrpTravelTimeMatrixParams;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.examples.ExamplesUtils;
@@ -55,6 +65,89 @@ public class RunDrtExampleIT {
 		RunDrtExample.run(config, false);
 	}
 
+	@Test
+	public void testRunDrtExampleWithBatchedInsertionSearch() {
+		RequestCounter sequential = runDrtExampleAndCountRequests(false);
+		RequestCounter batched = runDrtExampleAndCountRequests(true);
+
+		// the same demand, but the insertion heuristics differ slightly (see BatchedUnplannedRequestInserter)
+		Assert.assertEquals(sequential.scheduled + sequential.rejected, batched.scheduled + batched.rejected);
+		Assert.assertTrue(batched.scheduled > 0);
+		Assert.assertEquals(sequential.scheduled, batched.scheduled, 0.02 * sequential.scheduled);
+	}
+
+	private RequestCounter runDrtExampleAndCountRequests(boolean batchedInsertionSearch) {
+		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_drt_config.xml");
+		Config config = ConfigUtils.loadConfig(configUrl, new MultiModeDrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		for (DrtConfigGroup drtCfg : MultiModeDrtConfigGroup.get(config).getModalElements()) {
+			drtCfg.setBatchedInsertionSearch(batchedInsertionSearch);
+		}
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory() + (batchedInsertionSearch ? "batched" : "sequential"));
+		Controler controler = DrtControlerCreator.createControlerWithSingleModeDrt(config, false);
+		RequestCounter counter = new RequestCounter();
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addEventHandlerBinding().toInstance(counter);
+			}
+		});
+		controler.run();
+		return counter;
+	}
+
+	private static class RequestCounter
+			implements PassengerRequestScheduledEventHandler, PassengerRequestRejectedEventHandler {
+		private int scheduled = 0;
+		private int rejected = 0;
+
+		@Override
+		public void handleEvent(PassengerRequestScheduledEvent event) {
+			scheduled++;
+		}
+
+		@Override
+		public void handleEvent(PassengerRequestRejectedEvent event) {
+			rejected++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			scheduled = 0;
+			rejected = 0;
+		}
+	}
+
+	@Test
+	public void testRunDrtExampleWithSparseRebalancing() {
+		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_drt_config.xml");
+		Config config = ConfigUtils.loadConfig(configUrl, new MultiModeDrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		for (DrtConfigGroup drtCfg : MultiModeDrtConfigGroup.get(config).getModalElements()) {
+			drtCfg.getMinCostFlowRebalancing().get().setRelocationCandidateZones(3);
+		}
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		RunDrtExample.run(config, false);
+	}
+
+	@Test
+	public void testRunDrtExampleWithTravelTimeMatrixRebalancing() {
+		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_drt_config.xml");
+		Config config = ConfigUtils.loadConfig(configUrl, new MultiModeDrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		DvrpTravelTimeMatrixParams matrixParams = new DvrpTravelTimeMatrixParams();
+		matrixParams.setCellSize(500);
+		DvrpConfigGroup.get(config).addParameterSet(matrixParams);
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		RunDrtExample.run(config, false);
+	}
+
 	@Test
 	public void testRunDrtStopbasedExample() {
 		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_stop_based_drt_config.xml");
@@ -19,7 +19,9 @@
 
 package org.matsim.contrib.dvrp.run;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.NotBlank;
@@ -30,7 +32,9 @@ import javax.validation.constraints.PositiveOrZero;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.contrib.dynagent.run.DynQSimConfigConsistencyChecker;
+import org.matsim.contrib.zone.skims.DvrpTravelTimeMatrixParams;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.misc.StringUtils;
 
@@ -220,4 +224,26 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 		this.travelTimeEstimationBeta = travelTimeEstimationBeta;
 		return this;
 	}
+
+	/**
+	 * @return 'travelTimeMatrix' parameter set defined in the DVRP config or empty if the parameters were not
+	 * specified
+	 */
+	public Optional<DvrpTravelTimeMatrixParams> getTravelTimeMatrixParams() {
+		Collection<? extends ConfigGroup> parameterSets = getParameterSets(DvrpTravelTimeMatrixParams.SET_NAME);
+		if (parameterSets.size() > 1) {
+			throw new RuntimeException("More then one travel time matrix parameter sets is specified");
+		}
+		return parameterSets.isEmpty() ?
+				Optional.empty() :
+				Optional.of((DvrpTravelTimeMatrixParams)parameterSets.iterator().next());
+	}
+
+	@Override
+	public ConfigGroup createParameterSet(String type) {
+		if (type.equals(DvrpTravelTimeMatrixParams.SET_NAME)) {
+			return new DvrpTravelTimeMatrixParams();
+		}
+		return super.createParameterSet(type);
+	}
 }
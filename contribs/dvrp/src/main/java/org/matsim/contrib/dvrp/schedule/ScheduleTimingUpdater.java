@@ -34,12 +34,27 @@ public class ScheduleTimingUpdater {
 
 	private final MobsimTimer timer;
 	private final StayTaskEndTimeCalculator stayTaskEndTimeCalculator;
+	private final boolean incremental;
 
 	public final static double REMOVE_STAY_TASK = Double.NEGATIVE_INFINITY;
 
 	public ScheduleTimingUpdater(MobsimTimer timer, StayTaskEndTimeCalculator stayTaskEndTimeCalculator) {
+		this(timer, stayTaskEndTimeCalculator, false);
+	}
+
+	/**
+	 * In the incremental mode, a change of the current task end time (see {@link #updateBeforeNextTask(DvrpVehicle)}
+	 * and {@link #updateTimings(DvrpVehicle)}) is propagated only until the first task whose begin time remains
+	 * unchanged (e.g. the delay has been absorbed by a stay task or by waiting for a pickup). This requires that the
+	 * end time of each task depends only on its begin time and the task itself, and that the schedule timings have
+	 * been updated after every schedule modification (i.e. by calling
+	 * {@link #updateTimingsStartingFromTaskIdx(DvrpVehicle, int, double)}).
+	 */
+	public ScheduleTimingUpdater(MobsimTimer timer, StayTaskEndTimeCalculator stayTaskEndTimeCalculator,
+			boolean incremental) {
 		this.timer = timer;
 		this.stayTaskEndTimeCalculator = stayTaskEndTimeCalculator;
+		this.incremental = incremental;
 	}
 
 	/**
@@ -72,16 +87,25 @@ public class ScheduleTimingUpdater {
 		Task currentTask = schedule.getCurrentTask();
 		if (currentTask.getEndTime() != newEndTime) {
 			currentTask.setEndTime(newEndTime);
-			updateTimingsStartingFromTaskIdx(vehicle, currentTask.getTaskIdx() + 1, newEndTime);
+			updateTimingsStartingFromTaskIdx(vehicle, currentTask.getTaskIdx() + 1, newEndTime, incremental);
 		}
 	}
 
 	public void updateTimingsStartingFromTaskIdx(DvrpVehicle vehicle, int startIdx, double newBeginTime) {
+		updateTimingsStartingFromTaskIdx(vehicle, startIdx, newBeginTime, false);
+	}
+
+	private void updateTimingsStartingFromTaskIdx(DvrpVehicle vehicle, int startIdx, double newBeginTime,
+			boolean stopIfBeginTimeUnchanged) {
 		Schedule schedule = vehicle.getSchedule();
 		List<? extends Task> tasks = schedule.getTasks();
 
 		for (int i = startIdx; i < tasks.size(); i++) {
 			Task task = tasks.get(i);
+			if (stopIfBeginTimeUnchanged && task.getBeginTime() == newBeginTime) {
+				return;// the timings of this and all subsequent tasks are up to date
+			}
+
 			double calcEndTime = calcNewEndTime(vehicle, task, newBeginTime);
 
 			if (calcEndTime == REMOVE_STAY_TASK) {
@@ -0,0 +1,187 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.zone.skims;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.zone.ZonalSystem;
+import org.matsim.contrib.zone.Zone;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * Zone-to-zone travel times and distances, one pair of matrices per time bin. Provides O(1) estimates of node-to-node
+ * travel times/distances (approximated by the values between the central nodes of the respective zones), which are
+ * meant for pre-selecting candidates in DVRP optimisers, before calculating exact paths for the best ones.
+ * <p>
+ * The central node of a zone is the node closest to the zone centroid. Zones without nodes are skipped.
+ * <p>
+ * The matrices are dense, i.e. each time bin needs 8 bytes per pair of zones (logged at creation). Choose the cell size
+ * of the zonal system accordingly (e.g. 1 km cells on a 50 km x 50 km area: 2500 zones, 50 MB per time bin).
+ * <p>
+ * Reading is thread-safe, also while updating (see {@link #update(double, TravelTime)}): the matrices of a time bin are
+ * calculated aside and then replaced at once, so updates may run in the background (see
+ * {@link DvrpTravelTimeMatrixUpdater}).
+ */
+public final class DvrpTravelTimeMatrix {
+	private static final Logger log = Logger.getLogger(DvrpTravelTimeMatrix.class);
+
+	private final ZonalSystem zonalSystem;
+	private final TimeDiscretizer timeDiscretizer;
+	private final int numberOfThreads;
+
+	private final Map<Id<Zone>, Integer> zoneIndices = new HashMap<>();
+	private final Node[] centralNodes;
+	private final int[] zoneIndicesByNodeIdx;// indexed by Id<Node>.index(), -1 if not in the network
+
+	private final AtomicReferenceArray<TimeBinMatrices> timeBinMatrices;
+
+	/**
+	 * Creates matrices for all time bins using the given (time-dependent) travel time.
+	 */
+	public DvrpTravelTimeMatrix(Network network, ZonalSystem zonalSystem, TimeDiscretizer timeDiscretizer,
+			TravelTime travelTime, int numberOfThreads) {
+		this(network, zonalSystem, timeDiscretizer, numberOfThreads);
+		for (int i = 0; i < timeDiscretizer.getIntervalCount(); i++) {
+			updateTimeBin(i, travelTime);
+		}
+	}
+
+	/**
+	 * Creates matrices for a time-invariant travel time (e.g. free-speed travel time). They are calculated once and
+	 * shared by all time bins until updated.
+	 */
+	public static DvrpTravelTimeMatrix createTimeInvariantMatrix(Network network, ZonalSystem zonalSystem,
+			TimeDiscretizer timeDiscretizer, TravelTime timeInvariantTravelTime, int numberOfThreads) {
+		DvrpTravelTimeMatrix matrix = new DvrpTravelTimeMatrix(network, zonalSystem, timeDiscretizer,
+				numberOfThreads);
+		matrix.updateTimeBin(0, timeInvariantTravelTime);
+		for (int i = 1; i < timeDiscretizer.getIntervalCount(); i++) {
+			matrix.timeBinMatrices.set(i, matrix.timeBinMatrices.get(0));
+		}
+		return matrix;
+	}
+
+	private DvrpTravelTimeMatrix(Network network, ZonalSystem zonalSystem, TimeDiscretizer timeDiscretizer,
+			int numberOfThreads) {
+		this.zonalSystem = zonalSystem;
+		this.timeDiscretizer = timeDiscretizer;
+		this.numberOfThreads = numberOfThreads;
+
+		Map<Id<Zone>, Node> centralNodesByZone = new HashMap<>();
+		for (Node node : network.getNodes().values()) {
+			Zone zone = zonalSystem.getZone(node);
+			Node currentCentralNode = centralNodesByZone.get(zone.getId());
+			if (currentCentralNode == null
+					|| CoordUtils.calcEuclideanDistance(node.getCoord(), zone.getCoord())
+					< CoordUtils.calcEuclideanDistance(currentCentralNode.getCoord(), zone.getCoord())) {
+				centralNodesByZone.put(zone.getId(), node);
+			}
+		}
+
+		centralNodes = new Node[centralNodesByZone.size()];
+		for (Map.Entry<Id<Zone>, Node> e : centralNodesByZone.entrySet()) {
+			int zoneIdx = zoneIndices.size();
+			zoneIndices.put(e.getKey(), zoneIdx);
+			centralNodes[zoneIdx] = e.getValue();
+		}
+
+		zoneIndicesByNodeIdx = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(zoneIndicesByNodeIdx, -1);
+		for (Node node : network.getNodes().values()) {
+			zoneIndicesByNodeIdx[node.getId().index()] = zoneIndices.get(zonalSystem.getZone(node).getId());
+		}
+
+		timeBinMatrices = new AtomicReferenceArray<>(timeDiscretizer.getIntervalCount());
+		log.info("Travel time matrix: " + centralNodes.length + " zones, " + (8L * centralNodes.length
+				* centralNodes.length >> 20) + " MB per time bin, " + timeDiscretizer.getIntervalCount() + " time bins");
+	}
+
+	/**
+	 * Recalculates the matrices of the time bin containing the given time.
+	 */
+	public void update(double time, TravelTime travelTime) {
+		updateTimeBin(timeDiscretizer.getIdx(time), travelTime);
+	}
+
+	private void updateTimeBin(int timeBin, TravelTime travelTime) {
+		Matrix travelTimeMatrix = new Matrix(centralNodes.length);
+		Matrix distanceMatrix = new Matrix(centralNodes.length);
+		double departureTime = (double)timeBin * timeDiscretizer.getTimeInterval();
+		log.info("Calculating travel time matrix for " + centralNodes.length + " zones, departure time: "
+				+ departureTime);
+		TravelTimeMatrices.calculateTravelTimeAndDistanceMatrices(centralNodes, departureTime, travelTime,
+				numberOfThreads, travelTimeMatrix, distanceMatrix);
+		timeBinMatrices.set(timeBin, new TimeBinMatrices(travelTimeMatrix, distanceMatrix));
+	}
+
+	/**
+	 * @return estimated travel time [s] from {@code fromNode} to {@code toNode} when departing at
+	 * {@code departureTime}; {@link Double#POSITIVE_INFINITY} if unreachable
+	 */
+	public double getTravelTime(Node fromNode, Node toNode, double departureTime) {
+		return timeBinMatrices.get(timeDiscretizer.getIdx(departureTime)).travelTimes.get(getZoneIdx(fromNode),
+				getZoneIdx(toNode));
+	}
+
+	/**
+	 * @return estimated length [m] of the fastest path from {@code fromNode} to {@code toNode} when departing at
+	 * {@code departureTime}; {@link Double#POSITIVE_INFINITY} if unreachable
+	 */
+	public double getDistance(Node fromNode, Node toNode, double departureTime) {
+		return timeBinMatrices.get(timeDiscretizer.getIdx(departureTime)).distances.get(getZoneIdx(fromNode),
+				getZoneIdx(toNode));
+	}
+
+	public Node getCentralNode(Zone zone) {
+		return centralNodes[zoneIndices.get(zone.getId())];
+	}
+
+	private int getZoneIdx(Node node) {
+		int nodeIdx = node.getId().index();
+		if (nodeIdx < zoneIndicesByNodeIdx.length && zoneIndicesByNodeIdx[nodeIdx] >= 0) {
+			return zoneIndicesByNodeIdx[nodeIdx];
+		}
+		Integer zoneIdx = zoneIndices.get(zonalSystem.getZone(node).getId());
+		if (zoneIdx == null) {
+			throw new IllegalArgumentException("No central node for the zone of node: " + node.getId());
+		}
+		return zoneIdx;
+	}
+
+	private static final class TimeBinMatrices {
+		private final Matrix travelTimes;
+		private final Matrix distances;
+
+		private TimeBinMatrices(Matrix travelTimes, Matrix distances) {
+			this.travelTimes = travelTimes;
+			this.distances = distances;
+		}
+	}
+}
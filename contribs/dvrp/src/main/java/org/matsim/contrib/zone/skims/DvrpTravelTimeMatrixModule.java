@@ -0,0 +1,75 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.zone.skims;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.dvrp.router.DvrpGlobalRoutingNetworkProvider;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.zone.SquareGridSystem;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Binds {@link DvrpTravelTimeMatrix} (and its {@link DvrpTravelTimeMatrixUpdater}) using the 'travelTimeMatrix'
+ * parameter set of the DVRP config, or the default parameters if the set is not specified. The matrices need a lot of
+ * memory and time, so this module is not installed by default, but only once by the modules of the optimisers that
+ * use them.
+ */
+public class DvrpTravelTimeMatrixModule extends AbstractModule {
+	@Inject
+	private DvrpConfigGroup dvrpCfg;
+
+	@Override
+	public void install() {
+		DvrpTravelTimeMatrixParams params = dvrpCfg.getTravelTimeMatrixParams()
+				.orElseGet(DvrpTravelTimeMatrixParams::new);
+		bind(DvrpTravelTimeMatrixParams.class).toInstance(params);
+		bind(DvrpTravelTimeMatrix.class).toProvider(new Provider<DvrpTravelTimeMatrix>() {
+			@Inject
+			@Named(DvrpGlobalRoutingNetworkProvider.DVRP_ROUTING)
+			private Network network;
+
+			@Inject
+			@Named(DvrpTravelTimeModule.DVRP_INITIAL)
+			private TravelTime freeSpeedTravelTime;
+
+			@Override
+			public DvrpTravelTimeMatrix get() {
+				TimeDiscretizer timeDiscretizer = new TimeDiscretizer(params.getMaxTime(), params.getTimeBinSize(),
+						TimeDiscretizer.Type.OPEN_ENDED);
+				return DvrpTravelTimeMatrix.createTimeInvariantMatrix(network,
+						new SquareGridSystem(network, params.getCellSize()), timeDiscretizer, freeSpeedTravelTime,
+						params.getNumberOfThreads());
+			}
+		}).in(Singleton.class);
+		if (params.getUpdateInterval() > 0) {
+			bind(DvrpTravelTimeMatrixUpdater.class).in(Singleton.class);
+			addMobsimListenerBinding().to(DvrpTravelTimeMatrixUpdater.class);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.zone.skims;
+
+import java.util.Map;
+
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ReflectiveConfigGroup;
+
+public final class DvrpTravelTimeMatrixParams extends ReflectiveConfigGroup {
+	public static final String SET_NAME = "travelTimeMatrix";
+
+	public static final String CELL_SIZE = "cellSize";
+	static final String CELL_SIZE_EXP = "size of square cells (zones) used for calculating the travel time matrices."
+			+ " Travel times between nodes are approximated by travel times between the central nodes of their zones."
+			+ " The matrices are dense, so the memory grows with the 4th power of the inverse cell size"
+			+ " (8 bytes per pair of zones and time bin). Default is 1000 m.";
+
+	public static final String TIME_BIN_SIZE = "timeBinSize";
+	static final String TIME_BIN_SIZE_EXP = "size of time bins; there is one pair of time and distance matrices per"
+			+ " time bin. Default is 3600 s.";
+
+	public static final String MAX_TIME = "maxTime";
+	static final String MAX_TIME_EXP = "Matrices are calculated for time bins up to maxTime; the last (open-ended)"
+			+ " time bin is used for later departures. Must be a multiple of timeBinSize. Default is 30 h.";
+
+	public static final String UPDATE_INTERVAL = "updateInterval";
+	static final String UPDATE_INTERVAL_EXP = "Specifies how often (during the mobsim) the matrices of the current"
+			+ " time bin are recalculated using the DVRP travel time estimates. 0 means no updates, i.e. the matrices"
+			+ " are based on free-speed travel times. Default is 3600 s.";
+
+	public static final String NUMBER_OF_THREADS = "numberOfThreads";
+	static final String NUMBER_OF_THREADS_EXP = "Number of threads used for calculating the matrices."
+			+ " Default is the number of available processors.";
+
+	@Positive
+	private double cellSize = 1000;// [m]
+
+	@Positive
+	private int timeBinSize = 3600;// [s]
+
+	@Positive
+	private int maxTime = 30 * 3600;// [s]
+
+	@PositiveOrZero
+	private int updateInterval = 3600;// [s]
+
+	@Positive
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+	public DvrpTravelTimeMatrixParams() {
+		super(SET_NAME);
+	}
+
+	@Override
+	protected void checkConsistency(Config config) {
+		super.checkConsistency(config);
+		if (maxTime % timeBinSize != 0) {
+			throw new RuntimeException(MAX_TIME + " must be a multiple of " + TIME_BIN_SIZE);
+		}
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(CELL_SIZE, CELL_SIZE_EXP);
+		map.put(TIME_BIN_SIZE, TIME_BIN_SIZE_EXP);
+		map.put(MAX_TIME, MAX_TIME_EXP);
+		map.put(UPDATE_INTERVAL, UPDATE_INTERVAL_EXP);
+		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		return map;
+	}
+
+	/**
+	 * @return -- {@value #CELL_SIZE_EXP}
+	 */
+	@StringGetter(CELL_SIZE)
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * @param cellSize -- {@value #CELL_SIZE_EXP}
+	 */
+	@StringSetter(CELL_SIZE)
+	public void setCellSize(double cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * @return -- {@value #TIME_BIN_SIZE_EXP}
+	 */
+	@StringGetter(TIME_BIN_SIZE)
+	public int getTimeBinSize() {
+		return timeBinSize;
+	}
+
+	/**
+	 * @param timeBinSize -- {@value #TIME_BIN_SIZE_EXP}
+	 */
+	@StringSetter(TIME_BIN_SIZE)
+	public void setTimeBinSize(int timeBinSize) {
+		this.timeBinSize = timeBinSize;
+	}
+
+	/**
+	 * @return -- {@value #MAX_TIME_EXP}
+	 */
+	@StringGetter(MAX_TIME)
+	public int getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * @param maxTime -- {@value #MAX_TIME_EXP}
+	 */
+	@StringSetter(MAX_TIME)
+	public void setMaxTime(int maxTime) {
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * @return -- {@value #UPDATE_INTERVAL_EXP}
+	 */
+	@StringGetter(UPDATE_INTERVAL)
+	public int getUpdateInterval() {
+		return updateInterval;
+	}
+
+	/**
+	 * @param updateInterval -- {@value #UPDATE_INTERVAL_EXP}
+	 */
+	@StringSetter(UPDATE_INTERVAL)
+	public void setUpdateInterval(int updateInterval) {
+		this.updateInterval = updateInterval;
+	}
+
+	/**
+	 * @return -- {@value #NUMBER_OF_THREADS_EXP}
+	 */
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	/**
+	 * @param numberOfThreads -- {@value #NUMBER_OF_THREADS_EXP}
+	 */
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+}
@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.zone.skims;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Periodically recalculates the matrices of the current time bin using the DVRP travel time estimates. The
+ * calculation runs in the background, so the mobsim continues with the previous matrices until the new ones are
+ * swapped in. If the previous update has not finished yet, the update is skipped. Pending updates are completed before
+ * the mobsim ends.
+ */
+public class DvrpTravelTimeMatrixUpdater implements MobsimBeforeSimStepListener, MobsimBeforeCleanupListener {
+	private static final Logger log = Logger.getLogger(DvrpTravelTimeMatrixUpdater.class);
+
+	private final DvrpTravelTimeMatrix travelTimeMatrix;
+	private final TravelTime travelTime;
+	private final int updateInterval;
+
+	private ExecutorService executorService;
+	private Future<?> pendingUpdate;
+
+	@Inject
+	public DvrpTravelTimeMatrixUpdater(DvrpTravelTimeMatrix travelTimeMatrix,
+			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, DvrpTravelTimeMatrixParams params) {
+		this.travelTimeMatrix = travelTimeMatrix;
+		this.travelTime = travelTime;
+		this.updateInterval = params.getUpdateInterval();
+	}
+
+	@Override
+	public void notifyMobsimBeforeSimStep(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent e) {
+		double time = e.getSimulationTime();
+		if (updateInterval > 0 && time % updateInterval == 0) {
+			if (pendingUpdate != null && !pendingUpdate.isDone()) {
+				log.warn("Skipping the update of the travel time matrix at " + time
+						+ ", the previous update is still running");
+				return;
+			}
+			if (executorService == null) {
+				executorService = Executors.newSingleThreadExecutor();
+			}
+			pendingUpdate = executorService.submit(() -> travelTimeMatrix.update(time, travelTime));
+		}
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		if (executorService == null) {
+			return;
+		}
+		try {
+			pendingUpdate.get();// also propagates exceptions thrown while updating
+		} catch (InterruptedException | ExecutionException ex) {
+			throw new RuntimeException(ex);
+		} finally {
+			executorService.shutdown();
+			executorService = null;
+			pendingUpdate = null;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.zone.skims;
+
+import java.util.Arrays;
+
+/**
+ * Dense square matrix of float values, indexed by zone indices.
+ */
+public final class Matrix {
+	private final int size;
+	private final float[] values;
+
+	public Matrix(int size) {
+		this.size = size;
+		this.values = new float[size * size];
+	}
+
+	public float get(int fromIdx, int toIdx) {
+		return values[fromIdx * size + toIdx];
+	}
+
+	public void set(int fromIdx, int toIdx, float value) {
+		values[fromIdx * size + toIdx] = value;
+	}
+
+	public void fill(float value) {
+		Arrays.fill(values, value);
+	}
+
+	public int getSize() {
+		return size;
+	}
+}
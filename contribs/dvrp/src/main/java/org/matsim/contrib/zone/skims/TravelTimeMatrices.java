@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.zone.skims;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.util.ExecutorServiceWithResource;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates zone-to-zone travel time and distance matrices. For each pair of zones, the fastest path between their
+ * central nodes is used.
+ */
+public final class TravelTimeMatrices {
+	private TravelTimeMatrices() {
+	}
+
+	/**
+	 * Fills the matrices with the travel times [s] and distances [m] of the fastest paths between all central nodes.
+	 * The rows are calculated in parallel. Unreachable destinations get {@link Float#POSITIVE_INFINITY}.
+	 */
+	public static void calculateTravelTimeAndDistanceMatrices(Node[] centralNodes, double departureTime,
+			TravelTime travelTime, int numberOfThreads, Matrix travelTimeMatrix, Matrix distanceMatrix) {
+		ExecutorServiceWithResource<FastestPathTree> executorService = new ExecutorServiceWithResource<>(
+				IntStream.range(0, numberOfThreads)
+						.mapToObj(i -> new FastestPathTree(travelTime))
+						.collect(Collectors.toList()));
+		try {
+			executorService.submitRunnablesAndWait(IntStream.range(0, centralNodes.length)
+					.mapToObj(i -> (tree -> calculateRow(tree, centralNodes, i, departureTime, travelTimeMatrix,
+							distanceMatrix))));
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	private static void calculateRow(FastestPathTree tree, Node[] centralNodes, int fromIdx, double departureTime,
+			Matrix travelTimeMatrix, Matrix distanceMatrix) {
+		tree.calculate(centralNodes[fromIdx], departureTime);
+		for (int toIdx = 0; toIdx < centralNodes.length; toIdx++) {
+			int nodeIdx = centralNodes[toIdx].getId().index();
+			travelTimeMatrix.set(fromIdx, toIdx, (float)tree.times[nodeIdx]);
+			distanceMatrix.set(fromIdx, toIdx, (float)tree.distances[nodeIdx]);
+		}
+	}
+
+	/**
+	 * Time-dependent one-to-all Dijkstra minimising travel time; node data is kept in arrays indexed by
+	 * {@link Id#index()}, which are reused between calculations (one instance per thread).
+	 */
+	private static class FastestPathTree {
+		private final TravelTime travelTime;
+		private final double[] times;
+		private final double[] distances;
+
+		private FastestPathTree(TravelTime travelTime) {
+			this.travelTime = travelTime;
+			int nodeIdCount = Id.getNumberOfIds(Node.class);
+			this.times = new double[nodeIdCount];
+			this.distances = new double[nodeIdCount];
+		}
+
+		private static class QueueEntry implements Comparable<QueueEntry> {
+			private final Node node;
+			private final double time;
+
+			private QueueEntry(Node node, double time) {
+				this.node = node;
+				this.time = time;
+			}
+
+			@Override
+			public int compareTo(QueueEntry o) {
+				return Double.compare(time, o.time);
+			}
+		}
+
+		private void calculate(Node origin, double departureTime) {
+			Arrays.fill(times, Double.POSITIVE_INFINITY);
+			Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+			PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+			times[origin.getId().index()] = 0;
+			distances[origin.getId().index()] = 0;
+			queue.add(new QueueEntry(origin, 0));
+
+			while (!queue.isEmpty()) {
+				QueueEntry entry = queue.poll();
+				int fromIdx = entry.node.getId().index();
+				if (entry.time > times[fromIdx]) {
+					continue;// outdated entry
+				}
+
+				for (Link link : entry.node.getOutLinks().values()) {
+					double time = entry.time + travelTime.getLinkTravelTime(link, departureTime + entry.time, null,
+							null);
+					Node toNode = link.getToNode();
+					int toIdx = toNode.getId().index();
+					if (time < times[toIdx]) {
+						times[toIdx] = time;
+						distances[toIdx] = distances[fromIdx] + link.getLength();
+						queue.add(new QueueEntry(toNode, time));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.dvrp.schedule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.matsim.contrib.dvrp.schedule.ScheduleTimingUpdater.REMOVE_STAY_TASK;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.path.VrpPathWithTravelDataImpl;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
+
+public class ScheduleTimingUpdaterTest {
+	private enum TestTaskType implements Task.TaskType {
+		STAY, DRIVE, WAIT, SERVE
+	}
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node node = NetworkUtils.createNode(Id.createNodeId("timing_updater_node"), new Coord(0, 0));
+	private final Link link = NetworkUtils.createLink(Id.createLinkId("timing_updater_link"), node, node, network, 100,
+			10, 1000, 1);
+	private final MobsimTimer timer = new MobsimTimer();
+
+	private int calculatorCalls = 0;
+
+	private final ScheduleTimingUpdater.StayTaskEndTimeCalculator calculator = (vehicle, task, newBeginTime) -> {
+		calculatorCalls++;
+		if (Schedules.getLastTask(vehicle.getSchedule()).equals(task)) {
+			return Math.max(newBeginTime, vehicle.getServiceEndTime());
+		}
+		switch ((TestTaskType)task.getTaskType()) {
+			case WAIT:
+				return task.getEndTime() <= newBeginTime ? REMOVE_STAY_TASK : task.getEndTime();
+			case SERVE:
+				return newBeginTime + 100;
+			default:
+				throw new IllegalStateException();
+		}
+	};
+
+	@Test
+	public void delayAbsorbedByWaitTask() {
+		// the same timings are obtained in both modes
+		DvrpVehicle vehicle = createVehicleWithStartedSchedule();
+		timer.setTime(150);
+		new ScheduleTimingUpdater(timer, calculator).updateBeforeNextTask(vehicle);
+		assertThat(timings(vehicle)).containsExactly("0-150", "150-250", "250-500", "500-600", "600-700", "700-1000");
+		assertThat(calculatorCalls).isEqualTo(3);
+
+		calculatorCalls = 0;
+		vehicle = createVehicleWithStartedSchedule();
+		new ScheduleTimingUpdater(timer, calculator, true).updateBeforeNextTask(vehicle);
+		assertThat(timings(vehicle)).containsExactly("0-150", "150-250", "250-500", "500-600", "600-700", "700-1000");
+		assertThat(calculatorCalls).isEqualTo(1);// the remaining tasks are not updated
+	}
+
+	@Test
+	public void delayNotAbsorbed() {
+		DvrpVehicle vehicle = createVehicleWithStartedSchedule();
+		timer.setTime(450);
+		new ScheduleTimingUpdater(timer, calculator, true).updateBeforeNextTask(vehicle);
+		// the wait task is removed
+		assertThat(timings(vehicle)).containsExactly("0-450", "450-550", "550-650", "650-750", "750-1000");
+	}
+
+	private DvrpVehicle createVehicleWithStartedSchedule() {
+		DvrpVehicle vehicle = new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(Id.create("v", DvrpVehicle.class))
+				.capacity(1)
+				.startLinkId(link.getId())
+				.serviceBeginTime(0)
+				.serviceEndTime(1000)
+				.build(), link);
+		Schedule schedule = vehicle.getSchedule();
+		schedule.addTask(new StayTask(TestTaskType.STAY, 0, 100, link));
+		schedule.addTask(driveTask(100));
+		schedule.addTask(new StayTask(TestTaskType.WAIT, 200, 500, link));
+		schedule.addTask(driveTask(500));
+		schedule.addTask(new StayTask(TestTaskType.SERVE, 600, 700, link));
+		schedule.addTask(new StayTask(TestTaskType.STAY, 700, 1000, link));
+		schedule.nextTask();
+		return vehicle;
+	}
+
+	private DriveTask driveTask(double beginTime) {
+		return new DriveTask(TestTaskType.DRIVE,
+				new VrpPathWithTravelDataImpl(beginTime, 100, new Link[] { link }, new double[] { 100 }));
+	}
+
+	private List<String> timings(DvrpVehicle vehicle) {
+		return vehicle.getSchedule()
+				.tasks()
+				.map(t -> (int)t.getBeginTime() + "-" + (int)t.getEndTime())
+				.collect(Collectors.toList());
+	}
+}
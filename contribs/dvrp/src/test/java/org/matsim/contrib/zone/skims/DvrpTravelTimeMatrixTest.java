@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.zone.skims;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.zone.SquareGridSystem;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+
+public class DvrpTravelTimeMatrixTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("skims_A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("skims_B"), new Coord(150, 0));
+	private final Node nodeC = NetworkUtils.createAndAddNode(network, Id.createNodeId("skims_C"), new Coord(150, 150));
+
+	private final TimeDiscretizer timeDiscretizer = new TimeDiscretizer(7200, 3600, TimeDiscretizer.Type.OPEN_ENDED);
+
+	public DvrpTravelTimeMatrixTest() {
+		link("AB", nodeA, nodeB, 150);
+		link("BC", nodeB, nodeC, 150);
+		link("AC", nodeA, nodeC, 1000);// long link, fast only after 3600 s
+		link("CA", nodeC, nodeA, 300);
+	}
+
+	@Test
+	public void travelTimesAndDistances() {
+		// AC travel time: 100 s before 3600 s, 10 s later; other links: 1 s/m
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getId().toString().equals("skims_AC") ?
+				(time < 3600 ? 1000 : 10) :
+				link.getLength();
+		DvrpTravelTimeMatrix matrix = new DvrpTravelTimeMatrix(network, new SquareGridSystem(network, 100),
+				timeDiscretizer, travelTime, 2);
+
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 0)).isEqualTo(300);
+		assertThat(matrix.getDistance(nodeA, nodeC, 0)).isEqualTo(300);
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 4000)).isEqualTo(10);
+		assertThat(matrix.getDistance(nodeA, nodeC, 4000)).isEqualTo(1000);
+		assertThat(matrix.getTravelTime(nodeC, nodeB, 0)).isEqualTo(450);
+		assertThat(matrix.getTravelTime(nodeB, nodeB, 0)).isEqualTo(0);
+		// open-ended last time bin
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 100000)).isEqualTo(10);
+	}
+
+	@Test
+	public void timeInvariantMatrix_update() {
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength();
+		DvrpTravelTimeMatrix matrix = DvrpTravelTimeMatrix.createTimeInvariantMatrix(network,
+				new SquareGridSystem(network, 100), timeDiscretizer, travelTime, 1);
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 0)).isEqualTo(300);
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 4000)).isEqualTo(300);
+
+		// only the updated time bin changes
+		matrix.update(4000, (link, time, person, vehicle) -> 2 * link.getLength());
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 0)).isEqualTo(300);
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 4000)).isEqualTo(600);
+		assertThat(matrix.getDistance(nodeA, nodeC, 4000)).isEqualTo(300);
+	}
+
+	@Test
+	public void updater_updatesCurrentTimeBin() {
+		DvrpTravelTimeMatrix matrix = DvrpTravelTimeMatrix.createTimeInvariantMatrix(network,
+				new SquareGridSystem(network, 100), timeDiscretizer, (link, time, person, vehicle) -> link.getLength(),
+				1);
+		DvrpTravelTimeMatrixParams params = new DvrpTravelTimeMatrixParams();
+		params.setUpdateInterval(3600);
+		DvrpTravelTimeMatrixUpdater updater = new DvrpTravelTimeMatrixUpdater(matrix,
+				(link, time, person, vehicle) -> 2 * link.getLength(), params);
+
+		updater.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, 3599));
+		updater.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, 3600));
+		// the update runs in the background and is completed at the latest before the mobsim ends
+		updater.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<>(null));
+
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 0)).isEqualTo(300);
+		assertThat(matrix.getTravelTime(nodeA, nodeC, 4000)).isEqualTo(600);
+	}
+
+	@Test
+	public void unreachableZone() {
+		Node nodeD = NetworkUtils.createAndAddNode(network, Id.createNodeId("skims_D"), new Coord(1000, 1000));
+		DvrpTravelTimeMatrix matrix = new DvrpTravelTimeMatrix(network, new SquareGridSystem(network, 100),
+				timeDiscretizer, (link, time, person, vehicle) -> link.getLength(), 1);
+		assertThat(matrix.getTravelTime(nodeA, nodeD, 0)).isEqualTo(Double.POSITIVE_INFINITY);
+	}
+
+	private Link link(String id, Node from, Node to, double length) {
+		Link link = NetworkUtils.createLink(Id.createLinkId("skims_" + id), from, to, network, length, 10, 1000, 1);
+		network.addLink(link);
+		return link;
+	}
+}
@@ -22,6 +22,7 @@
 package org.matsim.contrib.emissions;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -66,6 +67,29 @@ import org.matsim.vehicles.VehicleType;
 final class ColdEmissionAnalysisModule {
 	private static final Logger logger = Logger.getLogger(ColdEmissionAnalysisModule.class);
 
+	private static final int PARKING_TIME_COUNT = 13;
+	private static final int DISTANCE_COUNT = 2;
+	private static final int POLLUTANT_COUNT = Pollutant.values().length;
+
+	/**
+	 * Precompiled lookup for one vehicle type. Emission factors are resolved (incl. all the fallbacks below) on first
+	 * use and then kept in an array indexed by parking time, distance and pollutant, so that no lookup keys are created
+	 * for subsequent cold starts.
+	 */
+	private static final class VehicleTypeLookup {
+		private final Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+		// indexed by [((parkingTime_h - 1) * DISTANCE_COUNT + distance_km - 1) * POLLUTANT_COUNT + pollutant]
+		private final HbefaColdEmissionFactor[] factors = new HbefaColdEmissionFactor[PARKING_TIME_COUNT * DISTANCE_COUNT
+				* POLLUTANT_COUNT];
+
+		private VehicleTypeLookup(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			this.vehicleInformationTuple = vehicleInformationTuple;
+		}
+	}
+
+	// identity-based, as VehicleType does not override equals/hashCode
+	private final Map<VehicleType, VehicleTypeLookup> vehicleTypeLookups = new ConcurrentHashMap<>();
+
 	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable;
 	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
 
@@ -95,13 +119,28 @@ final class ColdEmissionAnalysisModule {
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWColdEmissions(
 			VehicleType vehicleType, Id<Vehicle> vehicleId, Id<Link> coldEmissionEventLinkId,
 			double eventTime, double parkingDuration, int distance_km) {
+		VehicleTypeLookup lookup = vehicleTypeLookups.get( vehicleType );
+		if ( lookup == null ) {
+			lookup = new VehicleTypeLookup( checkVehicleInfo( vehicleType ) );
+			vehicleTypeLookups.put( vehicleType, lookup );
+		}
+
+		Map<Pollutant, Double> coldEmissions = calculateColdEmissions( vehicleId, parkingDuration, lookup, distance_km );
+
+		throwColdEmissionEvent(vehicleId, coldEmissionEventLinkId, eventTime, coldEmissions);
+
+		return coldEmissions;
+	}
 
-		{
+	private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> checkVehicleInfo( VehicleType vehicleType ) {
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+		// (the vehicle type may be shared with modules running in other threads, see OfflineEmissionTool)
+		synchronized ( vehicleType ) {
 			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription( vehicleType, this.ecg );
 			// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
 			Gbl.assertNotNull( hbefaVehicleTypeDescription );
+			vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
 		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
 		Gbl.assertNotNull( vehicleInformationTuple );
 
 		if (vehicleInformationTuple.getFirst() == null){
@@ -109,12 +148,7 @@ final class ColdEmissionAnalysisModule {
 					"Please make sure that requirements for emission vehicles in " +
 					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-
-		Map<Pollutant, Double> coldEmissions = calculateColdEmissions( vehicleId, parkingDuration, vehicleInformationTuple, distance_km );
-
-		throwColdEmissionEvent(vehicleId, coldEmissionEventLinkId, eventTime, coldEmissions);
-
-		return coldEmissions;
+		return vehicleInformationTuple;
 	}
 
 	/*package-private*/ void throwColdEmissionEvent(Id<Vehicle> vehicleId, Id<Link> coldEmissionEventLinkId, double eventTime, Map<Pollutant, Double> coldEmissions) {
@@ -123,7 +157,8 @@ final class ColdEmissionAnalysisModule {
 	}
 
 	private static int cnt =10;
-	private Map<Pollutant, Double> calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km ) {
+	private Map<Pollutant, Double> calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, VehicleTypeLookup lookup, int distance_km ) {
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = lookup.vehicleInformationTuple;
 
 		final Map<Pollutant, Double> coldEmissionsOfEvent = new EnumMap<>( Pollutant.class );
 
@@ -145,9 +180,7 @@ final class ColdEmissionAnalysisModule {
 			return coldEmissionsOfEvent;
 		}
 
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
-		key.setHbefaVehicleCategory( vehicleInformationTuple.getFirst() );
+		HbefaVehicleCategory vehicleCategory = vehicleInformationTuple.getFirst();
 
 		//HBEFA 3 provide cold start emissions for "pass. car" and Light_Commercial_Vehicles (LCV) only.
 		//HBEFA 4.1 provide cold start emissions for "pass. car" and Light_Commercial_Vehicles (LCV) only.
@@ -155,7 +188,7 @@ final class ColdEmissionAnalysisModule {
 		//Mapping everything except "motorcycle" to "pass.car", since this was done in the last years for HGV.
 		//This may can be improved: What should be better set to LGV or zero???? kturner, may'20
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-			key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			vehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if(vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -165,7 +198,7 @@ final class ColdEmissionAnalysisModule {
 			}
 		}
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.URBAN_BUS)){
-			key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			vehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if(vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -175,7 +208,7 @@ final class ColdEmissionAnalysisModule {
 			}
 		}
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.COACH)){
-			key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			vehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if(vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -201,31 +234,38 @@ final class ColdEmissionAnalysisModule {
 			return coldEmissionsOfEvent;
 		}
 
-		if(this.detailedHbefaColdTable != null){
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			key.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-		}
-
 		int parkingDuration_h = Math.max(1, (int) (parkingDuration / 3600));
 		if (parkingDuration_h >= 12) parkingDuration_h = 13;
 
-		key.setHbefaParkingTime(parkingDuration_h);
-
 		for ( Pollutant coldPollutant : coldPollutants) {
 			double generatedEmissions;
 			if (distance_km == 1) {
-				generatedEmissions = getEmissionsFactor(vehicleInformationTuple, 1, key, coldPollutant).getColdEmissionFactor();
+				generatedEmissions = getEmissionsFactor(lookup, vehicleCategory, parkingDuration_h, 1, coldPollutant).getColdEmissionFactor();
 			} else {
-				generatedEmissions = getEmissionsFactor(vehicleInformationTuple, 2, key, coldPollutant).getColdEmissionFactor() - getEmissionsFactor(vehicleInformationTuple, 1, key, coldPollutant).getColdEmissionFactor();
+				generatedEmissions = getEmissionsFactor(lookup, vehicleCategory, parkingDuration_h, 2, coldPollutant).getColdEmissionFactor()
+						- getEmissionsFactor(lookup, vehicleCategory, parkingDuration_h, 1, coldPollutant).getColdEmissionFactor();
 			}
 			coldEmissionsOfEvent.put(coldPollutant, generatedEmissions);
 		}
 		return coldEmissionsOfEvent;
 	}
 
+	private HbefaColdEmissionFactor getEmissionsFactor(VehicleTypeLookup lookup, HbefaVehicleCategory vehicleCategory,
+													   int parkingDuration_h, int distance_km, Pollutant coldPollutant) {
+		// (the category only depends on the vehicle type, so it need not be part of the index)
+		int idx = ((parkingDuration_h - 1) * DISTANCE_COUNT + distance_km - 1) * POLLUTANT_COUNT + coldPollutant.ordinal();
+		HbefaColdEmissionFactor ef = lookup.factors[idx];
+		if (ef == null) {
+			// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+			HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+			key.setHbefaVehicleCategory(vehicleCategory);
+			key.setHbefaParkingTime(parkingDuration_h);
+			ef = getEmissionsFactor(lookup.vehicleInformationTuple, distance_km, key, coldPollutant);
+			lookup.factors[idx] = ef;
+		}
+		return ef;
+	}
+
 	private HbefaColdEmissionFactor getEmissionsFactor(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, HbefaColdEmissionFactorKey efkey, Pollutant coldPollutant) {
 
 		efkey.setHbefaDistance(distance_km);
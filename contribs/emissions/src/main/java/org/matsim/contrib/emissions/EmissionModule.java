@@ -186,6 +186,16 @@ public final class EmissionModule {
 		logger.info("leaving createEmissionHandler");
 	}
 
+	/**
+	 * Creates an additional pair of warm and cold emission handlers that share the (read-only) emission factor tables of
+	 * this module, but have their own state. The handlers are added to the given events manager, which also receives the
+	 * emission events.
+	 */
+	/*package-private*/ void createAdditionalEmissionHandlers( EventsManager eventsManager ) {
+		new WarmEmissionHandler( scenario, avgHbefaWarmTable, detailedHbefaWarmTable, hbefaRoadTrafficSpeeds, warmPollutants, eventsManager );
+		new ColdEmissionHandler( scenario, avgHbefaColdTable, detailedHbefaColdTable, coldPollutants, eventsManager );
+	}
+
 	private void loadRoadTypeMappings() {
 		HbefaRoadTypeMapping roadTypeMapping;
 
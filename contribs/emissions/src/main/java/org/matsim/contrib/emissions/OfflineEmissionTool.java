@@ -0,0 +1,382 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OfflineEmissionTool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.analysis.time.TimeBinMap;
+import org.matsim.contrib.emissions.events.ColdEmissionEvent;
+import org.matsim.contrib.emissions.events.ColdEmissionEventHandler;
+import org.matsim.contrib.emissions.events.WarmEmissionEvent;
+import org.matsim.contrib.emissions.events.WarmEmissionEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Computes emissions from an existing events file in parallel and aggregates them by link and time bin.
+ * <p>
+ * The events are read sequentially and the vehicle-related events (link enter/leave, vehicle enters/leaves traffic) are
+ * distributed by vehicle id over the worker threads. Since both warm and cold emissions depend only on the events of
+ * a single vehicle, each worker runs its own warm and cold emission handlers (sharing the emission factor tables of a
+ * single {@link EmissionModule}) and produces the same emissions as the sequential computation.
+ * <p>
+ * Writing the emission events is optional. If enabled, they are ordered by time for each vehicle, but not globally.
+ */
+public final class OfflineEmissionTool {
+	private static final Logger logger = Logger.getLogger(OfflineEmissionTool.class);
+
+	private static final int BATCH_SIZE = 1000;
+	private static final int QUEUE_CAPACITY = 16;
+
+	private final Scenario scenario;
+	private final int numberOfThreads;
+	private final double timeBinSize;
+	private final String emissionEventsFile;
+
+	private OfflineEmissionTool(Scenario scenario, int numberOfThreads, double timeBinSize, String emissionEventsFile) {
+		this.scenario = scenario;
+		this.numberOfThreads = numberOfThreads;
+		this.timeBinSize = timeBinSize;
+		this.emissionEventsFile = emissionEventsFile;
+	}
+
+	/**
+	 * Computes the emissions for the given events file.
+	 *
+	 * @param eventsFile events file without emission events, e.g. '/path/to/output_events.xml.gz'
+	 * @return emissions by time bin, link and pollutant
+	 */
+	public TimeBinMap<Map<Id<Link>, Map<Pollutant, Double>>> process(String eventsFile) {
+		EmissionModule emissionModule = new EmissionModule(scenario, EventsUtils.createEventsManager());
+		EventWriterXML emissionEventWriter = emissionEventsFile == null ? null : new EventWriterXML(emissionEventsFile);
+
+		List<Worker> workers = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < numberOfThreads; i++) {
+			Worker worker = new Worker(timeBinSize);
+			EventsManager workerEventsManager = EventsUtils.createEventsManager();
+			emissionModule.createAdditionalEmissionHandlers(workerEventsManager);
+			workerEventsManager.addHandler(worker);
+			if (emissionEventWriter != null) {
+				// (the events manager synchronizes on each handler, so the writer can be shared among the workers)
+				workerEventsManager.addHandler(emissionEventWriter);
+			}
+			worker.eventsManager = workerEventsManager;
+			workers.add(worker);
+
+			Thread thread = new Thread(worker, "emissions-" + i);
+			thread.start();
+			threads.add(thread);
+		}
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		Dispatcher dispatcher = new Dispatcher(workers);
+		eventsManager.addHandler(dispatcher);
+		logger.info("Computing emissions for " + eventsFile + " using " + numberOfThreads + " threads");
+		try {
+			new MatsimEventsReader(eventsManager).readFile(eventsFile);
+		} finally {
+			dispatcher.finish();
+			for (Thread thread : threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			if (emissionEventWriter != null) {
+				emissionEventWriter.closeFile();
+			}
+		}
+
+		for (Worker worker : workers) {
+			if (worker.exception != null) {
+				throw new RuntimeException("Emission computation failed", worker.exception);
+			}
+		}
+		return mergeEmissions(workers);
+	}
+
+	private TimeBinMap<Map<Id<Link>, Map<Pollutant, Double>>> mergeEmissions(List<Worker> workers) {
+		Set<Pollutant> pollutants = EnumSet.noneOf(Pollutant.class);
+		TimeBinMap<Map<Id<Link>, double[]>> merged = new TimeBinMap<>(timeBinSize);
+		for (Worker worker : workers) {
+			pollutants.addAll(worker.pollutants);
+			for (TimeBinMap.TimeBin<Map<Id<Link>, double[]>> bin : worker.timeBins.getTimeBins()) {
+				TimeBinMap.TimeBin<Map<Id<Link>, double[]>> mergedBin = merged.getTimeBin(bin.getStartTime());
+				if (!mergedBin.hasValue()) {
+					mergedBin.setValue(new HashMap<>());
+				}
+				bin.getValue().forEach((linkId, emissions) -> mergedBin.getValue().merge(linkId, emissions, (e1, e2) -> {
+					for (int i = 0; i < e1.length; i++) {
+						e1[i] += e2[i];
+					}
+					return e1;
+				}));
+			}
+		}
+
+		TimeBinMap<Map<Id<Link>, Map<Pollutant, Double>>> result = new TimeBinMap<>(timeBinSize);
+		for (TimeBinMap.TimeBin<Map<Id<Link>, double[]>> bin : merged.getTimeBins()) {
+			Map<Id<Link>, Map<Pollutant, Double>> linkEmissions = new HashMap<>();
+			bin.getValue().forEach((linkId, emissions) -> {
+				Map<Pollutant, Double> emissionsByPollutant = new EnumMap<>(Pollutant.class);
+				for (Pollutant pollutant : pollutants) {
+					emissionsByPollutant.put(pollutant, emissions[pollutant.ordinal()]);
+				}
+				linkEmissions.put(linkId, emissionsByPollutant);
+			});
+			result.getTimeBin(bin.getStartTime()).setValue(linkEmissions);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the emissions as csv with one row per time bin and link.
+	 *
+	 * @param emissions emissions as returned by {@link #process(String)}
+	 * @param filename  output file, e.g. '/path/to/linkEmissions.csv.gz'
+	 */
+	public static void writeLinkEmissions(TimeBinMap<Map<Id<Link>, Map<Pollutant, Double>>> emissions, String filename) {
+		Set<Pollutant> pollutants = EnumSet.noneOf(Pollutant.class);
+		for (TimeBinMap.TimeBin<Map<Id<Link>, Map<Pollutant, Double>>> bin : emissions.getTimeBins()) {
+			bin.getValue().values().forEach(e -> pollutants.addAll(e.keySet()));
+		}
+
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("timeBinStart;linkId");
+			for (Pollutant pollutant : pollutants) {
+				writer.write(";" + pollutant);
+			}
+			writer.newLine();
+
+			for (TimeBinMap.TimeBin<Map<Id<Link>, Map<Pollutant, Double>>> bin : emissions.getTimeBins()) {
+				List<Id<Link>> linkIds = new ArrayList<>(bin.getValue().keySet());
+				Collections.sort(linkIds);
+				for (Id<Link> linkId : linkIds) {
+					Map<Pollutant, Double> linkEmissions = bin.getValue().get(linkId);
+					writer.write(bin.getStartTime() + ";" + linkId);
+					for (Pollutant pollutant : pollutants) {
+						writer.write(";" + linkEmissions.getOrDefault(pollutant, 0.));
+					}
+					writer.newLine();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Distributes the vehicle-related events over the workers in batches.
+	 */
+	private static class Dispatcher implements BasicEventHandler {
+		private final List<Worker> workers;
+		private final List<List<Event>> batches = new ArrayList<>();
+
+		private Dispatcher(List<Worker> workers) {
+			this.workers = workers;
+			for (int i = 0; i < workers.size(); i++) {
+				batches.add(new ArrayList<>(BATCH_SIZE));
+			}
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			Id<Vehicle> vehicleId = getVehicleId(event);
+			if (vehicleId == null) {
+				return;
+			}
+			int idx = Math.floorMod(vehicleId.index(), workers.size());
+			List<Event> batch = batches.get(idx);
+			batch.add(event);
+			if (batch.size() == BATCH_SIZE) {
+				workers.get(idx).submit(batch);
+				batches.set(idx, new ArrayList<>(BATCH_SIZE));
+			}
+		}
+
+		private void finish() {
+			for (int i = 0; i < workers.size(); i++) {
+				workers.get(i).submit(batches.get(i));
+				// an empty batch marks the end
+				workers.get(i).submit(Collections.emptyList());
+			}
+		}
+
+		private static Id<Vehicle> getVehicleId(Event event) {
+			if (event instanceof LinkEnterEvent) {
+				return ((LinkEnterEvent)event).getVehicleId();
+			} else if (event instanceof LinkLeaveEvent) {
+				return ((LinkLeaveEvent)event).getVehicleId();
+			} else if (event instanceof VehicleEntersTrafficEvent) {
+				return ((VehicleEntersTrafficEvent)event).getVehicleId();
+			} else if (event instanceof VehicleLeavesTrafficEvent) {
+				return ((VehicleLeavesTrafficEvent)event).getVehicleId();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Processes the events of a subset of vehicles and sums up the resulting emissions by time bin and link.
+	 */
+	private static class Worker implements Runnable, WarmEmissionEventHandler, ColdEmissionEventHandler {
+		private final BlockingQueue<List<Event>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		private final TimeBinMap<Map<Id<Link>, double[]>> timeBins;
+		private final Set<Pollutant> pollutants = EnumSet.noneOf(Pollutant.class);
+		private EventsManager eventsManager;
+		private volatile Throwable exception;
+
+		private Worker(double timeBinSize) {
+			this.timeBins = new TimeBinMap<>(timeBinSize);
+		}
+
+		private void submit(List<Event> batch) {
+			try {
+				queue.put(batch);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				List<Event> batch;
+				while (!(batch = queue.take()).isEmpty()) {
+					if (exception != null) {
+						continue;// keep on draining the queue so that the dispatcher does not block
+					}
+					try {
+						for (Event event : batch) {
+							eventsManager.processEvent(event);
+						}
+					} catch (Throwable t) {
+						exception = t;
+					}
+				}
+			} catch (InterruptedException e) {
+				exception = e;
+			}
+		}
+
+		@Override
+		public void handleEvent(WarmEmissionEvent event) {
+			addEmissions(event.getTime(), event.getLinkId(), event.getWarmEmissions());
+		}
+
+		@Override
+		public void handleEvent(ColdEmissionEvent event) {
+			addEmissions(event.getTime(), event.getLinkId(), event.getColdEmissions());
+		}
+
+		private void addEmissions(double time, Id<Link> linkId, Map<Pollutant, Double> emissions) {
+			TimeBinMap.TimeBin<Map<Id<Link>, double[]>> bin = timeBins.getTimeBin(time);
+			if (!bin.hasValue()) {
+				bin.setValue(new HashMap<>());
+			}
+			double[] linkEmissions = bin.getValue().computeIfAbsent(linkId, id -> new double[Pollutant.values().length]);
+			for (Map.Entry<Pollutant, Double> e : emissions.entrySet()) {
+				linkEmissions[e.getKey().ordinal()] += e.getValue();
+				pollutants.add(e.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Builder to configure a new {@link OfflineEmissionTool} instance
+	 */
+	public static class Builder {
+		private Scenario scenario;
+		private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+		private double timeBinSize = 3600;
+		private String emissionEventsFile;
+
+		/**
+		 * Scenario (incl. network, vehicles and the emissions config group) that was used for the simulation run
+		 */
+		public Builder withScenario(Scenario scenario) {
+			this.scenario = scenario;
+			return this;
+		}
+
+		/**
+		 * Sets the number of worker threads. Default is the number of available processors
+		 */
+		public Builder withNumberOfThreads(int numberOfThreads) {
+			this.numberOfThreads = numberOfThreads;
+			return this;
+		}
+
+		/**
+		 * Sets the duration of a time bin. Default is 3600 s
+		 */
+		public Builder withTimeBinSize(double timeBinSize) {
+			this.timeBinSize = timeBinSize;
+			return this;
+		}
+
+		/**
+		 * Enables writing the emission events into the given file. By default, no emission events are written
+		 */
+		public Builder withEmissionEventsFile(String emissionEventsFile) {
+			this.emissionEventsFile = emissionEventsFile;
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException if the scenario is not set, or if numberOfThreads or timeBinSize are <= 0
+		 */
+		public OfflineEmissionTool build() {
+			if (scenario == null || numberOfThreads <= 0 || timeBinSize <= 0) {
+				throw new IllegalArgumentException(
+						"scenario must be set; numberOfThreads and timeBinSize must be greater 0");
+			}
+			return new OfflineEmissionTool(scenario, numberOfThreads, timeBinSize, emissionEventsFile);
+		}
+	}
+}
@@ -34,6 +34,7 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.matsim.contrib.emissions.HbefaTrafficSituation.*;
 import static org.matsim.contrib.emissions.utils.EmissionsConfigGroup.EmissionsComputationMethod.AverageSpeed;
@@ -48,6 +49,29 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	private static final Logger logger = Logger.getLogger(WarmEmissionAnalysisModule.class);
 
+	private static final int TRAFFIC_SITUATION_COUNT = HbefaTrafficSituation.values().length;
+	private static final int POLLUTANT_COUNT = Pollutant.values().length;
+
+	/**
+	 * Precompiled lookup for one vehicle type. Emission factors and traffic speeds are resolved (incl. all the fallbacks
+	 * below) on first use and then kept in arrays indexed by road type, traffic situation and pollutant, so that no
+	 * lookup keys are created for subsequent link leave events. The hbefa description of a vehicle type is assumed not
+	 * to change once it has been used.
+	 */
+	private static final class VehicleTypeLookup {
+		private final Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+		// factors per road type, indexed by [trafficSituation * POLLUTANT_COUNT + pollutant]
+		private final Map<String, HbefaWarmEmissionFactor[]> factorsByRoadType = new ConcurrentHashMap<>();
+		private final Map<String, Map<HbefaTrafficSituation, Double>> trafficSpeedsByRoadType = new ConcurrentHashMap<>();
+
+		private VehicleTypeLookup(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			this.vehicleInformationTuple = vehicleInformationTuple;
+		}
+	}
+
+	// identity-based, as VehicleType does not override equals/hashCode
+	private final Map<VehicleType, VehicleTypeLookup> vehicleTypeLookups = new ConcurrentHashMap<>();
+
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor>  avgHbefaWarmTable;
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
 	private final Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds;
@@ -197,12 +221,29 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions( VehicleType vehicleType, Id<Vehicle> vehicleId,
 																						  Link link, double travelTime ) {
-		{
+		VehicleTypeLookup lookup = vehicleTypeLookups.get( vehicleType );
+		if ( lookup == null ) {
+			lookup = new VehicleTypeLookup( checkVehicleInfo( vehicleType ) );
+			vehicleTypeLookups.put( vehicleType, lookup );
+		}
+
+		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
+
+		Map<Pollutant, Double> warmEmissions
+				= calculateWarmEmissions( vehicleId, travelTime, EmissionUtils.getHbefaRoadType( link ), freeVelocity, link.getLength(), lookup );
+
+		return warmEmissions;
+	}
+
+	private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> checkVehicleInfo( VehicleType vehicleType ) {
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+		// (the vehicle type may be shared with modules running in other threads, see OfflineEmissionTool)
+		synchronized ( vehicleType ) {
 			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription( vehicleType, this.ecg );
 			// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
 			Gbl.assertNotNull( hbefaVehicleTypeDescription );
+			vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
 		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
 		Gbl.assertNotNull( vehicleInformationTuple );
 
 		if (vehicleInformationTuple.getFirst() == null){
@@ -210,19 +251,14 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 					"Please make sure that requirements for emission vehicles in " +
 					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-
-		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
-
-		Map<Pollutant, Double> warmEmissions
-				= calculateWarmEmissions( vehicleId, travelTime, EmissionUtils.getHbefaRoadType( link ), freeVelocity, link.getLength(), vehicleInformationTuple );
-
-		return warmEmissions;
+		return vehicleInformationTuple;
 	}
 
 
 	private static int cnt =10;
 	private Map<Pollutant, Double> calculateWarmEmissions( Id<Vehicle> vehicleId, double travelTime_sec, String roadType, double freeVelocity_ms,
-														   double linkLength_m, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple ) {
+														   double linkLength_m, VehicleTypeLookup lookup ) {
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = lookup.vehicleInformationTuple;
 
 		Map<Pollutant, Double> warmEmissionsOfEvent = new EnumMap<>( Pollutant.class );
 
@@ -243,19 +279,6 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			return warmEmissionsOfEvent;
 		}
 
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
-		efkey.setHbefaVehicleCategory( vehicleInformationTuple.getFirst() );
-		efkey.setHbefaRoadCategory( roadType );
-		if(this.detailedHbefaWarmTable != null){
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			efkey.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-		}
-
-
 		double averageSpeed_kmh = (linkLength_m / 1000) / (travelTime_sec / 3600);
 
 		// hedge against odd average speeds:
@@ -272,10 +295,10 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		}
 
 		// for the average speed method, the traffic situation is already known here:
+		HbefaTrafficSituation trafficSituation = null;
 		if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			final HbefaTrafficSituation trafficSituation = getTrafficSituation( efkey, averageSpeed_kmh, freeVelocity_ms * 3.6 );
+			trafficSituation = getTrafficSituation( lookup, roadType, averageSpeed_kmh, freeVelocity_ms * 3.6 );
 //			logger.warn( "trafficSituation=" + trafficSituation );
-			efkey.setHbefaTrafficSituation( trafficSituation );
 		}
 
 		double fractionStopGo = 0;
@@ -284,28 +307,24 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		for ( Pollutant warmPollutant : warmPollutants) {
 			double generatedEmissions;
 
-			efkey.setHbefaComponent(warmPollutant);
-
 			double ef_gpkm;
 			if (ecg.getEmissionsComputationMethod() == StopAndGoFraction) {
 
 				// compute faction.  This cannot be done earlier since efkey.component is needed.
-				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, vehicleInformationTuple, efkey );
+				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, lookup, roadType, warmPollutant );
 				logger.info("fractionStopGo is: " + fractionStopGo);
 
 				double efStopGo_gpkm = 0. ;
 				if ( fractionStopGo>0 ){
 					// compute emissions from stop-go fraction:
-					efkey.setHbefaTrafficSituation( STOPANDGO );
-					efStopGo_gpkm = getEf(vehicleInformationTuple, efkey ).getWarmEmissionFactor();
+					efStopGo_gpkm = getEf( lookup, roadType, STOPANDGO, warmPollutant ).getWarmEmissionFactor();
 					logger.warn( "pollutant=" + warmPollutant + "; efStopGo=" + efStopGo_gpkm );
 				}
 
 				double efFreeFlow_gpkm = 0. ;
 				if ( fractionStopGo<1.){
 					// compute emissions for free-flow fraction:
-					efkey.setHbefaTrafficSituation( FREEFLOW );
-					efFreeFlow_gpkm = getEf(vehicleInformationTuple, efkey ).getWarmEmissionFactor();
+					efFreeFlow_gpkm = getEf( lookup, roadType, FREEFLOW, warmPollutant ).getWarmEmissionFactor();
 					logger.warn( "pollutant=" + warmPollutant + "; efFreeFlow=" + efFreeFlow_gpkm );
 				}
 
@@ -314,7 +333,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 				ef_gpkm = (fractionFreeFlow * efFreeFlow_gpkm) + (fractionStopGo * efStopGo_gpkm);
 
 			} else if (ecg.getEmissionsComputationMethod() == AverageSpeed){
-				ef_gpkm = getEf(vehicleInformationTuple, efkey).getWarmEmissionFactor();
+				ef_gpkm = getEf( lookup, roadType, trafficSituation, warmPollutant ).getWarmEmissionFactor();
 			} else {
 				throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 			}
@@ -329,7 +348,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			incrementCountersFractional( linkLength_m / 1000, fractionStopGo );
 		}
 		else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			incrementCountersAverage(efkey.getHbefaTrafficSituation(), linkLength_m / 1000 );
+			incrementCountersAverage(trafficSituation, linkLength_m / 1000 );
 		} else {
 			throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 		}
@@ -337,12 +356,10 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		return warmEmissionsOfEvent;
 	}
 
-	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh,
-										Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
-										HbefaWarmEmissionFactorKey efkey) {
+	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh, VehicleTypeLookup lookup,
+										String roadType, Pollutant pollutant) {
 
-		efkey.setHbefaTrafficSituation(STOPANDGO);
-		double stopGoSpeedFromTable_kmh = getEf(vehicleInformationTuple, efkey).getSpeed();
+		double stopGoSpeedFromTable_kmh = getEf(lookup, roadType, STOPANDGO, pollutant).getSpeed();
 
 		double fractionStopGo;
 
@@ -357,6 +374,41 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		return fractionStopGo;
 	}
 
+	private HbefaWarmEmissionFactor getEf(VehicleTypeLookup lookup, String roadType, HbefaTrafficSituation trafficSituation,
+										  Pollutant pollutant) {
+		// (a null road type cannot be cached, but it will most likely fail in the lookup anyway)
+		HbefaWarmEmissionFactor[] factors = roadType == null ? null : lookup.factorsByRoadType.computeIfAbsent(roadType,
+				r -> new HbefaWarmEmissionFactor[TRAFFIC_SITUATION_COUNT * POLLUTANT_COUNT]);
+		int idx = trafficSituation.ordinal() * POLLUTANT_COUNT + pollutant.ordinal();
+		HbefaWarmEmissionFactor ef = factors == null ? null : factors[idx];
+		if (ef == null) {
+			HbefaWarmEmissionFactorKey efkey = createEfKey(lookup, roadType);
+			efkey.setHbefaTrafficSituation(trafficSituation);
+			efkey.setHbefaComponent(pollutant);
+			ef = getEf(lookup.vehicleInformationTuple, efkey);
+			if (factors != null) {
+				factors[idx] = ef;
+			}
+		}
+		return ef;
+	}
+
+	private HbefaWarmEmissionFactorKey createEfKey(VehicleTypeLookup lookup, String roadType) {
+		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = lookup.vehicleInformationTuple;
+		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
+		efkey.setHbefaVehicleCategory( vehicleInformationTuple.getFirst() );
+		efkey.setHbefaRoadCategory( roadType );
+		if(this.detailedHbefaWarmTable != null){
+			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
+			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
+			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
+			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
+			efkey.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+		}
+		return efkey;
+	}
+
 	private HbefaWarmEmissionFactor getEf(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, HbefaWarmEmissionFactorKey efkey) {
 
 		switch (ecg.getDetailedVsAverageLookupBehavior()) {
@@ -541,14 +593,20 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 
 	//TODO: this is based on looking at the speeds in the HBEFA files, using an MFP, maybe from A.Loder would be nicer, jm  oct'18
-	private HbefaTrafficSituation getTrafficSituation(HbefaWarmEmissionFactorKey efkey, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
-		//TODO: should this be generated only once much earlier?
-		HbefaRoadVehicleCategoryKey roadTrafficKey = new HbefaRoadVehicleCategoryKey(efkey);
-		Map<HbefaTrafficSituation, Double> trafficSpeeds = this.hbefaRoadTrafficSpeeds.get(roadTrafficKey);
-
-		if (trafficSpeeds == null || !trafficSpeeds.containsKey(FREEFLOW)) {
-			throw new RuntimeException("At least the FREEFLOW condition must be specifed for all emission factor keys. " +
-					"It was not found for " + efkey);
+	private HbefaTrafficSituation getTrafficSituation(VehicleTypeLookup lookup, String roadType, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
+		Map<HbefaTrafficSituation, Double> trafficSpeeds = roadType == null ? null : lookup.trafficSpeedsByRoadType.get(roadType);
+		if (trafficSpeeds == null) {
+			HbefaWarmEmissionFactorKey efkey = createEfKey(lookup, roadType);
+			HbefaRoadVehicleCategoryKey roadTrafficKey = new HbefaRoadVehicleCategoryKey(efkey);
+			trafficSpeeds = this.hbefaRoadTrafficSpeeds.get(roadTrafficKey);
+
+			if (trafficSpeeds == null || !trafficSpeeds.containsKey(FREEFLOW)) {
+				throw new RuntimeException("At least the FREEFLOW condition must be specifed for all emission factor keys. " +
+						"It was not found for " + efkey);
+			}
+			if (roadType != null) {
+				lookup.trafficSpeedsByRoadType.put(roadType, trafficSpeeds);
+			}
 		}
 
 		HbefaTrafficSituation trafficSituation  = FREEFLOW;
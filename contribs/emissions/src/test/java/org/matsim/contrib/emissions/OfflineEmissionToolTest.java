@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OfflineEmissionToolTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.analysis.time.TimeBinMap;
+import org.matsim.contrib.emissions.events.ColdEmissionEvent;
+import org.matsim.contrib.emissions.events.ColdEmissionEventHandler;
+import org.matsim.contrib.emissions.events.WarmEmissionEvent;
+import org.matsim.contrib.emissions.events.WarmEmissionEventHandler;
+import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OfflineEmissionToolTest {
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final String EVENTS_FILE = "./scenarios/sampleScenario/5.events.xml.gz";
+	private static final double TIME_BIN_SIZE = 3600;
+
+	@Test
+	public final void testSameEmissionsAsSequentialComputation() {
+		Map<String, Double> expected = computeSequentially();
+		Assert.assertFalse(expected.isEmpty());
+
+		for (int threads : new int[] { 1, 3 }) {
+			String emissionEventsFile = utils.getOutputDirectory() + "emission.events." + threads + ".xml.gz";
+			OfflineEmissionTool tool = new OfflineEmissionTool.Builder().withScenario(loadScenario())
+					.withNumberOfThreads(threads)
+					.withTimeBinSize(TIME_BIN_SIZE)
+					.withEmissionEventsFile(emissionEventsFile)
+					.build();
+			TimeBinMap<Map<Id<Link>, Map<Pollutant, Double>>> emissions = tool.process(EVENTS_FILE);
+			Assert.assertTrue(new File(emissionEventsFile).exists());
+
+			Map<String, Double> actual = new HashMap<>();
+			for (TimeBinMap.TimeBin<Map<Id<Link>, Map<Pollutant, Double>>> bin : emissions.getTimeBins()) {
+				bin.getValue().forEach((linkId, linkEmissions) -> linkEmissions.forEach(
+						(pollutant, value) -> actual.put(bin.getStartTime() + "_" + linkId + "_" + pollutant, value)));
+			}
+			// (the tool reports all pollutants for each link, i.e. also the ones that are only emitted by cold starts)
+			Assert.assertTrue(actual.keySet().containsAll(expected.keySet()));
+			actual.forEach((key, value) -> Assert.assertEquals(key, expected.getOrDefault(key, 0.), value,
+					MatsimTestUtils.EPSILON));
+
+			String csvFile = utils.getOutputDirectory() + "linkEmissions." + threads + ".csv";
+			OfflineEmissionTool.writeLinkEmissions(emissions, csvFile);
+			Assert.assertTrue(new File(csvFile).exists());
+		}
+	}
+
+	private Map<String, Double> computeSequentially() {
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EmissionModule emissionModule = new EmissionModule(loadScenario(), eventsManager);
+
+		Map<String, Double> emissions = new HashMap<>();
+		class Collector implements WarmEmissionEventHandler, ColdEmissionEventHandler {
+			@Override
+			public void handleEvent(WarmEmissionEvent event) {
+				add(event.getTime(), event.getLinkId(), event.getWarmEmissions());
+			}
+
+			@Override
+			public void handleEvent(ColdEmissionEvent event) {
+				add(event.getTime(), event.getLinkId(), event.getColdEmissions());
+			}
+
+			private void add(double time, Id<Link> linkId, Map<Pollutant, Double> eventEmissions) {
+				double binStart = Math.floor(time / TIME_BIN_SIZE) * TIME_BIN_SIZE;
+				eventEmissions.forEach((pollutant, value) -> emissions.merge(binStart + "_" + linkId + "_" + pollutant,
+						value, Double::sum));
+			}
+		}
+		emissionModule.getEmissionEventsManager().addHandler(new Collector());
+
+		new MatsimEventsReader(eventsManager).readFile(EVENTS_FILE);
+		return emissions;
+	}
+
+	private Scenario loadScenario() {
+		Config config = ConfigUtils.loadConfig("./scenarios/sampleScenario/testv2_Vehv1/config_detailed.xml",
+				new EmissionsConfigGroup());
+		EmissionsConfigGroup emissionsConfig = ConfigUtils.addOrGetModule(config, EmissionsConfigGroup.class);
+		emissionsConfig.setAverageColdEmissionFactorsFile("../sample_41_EFA_ColdStart_vehcat_2020average.txt");
+		emissionsConfig.setAverageWarmEmissionFactorsFile("../sample_41_EFA_HOT_vehcat_2020average.txt");
+		emissionsConfig.setHbefaVehicleDescriptionSource(
+				EmissionsConfigGroup.HbefaVehicleDescriptionSource.fromVehicleTypeDescription);
+		emissionsConfig.setDetailedVsAverageLookupBehavior(
+				EmissionsConfigGroup.DetailedVsAverageLookupBehavior.tryDetailedThenTechnologyAverageThenAverageTable);
+		return ScenarioUtils.loadScenario(config);
+	}
+}
@@ -40,6 +40,10 @@ public final class EvConfigGroup extends ReflectiveConfigGroup {
 	public static final String AUX_DISCHARGE_TIME_STEP = "auxDischargeTimeStep";
 	static final String AUX_DISCHARGE_TIME_STEP_EXP = "AUX discharging will be simulated every 'auxDischargeTimeStep'-th time step";
 
+	public static final String NUMBER_OF_CHARGING_THREADS = "numberOfChargingThreads";
+	static final String NUMBER_OF_CHARGING_THREADS_EXP = "Number of threads used for updating the SOC of charging"
+			+ " vehicles (only chargers with plugged vehicles are updated). Default is 1 (no parallelisation).";
+
 	public static final String MINCHARGETIME = "minChargingTime";
 	static final String MINCHARGETIME_EXP = "Miinum activity duration for charging. Used in EvNetwork Routing.";
 
@@ -59,6 +63,9 @@ public final class EvConfigGroup extends ReflectiveConfigGroup {
 	@Positive
 	private int chargeTimeStep = 5; // 5 s ==> 0.35% SOC (fast charging, 50 kW)
 
+	@Positive
+	private int numberOfChargingThreads = 1;
+
 	private int minimumChargeTime = 1200;
 
 	// only used if SeparateAuxDischargingHandler is used, otherwise ignored
@@ -82,6 +89,7 @@ public final class EvConfigGroup extends ReflectiveConfigGroup {
 		Map<String, String> map = super.getComments();
 		map.put(CHARGE_TIME_STEP, CHARGE_TIME_STEP_EXP);
 		map.put(AUX_DISCHARGE_TIME_STEP, AUX_DISCHARGE_TIME_STEP_EXP);
+		map.put(NUMBER_OF_CHARGING_THREADS, NUMBER_OF_CHARGING_THREADS_EXP);
 		map.put(CHARGERS_FILE, CHARGERS_FILE_EXP);
 		map.put(VEHICLES_FILE, VEHICLES_FILE_EXP);
 		map.put(TIME_PROFILES, TIME_PROFILES_EXP);
@@ -99,6 +107,16 @@ public final class EvConfigGroup extends ReflectiveConfigGroup {
 		this.chargeTimeStep = chargeTimeStep;
 	}
 
+	@StringGetter(NUMBER_OF_CHARGING_THREADS)
+	public int getNumberOfChargingThreads() {
+		return numberOfChargingThreads;
+	}
+
+	@StringSetter(NUMBER_OF_CHARGING_THREADS)
+	public void setNumberOfChargingThreads(int numberOfChargingThreads) {
+		this.numberOfChargingThreads = numberOfChargingThreads;
+	}
+
 	@StringGetter(AUX_DISCHARGE_TIME_STEP)
 	public int getAuxDischargeTimeStep() {
 		return auxDischargeTimeStep;
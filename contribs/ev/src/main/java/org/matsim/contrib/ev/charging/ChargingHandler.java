@@ -19,30 +19,72 @@
 
 package org.matsim.contrib.ev.charging;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
 import org.matsim.contrib.ev.EvConfigGroup;
 import org.matsim.contrib.ev.infrastructure.Charger;
 import org.matsim.contrib.ev.infrastructure.ChargingInfrastructure;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 
 import com.google.inject.Inject;
 
-public class ChargingHandler implements MobsimAfterSimStepListener {
+/**
+ * Only chargers with plugged (or queued) vehicles are processed. If more than one thread is used, SOC is first updated for all
+ * these chargers in parallel ({@link ChargingLogic#chargePluggedVehicles(double)}), then the vehicles that have completed
+ * charging are unplugged sequentially ({@link ChargingLogic#updatePluggedVehicles(double)}), because this involves
+ * emitting events and notifying listeners.
+ */
+public class ChargingHandler implements MobsimAfterSimStepListener, MobsimBeforeCleanupListener {
 	private final Iterable<Charger> chargers;
 	private final int chargeTimeStep;
+	private final ForkJoinPool forkJoinPool;
 
 	@Inject
 	public ChargingHandler(ChargingInfrastructure chargingInfrastructure, EvConfigGroup evConfig) {
 		this.chargers = chargingInfrastructure.getChargers().values();
 		this.chargeTimeStep = evConfig.getChargeTimeStep();
+		int threads = evConfig.getNumberOfChargingThreads();
+		this.forkJoinPool = threads > 1 ? new ForkJoinPool(threads) : null;
 	}
 
 	@Override
 	public void notifyMobsimAfterSimStep(@SuppressWarnings("rawtypes") MobsimAfterSimStepEvent e) {
 		if ((e.getSimulationTime() + 1) % chargeTimeStep == 0) {
-			for (Charger c : chargers) {
-				c.getLogic().chargeVehicles(chargeTimeStep, e.getSimulationTime());
+			if (forkJoinPool == null) {
+				for (Charger c : chargers) {
+					if (isActive(c.getLogic())) {
+						c.getLogic().chargeVehicles(chargeTimeStep, e.getSimulationTime());
+					}
+				}
+				return;
+			}
+
+			List<ChargingLogic> activeLogics = StreamSupport.stream(chargers.spliterator(), false)
+					.map(Charger::getLogic)
+					.filter(ChargingHandler::isActive)
+					.collect(Collectors.toList());
+			forkJoinPool.submit(() -> activeLogics.parallelStream()
+					.forEach(logic -> logic.chargePluggedVehicles(chargeTimeStep))).join();
+			for (ChargingLogic l : activeLogics) {
+				l.updatePluggedVehicles(e.getSimulationTime());
 			}
 		}
 	}
+
+	private static boolean isActive(ChargingLogic logic) {
+		return !logic.getPluggedVehicles().isEmpty() || !logic.getQueuedVehicles().isEmpty();
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		if (forkJoinPool != null) {
+			forkJoinPool.shutdown();
+		}
+	}
 }
@@ -37,6 +37,18 @@ public interface ChargingLogic {
 
 	void chargeVehicles(double chargePeriod, double now);
 
+	/**
+	 * Split version of {@link #chargeVehicles(double, double)}. Only updates the SOC of the plugged vehicles (does not
+	 * emit events, notify listeners or change the set of plugged vehicles), so it can be called concurrently for
+	 * different chargers. Must be followed by {@link #updatePluggedVehicles(double)}.
+	 */
+	void chargePluggedVehicles(double chargePeriod);
+
+	/**
+	 * Unplugs the vehicles that have completed charging and plugs the queued ones.
+	 */
+	void updatePluggedVehicles(double now);
+
 	Collection<ElectricVehicle> getPluggedVehicles();
 
 	Collection<ElectricVehicle> getQueuedVehicles();
@@ -50,13 +50,24 @@ public class ChargingWithQueueingLogic implements ChargingLogic {
 
 	@Override
 	public void chargeVehicles(double chargePeriod, double now) {
-		Iterator<ElectricVehicle> evIter = pluggedVehicles.values().iterator();
-		while (evIter.hasNext()) {
-			ElectricVehicle ev = evIter.next();
+		chargePluggedVehicles(chargePeriod);
+		updatePluggedVehicles(now);
+	}
+
+	@Override
+	public void chargePluggedVehicles(double chargePeriod) {
+		for (ElectricVehicle ev : pluggedVehicles.values()) {
 			// with fast charging, we charge around 4% of SOC per minute,
 			// so when updating SOC every 10 seconds, SOC increases by less then 1%
 			ev.getBattery().changeSoc(ev.getChargingPower().calcChargingPower(charger) * chargePeriod);
+		}
+	}
 
+	@Override
+	public void updatePluggedVehicles(double now) {
+		Iterator<ElectricVehicle> evIter = pluggedVehicles.values().iterator();
+		while (evIter.hasNext()) {
+			ElectricVehicle ev = evIter.next();
 			if (chargingStrategy.isChargingCompleted(ev)) {
 				evIter.remove();
 				eventsManager.processEvent(new ChargingEndEvent(now, charger.getId(), ev.getId()));
@@ -119,8 +119,7 @@ public class DriveDischargingHandler
 			ev.getBattery().changeSoc(-energy);
 
 			//FIXME emit a DriveOnLinkEnergyConsumptionEvent instead of calculating it here...
-			double linkConsumption = energy + energyConsumptionPerLink.getOrDefault(linkId, 0.0);
-			energyConsumptionPerLink.put(linkId, linkConsumption);
+			energyConsumptionPerLink.merge(linkId, energy, Double::sum);
 		}
 		return evDrive;
 	}
@@ -31,10 +31,21 @@ import org.matsim.core.gbl.Gbl;
 
 import com.google.common.primitives.Doubles;
 
+/**
+ * The bicubic spline interpolating the consumption data is tabulated on a regular speed-slope grid (in the range
+ * covered by the data) and evaluated using bilinear interpolation. The consumption is stateless, so one instance
+ * (with one table) is shared by all vehicles created by the same {@link Factory}.
+ * <p>
+ * This trades accuracy for speed: the table lookup deviates from the spline by less than 0.5 Wh/km for the LTH data
+ * (see LTHDriveEnergyConsumptionTest), both within the data range and for clamped speeds and slopes.
+ */
 public class LTHDriveEnergyConsumption implements DriveEnergyConsumption {
+	private static final int SPEED_STEPS = 500;
+	private static final int SLOPE_STEPS = 200;
 
-	private PiecewiseBicubicSplineInterpolator splineInterpolater = new PiecewiseBicubicSplineInterpolator();
-	private PiecewiseBicubicSplineInterpolatingFunction function;
+	private final double[][] table;// [speed][slope]
+	private final double speedStep;
+	private final double slopeStep;
 
 	private final double minSpeed;
 	private final double maxSpeed;
@@ -49,35 +60,51 @@ public class LTHDriveEnergyConsumption implements DriveEnergyConsumption {
 	private final boolean crashIfOutOfBoundValue;
 
 	public static class Factory implements DriveEnergyConsumption.Factory {
-
-		private final boolean crashIfOutOfBoundValue;
-		private final double[] speeds;
-		private final double[] slopes;
-		private final double[][] consumptionPerSpeedAndSlope;
+		private final LTHDriveEnergyConsumption consumption;
 
 		public Factory(double[] speeds, double[] slopes, double[][] consumptionPerSpeedAndSlope,
 				boolean crashIfOutOfBoundValue) {
-			this.speeds = speeds;
-			this.slopes = slopes;
-			this.consumptionPerSpeedAndSlope = consumptionPerSpeedAndSlope;
-			this.crashIfOutOfBoundValue = crashIfOutOfBoundValue;
-
+			consumption = new LTHDriveEnergyConsumption(speeds, slopes, consumptionPerSpeedAndSlope,
+					crashIfOutOfBoundValue);
 		}
 
 		@Override
 		public DriveEnergyConsumption create(ElectricVehicle electricVehicle) {
-			return new LTHDriveEnergyConsumption(speeds, slopes, consumptionPerSpeedAndSlope, crashIfOutOfBoundValue);
+			return consumption;
 		}
 	}
 
 	private LTHDriveEnergyConsumption(double[] speeds, double[] slopes, double[][] consumptionPerSpeedAndSlope,
 			boolean crashIfOutOfBoundValue) {
-		this.function = splineInterpolater.interpolate(speeds, slopes, consumptionPerSpeedAndSlope);
 		this.minSpeed = Doubles.min(speeds);
 		this.maxSpeed = Doubles.max(speeds);
 		this.minSlope = Doubles.min(slopes);
 		this.maxSlope = Doubles.max(slopes);
 		this.crashIfOutOfBoundValue = crashIfOutOfBoundValue;
+
+		PiecewiseBicubicSplineInterpolatingFunction function = new PiecewiseBicubicSplineInterpolator().interpolate(
+				speeds, slopes, consumptionPerSpeedAndSlope);
+		speedStep = (maxSpeed - minSpeed) / SPEED_STEPS;
+		slopeStep = (maxSlope - minSlope) / SLOPE_STEPS;
+		table = new double[SPEED_STEPS + 1][SLOPE_STEPS + 1];
+		for (int i = 0; i <= SPEED_STEPS; i++) {
+			double speed = Math.min(minSpeed + i * speedStep, maxSpeed);
+			for (int j = 0; j <= SLOPE_STEPS; j++) {
+				table[i][j] = function.value(speed, Math.min(minSlope + j * slopeStep, maxSlope));
+			}
+		}
+	}
+
+	// speed and slope must be within the data range
+	private double lookUpConsumption(double speed, double slope) {
+		double x = (speed - minSpeed) / speedStep;
+		double y = (slope - minSlope) / slopeStep;
+		int i = Math.min((int)x, SPEED_STEPS - 1);
+		int j = Math.min((int)y, SLOPE_STEPS - 1);
+		double dx = x - i;
+		double dy = y - j;
+		return (1 - dx) * ((1 - dy) * table[i][j] + dy * table[i][j + 1])
+				+ dx * ((1 - dy) * table[i + 1][j] + dy * table[i + 1][j + 1]);
 	}
 
 	@Override
@@ -123,7 +150,7 @@ public class LTHDriveEnergyConsumption implements DriveEnergyConsumption {
 		double consumption = 0;
 		for (int i = 0; i < linkslopes.length; i++) {
 			double currentSlope = checkSlope(linkslopes[i]);
-			double currentEnergyuse = function.value(speed, currentSlope);
+			double currentEnergyuse = lookUpConsumption(speed, currentSlope);
 			consumption += currentEnergyuse * slopeSegmentTravelDistance;
 		}
 		return EvUnits.kWh_to_J(consumption);
@@ -0,0 +1,159 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.ev.discharging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.math3.analysis.interpolation.PiecewiseBicubicSplineInterpolatingFunction;
+import org.apache.commons.math3.analysis.interpolation.PiecewiseBicubicSplineInterpolator;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Offset;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.ev.EvUnits;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.io.IOUtils;
+
+import com.google.common.primitives.Doubles;
+
+/**
+ * Compares the tabulated consumption against the bicubic spline it replaced, using the LTH data of the ev example.
+ */
+public class LTHDriveEnergyConsumptionTest {
+	private static final String DATA = "test/input/org/matsim/contrib/ev/example/RunEvExample/MidCarMap.csv";
+
+	// kWh/km; the largest deviation (about 3.3e-4 kWh/km) occurs where the spline is steepest, around 27.6 m/s
+	private static final double TOLERANCE = 5.0e-4;
+
+	private static double[] speeds;
+	private static double[] slopes;
+	private static double[][] consumptionPerSpeedAndSlope;
+
+	private static PiecewiseBicubicSplineInterpolatingFunction spline;
+	private static DriveEnergyConsumption consumption;
+
+	private final Link link = createLink();
+
+	@BeforeClass
+	public static void readData() throws IOException {
+		List<double[]> rows = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(DATA)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				rows.add(Arrays.stream(line.split(",")).mapToDouble(Double::parseDouble).toArray());
+			}
+		}
+		// same conventions as in LTHConsumptionModelReader: slopes in percent, NaN replaced by the preceding value
+		speeds = Arrays.copyOfRange(rows.get(0), 1, rows.get(0).length);
+		slopes = new double[rows.size() - 1];
+		consumptionPerSpeedAndSlope = new double[speeds.length][slopes.length];
+		for (int j = 0; j < slopes.length; j++) {
+			double[] row = rows.get(j + 1);
+			slopes[j] = row[0] / 100;
+			double lastValidValue = Double.MIN_VALUE;
+			for (int i = 0; i < speeds.length; i++) {
+				double value = Double.isNaN(row[i + 1]) ? lastValidValue : row[i + 1];
+				consumptionPerSpeedAndSlope[i][j] = lastValidValue = value;
+			}
+		}
+
+		spline = new PiecewiseBicubicSplineInterpolator().interpolate(speeds, slopes, consumptionPerSpeedAndSlope);
+		consumption = new LTHDriveEnergyConsumption.Factory(speeds, slopes, consumptionPerSpeedAndSlope,
+				false).create(null);
+	}
+
+	@Test
+	public void testAgreementWithSplineWithinDataRange() {
+		double minSpeed = Doubles.min(speeds);
+		double maxSpeed = Doubles.max(speeds);
+		double minSlope = Doubles.min(slopes);
+		double maxSlope = Doubles.max(slopes);
+
+		// off the table grid (which has 500 x 200 cells), including both ends of the data range
+		int speedSamples = 997;
+		int slopeSamples = 397;
+		double maxError = 0;
+		for (int i = 0; i <= speedSamples; i++) {
+			double speed = minSpeed + (maxSpeed - minSpeed) * i / speedSamples;
+			for (int j = 0; j <= slopeSamples; j++) {
+				double slope = minSlope + (maxSlope - minSlope) * j / slopeSamples;
+				maxError = Math.max(maxError, Math.abs(consumptionPerKm(speed, slope) - spline.value(speed, slope)));
+			}
+		}
+		Assertions.assertThat(maxError).isLessThan(TOLERANCE);
+	}
+
+	@Test
+	public void testAgreementWithSplineAtClampedEdges() {
+		double minSpeed = Doubles.min(speeds);
+		double maxSpeed = Doubles.max(speeds);
+		double minSlope = Doubles.min(slopes);
+		double maxSlope = Doubles.max(slopes);
+
+		// speed and slope outside the data range are clamped to its bounds
+		assertAgreement(minSpeed / 2, 0, minSpeed, 0);
+		assertAgreement(maxSpeed * 2, 0, maxSpeed, 0);
+		assertAgreement(10, minSlope * 2, 10, minSlope);
+		assertAgreement(10, maxSlope * 2, 10, maxSlope);
+		assertAgreement(minSpeed / 2, minSlope * 2, minSpeed, minSlope);
+		assertAgreement(minSpeed / 2, maxSlope * 2, minSpeed, maxSlope);
+		assertAgreement(maxSpeed * 2, minSlope * 2, maxSpeed, minSlope);
+		assertAgreement(maxSpeed * 2, maxSlope * 2, maxSpeed, maxSlope);
+	}
+
+	@Test
+	public void testSlopeSegments() {
+		link.setLength(2000);
+		link.getAttributes().putAttribute("slopes", new double[] { -0.03, 0.01, 0.1 });
+		double expected = (spline.value(15, -0.03) + spline.value(15, 0.01) + spline.value(15, Doubles.max(slopes)))
+				* 2. / 3;
+		Assertions.assertThat(consumption.calcEnergyConsumption(link, 2000. / 15, 0))
+				.isCloseTo(EvUnits.kWh_to_J(expected), Offset.offset(EvUnits.kWh_to_J(2 * TOLERANCE)));
+	}
+
+	private void assertAgreement(double speed, double slope, double clampedSpeed, double clampedSlope) {
+		Assertions.assertThat(consumptionPerKm(speed, slope))
+				.isCloseTo(spline.value(clampedSpeed, clampedSlope), Offset.offset(TOLERANCE));
+	}
+
+	// kWh/km, 1 km at the given speed on a link with a single slope
+	private double consumptionPerKm(double speed, double slope) {
+		link.setLength(1000);
+		link.getAttributes().putAttribute("slopes", new double[] { slope });
+		return EvUnits.J_to_kWh(consumption.calcEnergyConsumption(link, 1000 / speed, 0));
+	}
+
+	private static Link createLink() {
+		Network network = NetworkUtils.createNetwork();
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("from"), new Coord(0, 0));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("to"), new Coord(1000, 0));
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId("link"), from, to, 1000, 15, 1800, 1);
+	}
+}
@@ -10,5 +10,13 @@ public interface StopStopTime extends Serializable {
 	//Methods
 	public double getStopStopTime(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time);
 	public double getStopStopTimeVariance(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time);
+
+	/**
+	 * @return the length of the time slots in which the stop to stop times are constant, or {@link Double#NaN} if they may
+	 *         change at any time
+	 */
+	default double getTimeSlot() {
+		return Double.NaN;
+	}
 		
 }
@@ -139,6 +139,10 @@ public class StopStopTimeCalculatorImpl implements VehicleArrivesAtFacilityEvent
 			public double getStopStopTimeVariance(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time) {
 				return StopStopTimeCalculatorImpl.this.getStopStopTimeVariance(stopOId, stopDId, time);
 			}
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 }
@@ -109,6 +109,10 @@ public class StopStopTimeCalculatorSerializable implements StopStopTimeCalculato
 			public double getStopStopTimeVariance(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time) {
 				return StopStopTimeCalculatorSerializable.this.getStopStopTimeVariance(stopOId, stopDId, time);
 			}
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 	@Override
@@ -145,6 +149,11 @@ public class StopStopTimeCalculatorSerializable implements StopStopTimeCalculato
 			public double getStopStopTimeVariance(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time) {
 				return StopStopTimeCalculatorSerializable.this.getStopStopTimeVariance(stopOId,stopDId,time);
 			}
+
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 
@@ -82,6 +82,10 @@ public class StopStopTimeCalculatorTuple implements VehicleArrivesAtFacilityEven
 			public double getStopStopTimeVariance(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time) {
 				return StopStopTimeCalculatorTuple.this.getStopStopTimeVariance(stopOId, stopDId, time);
 			}
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 	private double getStopStopTime(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time) {
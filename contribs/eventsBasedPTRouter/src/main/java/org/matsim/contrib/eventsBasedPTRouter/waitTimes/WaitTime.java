@@ -38,4 +38,12 @@ public interface WaitTime extends Serializable{
 	//Methods
 	public double getRouteStopWaitTime(Id<TransitLine> lineId, Id<TransitRoute> routeId, Id<TransitStopFacility> stopId, double time);
 
+	/**
+	 * @return the length of the time slots in which the wait times are constant, or {@link Double#NaN} if they may
+	 *         change at any time
+	 */
+	default double getTimeSlot() {
+		return Double.NaN;
+	}
+
 }
@@ -123,6 +123,10 @@ public class WaitTimeCalculatorImpl implements WaitTimeCalculator, PersonDepartu
 			public double getRouteStopWaitTime(Id<TransitLine> lineId, Id<TransitRoute> routeId, Id<TransitStopFacility> stopId, double time) {
 				return WaitTimeCalculatorImpl.this.getRouteStopWaitTime(lineId, routeId, stopId, time);
 			}
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 	@Override
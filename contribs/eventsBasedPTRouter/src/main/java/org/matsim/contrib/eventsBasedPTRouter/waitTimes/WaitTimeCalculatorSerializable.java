@@ -135,6 +135,10 @@ public class WaitTimeCalculatorSerializable implements
 			public double getRouteStopWaitTime(Id<TransitLine> lineId, Id<TransitRoute> routeId, Id<TransitStopFacility> stopId, double time) {
 				return WaitTimeCalculatorSerializable.this.getRouteStopWaitTime(lineId, routeId, stopId, time);
 			}
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 
@@ -205,6 +209,10 @@ public class WaitTimeCalculatorSerializable implements
 			public double getRouteStopWaitTime(Id<TransitLine> lineId, Id<TransitRoute> routeId, Id<TransitStopFacility> stopId, double time) {
 				return WaitTimeCalculatorSerializable.this.getRouteStopWaitTime(lineId, routeId, stopId, time);
 			}
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 }
@@ -209,6 +209,10 @@ public class WaitTimeStuckCalculator implements PersonDepartureEventHandler, Per
 				return WaitTimeStuckCalculator.this.getRouteStopWaitTime(lineId, routeId, stopId, time);
 			}
 
+			@Override
+			public double getTimeSlot() {
+				return timeSlot;
+			}
 		};
 	}
 }
@@ -35,6 +35,7 @@ import org.matsim.vehicles.VehicleUtils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This calculates transport-times, transport-costs and the distance to cover
@@ -55,14 +56,15 @@ import java.util.concurrent.ConcurrentHashMap;
  * looks up whether there is already an entry in the cache. If so, it returns
  * the cached value, if not it calculates new values with a
  * leastCostPathCalculator defined in here. It looks up the cached values
- * according to the {@link TransportDataKey}.
+ * according to the from- and to-location, the time-bin and the vehicleType.
+ * The size of the cache can be limited (see
+ * {@link Builder#setCostCacheSize(int)}), in which case the least recently
+ * used values are evicted.
  *
  * <p>
- * Two TransportDataKeys are equal if the following data are equal</br>
- * - from-locations</br>
- * - to-locations</br>
- * - time and</br>
- * - vehicleTypes
+ * If the locations are known in advance (e.g. depots and services), the
+ * transport-data between them can be precomputed with
+ * {@link #precomputeTransportData(Collection, Collection, double, double)}.
  *
  * <p>
  * Keep in mind that if you have many locations, small time-bins and many
@@ -122,99 +124,6 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		}
 	}
 
-	/**
-	 * The key to cache {@link TransportData}.
-	 *
-	 * <p>
-	 * Two TransportDataKeys are equal if the following data are equal</br>
-	 * - from-locations</br>
-	 * - to-locations</br>
-	 * - time and</br>
-	 * - vehicleTypes
-	 *
-	 * <p>
-	 * The time-value is usually a representative value for a certain time-bin. If
-	 * the time-bin's width is 1, it calculates and caches each and every
-	 * transport-data which might be a) very time-consuming and b) very
-	 * memory-consuming.
-	 *
-	 * @author stefan schröder
-	 *
-	 */
-	static class TransportDataKey {
-		private final String from;
-		private final String to;
-		private final double time;
-		private final String vehicleType;
-
-		public TransportDataKey(String from, String to, double time, String vehicleType) {
-			super();
-			this.from = from;
-			this.to = to;
-			this.time = time;
-			this.vehicleType = vehicleType;
-		}
-
-		public String getFrom() {
-			return from;
-		}
-
-		public String getTo() {
-			return to;
-		}
-
-		public double getTime() {
-			return time;
-		}
-
-		public String getVehicleType() {
-			return vehicleType;
-		}
-
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + ((from == null) ? 0 : from.hashCode());
-			long temp;
-			temp = Double.doubleToLongBits(time);
-			result = prime * result + (int) (temp ^ (temp >>> 32));
-			result = prime * result + ((to == null) ? 0 : to.hashCode());
-			result = prime * result + ((vehicleType == null) ? 0 : vehicleType.hashCode());
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			TransportDataKey other = (TransportDataKey) obj;
-			if (from == null) {
-				if (other.from != null)
-					return false;
-			} else if (!from.equals(other.from))
-				return false;
-			if (Double.doubleToLongBits(time) != Double.doubleToLongBits(other.time))
-				return false;
-			if (to == null) {
-				if (other.to != null)
-					return false;
-			} else if (!to.equals(other.to))
-				return false;
-			if (vehicleType == null) {
-				if (other.vehicleType != null)
-					return false;
-			} else if (!vehicleType.equals(other.vehicleType))
-				return false;
-			return true;
-		}
-
-	}
-
 	/**
 	 * Stores transport-costs, transport-times and the distance of travel.
 	 *
@@ -373,6 +282,8 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 
 		private int timeSliceWidth = Integer.MAX_VALUE;
 
+		private int costCacheSize = Integer.MAX_VALUE;
+
 		private LeastCostPathCalculatorFactory leastCostPathCalculatorFactory = new LeastCostPathCalculatorFactory() {
 
 			@Override
@@ -450,6 +361,19 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 			return this;
 		}
 
+		/**
+		 * Sets the maximum number of transport-data that are cached. By default it is
+		 * Integer.MAX_VALUE(), i.e. the cache is not limited. If the limit is reached,
+		 * the least recently used values are evicted.
+		 */
+		public Builder setCostCacheSize(int costCacheSize) {
+			if (costCacheSize < 1) {
+				throw new IllegalArgumentException("costCacheSize must be positive, but is " + costCacheSize);
+			}
+			this.costCacheSize = costCacheSize;
+			return this;
+		}
+
 		/**
 		 * Ensures FIFO. ! NOT YET ENABLED.
 		 */
@@ -531,15 +455,27 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 
 	/**
 	 * cost-cache to cache transport-costs and transport-times (see
-	 * {@link TransportData}) according to {@link TransportDataKey}
+	 * {@link TransportData}) according to the from- and to-link, the time-bin and
+	 * the vehicleType
+	 */
+	private final TransportDataCache costCache;
+
+	/**
+	 * the links of the locations, indexed by {@link Location#getIndex()}
 	 */
-	private final ConcurrentHashMap<TransportDataKey, TransportData> costCache = new ConcurrentHashMap<TransportDataKey, TransportData>();
+	private volatile LocationLink[] locationLinks = new LocationLink[0];
 
 	/**
-	 * caches leastCostPathCalculators according to
-	 * <code>Thread.currentThread().getId()</code>
+	 * transport-data between the locations given in
+	 * {@link #precomputeTransportData(Collection, Collection, double, double)};
+	 * null if nothing has been precomputed
 	 */
-	private final ConcurrentHashMap<Long, LeastCostPathCalculator> routerCache = new ConcurrentHashMap<Long, LeastCostPathCalculator>();
+	private volatile TransportDataMatrix transportDataMatrix;
+
+	/**
+	 * each thread gets its own leastCostPathCalculator
+	 */
+	private final ThreadLocal<LeastCostPathCalculator> routers;
 
 	private final TravelDisutility travelDisutility;
 
@@ -554,7 +490,11 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 
 	public final Counter ttRequestedCounter;
 
-	private Map<String, org.matsim.vehicles.Vehicle> matsimVehicles = new HashMap<String, org.matsim.vehicles.Vehicle>();
+	private final Map<String, org.matsim.vehicles.Vehicle> matsimVehicles = new ConcurrentHashMap<>();
+
+	private final Map<String, Integer> vehicleTypeIndices = new ConcurrentHashMap<>();
+
+	private final AtomicInteger vehicleTypeCount = new AtomicInteger();
 
 	private VehicleTypeDependentRoadPricingCalculator roadPricingCalc;
 
@@ -576,6 +516,9 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		this.roadPricingCalc = builder.roadPricingCalculator;
 		this.timeSliceWidth = builder.timeSliceWidth;
 		this.defaultTypeId = builder.defaultTypeId;
+		this.costCache = new TransportDataCache(builder.costCacheSize, Id.getNumberOfIds(Link.class));
+		this.routers = ThreadLocal.withInitial(
+				() -> leastCostPathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime));
 		this.ttMemorizedCounter = new Counter("#TransportCostValues cached ");
 		this.ttRequestedCounter = new Counter("numTravelCosts requested ");
 	}
@@ -585,8 +528,8 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 	 *
 	 * <p>
 	 * If <code>fromId.equals(toId)</code> it returns 0.0. Otherwise, it looks up in
-	 * the cache whether the transport-time has already been computed (see
-	 * {@link TransportDataKey}, {@link TransportData}). If so, it returns the
+	 * the precomputed matrix and in the cache whether the transport-time has
+	 * already been computed (see {@link TransportData}). If so, it returns the
 	 * cached travel-time. If not, it computes and caches new values with the
 	 * leastCostPathCalc defined in here.
 	 *
@@ -598,53 +541,7 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		if (fromId.equals(toId)) {
 			return 0.0;
 		}
-		if (vehicle == null) {
-			vehicle = getDefaultVehicle(fromId);
-		}
-		String typeId = vehicle.getType().getTypeId();
-		int timeSlice = getTimeSlice(departureTime);
-		TransportDataKey transportDataKey = makeKey(fromId.getId(), toId.getId(), timeSlice, typeId);
-		TransportData data = costCache.get(transportDataKey);
-		double transportTime;
-
-		if (data != null) {
-			transportTime = data.transportTime;
-		} else {
-			informStartCalc();
-			Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
-			Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
-			Link fromLink = network.getLinks().get(fromLinkId);
-			Link toLink = network.getLinks().get(toLinkId);
-			// because path not includes in&out Link
-
-			org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
-			LeastCostPathCalculator router = createLeastCostPathCalculator();
-			Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
-					matsimVehicle);
-//			if(path == null) return Double.MAX_VALUE;
-			double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + path.travelTime,
-					null, matsimVehicle);
-			double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + path.travelTime, null,
-					matsimVehicle);
-
-			double travelDistance = fromLink.getLength();
-			Iterator<Link> iter = path.links.iterator();
-			while (iter.hasNext()) {
-				Link link = iter.next();
-				travelDistance = travelDistance + link.getLength();
-			}
-			transportTime = path.travelTime;
-			TransportData newData = new TransportData(path.travelCost + additionalCostTo,
-					path.travelTime + additionalTimeTo, travelDistance);
-			TransportData existingData = costCache.putIfAbsent(transportDataKey, newData);
-			ttMemorizedCounter.incCounter();
-			if (existingData == null) {
-				existingData = newData;
-			}
-			transportTime = existingData.transportTime;
-			informEndCalc();
-		}
-		return transportTime;
+		return getTransportData(fromId, toId, departureTime, vehicle).transportTime;
 	}
 
 	private VehicleImpl getDefaultVehicle(Location fromId) {
@@ -668,8 +565,8 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 	 *
 	 * <p>
 	 * If <code>fromId.equals(toId)</code> it returns 0.0. Otherwise, it looks up in
-	 * the cache whether the transport-costs have already been computed (see
-	 * {@link TransportDataKey}, {@link TransportData}). If so, it returns the
+	 * the precomputed matrix and in the cache whether the transport-costs have
+	 * already been computed (see {@link TransportData}). If so, it returns the
 	 * cached travel-cost value. If not, it computes and caches new values with the
 	 * leastCostPathCalc defined in here.
 	 *
@@ -684,52 +581,7 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		if (fromId.equals(toId)) {
 			return 0.0;
 		}
-		if (vehicle == null) {
-			vehicle = getDefaultVehicle(fromId);
-		}
-		Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
-		Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
-		Link fromLink = network.getLinks().get(fromLinkId);
-		Link toLink = network.getLinks().get(toLinkId);
-		LeastCostPathCalculator router = createLeastCostPathCalculator();
-
-		int timeSlice = getTimeSlice(departureTime);
-		String typeId = vehicle.getType().getTypeId();
-		TransportDataKey transportDataKey = makeKey(fromId.getId(), toId.getId(), timeSlice, typeId);
-		TransportData data = costCache.get(transportDataKey);
-		double transportCost;
-
-		if (data != null) {
-			transportCost = data.transportCosts;
-		} else {
-			informStartCalc();
-			org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
-			Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
-					matsimVehicle);
-//			if(path == null) return Double.MAX_VALUE;
-			double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + path.travelTime,
-					null, matsimVehicle);
-			double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + path.travelTime, null,
-					matsimVehicle);
-			double travelDistance = fromLink.getLength();
-			Iterator<Link> iter = path.links.iterator();
-			while (iter.hasNext()) {
-				Link link = iter.next();
-				travelDistance = travelDistance + link.getLength();
-			}
-
-			TransportData newData = new TransportData(path.travelCost + additionalCostTo,
-					path.travelTime + additionalTimeTo, travelDistance);
-			TransportData existingData = costCache.putIfAbsent(transportDataKey, newData);
-			ttMemorizedCounter.incCounter();
-			if (existingData == null) {
-				// succeeded
-				existingData = newData;
-			}
-			transportCost = existingData.transportCosts;
-			informEndCalc();
-		}
-		return transportCost;
+		return getTransportData(fromId, toId, departureTime, vehicle).transportCosts;
 	}
 
 	/**
@@ -737,8 +589,8 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 	 *
 	 * <p>
 	 * If <code>fromId.equals(toId)</code> it returns 0.0. Otherwise, it looks up in
-	 * the cache whether the transport-distance has already been computed (see
-	 * {@link TransportDataKey}, {@link TransportData}). If so, it returns the
+	 * the precomputed matrix and in the cache whether the transport-distance has
+	 * already been computed (see {@link TransportData}). If so, it returns the
 	 * cached distance. If not, it computes and caches new values with the
 	 * leastCostPathCalc defined in here.
 	 *
@@ -750,48 +602,154 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		if (fromId.equals(toId)) {
 			return 0.0;
 		}
+		return getTransportData(fromId, toId, departureTime, vehicle).transportDistance;
+	}
+
+	private TransportData getTransportData(Location fromId, Location toId, double departureTime, Vehicle vehicle) {
 		if (vehicle == null) {
 			vehicle = getDefaultVehicle(fromId);
 		}
-		String typeId = vehicle.getType().getTypeId();
+		Link fromLink = getLink(fromId);
+		Link toLink = getLink(toId);
+		int fromLinkIndex = fromLink.getId().index();
+		int toLinkIndex = toLink.getId().index();
 		int timeSlice = getTimeSlice(departureTime);
-		TransportDataKey transportDataKey = makeKey(fromId.getId(), toId.getId(), timeSlice, typeId);
-		TransportData data = costCache.get(transportDataKey);
-		double travelDistance;
-		if (data != null) {
-			travelDistance = data.transportDistance;
-		} else {
-			informStartCalc();
-			Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
-			Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
-			Link fromLink = network.getLinks().get(fromLinkId);
-			Link toLink = network.getLinks().get(toLinkId);
-			travelDistance = fromLink.getLength();
-			org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
-			LeastCostPathCalculator router = createLeastCostPathCalculator();
-			Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
-					matsimVehicle);
-//			if(path == null) return Double.MAX_VALUE;
-			double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + path.travelTime,
-					null, matsimVehicle);
-			double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + path.travelTime, null,
-					matsimVehicle);
-			Iterator<Link> iter = path.links.iterator();
-			while (iter.hasNext()) {
-				Link link = iter.next();
-				travelDistance = travelDistance + link.getLength();
+		int vehicleTypeIndex = getVehicleTypeIndex(vehicle.getType().getTypeId());
+
+		TransportDataMatrix matrix = transportDataMatrix;
+		if (matrix != null) {
+			TransportData data = matrix.get(fromLinkIndex, toLinkIndex, timeSlice, vehicleTypeIndex);
+			if (data != null) {
+				return data;
 			}
-			TransportData newData = new TransportData(path.travelCost + additionalCostTo,
-					path.travelTime + additionalTimeTo, travelDistance);
-			TransportData existingData = costCache.putIfAbsent(transportDataKey, newData);
+		}
+
+		long key = costCache.key(fromLinkIndex, toLinkIndex, timeSlice, vehicleTypeIndex);
+		if (key != TransportDataCache.NO_KEY) {
+			TransportData data = costCache.get(key);
+			if (data != null) {
+				return data;
+			}
+		}
+
+		informStartCalc();
+		TransportData newData = computeTransportData(fromLink, toLink, departureTime, getMatsimVehicle(vehicle));
+		TransportData existingData = null;
+		if (key != TransportDataCache.NO_KEY) {
+			existingData = costCache.putIfAbsent(key, newData);
 			ttMemorizedCounter.incCounter();
-			if (existingData == null) {
-				existingData = newData;
+		}
+		informEndCalc();
+		return existingData == null ? newData : existingData;
+	}
+
+	/**
+	 * Resolves the link of a location. The link is remembered by the index of the location, so that the ids only
+	 * need to be looked up the first time a location is seen (or if the location has no index).
+	 */
+	private Link getLink(Location location) {
+		int index = location.getIndex();
+		LocationLink[] cached = locationLinks;
+		if (index >= 0 && index < cached.length) {
+			LocationLink locationLink = cached[index];
+			// the same index may belong to another location in another problem
+			if (locationLink != null && (locationLink.locationId == location.getId()
+					|| locationLink.locationId.equals(location.getId()))) {
+				return locationLink.link;
 			}
-			travelDistance = existingData.transportDistance;
-			informEndCalc();
 		}
-		return travelDistance;
+		Link link = network.getLinks().get(Id.createLinkId(location.getId()));
+		if (link == null) {
+			throw new IllegalArgumentException("location " + location.getId() + " is not a link of the network");
+		}
+		if (index >= 0) {
+			cacheLink(index, new LocationLink(location.getId(), link));
+		}
+		return link;
+	}
+
+	private synchronized void cacheLink(int index, LocationLink locationLink) {
+		LocationLink[] cached = locationLinks;
+		if (index >= cached.length) {
+			cached = Arrays.copyOf(cached, Math.max(index + 1, 2 * cached.length));
+		}
+		cached[index] = locationLink;
+		locationLinks = cached;
+	}
+
+	private static final class LocationLink {
+		final String locationId;
+		final Link link;
+
+		LocationLink(String locationId, Link link) {
+			this.locationId = locationId;
+			this.link = link;
+		}
+	}
+
+	private TransportData computeTransportData(Link fromLink, Link toLink, double departureTime,
+			org.matsim.vehicles.Vehicle matsimVehicle) {
+		// because path not includes in&out Link
+		Path path = routers.get().calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
+				matsimVehicle);
+//		if(path == null) return Double.MAX_VALUE;
+		double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + path.travelTime,
+				null, matsimVehicle);
+		double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + path.travelTime, null,
+				matsimVehicle);
+
+		double travelDistance = fromLink.getLength();
+		for (Link link : path.links) {
+			travelDistance = travelDistance + link.getLength();
+		}
+		return new TransportData(path.travelCost + additionalCostTo, path.travelTime + additionalTimeTo,
+				travelDistance);
+	}
+
+	/**
+	 * Precomputes the transport-data between all given locations for all time-bins
+	 * between startTime and endTime and for the vehicleTypes of the given
+	 * vehicles. Instead of routing each pair of locations separately, it runs one
+	 * one-to-many search per from-location, time-bin and vehicleType (in
+	 * parallel).
+	 *
+	 * <p>
+	 * Requests between the given locations are then answered from the
+	 * precomputed matrix; all other requests fall back to the cache. Within a
+	 * time-bin, the matrix is computed with the start time of the bin (or
+	 * startTime for the first bin), whereas the cache uses the departure time of
+	 * the first request. This is meant for the (default) fixed set of depot and
+	 * service locations; keep in mind that memory grows with the square of the
+	 * number of locations.
+	 *
+	 * @param locations the locations, i.e. usually the depot- and service-links
+	 * @param vehicles  the vehicles, at least one per vehicleType
+	 */
+	public void precomputeTransportData(Collection<Location> locations, Collection<Vehicle> vehicles,
+			double startTime, double endTime) {
+		Set<Link> links = new LinkedHashSet<>();
+		for (Location location : locations) {
+			links.add(getLink(location));
+		}
+
+		Map<Integer, org.matsim.vehicles.Vehicle> vehiclesByTypeIndex = new HashMap<>();
+		for (Vehicle vehicle : vehicles) {
+			vehiclesByTypeIndex.putIfAbsent(getVehicleTypeIndex(vehicle.getType().getTypeId()),
+					getMatsimVehicle(vehicle));
+		}
+		// the matrix is addressed by vehicleTypeIndex, vehicleTypes that are not given remain null
+		org.matsim.vehicles.Vehicle[] matsimVehicles = new org.matsim.vehicles.Vehicle[vehicleTypeCount.get()];
+		vehiclesByTypeIndex.forEach((index, matsimVehicle) -> matsimVehicles[index] = matsimVehicle);
+
+		int firstTimeSlice = getTimeSlice(startTime);
+		int lastTimeSlice = getTimeSlice(endTime);
+		double[] departureTimes = new double[lastTimeSlice - firstTimeSlice + 1];
+		for (int i = 0; i < departureTimes.length; i++) {
+			departureTimes[i] = Math.max(startTime, (double)(firstTimeSlice + i) * timeSliceWidth);
+		}
+
+		transportDataMatrix = new TransportDataMatrix(network, travelDisutility, travelTime, new ArrayList<>(links),
+				firstTimeSlice, departureTimes, matsimVehicles);
 	}
 
 	/**
@@ -834,34 +792,15 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 	}
 
 	private org.matsim.vehicles.Vehicle getMatsimVehicle(Vehicle vehicle) {
-		String typeId = vehicle.getType().getTypeId();
-		if (matsimVehicles.containsKey(typeId)) {
-			return matsimVehicles.get(typeId);
-		}
-		org.matsim.vehicles.Vehicle matsimVehicle = new MatsimVehicleWrapper(vehicle);
-		matsimVehicles.put(typeId, matsimVehicle);
-		return matsimVehicle;
+		return matsimVehicles.computeIfAbsent(vehicle.getType().getTypeId(), typeId -> new MatsimVehicleWrapper(vehicle));
 	}
 
-	private TransportDataKey makeKey(String fromId, String toId, long time, String vehicleType) {
-		return new TransportDataKey(fromId, toId, time, vehicleType);
+	private int getVehicleTypeIndex(String typeId) {
+		return vehicleTypeIndices.computeIfAbsent(typeId, id -> vehicleTypeCount.getAndIncrement());
 	}
 
 	LeastCostPathCalculator getRouter() {
-		return createLeastCostPathCalculator();
-	}
-
-	private LeastCostPathCalculator createLeastCostPathCalculator() {
-		LeastCostPathCalculator router = routerCache.get(Thread.currentThread().getId());
-		if (router == null) {
-			LeastCostPathCalculator newRouter = leastCostPathCalculatorFactory.createPathCalculator(network,
-					travelDisutility, travelTime);
-			router = routerCache.putIfAbsent(Thread.currentThread().getId(), newRouter);
-			if (router == null) {
-				router = newRouter;
-			}
-		}
-		return router;
+		return routers.get();
 	}
 
 	private int getTimeSlice(double time) {
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.freight.jsprit;
+
+import org.matsim.contrib.freight.jsprit.NetworkBasedTransportCosts.TransportData;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * A size-bounded cache for {@link TransportData}, keyed by the indices of the from- and to-link, the time slice and
+ * the index of the vehicle type, which are packed into one <code>long</code> (see {@link #key(int, int, int, int)}).
+ * <p>
+ * The cache is split into segments that are locked independently, so that it can be used by multiple threads. Each
+ * segment evicts its oldest entry as soon as it exceeds its share of the maximum size.
+ */
+final class TransportDataCache {
+	/**
+	 * returned by {@link #key(int, int, int, int)} if the indices do not fit into a key
+	 */
+	static final long NO_KEY = -1;
+
+	private static final int SEGMENT_COUNT = 16;
+	private static final int VEHICLE_TYPE_BITS = 8;
+
+	private final Segment[] segments = new Segment[SEGMENT_COUNT];
+	private final int linkBits;
+	private final int timeSliceBits;
+
+	/**
+	 * @param maxSize the maximum number of cached entries, {@link Integer#MAX_VALUE} for an unbounded cache
+	 * @param numberOfLinkIndices the upper bound (exclusive) of the link indices, e.g.
+	 *        {@link org.matsim.api.core.v01.Id#getNumberOfIds(Class)}
+	 */
+	TransportDataCache(int maxSize, int numberOfLinkIndices) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive, but is " + maxSize);
+		}
+		// the sign bit is left out, so NO_KEY is never a valid key
+		this.linkBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(numberOfLinkIndices - 1));
+		this.timeSliceBits = 63 - 2 * linkBits - VEHICLE_TYPE_BITS;
+		if (this.timeSliceBits < 1) {
+			throw new IllegalArgumentException("too many links (" + numberOfLinkIndices + ") to pack them into a cache key");
+		}
+		int maxSegmentSize = Math.max(1, maxSize / SEGMENT_COUNT);
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment(maxSegmentSize, maxSize != Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * @return the packed key, or {@link #NO_KEY} if one of the indices is out of range, i.e. the link did not exist
+	 *         when the cache was created, the time slice is too large (or negative), or there are more than 256 vehicle
+	 *         types; such requests are not cached
+	 */
+	long key(int fromLinkIndex, int toLinkIndex, int timeSlice, int vehicleTypeIndex) {
+		if ((fromLinkIndex >>> linkBits) != 0 || (toLinkIndex >>> linkBits) != 0 || ((long)timeSlice >>> timeSliceBits) != 0
+				|| (vehicleTypeIndex >>> VEHICLE_TYPE_BITS) != 0) {
+			return NO_KEY;
+		}
+		long key = ((long)fromLinkIndex << linkBits) | toLinkIndex;
+		key = (key << timeSliceBits) | timeSlice;
+		return (key << VEHICLE_TYPE_BITS) | vehicleTypeIndex;
+	}
+
+	TransportData get(long key) {
+		Segment segment = getSegment(key);
+		synchronized (segment) {
+			return segment.map.get(key);
+		}
+	}
+
+	/**
+	 * @return the already cached data, or null if the given data has been added
+	 */
+	TransportData putIfAbsent(long key, TransportData data) {
+		Segment segment = getSegment(key);
+		synchronized (segment) {
+			return segment.putIfAbsent(key, data);
+		}
+	}
+
+	int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.map.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment getSegment(long key) {
+		int hash = Long.hashCode(key * 0x9E3779B97F4A7C15L);
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+	}
+
+	private static final class Segment {
+		private final int maxSize;
+		private final TLongObjectHashMap<TransportData> map = new TLongObjectHashMap<>();
+		// the keys in insertion order as a ring buffer, which grows up to maxSize; null if the size is not bounded
+		private long[] order;
+		private int head = 0;
+
+		private Segment(int maxSize, boolean bounded) {
+			this.maxSize = maxSize;
+			this.order = bounded ? new long[Math.min(maxSize, 16)] : null;
+		}
+
+		private TransportData putIfAbsent(long key, TransportData data) {
+			TransportData existing = map.putIfAbsent(key, data);
+			if (existing == null && order != null) {
+				int entries = map.size() - 1; // the keys in the ring buffer
+				if (entries == maxSize) {
+					map.remove(order[head]);
+					order[head] = key;
+					head = (head + 1) % order.length;
+				} else {
+					if (entries == order.length) {
+						grow();
+					}
+					order[(head + entries) % order.length] = key;
+				}
+			}
+			return existing;
+		}
+
+		private void grow() {
+			long[] grown = new long[(int)Math.min(maxSize, 2L * order.length)];
+			for (int i = 0; i < order.length; i++) {
+				grown[i] = order[(head + i) % order.length];
+			}
+			order = grown;
+			head = 0;
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.freight.jsprit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.freight.jsprit.NetworkBasedTransportCosts.TransportData;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Transport data between all pairs of a fixed set of links, for a range of time slices and a set of vehicle types.
+ * <p>
+ * The matrix is computed with one one-to-many search per from-link, time slice and vehicle type. The results are the
+ * same as the ones of routing each pair separately (see {@link NetworkBasedTransportCosts}) with the representative
+ * departure time of the time slice. Memory grows with the square of the number of links, times the number of time
+ * slices and vehicle types.
+ */
+final class TransportDataMatrix {
+	private final int[] matrixIndexByLinkIndex;
+	private final int size;
+	private final int firstTimeSlice;
+	private final int timeSliceCount;
+	private final int vehicleTypeCount;
+
+	// [timeSlice offset * vehicleTypeCount + vehicleTypeIndex][from * size + to]; NaN if not reachable
+	private final double[][] costs;
+	private final double[][] times;
+	private final double[][] distances;
+
+	/**
+	 * @param links           the links between which the transport data are computed
+	 * @param departureTimes  the representative departure time for each time slice, starting with firstTimeSlice
+	 * @param vehicles        one vehicle for each vehicle type index, null for vehicle types that are not covered
+	 */
+	TransportDataMatrix(Network network, TravelDisutility travelDisutility, TravelTime travelTime, List<Link> links,
+			int firstTimeSlice, double[] departureTimes, Vehicle[] vehicles) {
+		this.size = links.size();
+		this.firstTimeSlice = firstTimeSlice;
+		this.timeSliceCount = departureTimes.length;
+		this.vehicleTypeCount = vehicles.length;
+
+		this.matrixIndexByLinkIndex = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(matrixIndexByLinkIndex, -1);
+		for (int i = 0; i < size; i++) {
+			matrixIndexByLinkIndex[links.get(i).getId().index()] = i;
+		}
+
+		int tableCount = timeSliceCount * vehicleTypeCount;
+		this.costs = new double[tableCount][];
+		this.times = new double[tableCount][];
+		this.distances = new double[tableCount][];
+		for (int table = 0; table < tableCount; table++) {
+			if (vehicles[table % vehicleTypeCount] != null) {
+				costs[table] = new double[size * size];
+				times[table] = new double[size * size];
+				distances[table] = new double[size * size];
+			}
+		}
+
+		Node[] nodes = new Node[Id.getNumberOfIds(Node.class)];
+		for (Node node : network.getNodes().values()) {
+			nodes[node.getId().index()] = node;
+		}
+
+		ThreadLocal<OneToManySearch> searches = ThreadLocal.withInitial(
+				() -> new OneToManySearch(nodes, travelDisutility, travelTime));
+		IntStream.range(0, tableCount * size).parallel().forEach(task -> {
+			int table = task / size;
+			int from = task % size;
+			double departureTime = departureTimes[table / vehicleTypeCount];
+			Vehicle vehicle = vehicles[table % vehicleTypeCount];
+			if (vehicle == null) {
+				return;
+			}
+			searches.get().computeRow(links, from, departureTime, vehicle, costs[table], times[table], distances[table]);
+		});
+	}
+
+	/**
+	 * @return the transport data, or null if the request is not covered by the matrix
+	 */
+	TransportData get(int fromLinkIndex, int toLinkIndex, int timeSlice, int vehicleTypeIndex) {
+		if (fromLinkIndex >= matrixIndexByLinkIndex.length || toLinkIndex >= matrixIndexByLinkIndex.length) {
+			return null;
+		}
+		int from = matrixIndexByLinkIndex[fromLinkIndex];
+		int to = matrixIndexByLinkIndex[toLinkIndex];
+		int timeSliceOffset = timeSlice - firstTimeSlice;
+		if (from < 0 || to < 0 || timeSliceOffset < 0 || timeSliceOffset >= timeSliceCount
+				|| vehicleTypeIndex >= vehicleTypeCount) {
+			return null;
+		}
+		int table = timeSliceOffset * vehicleTypeCount + vehicleTypeIndex;
+		if (costs[table] == null) {
+			return null;
+		}
+		int entry = from * size + to;
+		double cost = costs[table][entry];
+		if (Double.isNaN(cost)) {
+			return null;
+		}
+		return new TransportData(cost, times[table][entry], distances[table][entry]);
+	}
+
+	/**
+	 * Time-dependent Dijkstra from the to-node of the from-link that stops as soon as the from-nodes of all links
+	 * are settled. Keeps its arrays between the searches, so each thread should use its own instance.
+	 */
+	private static final class OneToManySearch {
+		private final Node[] nodes;
+		private final TravelDisutility travelDisutility;
+		private final TravelTime travelTime;
+
+		private final double[] nodeCosts;
+		private final double[] nodeTimes;
+		private final double[] nodeDistances;
+		private final int[] visitedInSearch;
+		private final int[] settledInSearch;
+		private final int[] targetInSearch;
+		private int search = 0;
+
+		private OneToManySearch(Node[] nodes, TravelDisutility travelDisutility, TravelTime travelTime) {
+			this.nodes = nodes;
+			this.travelDisutility = travelDisutility;
+			this.travelTime = travelTime;
+			this.nodeCosts = new double[nodes.length];
+			this.nodeTimes = new double[nodes.length];
+			this.nodeDistances = new double[nodes.length];
+			this.visitedInSearch = new int[nodes.length];
+			this.settledInSearch = new int[nodes.length];
+			this.targetInSearch = new int[nodes.length];
+		}
+
+		private void computeRow(List<Link> links, int from, double departureTime, Vehicle vehicle, double[] costs,
+				double[] times, double[] distances) {
+			Link fromLink = links.get(from);
+			search(fromLink.getToNode(), departureTime, vehicle, links);
+
+			int offset = from * links.size();
+			for (int to = 0; to < links.size(); to++) {
+				Link toLink = links.get(to);
+				int node = toLink.getFromNode().getId().index();
+				if (settledInSearch[node] != search) {
+					costs[offset + to] = Double.NaN;
+					continue;
+				}
+				// because path not includes in&out Link
+				double arrivalTime = nodeTimes[node];
+				double pathTravelTime = arrivalTime - departureTime;
+				double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, arrivalTime, null, vehicle);
+				double additionalTimeTo = travelTime.getLinkTravelTime(toLink, arrivalTime, null, vehicle);
+				costs[offset + to] = nodeCosts[node] + additionalCostTo;
+				times[offset + to] = pathTravelTime + additionalTimeTo;
+				distances[offset + to] = fromLink.getLength() + nodeDistances[node];
+			}
+		}
+
+		private void search(Node startNode, double departureTime, Vehicle vehicle, List<Link> links) {
+			search++;
+			int remainingTargets = 0;
+			for (Link link : links) {
+				int target = link.getFromNode().getId().index();
+				if (targetInSearch[target] != search) {
+					targetInSearch[target] = search;
+					remainingTargets++;
+				}
+			}
+
+			PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+			visit(startNode.getId().index(), 0, departureTime, 0, queue);
+
+			while (!queue.isEmpty() && remainingTargets > 0) {
+				QueueEntry entry = queue.poll();
+				int node = entry.node;
+				if (settledInSearch[node] == search || entry.cost > nodeCosts[node]) {
+					continue;
+				}
+				settledInSearch[node] = search;
+				if (targetInSearch[node] == search) {
+					remainingTargets--;
+				}
+
+				double currentTime = nodeTimes[node];
+				for (Link link : nodes[node].getOutLinks().values()) {
+					int toNode = link.getToNode().getId().index();
+					if (settledInSearch[toNode] == search) {
+						continue;
+					}
+					double cost = nodeCosts[node]
+							+ travelDisutility.getLinkTravelDisutility(link, currentTime, null, vehicle);
+					if (visitedInSearch[toNode] != search || cost < nodeCosts[toNode]) {
+						visit(toNode, cost, currentTime + travelTime.getLinkTravelTime(link, currentTime, null, vehicle),
+								nodeDistances[node] + link.getLength(), queue);
+					}
+				}
+			}
+		}
+
+		private void visit(int node, double cost, double time, double distance, PriorityQueue<QueueEntry> queue) {
+			visitedInSearch[node] = search;
+			nodeCosts[node] = cost;
+			nodeTimes[node] = time;
+			nodeDistances[node] = distance;
+			queue.add(new QueueEntry(node, cost));
+		}
+	}
+
+	private static final class QueueEntry implements Comparable<QueueEntry> {
+		private final int node;
+		private final double cost;
+
+		private QueueEntry(int node, double cost) {
+			this.node = node;
+			this.cost = cost;
+		}
+
+		@Override
+		public int compareTo(QueueEntry other) {
+			return Double.compare(cost, other.cost);
+		}
+	}
+}
@@ -3,11 +3,15 @@ package org.matsim.contrib.freight.jsprit;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.driver.Driver;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
 
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
@@ -151,4 +155,63 @@ public class NetworkBasedTransportCostsTest extends MatsimTestCase{
 		assertEquals(20000.0, networkBasedTransportCosts.getTransportDistance(Location.newInstance("6"), Location.newInstance("21"), 0.0, mock(Driver.class), vehicle2), 0.01);
 	}
 
+	@Test
+	public void test_whenPrecomputingTransportData_itMustReturnTheSameValuesAsRoutingEachPair(){
+		Config config = new Config();
+		config.addCoreModules();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		String NETWORK_FILENAME = getClassInputDirectory() + "network.xml";
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(NETWORK_FILENAME);
+
+		Network network = scenario.getNetwork();
+		Vehicle vehicle1 = createVehicle("vehicle1", "type1", 5.0);
+		Vehicle vehicle2 = createVehicle("vehicle2", "type2", 20.0);
+		// (the links that are strongly connected; some links of the network lead to dead ends)
+		List<Location> locations = new ArrayList<>();
+		for (String linkId : new String[] { "1", "2", "6", "11", "15", "20", "21", "22", "23" }) {
+			locations.add(Location.newInstance(linkId));
+		}
+
+		NetworkBasedTransportCosts routed = createTransportCosts(network, Integer.MAX_VALUE);
+		NetworkBasedTransportCosts precomputed = createTransportCosts(network, Integer.MAX_VALUE);
+		precomputed.precomputeTransportData(locations, Arrays.asList(vehicle1, vehicle2), 0.0, 7200.0);
+		// the cache is too small to hold all pairs, i.e. values are evicted and computed again
+		NetworkBasedTransportCosts bounded = createTransportCosts(network, 16);
+
+		for (Vehicle vehicle : Arrays.asList(vehicle1, vehicle2)) {
+			for (double departureTime : new double[] { 0.0, 3600.0 }) {
+				for (Location from : locations) {
+					for (Location to : locations) {
+						double cost = routed.getTransportCost(from, to, departureTime, null, vehicle);
+						double time = routed.getTransportTime(from, to, departureTime, null, vehicle);
+						double distance = routed.getTransportDistance(from, to, departureTime, null, vehicle);
+						for (NetworkBasedTransportCosts c : Arrays.asList(precomputed, bounded)) {
+							assertEquals(cost, c.getTransportCost(from, to, departureTime, null, vehicle), 0.01);
+							assertEquals(time, c.getTransportTime(from, to, departureTime, null, vehicle), 0.01);
+							assertEquals(distance, c.getTransportDistance(from, to, departureTime, null, vehicle), 0.01);
+						}
+					}
+				}
+			}
+		}
+		// everything has been answered from the precomputed matrix
+		assertEquals(0, precomputed.ttMemorizedCounter.getCounter());
+	}
+
+	private static NetworkBasedTransportCosts createTransportCosts(Network network, int costCacheSize) {
+		NetworkBasedTransportCosts.Builder builder = NetworkBasedTransportCosts.Builder.newInstance(network);
+		builder.addVehicleTypeSpecificCosts("type1", 10.0, 1.0, 2.0);
+		builder.addVehicleTypeSpecificCosts("type2", 20.0, 3.0, 1.0);
+		builder.setTimeSliceWidth(3600);
+		builder.setCostCacheSize(costCacheSize);
+		return builder.build();
+	}
+
+	private static Vehicle createVehicle(String vehicleId, String typeId, double maxVelocity) {
+		return VehicleImpl.Builder.newInstance(vehicleId)
+				.setType(VehicleTypeImpl.Builder.newInstance(typeId).setMaxVelocity(maxVelocity).build())
+				.setStartLocation(Location.newInstance("1"))
+				.build();
+	}
+
 }
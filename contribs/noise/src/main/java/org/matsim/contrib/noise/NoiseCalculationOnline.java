@@ -25,9 +25,11 @@ package org.matsim.contrib.noise;
 import org.apache.log4j.Logger;
 import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.events.StartupEvent;
 import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.controler.listener.StartupListener;
 
 import com.google.inject.Inject;
@@ -38,7 +40,7 @@ import com.google.inject.Inject;
  * @author ikaddoura
  *
  */
-final class NoiseCalculationOnline implements BeforeMobsimListener, AfterMobsimListener, StartupListener {
+final class NoiseCalculationOnline implements BeforeMobsimListener, AfterMobsimListener, StartupListener, ShutdownListener {
 	private static final Logger log = Logger.getLogger(NoiseCalculationOnline.class);
 	
 	@Inject
@@ -71,6 +73,11 @@ final class NoiseCalculationOnline implements BeforeMobsimListener, AfterMobsimL
 		log.info("Noise calculation completed.");
 	}
 
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		noiseContext.shutdown();
+	}
+
 	NoiseContext getNoiseContext() {
 		return noiseContext;
 	}
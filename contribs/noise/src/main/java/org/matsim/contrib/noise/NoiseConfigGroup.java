@@ -86,6 +86,8 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	private static final String NOISE_BARRIERS_GEOJSON_FILE = "noiseBarriersGeojsonPath";
 	private static final String NOISE_BARRIERS_SOURCE_CRS = "source coordinate reference system of noise barriers geojson file";
 	private static final String NETWORK_MODES_TO_IGNORE = "networkModesToIgnore";
+	private static final String RELEVANT_LINKS_FILE = "relevantLinksFile";
+	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 
     public NoiseConfigGroup() {
 		super(GROUP_NAME);
@@ -139,6 +141,9 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	private boolean considerNoiseBarriers = false;
     private String noiseBarriersFilePath = null;
     private String noiseBarriersSourceCrs = null;
+
+	private String relevantLinksFile = null;
+	private int numberOfThreads = 1;
     
     // ########################################################################################################
 	
@@ -195,6 +200,11 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 
         comments.put(NETWORK_MODES_TO_IGNORE, "Specifies the network modes to be excluded from the noise computation, e.g. 'bike'.");
 
+		comments.put(RELEVANT_LINKS_FILE, "Optional file, e.g. 'relevantLinks.csv.gz', to cache the relevant links and the correction terms (distance, angle, shielding) of each receiver point. "
+				+ "If the file exists, the relevant links are read from it; otherwise they are computed and written to the file. "
+				+ "The file has to be deleted whenever the network or the receiver points change.");
+		comments.put(NUMBER_OF_THREADS, "Number of threads used for determining the relevant links and for computing the noise immissions and damages of the receiver points. Default: 1");
+
 		return comments;
 	}
 
@@ -230,6 +240,10 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 
 	private void checkNoiseParametersForConsistency(Config config) {
 		
+		if (this.numberOfThreads < 1) {
+			throw new RuntimeException("The number of threads must be positive. Aborting...");
+		}
+
 		if (this.internalizeNoiseDamages) {
 			
 			// required for internalization
@@ -765,6 +779,26 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 		this.computeAvgNoiseCostPerLinkAndTime = computeAvgNoiseCostPerLinkAndTime;
 	}
 
+	@StringGetter(RELEVANT_LINKS_FILE)
+	public String getRelevantLinksFile() {
+		return relevantLinksFile;
+	}
+
+	@StringSetter(RELEVANT_LINKS_FILE)
+	public void setRelevantLinksFile(String relevantLinksFile) {
+		this.relevantLinksFile = relevantLinksFile;
+	}
+
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	public URL getTunnelLinkIDsFileURL(URL context) {
 		return ConfigGroup.getInputFileURL(context, this.getTunnelLinkIdFile());
 	}
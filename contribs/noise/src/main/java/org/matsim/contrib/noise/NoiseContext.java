@@ -38,8 +38,10 @@ import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.vehicles.Vehicle;
 
+import java.io.File;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * Contains the grid and further noise-specific information.
@@ -80,6 +82,9 @@ final class NoiseContext {
 	private double eventTime = Double.MIN_VALUE;
 
 	private final Map<Id<ReceiverPoint>, NoiseReceiverPoint> noiseReceiverPoints;
+
+	// null if the computation is single-threaded
+	private final ForkJoinPool forkJoinPool;
 	
 	// ############################################
 
@@ -100,6 +105,7 @@ final class NoiseContext {
 		
 		this.noiseReceiverPoints = new HashMap<>();
 		this.noiseLinks = new HashMap<>();
+		this.forkJoinPool = noiseParams.getNumberOfThreads() > 1 ? new ForkJoinPool(noiseParams.getNumberOfThreads()) : null;
 		
 		checkConsistency();
 
@@ -168,56 +174,78 @@ final class NoiseContext {
 
 	private void setRelevantLinkInfo() {
 
-		Counter cnt = new Counter("set relevant link-info # ");
-		for(NoiseReceiverPoint nrp: this.grid.getReceiverPoints().values()) {
-			if(!nrp.isInitialized()) {
-				// get the zone grid cell around the receiver point
-				Set<Id<Link>> potentialLinks = new HashSet<>();
-				Tuple<Integer, Integer>[] zoneTuples = getZoneTuplesForLinks(nrp.getCoord());
-				for (Tuple<Integer, Integer> key : zoneTuples) {
-					List<Id<Link>> links = zoneTuple2listOfLinkIds.get(key);
-					if (links != null) {
-						potentialLinks.addAll(links);
-					}
-				}
+		String relevantLinksFile = noiseParams.getRelevantLinksFile();
+		boolean cached = relevantLinksFile != null && new File(relevantLinksFile).exists();
+		if (cached) {
+			RelevantLinksFile.read(relevantLinksFile, scenario.getNetwork(), this.grid.getReceiverPoints(), noiseParams);
+		}
 
-				// go through these potential relevant link Ids
-				Set<Id<Link>> relevantLinkIds = ConcurrentHashMap.newKeySet();
-				potentialLinks.parallelStream().forEach(linkId -> {
-					if (!(relevantLinkIds.contains(linkId))) {
-						Link candidateLink = scenario.getNetwork().getLinks().get(linkId);
-						double projectedDistance = CoordUtils.distancePointLinesegment(candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), nrp.getCoord());
-
-						if (projectedDistance < noiseParams.getRelevantRadius()) {
-
-							relevantLinkIds.add(linkId);
-							// wouldn't it be good to check distance < minDistance here? DR20180215
-							if (projectedDistance == 0) {
-								double minimumDistance = 5.;
-								projectedDistance = minimumDistance;
-								log.warn("Distance between " + linkId + " and " + nrp.getId() + " is 0. The calculation of the correction term Ds requires a distance > 0. Therefore, setting the distance to a minimum value of " + minimumDistance + ".");
-							}
-							double correctionTermDs = NoiseEquations.calculateDistanceCorrection(projectedDistance);
-							double correctionTermAngle = calculateAngleImmissionCorrection(nrp.getCoord(), scenario.getNetwork().getLinks().get(linkId));
-							nrp.setLinkId2distanceCorrection(linkId, correctionTermDs);
-							nrp.setLinkId2angleCorrection(linkId, correctionTermAngle);
-							if (noiseParams.isConsiderNoiseBarriers()) {
-								Coord projectedSourceCoord = CoordUtils.orthogonalProjectionOnLineSegment(
-										candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), nrp.getCoord());
-								double correctionTermShielding =
-										shielding.determineShieldingCorrection(nrp, candidateLink, projectedSourceCoord);
-								nrp.setLinkId2ShieldingCorrection(linkId, correctionTermShielding);
-							}
-						}
-					}
-				});
-				nrp.setInitialized();
+		List<NoiseReceiverPoint> uninitializedPoints = this.grid.getReceiverPoints()
+				.values()
+				.stream()
+				.filter(nrp -> !nrp.isInitialized())
+				.collect(Collectors.toList());
+
+		Counter cnt = new Counter("set relevant link-info # ");
+		if (forkJoinPool == null) {
+			for (NoiseReceiverPoint nrp : uninitializedPoints) {
+				setRelevantLinkInfo(nrp);
+				cnt.incCounter();
 			}
-			
-			this.noiseReceiverPoints.put(nrp.getId(), nrp);
-			cnt.incCounter();
+		} else {
+			// the receiver points are independent of each other
+			forkJoinPool.submit(() -> uninitializedPoints.parallelStream().forEach(nrp -> {
+				setRelevantLinkInfo(nrp);
+				cnt.incCounter();
+			})).join();
 		}
 		cnt.printCounter();
+
+		this.noiseReceiverPoints.putAll(this.grid.getReceiverPoints());
+
+		if (relevantLinksFile != null && (!cached || !uninitializedPoints.isEmpty())) {
+			RelevantLinksFile.write(relevantLinksFile, scenario.getNetwork(), this.noiseReceiverPoints, noiseParams);
+		}
+	}
+
+	private void setRelevantLinkInfo(NoiseReceiverPoint nrp) {
+		// get the zone grid cell around the receiver point
+		Set<Id<Link>> potentialLinks = new HashSet<>();
+		Tuple<Integer, Integer>[] zoneTuples = getZoneTuplesForLinks(nrp.getCoord());
+		for (Tuple<Integer, Integer> key : zoneTuples) {
+			List<Id<Link>> links = zoneTuple2listOfLinkIds.get(key);
+			if (links != null) {
+				potentialLinks.addAll(links);
+			}
+		}
+
+		// go through these potential relevant link Ids
+		for (Id<Link> linkId : potentialLinks) {
+			Link candidateLink = scenario.getNetwork().getLinks().get(linkId);
+			double projectedDistance = CoordUtils.distancePointLinesegment(candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), nrp.getCoord());
+
+			if (projectedDistance < noiseParams.getRelevantRadius()) {
+
+				// wouldn't it be good to check distance < minDistance here? DR20180215
+				if (projectedDistance == 0) {
+					double minimumDistance = 5.;
+					projectedDistance = minimumDistance;
+					log.warn("Distance between " + linkId + " and " + nrp.getId() + " is 0. The calculation of the correction term Ds requires a distance > 0. Therefore, setting the distance to a minimum value of " + minimumDistance + ".");
+				}
+				double correctionTermDs = NoiseEquations.calculateDistanceCorrection(projectedDistance);
+				double correctionTermAngle = calculateAngleImmissionCorrection(nrp.getCoord(), candidateLink);
+				nrp.setLinkId2distanceCorrection(linkId, correctionTermDs);
+				nrp.setLinkId2angleCorrection(linkId, correctionTermAngle);
+				if (noiseParams.isConsiderNoiseBarriers()) {
+					Coord projectedSourceCoord = CoordUtils.orthogonalProjectionOnLineSegment(
+							candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), nrp.getCoord());
+					double correctionTermShielding =
+							shielding.determineShieldingCorrection(nrp, candidateLink, projectedSourceCoord);
+					nrp.setLinkId2ShieldingCorrection(linkId, correctionTermShielding);
+				}
+			}
+		}
+		nrp.setInitialized();
 	}
 
 	/**
@@ -379,6 +407,22 @@ final class NoiseContext {
 		return eventTime;
 	}
 
+	/**
+	 * @return the pool for computations per receiver point, or null if the noise computation is single-threaded
+	 */
+	final ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Shuts down the pool for computations per receiver point, once there are no more noise computations.
+	 */
+	final void shutdown() {
+		if (forkJoinPool != null) {
+			forkJoinPool.shutdown();
+		}
+	}
+
 	final Grid getGrid() {
 		return grid;
 	}
@@ -89,6 +89,14 @@ public final class NoiseOfflineCalculation{
 			  }) ;
 
 		noiseContext = injector.getInstance( NoiseContext.class ) ;
+		try {
+			computeNoise(injector, outputFilePath);
+		} finally {
+			noiseContext.shutdown();
+		}
+	}
+
+	private void computeNoise(com.google.inject.Injector injector, String outputFilePath) {
 		NoiseWriter.writeReceiverPoints(noiseContext, outputFilePath + "/receiverPoints/", false);
 
 		EventsManager events = injector.getInstance( EventsManager.class ) ;
@@ -23,11 +23,15 @@
 package org.matsim.contrib.noise;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -60,6 +64,7 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 
 	private static final Logger log = Logger.getLogger(NoiseTimeTracker.class);
 	private static final boolean printLog = false;
+	private static final int RECEIVER_POINT_CHUNK_SIZE = 10000;
 	
 	@Inject private NoiseContext noiseContext;
 		
@@ -80,8 +85,8 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	
 	private int cWarn1 = 0;
 	private int cWarn2 = 0;
-	private int cWarn3 = 0;
-	private int cWarn4 = 0;
+	private final AtomicInteger cWarn3 = new AtomicInteger();
+	private final AtomicInteger cWarn4 = new AtomicInteger();
 
 	@Override
 	public void handleEvent(TransitDriverStartsEvent event) {
@@ -214,32 +219,22 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 		if (printLog) log.info("Calculating the number of affected agent units...");
 		if (printLog) log.info("Calculating noise damage costs...");
 
-		for(NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			NoiseReceiverPointImmision immisions = calculateNoiseImmission(rp);
-			if (this.noiseContext.getNoiseParams().isComputePopulationUnits()) {
-				calculateAffectedAgentUnits(rp);
-				if (this.noiseContext.getNoiseParams().isComputeNoiseDamages()) {
-					calculateDamagePerReceiverPoint(rp);
-				}
-				if (this.noiseContext.getNoiseParams().isComputeCausingAgents()) {
-					computeAverageDamageCost(rp, immisions);
-					calculateMarginalDamageCost(rp, immisions);
-				}
+		/*
+		 * The receiver points are processed in chunks, each of them possibly in parallel. Everything that is added up per
+		 * link is only collected per receiver point and summed up afterwards in a fixed order, so that the results do not
+		 * depend on the number of threads.
+		 */
+		List<NoiseReceiverPoint> receiverPoints = new ArrayList<>(this.noiseContext.getReceiverPoints().values());
+		ForkJoinPool forkJoinPool = this.noiseContext.getForkJoinPool();
+		for (int from = 0; from < receiverPoints.size(); from += RECEIVER_POINT_CHUNK_SIZE) {
+			List<NoiseReceiverPoint> chunk = receiverPoints.subList(from, Math.min(from + RECEIVER_POINT_CHUNK_SIZE, receiverPoints.size()));
+			List<ReceiverPointLinkCosts> chunkLinkCosts;
+			if (forkJoinPool == null) {
+				chunkLinkCosts = chunk.stream().map(this::computeReceiverPoint).collect(Collectors.toList());
+			} else {
+				chunkLinkCosts = forkJoinPool.submit(() -> chunk.parallelStream().map(this::computeReceiverPoint).collect(Collectors.toList())).join();
 			}
-//			if ( listeners!=null ) {
-//				XYTRecord record = new XYTRecord.Builder()
-//										   .setStartTime( 0. )
-//										   .setEndTime( 0. )
-//										   .setCoord( rp.getCoord() )
-//										   .setFacilityId( null )
-//										   .put( "immissions", rp.getCurrentImmission() )
-//										   .build() ;
-//				for( NoiseModule.NoiseListener listener : listeners ){
-//					listener.newRecord( record );
-//				}
-//			} else {
-//				log.warn("listeners=null") ;
-//			}
+			chunkLinkCosts.forEach(this::addLinkCosts);
 		}
 		calculateCostsPerVehiclePerLinkPerTimeInterval();
 		
@@ -262,6 +257,61 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 			
 	}
 		
+	/*
+	 * Immission, affected agent units and damages for a single receiver point. Must not modify anything except the receiver point.
+	 */
+	private ReceiverPointLinkCosts computeReceiverPoint(NoiseReceiverPoint rp) {
+		ReceiverPointLinkCosts linkCosts = new ReceiverPointLinkCosts();
+		NoiseReceiverPointImmision immisions = calculateNoiseImmission(rp);
+		if (this.noiseContext.getNoiseParams().isComputePopulationUnits()) {
+			calculateAffectedAgentUnits(rp);
+			if (this.noiseContext.getNoiseParams().isComputeNoiseDamages()) {
+				calculateDamagePerReceiverPoint(rp);
+			}
+			if (this.noiseContext.getNoiseParams().isComputeCausingAgents()) {
+				computeAverageDamageCost(rp, immisions, linkCosts);
+				calculateMarginalDamageCost(rp, immisions, linkCosts);
+			}
+		}
+//			if ( listeners!=null ) {
+//				XYTRecord record = new XYTRecord.Builder()
+//										   .setStartTime( 0. )
+//										   .setEndTime( 0. )
+//										   .setCoord( rp.getCoord() )
+//										   .setFacilityId( null )
+//										   .put( "immissions", rp.getCurrentImmission() )
+//										   .build() ;
+//				for( NoiseModule.NoiseListener listener : listeners ){
+//					listener.newRecord( record );
+//				}
+//			} else {
+//				log.warn("listeners=null") ;
+//			}
+		return linkCosts;
+	}
+
+	/*
+	 * Summing up the link-based costs of a single receiver point
+	 */
+	private void addLinkCosts(ReceiverPointLinkCosts linkCosts) {
+		for (Map.Entry<Id<Link>, Double> e : linkCosts.linkId2costShare.entrySet()) {
+			NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(e.getKey());
+			if (noiseLink != null) {
+				double sum = noiseLink.getDamageCost() + e.getValue();
+				noiseLink.setDamageCost(sum);
+			}
+		}
+
+		for (Map.Entry<Id<Link>, Double> e : linkCosts.linkId2marginalDamageCostCar.entrySet()) {
+			NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(e.getKey());
+			double marginalDamageCostCarSum = noiseLink.getMarginalDamageCostPerCar() + e.getValue();
+			noiseLink.setMarginalDamageCostPerCar(marginalDamageCostCarSum);
+
+			double marginalDamageCostHGVSum = noiseLink.getMarginalDamageCostPerHgv() + linkCosts.linkId2marginalDamageCostHGV.get(e.getKey());
+			noiseLink.setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
+		}
+	}
+
 	private boolean writeOutput() {
 		if (this.noiseContext.getNoiseParams().getWriteOutputIteration() == 0) {
 			return false;
@@ -438,15 +488,15 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	/*
 	 * Noise allocation approach: AverageCost
 	 */
-	private void computeAverageDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
-		calculateCostSharesPerLinkPerTimeInterval(rp, immisions);
+	private void computeAverageDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions, ReceiverPointLinkCosts linkCosts) {
+		linkCosts.linkId2costShare = calculateCostSharesPerLinkPerTimeInterval(rp, immisions);
 //		calculateCostsPerVehiclePerLinkPerTimeInterval();
 	}
 
 	/*
 	 * Noise allocation approach: AverageCost
 	 */
-	private void calculateCostSharesPerLinkPerTimeInterval(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
+	private Map<Id<Link>, Double> calculateCostSharesPerLinkPerTimeInterval(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
 		
 		Map<Id<Link>, Double> linkId2costShare = new HashMap<Id<Link>, Double>();
 
@@ -469,20 +519,7 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 			
 //		}
 		
-		// summing up the link-based costs
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getDamageCosts() != 0.) {
-				
-				for (Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-					NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId); 
-					if ( noiseLink != null) {
-						double sum = noiseLink.getDamageCost() + linkId2costShare.get(linkId);
-						noiseLink.setDamageCost(sum);
-					}		
-				}
-			}
-//		}
+		return linkId2costShare;
 	}
 
 	/*
@@ -575,10 +612,12 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	/*
 	 * Noise allocation approach: MarginalCost
 	 */
-	private void calculateMarginalDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immision) {
+	private void calculateMarginalDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immision, ReceiverPointLinkCosts linkCosts) {
 //		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
 
 			if (rp.getAffectedAgentUnits() != 0.) {
+				linkCosts.linkId2marginalDamageCostCar = new HashMap<>();
+				linkCosts.linkId2marginalDamageCostHGV = new HashMap<>();
 				for (Id<Link> thisLink : immision.getLinkId2IsolatedImmission().keySet()) {
 										
 					double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getCurrentImmission(), immision.getLinkId2IsolatedImmission().get(thisLink), immision.getLinkId2IsolatedImmissionPlusOneCar().get(thisLink));
@@ -591,12 +630,11 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 						if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
 							marginalDamageCostCarThisLink = 0.;
 						} else {
-							if (cWarn3 == 0) {
+							if (cWarn3.getAndIncrement() == 0) {
 								log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
 								log.warn("final immission: " + rp.getCurrentImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
 								log.warn("Setting the marginal damage cost per car to 0.");
 								log.warn("This message is only given once.");
-								cWarn3++;
 							}
 							
 							marginalDamageCostCarThisLink = 0.;
@@ -610,23 +648,18 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 						if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
 							marginalDamageCostHGVThisLink = 0.;
 						} else {
-							if (cWarn4 == 0) {
+							if (cWarn4.getAndIncrement() == 0) {
 								log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
 								log.warn("final immission: " + rp.getCurrentImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
 								log.warn("Setting the marginal damage cost per HGV to 0.");
 								log.warn("This message is only given once.");
-								cWarn4++;
 							}
 							
 							marginalDamageCostHGVThisLink = 0.;
 						}
 					}
-					NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(thisLink);
-					double marginalDamageCostCarSum = noiseLink.getMarginalDamageCostPerCar() + marginalDamageCostCarThisLink;
-					noiseLink.setMarginalDamageCostPerCar(marginalDamageCostCarSum);
-					
-					double marginalDamageCostHGVSum = noiseLink.getMarginalDamageCostPerHgv() + marginalDamageCostHGVThisLink;
-					noiseLink.setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
+					linkCosts.linkId2marginalDamageCostCar.put(thisLink, marginalDamageCostCarThisLink);
+					linkCosts.linkId2marginalDamageCostHGV.put(thisLink, marginalDamageCostHGVThisLink);
 				}			
 			}	
 //		}
@@ -984,4 +1017,13 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 			}
 		}
 	}
+
+	/**
+	 * The link-based costs of a single receiver point, which are added to the noise links after the receiver point is processed.
+	 */
+	private static final class ReceiverPointLinkCosts {
+		private Map<Id<Link>, Double> linkId2costShare = Collections.emptyMap();
+		private Map<Id<Link>, Double> linkId2marginalDamageCostCar = Collections.emptyMap();
+		private Map<Id<Link>, Double> linkId2marginalDamageCostHGV = Collections.emptyMap();
+	}
 }
@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Reads and writes the relevant links of the receiver points together with the correction terms (distance, angle,
+ * shielding), so that they need to be computed only once for a given network and set of receiver points.
+ * <p>
+ * The first two lines contain the parameters and fingerprints of the network and the receiver points, i.e. their
+ * number and a hash of their ids and coordinates. A file written for other parameters, another network or other
+ * receiver points is rejected.
+ * <p>
+ * Each line contains a receiver point id, a link id and the correction terms. Receiver points without any relevant
+ * link are written as a line that contains only the receiver point id.
+ */
+final class RelevantLinksFile {
+	private static final Logger log = Logger.getLogger(RelevantLinksFile.class);
+
+	private static final String SEPARATOR = ";";
+	private static final String HEADER = "receiverPointId;linkId;distanceCorrection;angleCorrection;shieldingCorrection";
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private RelevantLinksFile() {
+	}
+
+	/**
+	 * Initializes the given receiver points with the relevant links read from the file. Receiver points that are not
+	 * contained in the file remain uninitialized.
+	 */
+	static void read(String filename, Network network, Map<Id<ReceiverPoint>, NoiseReceiverPoint> receiverPoints,
+			NoiseConfigGroup noiseParams) {
+		log.info("Reading relevant links from " + filename + "...");
+		int unknownReceiverPoints = 0;
+		try (BufferedReader br = IOUtils.getBufferedReader(filename)) {
+			String parameters = br.readLine();
+			if (!getParametersLine(noiseParams).equals(parameters)) {
+				throw new RuntimeException("The relevant links in " + filename + " were computed for different parameters (" + parameters
+						+ "). Delete the file in order to recompute the relevant links. Aborting...");
+			}
+			String fingerprints = br.readLine();
+			if (!getFingerprintsLine(network, receiverPoints).equals(fingerprints)) {
+				throw new RuntimeException("The relevant links in " + filename + " were computed for a different network or different receiver points ("
+						+ fingerprints + "). Delete the file in order to recompute the relevant links. Aborting...");
+			}
+			br.readLine(); // header
+
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] columns = line.split(SEPARATOR);
+				NoiseReceiverPoint nrp = receiverPoints.get(Id.create(columns[0], ReceiverPoint.class));
+				if (nrp == null) {
+					unknownReceiverPoints++;
+					continue;
+				}
+				if (columns.length > 1) {
+					Id<Link> linkId = Id.createLinkId(columns[1]);
+					nrp.setLinkId2distanceCorrection(linkId, Double.parseDouble(columns[2]));
+					nrp.setLinkId2angleCorrection(linkId, Double.parseDouble(columns[3]));
+					if (noiseParams.isConsiderNoiseBarriers()) {
+						nrp.setLinkId2ShieldingCorrection(linkId, Double.parseDouble(columns[4]));
+					}
+				}
+				nrp.setInitialized();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (unknownReceiverPoints > 0) {
+			log.warn("Ignoring " + unknownReceiverPoints + " lines with unknown receiver points in " + filename);
+		}
+		log.info("Reading relevant links from " + filename + "... Done.");
+	}
+
+	static void write(String filename, Network network, Map<Id<ReceiverPoint>, NoiseReceiverPoint> receiverPoints,
+			NoiseConfigGroup noiseParams) {
+		log.info("Writing relevant links to " + filename + "...");
+		try (BufferedWriter bw = IOUtils.getBufferedWriter(filename)) {
+			bw.write(getParametersLine(noiseParams));
+			bw.newLine();
+			bw.write(getFingerprintsLine(network, receiverPoints));
+			bw.newLine();
+			bw.write(HEADER);
+			bw.newLine();
+
+			for (NoiseReceiverPoint nrp : receiverPoints.values()) {
+				Map<Id<Link>, Double> distanceCorrections = nrp.getLinkId2distanceCorrection();
+				if (distanceCorrections.isEmpty()) {
+					bw.write(nrp.getId().toString());
+					bw.newLine();
+					continue;
+				}
+				for (Map.Entry<Id<Link>, Double> e : distanceCorrections.entrySet()) {
+					double shieldingCorrection = noiseParams.isConsiderNoiseBarriers() ?
+							nrp.getLinkId2ShieldingCorrection().get(e.getKey()) :
+							0.;
+					bw.write(nrp.getId() + SEPARATOR + e.getKey() + SEPARATOR + e.getValue() + SEPARATOR
+							+ nrp.getLinkId2angleCorrection().get(e.getKey()) + SEPARATOR + shieldingCorrection);
+					bw.newLine();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("Writing relevant links to " + filename + "... Done.");
+	}
+
+	private static String getParametersLine(NoiseConfigGroup noiseParams) {
+		return "# relevantRadius=" + noiseParams.getRelevantRadius() + "; considerNoiseBarriers="
+				+ noiseParams.isConsiderNoiseBarriers() + "; noiseBarriersFile=" + noiseParams.getNoiseBarriersFilePath();
+	}
+
+	private static String getFingerprintsLine(Network network, Map<Id<ReceiverPoint>, NoiseReceiverPoint> receiverPoints) {
+		// the hashes are sums over all elements, so that they do not depend on the order of the links or receiver points
+		long networkHash = 0;
+		for (Link link : network.getLinks().values()) {
+			long hash = hash(FNV_OFFSET_BASIS, link.getId().toString());
+			hash = hash(hash, link.getFromNode().getCoord());
+			networkHash += hash(hash, link.getToNode().getCoord());
+		}
+		long receiverPointsHash = 0;
+		for (NoiseReceiverPoint nrp : receiverPoints.values()) {
+			receiverPointsHash += hash(hash(FNV_OFFSET_BASIS, nrp.getId().toString()), nrp.getCoord());
+		}
+		return "# links=" + network.getLinks().size() + "; linksHash=" + Long.toHexString(networkHash) + "; receiverPoints="
+				+ receiverPoints.size() + "; receiverPointsHash=" + Long.toHexString(receiverPointsHash);
+	}
+
+	private static long hash(long hash, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, Coord coord) {
+		hash = hash(hash, Double.doubleToLongBits(coord.getX()));
+		return hash(hash, Double.doubleToLongBits(coord.getY()));
+	}
+
+	private static long hash(long hash, long value) {
+		for (int i = 0; i < 8; i++) {
+			hash ^= (value >>> (8 * i)) & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+}
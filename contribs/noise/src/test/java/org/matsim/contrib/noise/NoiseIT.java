@@ -23,6 +23,7 @@
 package org.matsim.contrib.noise;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -1172,6 +1173,83 @@ public class NoiseIT {
 		}
 	 }
 	
+	// tests that the parallel computation and the cached relevant links do not change the results
+	@Test
+	public final void test2d(){
+
+		// start a simple MATSim run with a single iteration
+		String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config2.xml";
+		Controler controler = new Controler(configFile);
+		controler.getConfig().controler().setOutputDirectory(testUtils.getOutputDirectory());
+		controler.getConfig().controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists );
+		controler.run();
+
+		String runDirectory = controler.getConfig().controler().getOutputDirectory() + "/";
+		String relevantLinksFile = runDirectory + "relevantLinks.csv.gz";
+
+		runOfflineNoiseCalculation(controler, runDirectory + "sequential/", 1, null, 250.);
+		runOfflineNoiseCalculation(controler, runDirectory + "parallel/", 2, relevantLinksFile, 250.);
+		Assert.assertTrue(new File(relevantLinksFile).exists());
+		runOfflineNoiseCalculation(controler, runDirectory + "cached/", 2, relevantLinksFile, 250.);
+
+		// the relevant links of other receiver points must not be reused
+		try {
+			runOfflineNoiseCalculation(controler, runDirectory + "otherGrid/", 2, relevantLinksFile, 200.);
+			Assert.fail("expected the relevant links file to be rejected");
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			while (cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			Assert.assertTrue(cause.getMessage(), cause.getMessage().contains("different network or different receiver points"));
+		}
+
+		for (String directory : new String[] { "immissions/", "damages_receiverPoint/", "consideredAgentUnits/", "average_damages_link/", "marginal_damages_link_car/" }) {
+			File[] files = new File(runDirectory + "sequential/noise-analysis/" + directory).listFiles();
+			Assert.assertTrue(files != null && files.length > 0);
+			for (File file : files) {
+				String expected = readFile(file.getPath());
+				Assert.assertEquals(expected, readFile(runDirectory + "parallel/noise-analysis/" + directory + file.getName()));
+				Assert.assertEquals(expected, readFile(runDirectory + "cached/noise-analysis/" + directory + file.getName()));
+			}
+		}
+	}
+
+	private void runOfflineNoiseCalculation(Controler controler, String analysisOutputDirectory, int numberOfThreads, String relevantLinksFile,
+			double receiverPointGap) {
+		String runDirectory = controler.getConfig().controler().getOutputDirectory() + "/";
+
+		Config config = ConfigUtils.createConfig(new NoiseConfigGroup());
+		config.network().setInputFile(runDirectory + "output_network.xml.gz");
+		config.plans().setInputFile(runDirectory + "output_plans.xml.gz");
+		config.controler().setOutputDirectory(runDirectory);
+		config.controler().setLastIteration(controler.getConfig().controler().getLastIteration());
+
+		NoiseConfigGroup noiseParameters = (NoiseConfigGroup) config.getModules().get(NoiseConfigGroup.GROUP_NAME);
+		noiseParameters.setReceiverPointGap(receiverPointGap);
+		noiseParameters.setConsideredActivitiesForDamageCalculationArray(new String[] {"home", "work"});
+		noiseParameters.setScaleFactor(1.);
+		noiseParameters.setUseActualSpeedLevel(true);
+		noiseParameters.setAllowForSpeedsOutsideTheValidRange(true);
+		noiseParameters.setNumberOfThreads(numberOfThreads);
+		noiseParameters.setRelevantLinksFile(relevantLinksFile);
+
+		new NoiseOfflineCalculation(ScenarioUtils.loadScenario(config), analysisOutputDirectory).run();
+	}
+
+	private static String readFile(String filename) {
+		StringBuilder content = new StringBuilder();
+		try (BufferedReader br = IOUtils.getBufferedReader(filename)) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				content.append(line).append('\n');
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return content.toString();
+	}
+
 	// tests the static methods within class "noiseEquations"
 	@Test
 	public final void test3(){
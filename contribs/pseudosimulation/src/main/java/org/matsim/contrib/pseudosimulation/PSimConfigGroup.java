@@ -1,5 +1,7 @@
 package org.matsim.contrib.pseudosimulation;
 
+import java.util.Map;
+
 import org.matsim.core.config.ReflectiveConfigGroup;
 
 public class PSimConfigGroup extends ReflectiveConfigGroup {
@@ -9,11 +11,22 @@ public class PSimConfigGroup extends ReflectiveConfigGroup {
 	private int iterationsPerCycle = 5;
 	public static final String FULL_TRANSIT_PERFORMANCE_TRANSMISSION = "fullTransitPerformanceTransmission";
 	private boolean fullTransitPerformanceTransmission = true;
+	public static final String EMIT_LINK_EVENTS = "emitLinkEvents";
+	private boolean emitLinkEvents = true;
 
 	public PSimConfigGroup() {
 		super(GROUP_NAME);
 	}
 
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(EMIT_LINK_EVENTS, "If false, PSim computes car travel times from the travel time table without creating link enter and "
+				+ "leave events. This is considerably faster, but handlers that need link events (e.g. road pricing) "
+				+ "will not see the car legs of PSim iterations. Default is true.");
+		return map;
+	}
+
 
 	@StringGetter(ITERATIONS_PER_CYCLE)
 	public int getIterationsPerCycle() {
@@ -35,6 +48,16 @@ public class PSimConfigGroup extends ReflectiveConfigGroup {
 		this.fullTransitPerformanceTransmission = fullTransitPerformanceTransmission;
 	}
 
+	@StringGetter(EMIT_LINK_EVENTS)
+	public boolean isEmitLinkEvents() {
+		return emitLinkEvents;
+	}
+
+	@StringSetter(EMIT_LINK_EVENTS)
+	public void setEmitLinkEvents(boolean emitLinkEvents) {
+		this.emitLinkEvents = emitLinkEvents;
+	}
+
 
 
 }
@@ -3,13 +3,11 @@
  */
 package org.matsim.contrib.pseudosimulation.mobsim;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -35,6 +33,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Route;
+import org.matsim.contrib.pseudosimulation.PSimConfigGroup;
 import org.matsim.contrib.pseudosimulation.mobsim.transitperformance.TransitEmulator;
 import org.matsim.contrib.pseudosimulation.util.CollectionUtils;
 import org.matsim.core.api.experimental.events.EventsManager;
@@ -58,6 +57,9 @@ import org.matsim.vehicles.Vehicle;
  * @author fouriep, sergioo
  *         <p></p>
  *         Extended for transit simulation.
+ *         <p></p>
+ *         Link events can be switched off with {@link PSimConfigGroup#isEmitLinkEvents()}. The events of each thread are
+ *         buffered and handed over to the events manager in batches.
  */
 public class PSim implements Mobsim {
 
@@ -68,12 +70,14 @@ public class PSim implements Mobsim {
 
     private final static double MIN_LEG_DURATION = 0.0;
 
+    private final static int EVENTS_BATCH_SIZE = 10000;
+
     private final SimThread[] threads;
-    AtomicInteger numThreads;
 
     private final TravelTime carLinkTravelTimes;
     private final Collection<Plan> plans;
     private final double endTime;
+    private final boolean emitLinkEvents;
     
     // Encapsulates TransitPerformance, WaitTime, StopStopTime, ...
     private TransitEmulator transitEmulator = null;
@@ -83,6 +87,7 @@ public class PSim implements Mobsim {
         Logger.getLogger(getClass()).warn("Constructing PSim");
         this.scenario = sc;
         this.endTime = sc.getConfig().qsim().getEndTime().seconds();
+        this.emitLinkEvents = ConfigUtils.addOrGetModule(sc.getConfig(), PSimConfigGroup.class).isEmitLinkEvents();
         this.eventManager = eventsManager;
         int numThreads = sc.getConfig().global().getNumberOfThreads() ;
         threads = new SimThread[numThreads];
@@ -106,6 +111,10 @@ public class PSim implements Mobsim {
 
         Network network = scenario.getNetwork();
 
+        if (transitEmulator != null) {
+            transitEmulator.prepareForPSim();
+        }
+
 		/*
          * split collection in approx even segments
 		 */
@@ -114,19 +123,20 @@ public class PSim implements Mobsim {
 		/*
 		 * submit tasks
 		 */
-        numThreads = new AtomicInteger(threads.length);
+        Thread[] runningThreads = new Thread[segments.length];
         for (int i = 0; i < segments.length; i++) {
             threads[i].init(segments[i], network, eventManager);
-            new Thread(threads[i]).start();
+            runningThreads[i] = new Thread(threads[i]);
+            runningThreads[i].start();
         }
 		/*
 		 * wait for threads
 		 */
-        while (numThreads.get() > 0) {
+        for (Thread thread : runningThreads) {
             try {
-                Thread.sleep(100);
+                thread.join();
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw new RuntimeException(e);
             }
         }
     }
@@ -139,6 +149,10 @@ public class PSim implements Mobsim {
 
         private Network network;
 
+        private final List<Event> eventQueue = new ArrayList<>();
+
+        private final List<Event> eventBuffer = new ArrayList<>();
+
         public void init(Collection<Plan> plans, Network network, EventsManager eventManager) {
             this.threadPlans = plans;
             this.network = network;
@@ -149,7 +163,7 @@ public class PSim implements Mobsim {
         public void run() {
             // plans:
             for( Plan plan : threadPlans ){
-                Queue<Event> eventQueue = new LinkedList<>();
+                eventQueue.clear();
                 Id<Person> personId = plan.getPerson().getId();
                 Id<Vehicle> personVehicleId = Id.createVehicleId( personId.toString() ); // TODO: find cleaner access to vehicle id
                 List<PlanElement> elements = plan.getPlanElements();
@@ -246,43 +260,62 @@ public class PSim implements Mobsim {
                 }
                 for( Event event : eventQueue ){
                     if( event.getTime() > endTime ){
-                        eventManager.processEvent( new PersonStuckEvent( endTime, personId, null, null ) );
+                        eventBuffer.add( new PersonStuckEvent( endTime, personId, null, null ) );
                         break;
                     }
-                    eventManager.processEvent( event );
+                    eventBuffer.add( event );
+                }
+                if( eventBuffer.size() >= EVENTS_BATCH_SIZE ){
+                    flushEvents();
                 }
             }
+            flushEvents();
+        }
 
-            numThreads.decrementAndGet();
+        /**
+         * Hands the buffered events over to the events manager. The events of one person are never split between two
+         * batches, and the events manager is locked for the whole batch instead of for each event.
+         */
+        private void flushEvents() {
+            synchronized (eventManager) {
+                for (Event event : eventBuffer) {
+                    eventManager.processEvent(event);
+                }
+            }
+            eventBuffer.clear();
         }
 
-        private double calcRouteTravelTime(NetworkRoute route, double startTime, TravelTime travelTime, Network network, Queue<Event> eventQueue, Id<Vehicle> personVehicleId) {
+        private double calcRouteTravelTime(NetworkRoute route, double startTime, TravelTime travelTime, Network network, List<Event> eventQueue, Id<Vehicle> personVehicleId) {
 
             double tt = 0;
             if (route.getStartLinkId() != route.getEndLinkId()) {
                 Id<Link> startLink = route.getStartLinkId();
                 double linkEnterTime = startTime;
-                LinkEnterEvent linkEnterEvent = null;
-                LinkLeaveEvent linkLeaveEvent = new LinkLeaveEvent(++linkEnterTime, personVehicleId, startLink);
-                eventQueue.add(linkLeaveEvent);
+                ++linkEnterTime;
+                if (emitLinkEvents) {
+                    eventQueue.add(new LinkLeaveEvent(linkEnterTime, personVehicleId, startLink));
+                }
                 double linkLeaveTime = linkEnterTime;
                 List<Id<Link>> routeLinkIds = route.getLinkIds();
                 for (Id<Link> routeLinkId : routeLinkIds) {
                     linkEnterTime = linkLeaveTime;
-                    linkEnterEvent = new LinkEnterEvent(linkEnterTime, personVehicleId, routeLinkId);
-                    eventQueue.add(linkEnterEvent);
+                    if (emitLinkEvents) {
+                        eventQueue.add(new LinkEnterEvent(linkEnterTime, personVehicleId, routeLinkId));
+                    }
 
                     double linkTime = travelTime.getLinkTravelTime(network.getLinks().get(routeLinkId), linkEnterTime, null, null);
                     tt += Math.max(linkTime, 1.0);
 
                     linkLeaveTime = Math.max(linkEnterTime + 1, linkEnterTime + linkTime);
-                    linkLeaveEvent = new LinkLeaveEvent(linkLeaveTime, personVehicleId, routeLinkId);
-                    eventQueue.add(linkLeaveEvent);
+                    if (emitLinkEvents) {
+                        eventQueue.add(new LinkLeaveEvent(linkLeaveTime, personVehicleId, routeLinkId));
+                    }
                 }
                 tt = linkLeaveTime - startTime;
             }
-            LinkEnterEvent linkEnterEvent = new LinkEnterEvent(startTime + tt, personVehicleId, route.getEndLinkId());
-            eventQueue.add(linkEnterEvent);
+            if (emitLinkEvents) {
+                eventQueue.add(new LinkEnterEvent(startTime + tt, personVehicleId, route.getEndLinkId()));
+            }
             return tt + travelTime.getLinkTravelTime(network.getLinks().get(route.getEndLinkId()), tt + startTime, null, null);
         }
     }
@@ -59,4 +59,11 @@ public interface TransitEmulator {
 
 	public Trip findTrip(Leg leg, double earliestDepartureTime_s);
 
+	/**
+	 * Called before each pseudo-simulation run, i.e. before the first call to
+	 * {@link #findTrip(Leg, double)} of that run. Does nothing by default.
+	 */
+	public default void prepareForPSim() {
+	}
+
 }
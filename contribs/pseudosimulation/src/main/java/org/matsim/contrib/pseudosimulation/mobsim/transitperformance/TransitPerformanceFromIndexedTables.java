@@ -0,0 +1,195 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.pseudosimulation.mobsim.transitperformance;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.contrib.eventsBasedPTRouter.stopStopTimes.StopStopTime;
+import org.matsim.contrib.eventsBasedPTRouter.waitTimes.WaitTime;
+import org.matsim.core.config.Config;
+import org.matsim.pt.routes.TransitPassengerRoute;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+import com.google.inject.Inject;
+
+/**
+ * Emulates transit with the same wait times and stop-to-stop travel times as
+ * {@link TransitPerformanceFromEventBasedRouterInterfaces}, but reads them from arrays that are indexed by the position
+ * of the stop in the transit route and by the time slot.
+ * <p>
+ * The arrays are filled from the {@link WaitTime} and {@link StopStopTime} before each pseudo-simulation run. Both must
+ * be constant within their {@linkplain WaitTime#getTimeSlot() time slots}, so each entry is sampled at the start of its
+ * time slot. Times after the end of the simulation use the last time slot. Wait and stop-to-stop times that may change
+ * at any time (e.g. from the deterministic calculators) cannot be indexed and are rejected.
+ */
+public class TransitPerformanceFromIndexedTables implements TransitEmulator {
+
+	private final WaitTime waitTimes;
+	private final StopStopTime stopStopTimes;
+	private final TransitSchedule transitSchedule;
+	private final double waitTimeSlot;
+	private final int numberOfWaitTimeSlots;
+	private final double stopStopTimeSlot;
+	private final int numberOfStopStopTimeSlots;
+
+	// [line index][route of the line]
+	private RouteTable[][] routeTables = new RouteTable[0][];
+
+	@Inject
+	public TransitPerformanceFromIndexedTables(WaitTime waitTimes, StopStopTime stopStopTimes,
+			TransitSchedule transitSchedule, Config config) {
+		this.waitTimes = waitTimes;
+		this.stopStopTimes = stopStopTimes;
+		this.transitSchedule = transitSchedule;
+		this.waitTimeSlot = checkTimeSlot(waitTimes.getTimeSlot(), WaitTime.class);
+		this.stopStopTimeSlot = checkTimeSlot(stopStopTimes.getTimeSlot(), StopStopTime.class);
+		double totalTime = config.qsim().getEndTime().seconds() - config.qsim().getStartTime().seconds();
+		this.numberOfWaitTimeSlots = (int) (totalTime / waitTimeSlot) + 1;
+		this.numberOfStopStopTimeSlots = (int) (totalTime / stopStopTimeSlot) + 1;
+	}
+
+	private static double checkTimeSlot(double timeSlot, Class<?> type) {
+		if (!(timeSlot > 0)) {
+			throw new IllegalArgumentException("The " + type.getSimpleName() + " does not have fixed time slots"
+					+ " (time slot = " + timeSlot + "), use "
+					+ TransitPerformanceFromEventBasedRouterInterfaces.class.getSimpleName() + " instead");
+		}
+		return timeSlot;
+	}
+
+	@Override
+	public void prepareForPSim() {
+		RouteTable[][] tables = new RouteTable[Id.getNumberOfIds(TransitLine.class)][];
+		transitSchedule.getTransitLines().values().parallelStream().forEach(line -> tables[line.getId().index()] = line
+				.getRoutes().values().stream().map(route -> new RouteTable(line, route)).toArray(RouteTable[]::new));
+		this.routeTables = tables;
+	}
+
+	@Override
+	public Trip findTrip(Leg prevLeg, double earliestDepartureTime_s) {
+		TransitPassengerRoute route = (TransitPassengerRoute) prevLeg.getRoute();
+		RouteTable table = getRouteTable(route.getLineId(), route.getRouteId());
+
+		int accessStopIndex = route.getAccessStopId().index();
+		int accessPosition = table.getFirstPosition(accessStopIndex);
+		if (accessPosition < 0) {
+			throw new RuntimeException("Transit route " + route.getRouteId() + " of line " + route.getLineId()
+					+ " does not serve the access stop " + route.getAccessStopId());
+		}
+
+		final double accessTime_s = earliestDepartureTime_s
+				+ table.waitTimes[accessPosition * numberOfWaitTimeSlots + getWaitTimeSlot(earliestDepartureTime_s)];
+		final double egressTime_s = accessTime_s
+				+ table.getTravelTime(accessPosition, accessStopIndex, route.getEgressStopId().index(), accessTime_s);
+		return new Trip(null, accessTime_s, egressTime_s);
+	}
+
+	private RouteTable getRouteTable(Id<TransitLine> lineId, Id<TransitRoute> routeId) {
+		RouteTable[] lineTables = lineId.index() < routeTables.length ? routeTables[lineId.index()] : null;
+		if (lineTables != null) {
+			for (RouteTable table : lineTables) {
+				if (table.routeId.equals(routeId)) {
+					return table;
+				}
+			}
+		}
+		throw new RuntimeException("No transit performance for route " + routeId + " of line " + lineId
+				+ ". Has prepareForPSim() been called after the transit schedule has been loaded?");
+	}
+
+	private int getWaitTimeSlot(double time) {
+		return Math.min((int) (time / waitTimeSlot), numberOfWaitTimeSlots - 1);
+	}
+
+	private int getStopStopTimeSlot(double time) {
+		return Math.min((int) (time / stopStopTimeSlot), numberOfStopStopTimeSlots - 1);
+	}
+
+	private final class RouteTable {
+		private final Id<TransitRoute> routeId;
+		// stop facility index for each stop of the route
+		private final int[] stopIndices;
+		// [position * numberOfWaitTimeSlots + time slot]
+		private final double[] waitTimes;
+		// [position * numberOfStopStopTimeSlots + time slot], from the stop at the position to the next stop
+		private final double[] stopStopTimes;
+
+		private RouteTable(TransitLine line, TransitRoute route) {
+			this.routeId = route.getId();
+			List<TransitRouteStop> stops = route.getStops();
+			this.stopIndices = new int[stops.size()];
+			this.waitTimes = new double[stops.size() * numberOfWaitTimeSlots];
+			this.stopStopTimes = new double[Math.max(0, stops.size() - 1) * numberOfStopStopTimeSlots];
+
+			for (int position = 0; position < stops.size(); position++) {
+				TransitRouteStop stop = stops.get(position);
+				stopIndices[position] = stop.getStopFacility().getId().index();
+				for (int slot = 0; slot < numberOfWaitTimeSlots; slot++) {
+					waitTimes[position * numberOfWaitTimeSlots + slot] = TransitPerformanceFromIndexedTables.this.waitTimes
+							.getRouteStopWaitTime(line.getId(), routeId, stop.getStopFacility().getId(),
+									slot * waitTimeSlot);
+				}
+				if (position < stops.size() - 1) {
+					for (int slot = 0; slot < numberOfStopStopTimeSlots; slot++) {
+						stopStopTimes[position * numberOfStopStopTimeSlots + slot] = TransitPerformanceFromIndexedTables.this.stopStopTimes
+								.getStopStopTime(stop.getStopFacility().getId(),
+										stops.get(position + 1).getStopFacility().getId(), slot * stopStopTimeSlot);
+					}
+				}
+			}
+		}
+
+		private int getFirstPosition(int stopIndex) {
+			for (int position = 0; position < stopIndices.length; position++) {
+				if (stopIndices[position] == stopIndex) {
+					return position;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Same as TransitPerformanceFromEventBasedRouterInterfaces.findTransitTravelTime(), including the restart at
+		 * repeated access stops of routes that loop on themselves.
+		 */
+		private double getTravelTime(int accessPosition, int accessStopIndex, int egressStopIndex, double accessTime) {
+			double travelTime = 0;
+			double prevStopTime = accessTime;
+			for (int position = accessPosition; position < stopIndices.length - 1; position++) {
+				travelTime += stopStopTimes[position * numberOfStopStopTimeSlots + getStopStopTimeSlot(prevStopTime)];
+				prevStopTime += travelTime;
+				int toStopIndex = stopIndices[position + 1];
+				if (toStopIndex == egressStopIndex) {
+					return travelTime;
+				}
+				if (toStopIndex == accessStopIndex) {
+					travelTime = 0;
+					prevStopTime = accessTime;
+				}
+			}
+			return Double.NEGATIVE_INFINITY;
+		}
+	}
+}
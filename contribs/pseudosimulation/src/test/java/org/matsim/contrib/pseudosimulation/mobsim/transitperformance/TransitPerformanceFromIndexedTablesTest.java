@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.pseudosimulation.mobsim.transitperformance;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.contrib.eventsBasedPTRouter.stopStopTimes.StopStopTime;
+import org.matsim.contrib.eventsBasedPTRouter.waitTimes.WaitTime;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.pt.routes.DefaultTransitPassengerRoute;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class TransitPerformanceFromIndexedTablesTest {
+
+	@Test
+	public void testSameTripsAsEventBasedRouterInterfaces() {
+		Config config = ConfigUtils.loadConfig(
+				IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		// the time slots are taken from the wait and stop-to-stop times, not from the travel time calculator
+		double waitTimeSlot = config.travelTimeCalculator().getTraveltimeBinSize();
+		double stopStopTimeSlot = 300;
+
+		WaitTime waitTime = new WaitTime() {
+			@Override
+			public double getRouteStopWaitTime(Id<TransitLine> lineId, Id<TransitRoute> routeId,
+					Id<TransitStopFacility> stopId, double time) {
+				return 60 + stopId.index() % 7 * 10 + (int) (time / waitTimeSlot);
+			}
+
+			@Override
+			public double getTimeSlot() {
+				return waitTimeSlot;
+			}
+		};
+		StopStopTime stopStopTime = new StopStopTime() {
+			@Override
+			public double getStopStopTime(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time) {
+				return 120 + (stopOId.index() + 3 * stopDId.index()) % 11 * 15 + (int) (time / stopStopTimeSlot) % 5 * 20;
+			}
+
+			@Override
+			public double getStopStopTimeVariance(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId,
+					double time) {
+				return 0;
+			}
+
+			@Override
+			public double getTimeSlot() {
+				return stopStopTimeSlot;
+			}
+		};
+
+		TransitEmulator expected = new TransitPerformanceFromEventBasedRouterInterfaces(waitTime, stopStopTime,
+				scenario.getTransitSchedule());
+		TransitEmulator actual = new TransitPerformanceFromIndexedTables(waitTime, stopStopTime,
+				scenario.getTransitSchedule(), config);
+		actual.prepareForPSim();
+
+		int trips = 0;
+		for (TransitLine line : scenario.getTransitSchedule().getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				List<TransitRouteStop> stops = route.getStops();
+				for (int access = 0; access < stops.size() - 1; access++) {
+					for (int egress = access + 1; egress < stops.size(); egress++) {
+						Leg leg = PopulationUtils.createLeg("pt");
+						leg.setRoute(new DefaultTransitPassengerRoute(stops.get(access).getStopFacility(), line, route,
+								stops.get(egress).getStopFacility()));
+						for (double departureTime = 5 * 3600; departureTime < 10 * 3600; departureTime += 1234) {
+							TransitEmulator.Trip expectedTrip = expected.findTrip(leg, departureTime);
+							TransitEmulator.Trip actualTrip = actual.findTrip(leg, departureTime);
+							Assert.assertEquals(expectedTrip.accessTime_s(), actualTrip.accessTime_s(),
+									MatsimTestUtils.EPSILON);
+							Assert.assertEquals(expectedTrip.egressTime_s(), actualTrip.egressTime_s(),
+									MatsimTestUtils.EPSILON);
+							trips++;
+						}
+					}
+				}
+			}
+		}
+		Assert.assertTrue(trips > 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTimesWithoutTimeSlotsAreRejected() {
+		Config config = ConfigUtils.createConfig();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		WaitTime waitTime = new WaitTime() {
+			@Override
+			public double getRouteStopWaitTime(Id<TransitLine> lineId, Id<TransitRoute> routeId,
+					Id<TransitStopFacility> stopId, double time) {
+				return 60;
+			}
+
+			@Override
+			public double getTimeSlot() {
+				return 900;
+			}
+		};
+		// like the deterministic stop-to-stop times, which are routed at the exact time
+		StopStopTime stopStopTime = new StopStopTime() {
+			@Override
+			public double getStopStopTime(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId, double time) {
+				return 120 + time / 3600;
+			}
+
+			@Override
+			public double getStopStopTimeVariance(Id<TransitStopFacility> stopOId, Id<TransitStopFacility> stopDId,
+					double time) {
+				return 0;
+			}
+		};
+		new TransitPerformanceFromIndexedTables(waitTime, stopStopTime, scenario.getTransitSchedule(), config);
+	}
+}
@@ -36,6 +36,7 @@ import com.google.inject.Inject;
 import org.matsim.contrib.signals.model.Signal;
 import org.matsim.contrib.signals.model.SignalSystem;
 import org.matsim.contrib.signals.model.SignalSystemsManager;
+import org.matsim.contrib.signals.sensor.LinkSensorManager;
 
 
 /**
@@ -48,6 +49,8 @@ class QSimSignalEngine implements SignalEngine {
 
 	private SignalSystemsManager signalManager;
 
+	@Inject(optional = true) LinkSensorManager sensorManager = null;
+
 	@Inject
 	public QSimSignalEngine(SignalSystemsManager signalManager) {
 		this.signalManager = signalManager;
@@ -66,6 +69,10 @@ class QSimSignalEngine implements SignalEngine {
 	
 	private void initializeSignalizedItems(Netsim qSim) {
 		NetsimNetwork net = qSim.getNetsimNetwork();
+		if (this.sensorManager != null) {
+			// before the controllers register their sensors when the systems are initialized
+			this.sensorManager.setNetsimNetwork(net);
+		}
 		for (SignalSystem system : this.signalManager.getSignalSystems().values()){
 			for (Signal signal : system.getSignals().values()){
 				signal.getSignalizeableItems().clear();
@@ -23,6 +23,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.LaneEnterEvent;
 import org.matsim.core.api.experimental.events.LaneLeaveEvent;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QLaneI;
 import org.matsim.lanes.Lane;
 import org.matsim.vehicles.Vehicle;
 
@@ -41,6 +42,8 @@ final class LaneSensor {
 	private Link link;
 	private Lane lane;
 	private int agentsOnLane = 0;
+	/* if set, the number of vehicles on the lane is read from the queue state instead of counting events */
+	private QLaneI qLane = null;
 
 	private boolean doDistanceMonitoring = false;
 	private boolean doAverageVehiclesPerSecondMonitoring = false;
@@ -73,6 +76,21 @@ final class LaneSensor {
 		this.distanceMeterCarLocatorMap.put(distanceMeter, new HashMap<>());
 	}
 
+	/**
+	 * Lets the sensor read the number of vehicles on the lane directly from the mobsim lane, i.e. it does not need
+	 * any events unless distances or arrival rates are monitored.
+	 */
+	void setQLane(QLaneI qLane) {
+		this.qLane = qLane;
+	}
+
+	/**
+	 * @return true if the sensor needs to be notified about events on its lane
+	 */
+	boolean needsEvents() {
+		return this.qLane == null || this.doDistanceMonitoring || this.doAverageVehiclesPerSecondMonitoring;
+	}
+
 	public void handleEvent(LaneEnterEvent event) {
 		this.agentsOnLane++;
 		if(this.doAverageVehiclesPerSecondMonitoring) {
@@ -104,6 +122,9 @@ final class LaneSensor {
 	}
 
 	public int getNumberOfCarsOnLane() {
+		if (this.qLane != null) {
+			return this.qLane.getNumberOfVehicles();
+		}
 		return this.agentsOnLane;
 	}
 
@@ -32,6 +32,7 @@ import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.vehicles.Vehicle;
 
 
@@ -45,6 +46,8 @@ final class LinkSensor {
 	
 	private Link link = null;
 	public int vehiclesOnLink = 0;
+	/* if set, the number of vehicles on the link is read from the queue state instead of counting events */
+	private NetsimLink qLink = null;
 	private double totalVehicles = 0;
 	
 	private boolean doDistanceMonitoring = false;
@@ -107,6 +110,21 @@ final class LinkSensor {
 		}
 	}
 
+	/**
+	 * Lets the sensor read the number of vehicles on the link directly from the mobsim link, i.e. it does not need
+	 * any events unless distances or arrival rates are monitored.
+	 */
+	void setQLink(NetsimLink qLink) {
+		this.qLink = qLink;
+	}
+
+	/**
+	 * @return true if the sensor needs to be notified about events on its link
+	 */
+	boolean needsEvents() {
+		return this.qLink == null || this.doDistanceMonitoring || this.doAverageVehiclesPerSecondMonitoring;
+	}
+
 	private void enableDistanceMonitoring() {
 		this.doDistanceMonitoring = true;
 		this.distanceMeterCarLocatorMap = new HashMap<Double, Map<Id<Vehicle>, CarLocator>>();
@@ -114,6 +132,9 @@ final class LinkSensor {
 
 
 	public int getNumberOfCarsOnLink() {
+		if (this.qLink != null) {
+			return this.qLink.getNumberOfNonParkedVehicles();
+		}
 		return this.vehiclesOnLink;
 	}
 
@@ -43,6 +43,10 @@ import org.matsim.core.api.experimental.events.LaneEnterEvent;
 import org.matsim.core.api.experimental.events.LaneLeaveEvent;
 import org.matsim.core.api.experimental.events.handler.LaneEnterEventHandler;
 import org.matsim.core.api.experimental.events.handler.LaneLeaveEventHandler;
+import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
+import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QLaneI;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QLinkLanesImpl;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.lanes.Lane;
 import org.matsim.lanes.Lanes;
@@ -52,6 +56,10 @@ import com.google.inject.Singleton;
 
 
 /**
+ * Once the mobsim network is known (see {@link #setNetsimNetwork(NetsimNetwork)}), the number of vehicles on links
+ * and lanes is read directly from the queues of the mobsim. Events are then only handled for sensors that monitor
+ * distances or arrival rates.
+ * 
  * @author dgrether
  *
  */
@@ -72,6 +80,7 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 
 	private Network network;
 	private Lanes laneDefinitions = null;
+	private NetsimNetwork netsimNetwork = null;
 	
 	private Map<Id<Person>, Id<Link>> personDepartureLinks = new HashMap<>();
 	
@@ -83,6 +92,47 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 		}
 		events.addHandler(this);
 	}
+
+	/**
+	 * Lets all sensors (also the ones that are registered later) read the number of vehicles on their link or lane
+	 * from the given mobsim network instead of counting events. Needs to be called again for each mobsim.
+	 */
+	public void setNetsimNetwork(NetsimNetwork netsimNetwork) {
+		this.netsimNetwork = netsimNetwork;
+		for (Map.Entry<Id<Link>, LinkSensor> e : this.linkIdSensorMap.entrySet()) {
+			e.getValue().setQLink(netsimNetwork.getNetsimLink(e.getKey()));
+		}
+		for (Map.Entry<Id<Link>, Map<Id<Lane>, LaneSensor>> e : this.linkIdLaneIdSensorMap.entrySet()) {
+			for (Map.Entry<Id<Lane>, LaneSensor> laneEntry : e.getValue().entrySet()) {
+				laneEntry.getValue().setQLane(getQLane(e.getKey(), laneEntry.getKey()));
+			}
+		}
+	}
+
+	private LinkSensor createLinkSensor(Link link) {
+		LinkSensor sensor = new LinkSensor(link);
+		if (this.netsimNetwork != null) {
+			sensor.setQLink(this.netsimNetwork.getNetsimLink(link.getId()));
+		}
+		return sensor;
+	}
+
+	private LaneSensor createLaneSensor(Link link, Lane lane) {
+		LaneSensor sensor = new LaneSensor(link, lane);
+		if (this.netsimNetwork != null) {
+			sensor.setQLane(getQLane(link.getId(), lane.getId()));
+		}
+		return sensor;
+	}
+
+	private QLaneI getQLane(Id<Link> linkId, Id<Lane> laneId) {
+		NetsimLink qLink = this.netsimNetwork.getNetsimLink(linkId);
+		if (qLink instanceof QLinkLanesImpl) {
+			return ((QLinkLanesImpl) qLink).getQueueLanes().get(laneId);
+		}
+		// lane is not simulated separately (e.g. lanes are switched off in the mobsim), keep counting events
+		return null;
+	}
 	
 	public void registerNumberOfCarsMonitoring(Id<Link> linkId){
 //		this.monitoredLinkIds.add(link.getId());
@@ -91,7 +141,7 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 			if (link == null){
 				throw new IllegalStateException("Link with Id " + linkId + " is not in the network, can't register sensor");
 			}
-			this.linkIdSensorMap.put(linkId, new LinkSensor(link));
+			this.linkIdSensorMap.put(linkId, createLinkSensor(link));
 		}
 	}
 	
@@ -106,7 +156,7 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 			if (link == null){
 				throw new IllegalStateException("Link with Id " + linkId + " is not in the network, can't register sensor");
 			}
-			this.linkIdSensorMap.put(link.getId(), new LinkSensor(link));
+			this.linkIdSensorMap.put(link.getId(), createLinkSensor(link));
 //			this.monitoredLinkIds.add(link.getId());
 		}
 		this.linkIdSensorMap.get(linkId).registerDistanceToMonitor(distanceMeter);
@@ -126,7 +176,7 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 		}
 		if (! this.linkIdLaneIdSensorMap.get(linkId).containsKey(laneId)){
 			Lane lane = this.laneDefinitions.getLanesToLinkAssignments().get(linkId).getLanes().get(laneId);
-			this.linkIdLaneIdSensorMap.get(linkId).put(laneId, new LaneSensor(link, lane));
+			this.linkIdLaneIdSensorMap.get(linkId).put(laneId, createLaneSensor(link, lane));
 		}
 		this.linkIdLaneIdSensorMap.get(linkId).get(laneId).registerDistanceToMonitor(distanceMeter);
 	}
@@ -145,7 +195,7 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 		}
 		if (! this.linkIdLaneIdSensorMap.get(linkId).containsKey(laneId)){
 			Lane lane = this.laneDefinitions.getLanesToLinkAssignments().get(linkId).getLanes().get(laneId);
-			this.linkIdLaneIdSensorMap.get(linkId).put(laneId, new LaneSensor(link, lane));
+			this.linkIdLaneIdSensorMap.get(linkId).put(laneId, createLaneSensor(link, lane));
 		}
 	}
 
@@ -170,7 +220,7 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 		//check if the entry in sensor-map for this link has already a value for this lane
 		if (! this.linkIdLaneIdSensorMap.get(linkId).containsKey(laneId)){
 			Lane lane = this.laneDefinitions.getLanesToLinkAssignments().get(linkId).getLanes().get(laneId);
-			this.linkIdLaneIdSensorMap.get(linkId).put(laneId, new LaneSensor(link, lane));
+			this.linkIdLaneIdSensorMap.get(linkId).put(laneId, createLaneSensor(link, lane));
 		}
 		//register AvgVehPerSecond monitor for this lane
 		linkIdLaneIdSensorMap.get(linkId).get(laneId).registerAverageVehiclesPerSecondToMonitor(lookBackTime, timeBucketCollectionDuration);
@@ -187,7 +237,7 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 			if (link == null){
 				throw new IllegalStateException("Link with Id " + linkId + " is not in the network, can't register sensor");
 			}
-			this.linkIdSensorMap.put(link.getId(), new LinkSensor(link));
+			this.linkIdSensorMap.put(link.getId(), createLinkSensor(link));
 		}
 		this.linkIdSensorMap.get(linkId).registerAverageVehiclesPerSecondToMonitor(lookBackTime, timeBucketCollectionDuration);
 	}
@@ -266,35 +316,53 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 	
 	@Override
 	public void handleEvent(LinkEnterEvent event) {
-		if (this.linkIdSensorMap.containsKey(event.getLinkId())){
-			this.linkIdSensorMap.get(event.getLinkId()).handleEvent(event);
+		LinkSensor sensor = getLinkSensorNeedingEvents(event.getLinkId());
+		if (sensor != null){
+			sensor.handleEvent(event);
 		}
 	}
 
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
-		if (this.linkIdSensorMap.containsKey(event.getLinkId())){
-			this.linkIdSensorMap.get(event.getLinkId()).handleEvent(event);
+		LinkSensor sensor = getLinkSensorNeedingEvents(event.getLinkId());
+		if (sensor != null){
+			sensor.handleEvent(event);
 		}
 	}
 	
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
-		if (this.linkIdSensorMap.containsKey(event.getLinkId())){
-			this.linkIdSensorMap.get(event.getLinkId()).handleEvent(event);
+		LinkSensor sensor = getLinkSensorNeedingEvents(event.getLinkId());
+		if (sensor != null){
+			sensor.handleEvent(event);
 		}
 	}
 	
 	@Override
 	public void handleEvent(PersonDepartureEvent event) {
-		personDepartureLinks.put(event.getPersonId(), event.getLinkId());
+		// only departures on monitored links are of interest
+		if (getLinkSensorNeedingEvents(event.getLinkId()) != null){
+			personDepartureLinks.put(event.getPersonId(), event.getLinkId());
+		}
 	}
 
 	@Override
 	public void handleEvent(PersonEntersVehicleEvent event) {
-		if (this.linkIdSensorMap.containsKey(personDepartureLinks.get(event.getPersonId()))){
-			this.linkIdSensorMap.get(personDepartureLinks.get(event.getPersonId())).handleEvent(event);		
+		Id<Link> departureLinkId = personDepartureLinks.remove(event.getPersonId());
+		if (departureLinkId != null){
+			LinkSensor sensor = getLinkSensorNeedingEvents(departureLinkId);
+			if (sensor != null){
+				sensor.handleEvent(event);
+			}
+		}
+	}
+
+	private LinkSensor getLinkSensorNeedingEvents(Id<Link> linkId) {
+		LinkSensor sensor = this.linkIdSensorMap.get(linkId);
+		if (sensor != null && sensor.needsEvents()){
+			return sensor;
 		}
+		return null;
 	}
 	
 	@Override
@@ -302,25 +370,35 @@ public final class LinkSensorManager implements LinkEnterEventHandler, LinkLeave
 		this.linkIdSensorMap.clear();
 		this.linkIdLaneIdSensorMap.clear();
 		this.linkFirstSecondDistanceMeterMap.clear();
+		this.personDepartureLinks.clear();
+		this.netsimNetwork = null;
 	}
 
 	@Override
 	public void handleEvent(LaneLeaveEvent event) {
-		if (this.linkIdLaneIdSensorMap.containsKey(event.getLinkId())){
-			Map<Id<Lane>, LaneSensor> map = this.linkIdLaneIdSensorMap.get(event.getLinkId());
-			if (map.containsKey(event.getLaneId())){
-				map.get(event.getLaneId()).handleEvent(event);
-			}
+		LaneSensor sensor = getLaneSensorNeedingEvents(event.getLinkId(), event.getLaneId());
+		if (sensor != null){
+			sensor.handleEvent(event);
 		}
 	}
 
 	@Override
 	public void handleEvent(LaneEnterEvent event) {
-		if (this.linkIdLaneIdSensorMap.containsKey(event.getLinkId())){
-			Map<Id<Lane>, LaneSensor> map = this.linkIdLaneIdSensorMap.get(event.getLinkId());
-			if (map.containsKey(event.getLaneId())){
-				map.get(event.getLaneId()).handleEvent(event);
-			}
+		LaneSensor sensor = getLaneSensorNeedingEvents(event.getLinkId(), event.getLaneId());
+		if (sensor != null){
+			sensor.handleEvent(event);
+		}
+	}
+
+	private LaneSensor getLaneSensorNeedingEvents(Id<Link> linkId, Id<Lane> laneId) {
+		Map<Id<Lane>, LaneSensor> map = this.linkIdLaneIdSensorMap.get(linkId);
+		if (map == null){
+			return null;
+		}
+		LaneSensor sensor = map.get(laneId);
+		if (sensor != null && sensor.needsEvents()){
+			return sensor;
 		}
+		return null;
 	}
 }
@@ -3,6 +3,9 @@ package org.matsim.contrib.signals.sensor;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
@@ -18,7 +21,22 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.vehicles.Vehicle;
 
@@ -274,4 +292,81 @@ public class LinkSensorTest {
 		
 	}
 	
+	/**
+	 * Runs a QSim with a bottleneck on the second link and checks that the number of vehicles read from the queues
+	 * is the same as the number of vehicles counted by events.
+	 */
+	@Test
+	public void testNumberOfCarsFromQueuesEqualsNumberOfCarsFromEvents() {
+		Scenario sc = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network net = sc.getNetwork();
+		NetworkFactory nf = net.getFactory();
+		for (int i = 1; i <= 4; i++) {
+			net.addNode(nf.createNode(Id.create(i, Node.class), new Coord(500. * i, 0.)));
+		}
+		for (int i = 1; i <= 3; i++) {
+			Link l = nf.createLink(Id.create(i, Link.class), net.getNodes().get(Id.create(i, Node.class)),
+					net.getNodes().get(Id.create(i + 1, Node.class)));
+			l.setLength(500.0);
+			l.setCapacity(i == 2 ? 360 : 3600);
+			l.setFreespeed(10.0);
+			net.addLink(l);
+		}
+		Id<Link> linkId1 = Id.create(1, Link.class);
+		Id<Link> linkId2 = Id.create(2, Link.class);
+		Id<Link> linkId3 = Id.create(3, Link.class);
+
+		Population population = sc.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 30; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("h", linkId1);
+			home.setEndTime(i * 5.);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(linkId1, Arrays.asList(linkId2), linkId3));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("w", linkId3));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		LinkSensorManager eventBasedSensors = new LinkSensorManager(sc, events);
+		LinkSensorManager queueBasedSensors = new LinkSensorManager(sc, events);
+		List<Id<Link>> linkIds = Arrays.asList(linkId1, linkId2, linkId3);
+		for (Id<Link> linkId : linkIds) {
+			eventBasedSensors.registerNumberOfCarsMonitoring(linkId);
+		}
+
+		PrepareForSimUtils.createDefaultPrepareForSim(sc).run();
+		QSim qsim = new QSimBuilder(sc.getConfig()).useDefaults().build(sc, events);
+		int[] maxNumberOfCars = new int[1];
+		class SensorComparison implements MobsimInitializedListener, MobsimBeforeSimStepListener {
+			@Override
+			public void notifyMobsimInitialized(MobsimInitializedEvent e) {
+				queueBasedSensors.setNetsimNetwork(qsim.getNetsimNetwork());
+				for (Id<Link> linkId : linkIds) {
+					queueBasedSensors.registerNumberOfCarsMonitoring(linkId);
+				}
+			}
+
+			@Override
+			public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+				for (Id<Link> linkId : linkIds) {
+					int numberOfCars = eventBasedSensors.getNumberOfCarsOnLink(linkId);
+					Assert.assertEquals("link " + linkId + " at " + e.getSimulationTime(), numberOfCars,
+							queueBasedSensors.getNumberOfCarsOnLink(linkId));
+					maxNumberOfCars[0] = Math.max(maxNumberOfCars[0], numberOfCars);
+				}
+			}
+		}
+		qsim.addQueueSimulationListeners(new SensorComparison());
+		qsim.run();
+
+		// vehicles have queued up in front of the bottleneck
+		Assert.assertTrue(maxNumberOfCars[0] > 5);
+	}
+
 }
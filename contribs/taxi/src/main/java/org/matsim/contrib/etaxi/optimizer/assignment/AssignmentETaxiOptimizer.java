@@ -52,10 +52,8 @@ import org.matsim.contrib.util.PartialSort;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
-import org.matsim.core.router.FastAStarEuclideanFactory;
 import org.matsim.core.router.FastMultiNodeDijkstraFactory;
 import org.matsim.core.router.MultiNodePathCalculator;
-import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
@@ -84,11 +82,9 @@ public class AssignmentETaxiOptimizer extends AssignmentTaxiOptimizer {
 				true).createPathCalculator(network, travelDisutility, travelTime);
 		BackwardMultiNodePathCalculator backwardMultiNodeRouter = (BackwardMultiNodePathCalculator)new BackwardFastMultiNodeDijkstraFactory(
 				true).createPathCalculator(network, travelDisutility, travelTime);
-		LeastCostPathCalculator router = new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility,
-				travelTime);
-		return new AssignmentETaxiOptimizer(eventsManager, taxiCfg, fleet, timer, travelTime, eScheduler,
-				scheduleTimingUpdater,
-				chargingInfrastructure, multiNodeRouter, backwardMultiNodeRouter, router);
+		return new AssignmentETaxiOptimizer(eventsManager, taxiCfg, fleet, network, timer, travelTime,
+				travelDisutility, eScheduler, scheduleTimingUpdater, chargingInfrastructure, multiNodeRouter,
+				backwardMultiNodeRouter);
 	}
 
 	private final AssignmentETaxiOptimizerParams params;
@@ -101,14 +97,19 @@ public class AssignmentETaxiOptimizer extends AssignmentTaxiOptimizer {
 
 	private final Map<Id<DvrpVehicle>, DvrpVehicle> scheduledForCharging;
 
+	/**
+	 * The request inserter creates its own routers (one per thread, see
+	 * {@link org.matsim.contrib.taxi.optimizer.assignment.AssignmentTaxiOptimizerParams#getNumberOfThreads()}), the
+	 * given multi-node routers are used for assigning vehicles to chargers.
+	 */
 	public AssignmentETaxiOptimizer(EventsManager eventsManager, TaxiConfigGroup taxiCfg, Fleet fleet,
-			MobsimTimer timer, TravelTime travelTime, ETaxiScheduler eScheduler, ScheduleTimingUpdater scheduleTimingUpdater,
+			Network network, MobsimTimer timer, TravelTime travelTime, TravelDisutility travelDisutility,
+			ETaxiScheduler eScheduler, ScheduleTimingUpdater scheduleTimingUpdater,
 			ChargingInfrastructure chargingInfrastructure, MultiNodePathCalculator multiNodeRouter,
-			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router) {
+			BackwardMultiNodePathCalculator backwardMultiNodeRouter) {
 		super(eventsManager, taxiCfg, fleet, eScheduler, scheduleTimingUpdater,
-				new AssignmentRequestInserter(fleet, timer, travelTime, eScheduler,
-						((AssignmentETaxiOptimizerParams)taxiCfg.getTaxiOptimizerParams()).getAssignmentTaxiOptimizerParams(),
-						multiNodeRouter, backwardMultiNodeRouter, router));
+				new AssignmentRequestInserter(fleet, network, timer, travelTime, travelDisutility, eScheduler,
+						((AssignmentETaxiOptimizerParams)taxiCfg.getTaxiOptimizerParams()).getAssignmentTaxiOptimizerParams()));
 		this.params = (AssignmentETaxiOptimizerParams)taxiCfg.getTaxiOptimizerParams();
 		this.chargingInfrastructure = chargingInfrastructure;
 		this.eScheduler = eScheduler;
@@ -20,6 +20,7 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.dvrp.fleet.Fleet;
@@ -32,6 +33,8 @@ import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.Ass
 import org.matsim.contrib.taxi.passenger.TaxiRequest;
 import org.matsim.contrib.taxi.scheduler.TaxiScheduler;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 import org.matsim.core.router.FastAStarEuclideanFactory;
 import org.matsim.core.router.FastMultiNodeDijkstraFactory;
 import org.matsim.core.router.MultiNodePathCalculator;
@@ -40,9 +43,12 @@ import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 /**
+ * With more than one thread (see {@link AssignmentTaxiOptimizerParams#getNumberOfThreads()}), paths are calculated on
+ * a pool that lives as long as the QSim, i.e. until {@link #notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent)}.
+ *
  * @author michalm
  */
-public class AssignmentRequestInserter implements UnplannedRequestInserter {
+public class AssignmentRequestInserter implements UnplannedRequestInserter, MobsimBeforeCleanupListener {
 	private final Fleet fleet;
 	private final TaxiScheduler scheduler;
 	private final MobsimTimer timer;
@@ -51,26 +57,46 @@ public class AssignmentRequestInserter implements UnplannedRequestInserter {
 	private final VehicleAssignmentProblem<TaxiRequest> assignmentProblem;
 	private final TaxiToRequestAssignmentCostProvider assignmentCostProvider;
 
+	private final ForkJoinPool forkJoinPool;// null if paths are calculated sequentially
+
 	public AssignmentRequestInserter(Fleet fleet, Network network, MobsimTimer timer, TravelTime travelTime,
 			TravelDisutility travelDisutility, TaxiScheduler scheduler, AssignmentTaxiOptimizerParams params) {
-		this(fleet, timer, travelTime, scheduler, params,
-				(MultiNodePathCalculator)new FastMultiNodeDijkstraFactory(true).createPathCalculator(network,
+		this(fleet, network, timer, travelTime, travelDisutility, scheduler, params,
+				params.getNumberOfThreads() > 1 ? new ForkJoinPool(params.getNumberOfThreads()) : null);
+	}
+
+	private AssignmentRequestInserter(Fleet fleet, Network network, MobsimTimer timer, TravelTime travelTime,
+			TravelDisutility travelDisutility, TaxiScheduler scheduler, AssignmentTaxiOptimizerParams params,
+			ForkJoinPool forkJoinPool) {
+		// one multi-node router per thread
+		this(fleet, timer, scheduler, params, new VehicleAssignmentProblem<>(travelTime,
+				() -> (MultiNodePathCalculator)new FastMultiNodeDijkstraFactory(true).createPathCalculator(network,
 						travelDisutility, travelTime),
-				(BackwardMultiNodePathCalculator)new BackwardFastMultiNodeDijkstraFactory(true).createPathCalculator(
-						network, travelDisutility, travelTime),
-				new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime));
+				() -> (BackwardMultiNodePathCalculator)new BackwardFastMultiNodeDijkstraFactory(
+						true).createPathCalculator(network, travelDisutility, travelTime),
+				new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime),
+				params.getNearestRequestsLimit(), params.getNearestVehiclesLimit(), params.isSparseAssignment(),
+				forkJoinPool), forkJoinPool);
 	}
 
 	public AssignmentRequestInserter(Fleet fleet, MobsimTimer timer, TravelTime travelTime, TaxiScheduler scheduler,
 			AssignmentTaxiOptimizerParams params, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router) {
+		// single routers => no parallel path calculation
+		this(fleet, timer, scheduler, params, new VehicleAssignmentProblem<>(travelTime, () -> multiNodeRouter,
+				() -> backwardMultiNodeRouter, router, params.getNearestRequestsLimit(),
+				params.getNearestVehiclesLimit(), params.isSparseAssignment(), null), null);
+	}
+
+	private AssignmentRequestInserter(Fleet fleet, MobsimTimer timer, TaxiScheduler scheduler,
+			AssignmentTaxiOptimizerParams params, VehicleAssignmentProblem<TaxiRequest> assignmentProblem,
+			ForkJoinPool forkJoinPool) {
 		this.fleet = fleet;
 		this.scheduler = scheduler;
 		this.timer = timer;
 		this.params = params;
-
-		assignmentProblem = new VehicleAssignmentProblem<>(travelTime, multiNodeRouter, backwardMultiNodeRouter, router,
-				params.getNearestRequestsLimit(), params.getNearestVehiclesLimit());
+		this.assignmentProblem = assignmentProblem;
+		this.forkJoinPool = forkJoinPool;
 
 		assignmentCostProvider = new TaxiToRequestAssignmentCostProvider(params);
 	}
@@ -96,6 +122,13 @@ public class AssignmentRequestInserter implements UnplannedRequestInserter {
 		}
 	}
 
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		if (forkJoinPool != null) {
+			forkJoinPool.shutdown();
+		}
+	}
+
 	private VehicleData initVehicleData(AssignmentRequestData rData) {
 		long idleVehs = fleet.getVehicles().values().stream().filter(scheduler::isIdle).count();
 		double vehPlanningHorizon = idleVehs < rData.getUrgentReqCount() ?
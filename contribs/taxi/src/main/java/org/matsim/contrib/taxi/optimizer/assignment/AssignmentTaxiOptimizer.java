@@ -27,13 +27,17 @@ import org.matsim.contrib.taxi.run.TaxiConfigGroup;
 import org.matsim.contrib.taxi.scheduler.TaxiScheduler;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 /**
  * @author michalm
  */
-public class AssignmentTaxiOptimizer extends DefaultTaxiOptimizer {
+public class AssignmentTaxiOptimizer extends DefaultTaxiOptimizer implements MobsimBeforeCleanupListener {
+	private final AssignmentRequestInserter requestInserter;
+
 	public AssignmentTaxiOptimizer(EventsManager eventsManager, TaxiConfigGroup taxiCfg, Fleet fleet, Network network,
 			MobsimTimer timer, TravelTime travelTime, TravelDisutility travelDisutility, TaxiScheduler scheduler, ScheduleTimingUpdater scheduleTimingUpdater) {
 		this(eventsManager, taxiCfg, fleet, scheduler, scheduleTimingUpdater,
@@ -44,5 +48,11 @@ public class AssignmentTaxiOptimizer extends DefaultTaxiOptimizer {
 	public AssignmentTaxiOptimizer(EventsManager eventsManager, TaxiConfigGroup taxiCfg, Fleet fleet,
 								   TaxiScheduler scheduler, ScheduleTimingUpdater scheduleTimingUpdater, AssignmentRequestInserter requestInserter) {
 		super(eventsManager, taxiCfg, fleet, scheduler, scheduleTimingUpdater, requestInserter);
+		this.requestInserter = requestInserter;
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		requestInserter.notifyMobsimBeforeCleanup(e);
 	}
 }
@@ -88,6 +88,20 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 	@Positive
 	private double nullPathCost = 48 * 3600;
 
+	public static final String SPARSE_ASSIGNMENT = "sparseAssignment";
+	static final String SPARSE_ASSIGNMENT_EXP = "If true, only the vehicle-request pairs within the"
+			+ " 'nearestRequestsLimit'/'nearestVehiclesLimit' neighbourhoods are considered and the assignment is"
+			+ " solved with a sparse shortest augmenting path algorithm instead of the Hungarian algorithm on the full"
+			+ " cost matrix. Then, a vehicle/request may remain unassigned (at 'nullPathCost') until the next"
+			+ " reoptimisation. Recommended for large fleets. The default value is false.";
+	private boolean sparseAssignment = false;
+
+	public static final String NUMBER_OF_THREADS = "numberOfThreads";
+	static final String NUMBER_OF_THREADS_EXP = "Number of threads used for calculating paths and costs of"
+			+ " the vehicle-request pairs. The default value is 1.";
+	@Positive
+	private int numberOfThreads = 1;
+
 	@Positive
 	private int reoptimizationTimeStep = 10;
 
@@ -114,6 +128,8 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 		map.put(NEAREST_REQUESTS_LIMIT, NEAREST_REQUESTS_LIMIT_EXP);
 		map.put(NEAREST_VEHICLES_LIMIT, NEAREST_VEHICLES_LIMIT_EXP);
 		map.put(NULL_PATH_COST, NULL_PATH_COST_EXP);
+		map.put(SPARSE_ASSIGNMENT, SPARSE_ASSIGNMENT_EXP);
+		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
 		return map;
 	}
 
@@ -213,6 +229,38 @@ public final class AssignmentTaxiOptimizerParams extends AbstractTaxiOptimizerPa
 		this.nullPathCost = nullPathCost;
 	}
 
+	/**
+	 * @return {@value #SPARSE_ASSIGNMENT_EXP}
+	 */
+	@StringGetter(SPARSE_ASSIGNMENT)
+	public boolean isSparseAssignment() {
+		return sparseAssignment;
+	}
+
+	/**
+	 * @param sparseAssignment {@value #SPARSE_ASSIGNMENT_EXP}
+	 */
+	@StringSetter(SPARSE_ASSIGNMENT)
+	public void setSparseAssignment(boolean sparseAssignment) {
+		this.sparseAssignment = sparseAssignment;
+	}
+
+	/**
+	 * @return {@value #NUMBER_OF_THREADS_EXP}
+	 */
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	/**
+	 * @param numberOfThreads {@value #NUMBER_OF_THREADS_EXP}
+	 */
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	@StringGetter(REOPTIMIZATION_TIME_STEP)
 	public int getReoptimizationTimeStep() {
 		return reoptimizationTimeStep;
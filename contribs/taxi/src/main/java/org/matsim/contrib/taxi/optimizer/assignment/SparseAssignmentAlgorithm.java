@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Solves the assignment problem on a sparse bipartite graph, where each row has a (short) list of candidate columns
+ * with assignment costs. Every row may also stay unassigned at a given (high) cost, so a solution always exists. The
+ * result minimises the total cost over all rows.
+ * <p>
+ * The algorithm uses successive shortest augmenting paths with column potentials (the sparse variant of the
+ * Jonker-Volgenant approach). Each row is added with one Dijkstra search over the reduced costs. The search stops as
+ * soon as it reaches a free column, so it usually settles only a small neighbourhood of the row. With k candidates per
+ * row, the running time grows close to linearly with the number of rows, unlike O(n^3) of {@link HungarianAlgorithm}.
+ * <p>
+ * Candidates with an infinite cost are ignored.
+ */
+public class SparseAssignmentAlgorithm {
+	private static class HeapEntry implements Comparable<HeapEntry> {
+		private final int column;
+		private final double dist;
+
+		private HeapEntry(int column, double dist) {
+			this.column = column;
+			this.dist = dist;
+		}
+
+		@Override
+		public int compareTo(HeapEntry o) {
+			return Double.compare(dist, o.dist);
+		}
+	}
+
+	private final int rowCount;
+	private final int columnCount;// real columns; column (columnCount + row) is the 'unassigned' column of that row
+	private final int[][] rowColumns;
+	private final double[][] rowCosts;
+	private final double[] unassignedCosts;
+
+	private final double[] potentials;
+	private final int[] rowByColumn;
+	private final int[] columnByRow;
+	private final double[] columnCostByRow;// cost of the current assignment of each row
+
+	// Dijkstra data (reset after each augmentation)
+	private final double[] dist;
+	private final int[] predecessorRow;
+	private final boolean[] settled;
+	private final int[] touchedColumns;
+	private int touchedCount;
+
+	/**
+	 * @param columnCount     number of columns
+	 * @param rowColumns      candidate columns of each row
+	 * @param rowCosts        costs of assigning each row to its candidate columns (same order as in rowColumns)
+	 * @param unassignedCosts costs of leaving each row unassigned
+	 */
+	public SparseAssignmentAlgorithm(int columnCount, int[][] rowColumns, double[][] rowCosts,
+			double[] unassignedCosts) {
+		this.rowCount = rowColumns.length;
+		this.columnCount = columnCount;
+		this.rowColumns = rowColumns;
+		this.rowCosts = rowCosts;
+		this.unassignedCosts = unassignedCosts;
+
+		int allColumnCount = columnCount + rowCount;
+		potentials = new double[allColumnCount];
+		rowByColumn = new int[allColumnCount];
+		Arrays.fill(rowByColumn, -1);
+		columnByRow = new int[rowCount];
+		columnCostByRow = new double[rowCount];
+
+		dist = new double[allColumnCount];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		predecessorRow = new int[allColumnCount];
+		settled = new boolean[allColumnCount];
+		touchedColumns = new int[allColumnCount];
+	}
+
+	/**
+	 * @return column assigned to each row, or -1 if the row remains unassigned
+	 */
+	public int[] execute() {
+		for (int row = 0; row < rowCount; row++) {
+			augment(row);
+		}
+
+		int[] assignment = new int[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			assignment[row] = columnByRow[row] < columnCount ? columnByRow[row] : -1;
+		}
+		return assignment;
+	}
+
+	private void augment(int sourceRow) {
+		PriorityQueue<HeapEntry> heap = new PriorityQueue<>();
+		relaxRow(heap, sourceRow, 0);
+
+		int sink;
+		while (true) {
+			// the 'unassigned' column of sourceRow is always free, so a free column is always found
+			HeapEntry entry = heap.poll();
+			int column = entry.column;
+			if (settled[column] || entry.dist > dist[column]) {
+				continue;// outdated entry
+			}
+			settled[column] = true;
+
+			int row = rowByColumn[column];
+			if (row == -1) {
+				sink = column;
+				break;
+			}
+
+			// reduced cost of the current assignment of row is 0
+			relaxRow(heap, row, dist[column] - (columnCostByRow[row] - potentials[column]));
+		}
+
+		// update potentials of the settled columns (keeps the reduced costs non-negative)
+		double sinkDist = dist[sink];
+		for (int i = 0; i < touchedCount; i++) {
+			int column = touchedColumns[i];
+			if (settled[column]) {
+				potentials[column] += dist[column] - sinkDist;
+			}
+		}
+
+		// augment along the path
+		int column = sink;
+		while (true) {
+			int row = predecessorRow[column];
+			int previousColumn = row == sourceRow ? -1 : columnByRow[row];
+			rowByColumn[column] = row;
+			columnByRow[row] = column;
+			columnCostByRow[row] = getCost(row, column);
+			if (previousColumn == -1) {
+				break;
+			}
+			column = previousColumn;
+		}
+
+		// reset
+		for (int i = 0; i < touchedCount; i++) {
+			int c = touchedColumns[i];
+			dist[c] = Double.POSITIVE_INFINITY;
+			settled[c] = false;
+		}
+		touchedCount = 0;
+	}
+
+	private void relaxRow(PriorityQueue<HeapEntry> heap, int row, double rowDist) {
+		int[] columns = rowColumns[row];
+		double[] costs = rowCosts[row];
+		for (int i = 0; i < columns.length; i++) {
+			relaxColumn(heap, row, columns[i], rowDist + costs[i]);
+		}
+		relaxColumn(heap, row, columnCount + row, rowDist + unassignedCosts[row]);
+	}
+
+	private void relaxColumn(PriorityQueue<HeapEntry> heap, int row, int column, double distWithoutPotential) {
+		if (settled[column] || distWithoutPotential == Double.POSITIVE_INFINITY) {
+			return;
+		}
+		double newDist = distWithoutPotential - potentials[column];
+		if (newDist < dist[column]) {
+			if (dist[column] == Double.POSITIVE_INFINITY) {
+				touchedColumns[touchedCount++] = column;
+			}
+			dist[column] = newDist;
+			predecessorRow[column] = row;
+			heap.add(new HeapEntry(column, newDist));
+		}
+	}
+
+	private double getCost(int row, int column) {
+		if (column >= columnCount) {
+			return unassignedCosts[row];
+		}
+		int[] columns = rowColumns[row];
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] == column) {
+				return rowCosts[row][i];
+			}
+		}
+		throw new IllegalStateException();
+	}
+}
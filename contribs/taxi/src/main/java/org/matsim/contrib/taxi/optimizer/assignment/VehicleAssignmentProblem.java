@@ -22,6 +22,10 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
@@ -40,6 +44,13 @@ import org.matsim.core.router.util.TravelTime;
 import com.google.common.collect.Lists;
 
 /**
+ * By default, the assignment is solved with {@link HungarianAlgorithm} on the dense cost matrix (pairs with no
+ * calculated path get the cost of a {@code null} path). In the sparse mode, only the calculated (kNN-filtered)
+ * vehicle-destination pairs are considered and the problem is solved with {@link SparseAssignmentAlgorithm}. Each
+ * vehicle (or destination, whichever set is smaller) may then stay unassigned at the cost of a {@code null} path.
+ * <p>
+ * If a {@link ForkJoinPool} is provided, paths and costs are calculated in parallel, with one router per thread.
+ *
  * @author michalm
  */
 public class VehicleAssignmentProblem<D> {
@@ -50,12 +61,15 @@ public class VehicleAssignmentProblem<D> {
 	private final TravelTime travelTime;
 	private final LeastCostPathCalculator router;
 
-	private final OneToManyPathSearch forwardPathSearch;
-	private final OneToManyPathSearch backwardPathSearch;
+	private final ThreadLocal<OneToManyPathSearch> forwardPathSearch;
+	private final ThreadLocal<OneToManyPathSearch> backwardPathSearch;
 
 	private final StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder;
 	private final StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder;
 
+	private final boolean sparse;
+	private final ForkJoinPool forkJoinPool;
+
 	private AssignmentCost<D> assignmentCost;
 	private VehicleData vData;
 	private AssignmentDestinationData<D> dData;
@@ -69,11 +83,30 @@ public class VehicleAssignmentProblem<D> {
 	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
 			int nearestDestinationLimit, int nearestVehicleLimit) {
+		this(travelTime, () -> multiNodeRouter, () -> backwardMultiNodeRouter, router, nearestDestinationLimit,
+				nearestVehicleLimit, false, null);
+	}
+
+	/**
+	 * @param multiNodeRouterFactory         called once per thread
+	 * @param backwardMultiNodeRouterFactory called once per thread
+	 * @param sparse                         use {@link SparseAssignmentAlgorithm} instead of
+	 *                                       {@link HungarianAlgorithm}
+	 * @param forkJoinPool                   used for calculating paths and costs in parallel; if null, all
+	 *                                       calculations are done in the calling thread
+	 */
+	public VehicleAssignmentProblem(TravelTime travelTime, Supplier<MultiNodePathCalculator> multiNodeRouterFactory,
+			Supplier<BackwardMultiNodePathCalculator> backwardMultiNodeRouterFactory, LeastCostPathCalculator router,
+			int nearestDestinationLimit, int nearestVehicleLimit, boolean sparse, ForkJoinPool forkJoinPool) {
 		this.travelTime = travelTime;
 		this.router = router;
+		this.sparse = sparse;
+		this.forkJoinPool = forkJoinPool;
 
-		forwardPathSearch = OneToManyPathSearch.create(multiNodeRouter);
-		backwardPathSearch = OneToManyPathSearch.create(backwardMultiNodeRouter);
+		forwardPathSearch = ThreadLocal.withInitial(
+				() -> OneToManyPathSearch.create(multiNodeRouterFactory.get()));
+		backwardPathSearch = ThreadLocal.withInitial(
+				() -> OneToManyPathSearch.create(backwardMultiNodeRouterFactory.get()));
 
 		// TODO this kNN is slow
 		destinationFinder = nearestDestinationLimit < 0 ?
@@ -90,6 +123,10 @@ public class VehicleAssignmentProblem<D> {
 		this.dData = dData;
 		this.assignmentCost = assignmentCost;
 
+		if (sparse) {
+			return findSparseAssignments();
+		}
+
 		PathData[][] pathDataMatrix = createPathDataMatrix();
 		double[][] costMatrix = createCostMatrix(pathDataMatrix);
 		int[] assignments = new HungarianAlgorithm(costMatrix).execute();
@@ -102,7 +139,7 @@ public class VehicleAssignmentProblem<D> {
 	private PathData[][] createPathDataMatrix() {
 		PathData[][] pathDataMatrix = (PathData[][])Array.newInstance(PathData.class, vData.getSize(), dData.getSize());
 
-		if (dData.getSize() > vData.getSize()) {
+		if (isPathCalculationForVehicles()) {
 			calcPathsForVehicles(pathDataMatrix);
 			// calcPathsForVehiclesCount++;
 		} else {
@@ -120,38 +157,64 @@ public class VehicleAssignmentProblem<D> {
 		return pathDataMatrix;
 	}
 
+	private boolean isPathCalculationForVehicles() {
+		return dData.getSize() > vData.getSize();
+	}
+
 	private void calcPathsForVehicles(PathData[][] pathDataMatrix) {
-		for (int v = 0; v < vData.getSize(); v++) {
+		forEachIndex(vData.getSize(), v -> {
 			VehicleData.Entry departure = vData.getEntry(v);
-
-			List<DestEntry<D>> filteredDests = destinationFinder == null ?
-					dData.getEntries() :
-					destinationFinder.findNearest(departure, dData.getEntries().stream());
-			List<Link> toLinks = Lists.transform(filteredDests, dest -> dest.link);
-			PathData[] paths = forwardPathSearch.calcPathDataArray(departure.link, toLinks, departure.time);
+			List<DestEntry<D>> filteredDests = filterDestinations(departure);
+			PathData[] paths = calcPaths(departure, filteredDests);
 
 			for (int i = 0; i < filteredDests.size(); i++) {
 				int d = filteredDests.get(i).idx;
 				pathDataMatrix[v][d] = paths[i];
 			}
-		}
+		});
 	}
 
 	// TODO does not support adv reqs
 	private void calcPathsForDestinations(PathData[][] pathDataMatrix) {
-		for (int d = 0; d < dData.getSize(); d++) {
+		forEachIndex(dData.getSize(), d -> {
 			DestEntry<D> dest = dData.getEntry(d);
-
-			List<VehicleData.Entry> filteredVehs = vehicleFinder == null ?
-					vData.getEntries() :
-					vehicleFinder.findNearest(dest, vData.getEntries().stream());
-			List<Link> toLinks = Lists.transform(filteredVehs, veh -> veh.link);
-			PathData[] paths = backwardPathSearch.calcPathDataArray(dest.link, toLinks, dest.time);
+			List<VehicleData.Entry> filteredVehs = filterVehicles(dest);
+			PathData[] paths = calcPaths(dest, filteredVehs);
 
 			for (int i = 0; i < filteredVehs.size(); i++) {
 				int v = filteredVehs.get(i).idx;
 				pathDataMatrix[v][d] = paths[i];
 			}
+		});
+	}
+
+	private List<DestEntry<D>> filterDestinations(VehicleData.Entry departure) {
+		return destinationFinder == null ?
+				dData.getEntries() :
+				destinationFinder.findNearest(departure, dData.getEntries().stream());
+	}
+
+	private List<VehicleData.Entry> filterVehicles(DestEntry<D> dest) {
+		return vehicleFinder == null ?
+				vData.getEntries() :
+				vehicleFinder.findNearest(dest, vData.getEntries().stream());
+	}
+
+	private PathData[] calcPaths(VehicleData.Entry departure, List<DestEntry<D>> dests) {
+		List<Link> toLinks = Lists.transform(dests, dest -> dest.link);
+		return forwardPathSearch.get().calcPathDataArray(departure.link, toLinks, departure.time);
+	}
+
+	private PathData[] calcPaths(DestEntry<D> dest, List<VehicleData.Entry> vehs) {
+		List<Link> toLinks = Lists.transform(vehs, veh -> veh.link);
+		return backwardPathSearch.get().calcPathDataArray(dest.link, toLinks, dest.time);
+	}
+
+	private void forEachIndex(int size, IntConsumer action) {
+		if (forkJoinPool == null) {
+			IntStream.range(0, size).forEach(action);
+		} else {
+			forkJoinPool.submit(() -> IntStream.range(0, size).parallel().forEach(action)).join();
 		}
 	}
 
@@ -178,18 +241,84 @@ public class VehicleAssignmentProblem<D> {
 				continue;
 			}
 
-			VehicleData.Entry departure = vData.getEntry(v);
-			DestEntry<D> dest = dData.getEntry(d);
-			PathData pathData = pathDataMatrix[v][d];
+			dispatches.add(createDispatch(vData.getEntry(v), dData.getEntry(d), pathDataMatrix[v][d]));
+		}
 
-			// TODO if null is frequent we may be more efficient by increasing the neighbourhood
-			VrpPathWithTravelData vrpPath = pathData == null ?
-					VrpPaths.calcAndCreatePath(departure.link, dest.link, departure.time, router, travelTime) :
-					VrpPaths.createPath(departure.link, dest.link, departure.time, pathData, travelTime);
+		return dispatches;
+	}
 
-			dispatches.add(new Dispatch<>(departure.vehicle, dest.destination, vrpPath));
-		}
+	private Dispatch<D> createDispatch(VehicleData.Entry departure, DestEntry<D> dest, PathData pathData) {
+		// TODO if null is frequent we may be more efficient by increasing the neighbourhood
+		VrpPathWithTravelData vrpPath = pathData == null ?
+				VrpPaths.calcAndCreatePath(departure.link, dest.link, departure.time, router, travelTime) :
+				VrpPaths.createPath(departure.link, dest.link, departure.time, pathData, travelTime);
+		return new Dispatch<>(departure.vehicle, dest.destination, vrpPath);
+	}
 
+	private List<Dispatch<D>> findSparseAssignments() {
+		// rows: the smaller set (i.e. the one for which paths are calculated); columns: the other one
+		boolean vehicleRows = isPathCalculationForVehicles();
+		int rowCount = vehicleRows ? vData.getSize() : dData.getSize();
+		int columnCount = vehicleRows ? dData.getSize() : vData.getSize();
+
+		int[][] rowColumns = new int[rowCount][];
+		double[][] rowCosts = new double[rowCount][];
+		PathData[][] rowPaths = new PathData[rowCount][];
+		double[] unassignedCosts = new double[rowCount];
+
+		forEachIndex(rowCount, r -> {
+			List<VehicleData.Entry> departures;
+			List<DestEntry<D>> dests;
+			PathData[] paths;
+			if (vehicleRows) {
+				departures = List.of(vData.getEntry(r));
+				dests = filterDestinations(departures.get(0));
+				paths = calcPaths(departures.get(0), dests);
+			} else {
+				dests = List.of(dData.getEntry(r));
+				departures = filterVehicles(dests.get(0));
+				paths = calcPaths(dests.get(0), departures);
+			}
+
+			int[] columns = new int[paths.length];
+			double[] costs = new double[paths.length];
+			double unassignedCost = 0;
+			for (int i = 0; i < paths.length; i++) {
+				VehicleData.Entry departure = departures.get(vehicleRows ? 0 : i);
+				DestEntry<D> dest = dests.get(vehicleRows ? i : 0);
+				columns[i] = vehicleRows ? dest.idx : departure.idx;
+				costs[i] = assignmentCost.calc(departure, dest, paths[i]);
+				// the same cost as for the pairs not considered in the dense cost matrix
+				unassignedCost = Math.max(unassignedCost, assignmentCost.calc(departure, dest, null));
+			}
+			rowColumns[r] = columns;
+			rowCosts[r] = costs;
+			rowPaths[r] = paths;
+			unassignedCosts[r] = unassignedCost;
+		});
+
+		int[] assignments = new SparseAssignmentAlgorithm(columnCount, rowColumns, rowCosts,
+				unassignedCosts).execute();
+
+		List<Dispatch<D>> dispatches = new ArrayList<>(rowCount);
+		for (int r = 0; r < rowCount; r++) {
+			int c = assignments[r];
+			if (c == -1) {
+				continue;
+			}
+
+			PathData pathData = null;
+			for (int i = 0; i < rowColumns[r].length; i++) {
+				if (rowColumns[r][i] == c) {
+					pathData = rowPaths[r][i];
+					break;
+				}
+			}
+
+			dispatches.add(vehicleRows ?
+					createDispatch(vData.getEntry(r), dData.getEntry(c), pathData) :
+					createDispatch(vData.getEntry(c), dData.getEntry(r), pathData));
+		}
 		return dispatches;
 	}
 }
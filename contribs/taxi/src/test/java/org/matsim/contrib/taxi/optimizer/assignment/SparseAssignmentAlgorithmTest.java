@@ -0,0 +1,101 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SparseAssignmentAlgorithmTest {
+	private static final double NOT_A_CANDIDATE = 1e9;
+
+	@Test
+	public void simpleCase() {
+		// row 0 prefers column 0, but row 1 can only take column 0; row 2 has no candidates
+		int[][] rowColumns = { { 0, 1 }, { 0 }, {} };
+		double[][] rowCosts = { { 1, 3 }, { 1 }, {} };
+		double[] unassignedCosts = { 100, 100, 100 };
+		int[] assignment = new SparseAssignmentAlgorithm(2, rowColumns, rowCosts, unassignedCosts).execute();
+		assertThat(assignment).containsExactly(1, 0, -1);
+	}
+
+	@Test
+	public void leaveUnassignedIfCheaper() {
+		int[][] rowColumns = { { 0 }, { 0 } };
+		double[][] rowCosts = { { 10 }, { 1 } };
+		double[] unassignedCosts = { 5, 50 };
+		int[] assignment = new SparseAssignmentAlgorithm(1, rowColumns, rowCosts, unassignedCosts).execute();
+		assertThat(assignment).containsExactly(-1, 0);
+	}
+
+	@Test
+	public void sameTotalCostAsHungarianAlgorithm() {
+		Random random = new Random(4711);
+		for (int instance = 0; instance < 50; instance++) {
+			int rowCount = 1 + random.nextInt(30);
+			int columnCount = 1 + random.nextInt(30);
+			int k = 1 + random.nextInt(5);
+
+			int[][] rowColumns = new int[rowCount][];
+			double[][] rowCosts = new double[rowCount][];
+			double[] unassignedCosts = new double[rowCount];
+			// dense equivalent: real columns followed by one 'unassigned' column per row
+			double[][] costMatrix = new double[rowCount][columnCount + rowCount];
+			for (int r = 0; r < rowCount; r++) {
+				Arrays.fill(costMatrix[r], NOT_A_CANDIDATE);
+				rowColumns[r] = random.ints(0, columnCount).distinct().limit(Math.min(k, columnCount)).toArray();
+				rowCosts[r] = new double[rowColumns[r].length];
+				for (int i = 0; i < rowColumns[r].length; i++) {
+					rowCosts[r][i] = 100 * random.nextDouble();
+					costMatrix[r][rowColumns[r][i]] = rowCosts[r][i];
+				}
+				unassignedCosts[r] = 50 + 100 * random.nextDouble();
+				costMatrix[r][columnCount + r] = unassignedCosts[r];
+			}
+
+			int[] sparseAssignment = new SparseAssignmentAlgorithm(columnCount, rowColumns, rowCosts,
+					unassignedCosts).execute();
+			int[] denseAssignment = new HungarianAlgorithm(costMatrix).execute();
+
+			double sparseCost = 0;
+			boolean[] usedColumns = new boolean[columnCount];
+			for (int r = 0; r < rowCount; r++) {
+				int c = sparseAssignment[r];
+				if (c == -1) {
+					sparseCost += unassignedCosts[r];
+				} else {
+					assertThat(usedColumns[c]).isFalse();
+					usedColumns[c] = true;
+					sparseCost += costMatrix[r][c];
+				}
+			}
+			double denseCost = 0;
+			for (int r = 0; r < rowCount; r++) {
+				denseCost += costMatrix[r][denseAssignment[r]];
+			}
+			assertThat(sparseCost).isCloseTo(denseCost, within(1e-6));
+		}
+	}
+}
@@ -27,6 +27,8 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.arrow.ArrowStreamWriter;
+import org.matsim.core.utils.io.arrow.ArrowStreamWriter.ColumnType;
 import org.matsim.core.utils.misc.StringUtils;
 
 import javax.inject.Inject;
@@ -212,25 +214,8 @@ public class CalcLinkStats {
 
 				// TRAVELTIME0-1, TRAVELTIME1-2, ... TRAVELTIME23-24
 				for (int i = 0; i < this.nofHours; i++) {
-					String ttimesMin = Double.toString(data.ttimes[MIN][i]);
-					out.write("\t" + ttimesMin);
-					if (data.volumes[SUM][i] == 0) {
-						// nobody traveled along the link in this hour, so we cannot calculate an average
-						// use the value available or the minimum instead (min and max should be the same, =freespeed)
-						double ttsum = data.ttimes[SUM][i];
-						if (ttsum != 0.0) {
-							out.write("\t" + Double.toString(ttsum));
-						} else {
-							out.write("\t" + ttimesMin);
-						}
-					} else {
-						double ttsum = data.ttimes[SUM][i];
-						if (ttsum == 0) {
-							out.write("\t" + ttimesMin);
-						} else {
-							out.write("\t" + Double.toString(ttsum / data.volumes[SUM][i]));
-						}
-					}
+					out.write("\t" + Double.toString(data.ttimes[MIN][i]));
+					out.write("\t" + Double.toString(getAvgTravelTime(data, i)));
 					out.write("\t" + Double.toString(data.ttimes[MAX][i]));
 				}
 				out.write("\n");
@@ -250,6 +235,78 @@ public class CalcLinkStats {
 		}
 	}
 
+	/**
+	 * Writes the same columns as {@link #writeFile(String)} except ORIG_ID, but as an Apache Arrow IPC stream. The link and
+	 * node ids are dictionary-encoded, all other columns contain doubles.
+	 *
+	 * @see ArrowStreamWriter
+	 */
+	public void writeArrowFile(final String filename) {
+		try (ArrowStreamWriter writer = new ArrowStreamWriter(filename)) {
+			int linkColumn = writer.addColumn("LINK", ColumnType.DICTIONARY);
+			int fromColumn = writer.addColumn("FROM", ColumnType.DICTIONARY);
+			int toColumn = writer.addColumn("TO", ColumnType.DICTIONARY);
+			int lengthColumn = writer.addColumn("LENGTH", ColumnType.DOUBLE);
+			int freespeedColumn = writer.addColumn("FREESPEED", ColumnType.DOUBLE);
+			int capacityColumn = writer.addColumn("CAPACITY", ColumnType.DOUBLE);
+			// first the volumes of each hour and of the whole day, then the travel times, each with min, avg and max
+			int volumesColumn = writer.addColumn("HRS0-1min", ColumnType.DOUBLE);
+			writer.addColumn("HRS0-1avg", ColumnType.DOUBLE);
+			writer.addColumn("HRS0-1max", ColumnType.DOUBLE);
+			for (int i = 1; i < this.nofHours; i++) {
+				writer.addColumn("HRS" + i + "-" + (i+1) + "min", ColumnType.DOUBLE);
+				writer.addColumn("HRS" + i + "-" + (i+1) + "avg", ColumnType.DOUBLE);
+				writer.addColumn("HRS" + i + "-" + (i+1) + "max", ColumnType.DOUBLE);
+			}
+			writer.addColumn("HRS0-" + this.nofHours + "min", ColumnType.DOUBLE);
+			writer.addColumn("HRS0-" + this.nofHours + "avg", ColumnType.DOUBLE);
+			writer.addColumn("HRS0-" + this.nofHours + "max", ColumnType.DOUBLE);
+			for (int i = 0; i < this.nofHours; i++) {
+				writer.addColumn("TRAVELTIME" + i + "-" + (i+1) + "min", ColumnType.DOUBLE);
+				writer.addColumn("TRAVELTIME" + i + "-" + (i+1) + "avg", ColumnType.DOUBLE);
+				writer.addColumn("TRAVELTIME" + i + "-" + (i+1) + "max", ColumnType.DOUBLE);
+			}
+
+			for (Map.Entry<Id<Link>, LinkData> entry : this.linkData.entrySet()) {
+				LinkData data = entry.getValue();
+				Link link = this.network.getLinks().get(entry.getKey());
+
+				writer.set(linkColumn, entry.getKey().toString());
+				writer.set(fromColumn, link.getFromNode().getId().toString());
+				writer.set(toColumn, link.getToNode().getId().toString());
+				writer.set(lengthColumn, link.getLength());
+				writer.set(freespeedColumn, link.getFreespeed());
+				writer.set(capacityColumn, link.getCapacity());
+
+				int column = volumesColumn;
+				for (int i = 0; i <= this.nofHours; i++) {
+					writer.set(column++, data.volumes[MIN][i]);
+					writer.set(column++, data.volumes[SUM][i] / this.count);
+					writer.set(column++, data.volumes[MAX][i]);
+				}
+				for (int i = 0; i < this.nofHours; i++) {
+					writer.set(column++, data.ttimes[MIN][i]);
+					writer.set(column++, getAvgTravelTime(data, i));
+					writer.set(column++, data.ttimes[MAX][i]);
+				}
+				writer.endRow();
+			}
+		}
+	}
+
+	/**
+	 * @return the average travel time that is written to the files, which is not always an average
+	 */
+	private static double getAvgTravelTime(LinkData data, int hour) {
+		double ttsum = data.ttimes[SUM][hour];
+		if (data.volumes[SUM][hour] == 0) {
+			// nobody traveled along the link in this hour, so we cannot calculate an average
+			// use the value available or the minimum instead (min and max should be the same, =freespeed)
+			return ttsum != 0.0 ? ttsum : data.ttimes[MIN][hour];
+		}
+		return ttsum == 0 ? data.ttimes[MIN][hour] : ttsum / data.volumes[SUM][hour];
+	}
+
 	public void readFile(final String filename) {
 		// start with a clean, empty data structure
 		reset();
@@ -29,12 +29,16 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.events.StartupEvent;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.scoring.EventsToTrips;
 import org.matsim.core.scoring.ExperiencedPlansService;
 import org.matsim.core.utils.io.IOUtils;
 
@@ -44,7 +48,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
-class IterationTravelStatsControlerListener implements IterationEndsListener, ShutdownListener {
+class IterationTravelStatsControlerListener implements StartupListener, IterationEndsListener, ShutdownListener {
 
     @Inject
     Config config;
@@ -54,6 +58,9 @@ class IterationTravelStatsControlerListener implements IterationEndsListener, Sh
 	@Inject
 	private ExperiencedPlansService experiencedPlansService;
 
+	@Inject
+	private EventsToTrips eventsToTrips;
+
 	@Inject
 	private TravelDistanceStats travelDistanceStats;
 
@@ -70,17 +77,32 @@ class IterationTravelStatsControlerListener implements IterationEndsListener, Sh
     @Inject
     TripsAndLegsCSVWriter.CustomLegsWriterExtension customLegsWriterExtension;
 
+	@Override
+	public void notifyStartup(StartupEvent event) {
+		// the statistics are collected from the trips while the events are processed
+		eventsToTrips.addTripHandler(travelDistanceStats);
+		eventsToTrips.addTripHandler(pHbyModeCalculator);
+		eventsToTrips.addTripHandler(pkMbyModeCalculator);
+	}
+
 	@Override
     public void notifyIterationEnds(IterationEndsEvent event) {
-        travelDistanceStats.addIteration(event.getIteration(), experiencedPlansService.getExperiencedPlans());
-        pHbyModeCalculator.addIteration(event.getIteration(), experiencedPlansService.getExperiencedPlans());
-        pkMbyModeCalculator.addIteration(event.getIteration(), experiencedPlansService.getExperiencedPlans());
+        travelDistanceStats.addIteration(event.getIteration(), experiencedPlansService.getExperiencedPlans().size());
+        pHbyModeCalculator.addIteration(event.getIteration());
+        pkMbyModeCalculator.addIteration(event.getIteration());
         final boolean writingTripsAtAll = config.controler().getWriteTripsInterval() > 0;
         final boolean regularWriteEvents = writingTripsAtAll && (event.getIteration() > 0 && event.getIteration() % config.controler().getWriteTripsInterval() == 0);
         if (regularWriteEvents || (writingTripsAtAll && event.getIteration() == 0)) {
-            new TripsAndLegsCSVWriter(scenario, customTripsWriterExtension, customLegsWriterExtension).write(experiencedPlansService.getExperiencedPlans()
-                    , outputDirectoryHierarchy.getIterationFilename(event.getIteration(), Controler.DefaultFiles.tripscsv)
-                    , outputDirectoryHierarchy.getIterationFilename(event.getIteration(), Controler.DefaultFiles.legscsv));
+            if (config.controler().getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.csv)) {
+                new TripsAndLegsCSVWriter(scenario, customTripsWriterExtension, customLegsWriterExtension).write(experiencedPlansService.getExperiencedPlans()
+                        , outputDirectoryHierarchy.getIterationFilename(event.getIteration(), Controler.DefaultFiles.tripscsv)
+                        , outputDirectoryHierarchy.getIterationFilename(event.getIteration(), Controler.DefaultFiles.legscsv));
+            }
+            if (config.controler().getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.arrow)) {
+                new TripsAndLegsArrowWriter(scenario, customTripsWriterExtension, customLegsWriterExtension).write(experiencedPlansService.getExperiencedPlans()
+                        , outputDirectoryHierarchy.getIterationFilename(event.getIteration(), Controler.DefaultFiles.tripsarrow, ControlerConfigGroup.CompressionType.none)
+                        , outputDirectoryHierarchy.getIterationFilename(event.getIteration(), Controler.DefaultFiles.legsarrow, ControlerConfigGroup.CompressionType.none));
+            }
         }
     }
 
@@ -57,7 +57,13 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 		}
 
 		if (createLinkStatsInIteration(iteration)) {
-			linkStats.writeFile(this.controlerIO.getIterationFilename(iteration, Controler.DefaultFiles.linkstats));
+			if (controlerConfigGroup.getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.csv)) {
+				linkStats.writeFile(this.controlerIO.getIterationFilename(iteration, Controler.DefaultFiles.linkstats));
+			}
+			if (controlerConfigGroup.getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.arrow)) {
+				linkStats.writeArrowFile(this.controlerIO.getIterationFilename(iteration, Controler.DefaultFiles.linkstatsarrow,
+						ControlerConfigGroup.CompressionType.none));
+			}
 			this.doReset = true;
 		}
 	}
@@ -23,7 +23,8 @@ package org.matsim.analysis;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -34,24 +35,29 @@ import javax.inject.Inject;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.jfree.chart.axis.CategoryLabelPositions;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.router.StageActivityTypeIdentifier;
 import org.matsim.core.scoring.EventsToLegs;
+import org.matsim.core.scoring.EventsToTrips;
+import org.matsim.core.scoring.PersonExperiencedTrip;
 import org.matsim.core.utils.charts.StackedBarChart;
 
 /**
- * analyses passenger hours traveled based on experienced plans.
+ * analyses passenger hours traveled based on experienced trips or plans.
  * @author vsp-gleich
  */
-public class PHbyModeCalculator {
+public class PHbyModeCalculator implements EventsToTrips.TripHandler {
 
     private final Map<Integer,Map<String,TravelTimeAndWaitTime>> phtPerIteration = new TreeMap<>();
+    private Map<String,TravelTimeAndWaitTime> phtbyMode = new HashMap<>();
     private final boolean writePng;
     private final OutputDirectoryHierarchy controlerIO;
     private final static char DEL = '\t';
@@ -67,47 +73,74 @@ public class PHbyModeCalculator {
         this.controlerIO = controlerIO;
     }
 
+    @Override
+    public void handleTrip(PersonExperiencedTrip trip) {
+        for (PlanElement pe : trip.getTrip().getTripElements()) {
+            addPlanElement(pe);
+        }
+        addPlanElement(trip.getTrip().getDestinationActivity());
+    }
+
+    @Override
+    public void handleIncompleteTrip(Id<Person> agentId, Activity origin, List<PlanElement> tripElements) {
+        for (PlanElement pe : tripElements) {
+            addPlanElement(pe);
+        }
+    }
+
     void addIteration(int iteration, IdMap<Person, Plan> map) {
-        Map<String,TravelTimeAndWaitTime> phtbyMode = map.values()
-                .parallelStream()
-                .flatMap(plan -> plan.getPlanElements().stream())
-                .map(pe->{
-                	if (pe instanceof Leg) {
-                        Leg leg = (Leg) pe;
-                        double travelTime = 0.0;
-                        double waitTime = 0.0;
-                        if (leg.getRoute()!=null) {
-							travelTime = leg.getRoute().getTravelTime().seconds();
-                            double enterVehicleTime = Double.NaN;
-                            Object attr = leg.getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME);
-                            if (attr != null) {
-                            	enterVehicleTime = (Double) attr;
-                            }
-							waitTime = enterVehicleTime - leg.getDepartureTime().seconds();
-                            if (!Double.isFinite(waitTime)) {waitTime = 0.0;}
-                            if (waitTime >= 0.0) {
-                            	travelTime -= waitTime;
-                            } else {
-								throw new RuntimeException("negative wait time" + enterVehicleTime + " " + leg.getDepartureTime()
-										.seconds());
-                            }
-                        }
-
-                        if (Double.isNaN(travelTime)) {travelTime = 0.0; }
-
-                        return new AbstractMap.SimpleEntry<>(leg.getMode(),new TravelTimeAndWaitTime(travelTime, waitTime));
-                        
-                	} else if (pe instanceof Activity) {
-                		Activity act = (Activity) pe;
-                		if (StageActivityTypeIdentifier.isStageActivity(act.getType())) {
-                            double duration = act.getEndTime().orElse(0) - act.getStartTime().orElse(0);
-                            return new AbstractMap.SimpleEntry<>(STAGE_ACTIVITY,new TravelTimeAndWaitTime(0.0, duration));
-                		}
-                	}
-                	return new AbstractMap.SimpleEntry<>(STAGE_ACTIVITY,new TravelTimeAndWaitTime(0.0, 0.0));
-                })
-                .collect(Collectors.toMap(e->e.getKey(),e->e.getValue(),(a,b)->TravelTimeAndWaitTime.sum(a, b)));
+        for (Plan plan : map.values()) {
+            for (PlanElement pe : plan.getPlanElements()) {
+                addPlanElement(pe);
+            }
+        }
+        addIteration(iteration);
+    }
+
+    /**
+     * Stores the times of the legs and stage activities added since the previous iteration.
+     */
+    void addIteration(int iteration) {
         phtPerIteration.put(iteration,phtbyMode);
+        phtbyMode = new HashMap<>();
+    }
+
+    private void addPlanElement(PlanElement pe) {
+        if (pe instanceof Leg) {
+            Leg leg = (Leg) pe;
+            double travelTime = 0.0;
+            double waitTime = 0.0;
+            if (leg.getRoute()!=null) {
+                travelTime = leg.getRoute().getTravelTime().seconds();
+                double enterVehicleTime = Double.NaN;
+                Object attr = leg.getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME);
+                if (attr != null) {
+                    enterVehicleTime = (Double) attr;
+                }
+                waitTime = enterVehicleTime - leg.getDepartureTime().seconds();
+                if (!Double.isFinite(waitTime)) {waitTime = 0.0;}
+                if (waitTime >= 0.0) {
+                    travelTime -= waitTime;
+                } else {
+                    throw new RuntimeException("negative wait time" + enterVehicleTime + " " + leg.getDepartureTime()
+                            .seconds());
+                }
+            }
+
+            if (Double.isNaN(travelTime)) {travelTime = 0.0; }
+
+            add(leg.getMode(), new TravelTimeAndWaitTime(travelTime, waitTime));
+        } else if (pe instanceof Activity && StageActivityTypeIdentifier.isStageActivity(((Activity) pe).getType())) {
+            Activity act = (Activity) pe;
+            double duration = act.getEndTime().orElse(0) - act.getStartTime().orElse(0);
+            add(STAGE_ACTIVITY, new TravelTimeAndWaitTime(0.0, duration));
+        } else {
+            add(STAGE_ACTIVITY, new TravelTimeAndWaitTime(0.0, 0.0));
+        }
+    }
+
+    private void add(String mode, TravelTimeAndWaitTime travelTimeAndWaitTime) {
+        phtbyMode.merge(mode, travelTimeAndWaitTime, TravelTimeAndWaitTime::sum);
     }
 
 
@@ -23,31 +23,38 @@ package org.matsim.analysis;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.jfree.chart.axis.CategoryLabelPositions;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.scoring.EventsToTrips;
+import org.matsim.core.scoring.PersonExperiencedTrip;
 import org.matsim.core.utils.charts.StackedBarChart;
 
 import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
- * analyses passenger kilometer traveled based on experienced plans.
+ * analyses passenger kilometer traveled based on experienced trips or plans.
  * @author jbischoff
  */
-public class PKMbyModeCalculator {
+public class PKMbyModeCalculator implements EventsToTrips.TripHandler {
 
     private final Map<Integer,Map<String,Double>> pmtPerIteration = new TreeMap<>();
+    private Map<String,Double> pmtbyMode = new HashMap<>();
     private final boolean writePng;
     private final OutputDirectoryHierarchy controlerIO;
     private final static char DEL = '\t';
@@ -60,19 +67,45 @@ public class PKMbyModeCalculator {
         this.controlerIO = controlerIO;
     }
 
+    @Override
+    public void handleTrip(PersonExperiencedTrip trip) {
+        for (Leg leg : trip.getTrip().getLegsOnly()) {
+            addLeg(leg);
+        }
+    }
+
+    @Override
+    public void handleIncompleteTrip(Id<Person> agentId, Activity origin, List<PlanElement> tripElements) {
+        for (PlanElement pe : tripElements) {
+            if (pe instanceof Leg) {
+                addLeg((Leg) pe);
+            }
+        }
+    }
+
     void addIteration(int iteration, IdMap<Person, Plan> map) {
-        Map<String,Double> pmtbyMode = map.values()
-                .parallelStream()
-                .flatMap(plan -> plan.getPlanElements().stream())
-                .filter(Leg.class::isInstance)
-                .map(l->{
-                    Leg leg = (Leg) l;
-                    double dist = leg.getRoute()!=null?leg.getRoute().getDistance():0;
-                    if (Double.isNaN(dist)) {dist = 0.0; }
-                    return new AbstractMap.SimpleEntry<>(leg.getMode(),dist);
-                })
-                .collect(Collectors.toMap(e->e.getKey(),e->e.getValue(),(a,b)->a+b));
+        for (Plan plan : map.values()) {
+            for (PlanElement pe : plan.getPlanElements()) {
+                if (pe instanceof Leg) {
+                    addLeg((Leg) pe);
+                }
+            }
+        }
+        addIteration(iteration);
+    }
+
+    /**
+     * Stores the distances of the legs added since the previous iteration.
+     */
+    void addIteration(int iteration) {
         pmtPerIteration.put(iteration,pmtbyMode);
+        pmtbyMode = new HashMap<>();
+    }
+
+    private void addLeg(Leg leg) {
+        double dist = leg.getRoute()!=null?leg.getRoute().getDistance():0;
+        if (Double.isNaN(dist)) {dist = 0.0; }
+        pmtbyMode.merge(leg.getMode(), dist, Double::sum);
     }
 
 
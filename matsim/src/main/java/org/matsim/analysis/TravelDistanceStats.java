@@ -21,15 +21,20 @@
 package org.matsim.analysis;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.scoring.EventsToTrips;
+import org.matsim.core.scoring.PersonExperiencedTrip;
 import org.matsim.core.utils.charts.XYLineChart;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
@@ -38,8 +43,8 @@ import javax.inject.Inject;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.DoubleSummaryStatistics;
+import java.util.List;
 import java.util.Locale;
-import java.util.stream.Collectors;
 
 /**
  *
@@ -48,14 +53,15 @@ import java.util.stream.Collectors;
  * 	<li>average of the average leg distance per plan</li>
  * </ul>
  *
- * Is used by the standard Controler and fed the "really executed" "plans" which
- * are generated from Events during the simulation and which are also used by the scoring.
- * But you can also use it on other kinds of plans from your own code.
+ * Is used by the standard Controler and fed the "really executed" trips which
+ * are generated from Events during the simulation (see {@link EventsToTrips}). In that case,
+ * {@link #addIteration(int, int)} writes the statistics of the trips passed to {@link #handleTrip(PersonExperiencedTrip)}.
+ * But you can also use it on other kinds of plans from your own code, see {@link #addIteration(int, IdMap)}.
  *
  * @author anhorni, michaz, jbischoff
  */
 
-public class TravelDistanceStats {
+public class TravelDistanceStats implements EventsToTrips.TripHandler {
 
 	private final ControlerConfigGroup controlerConfigGroup;
 	final private BufferedWriter out;
@@ -65,6 +71,9 @@ public class TravelDistanceStats {
 	private double[] legStatsHistory = null;
 	private double[] tripStatsHistory = null;
 
+	private DoubleSummaryStatistics legStats = new DoubleSummaryStatistics();
+	private DoubleSummaryStatistics tripStats = new DoubleSummaryStatistics();
+
 	private final static Logger log = Logger.getLogger(TravelDistanceStats.class);
 
 	@Inject
@@ -108,42 +117,76 @@ public class TravelDistanceStats {
 		}
 	}
 
+	@Override
+	public void handleTrip(PersonExperiencedTrip experiencedTrip) {
+		Trip trip = experiencedTrip.getTrip();
+		for (Leg leg : trip.getLegsOnly()) {
+			addLeg(leg);
+		}
+		addTrip(trip);
+	}
+
+	/**
+	 * Counts the legs, but not the trip, as the legs of the experienced plans are counted without the trip.
+	 */
+	@Override
+	public void handleIncompleteTrip(Id<Person> agentId, Activity origin, List<PlanElement> tripElements) {
+		for (PlanElement pe : tripElements) {
+			if (pe instanceof Leg) {
+				addLeg((Leg) pe);
+			}
+		}
+	}
+
 	public void addIteration(int iteration, IdMap<Person, Plan> map) {
-        DoubleSummaryStatistics legStats = map.values()
-        		 //TODO: This probably doesn't control how many threads parallelStream is using despite the number of threads setting in config
-                .parallelStream()
-                .flatMap(plan -> plan.getPlanElements().stream())
-                .filter(Leg.class::isInstance)
-                .mapToDouble(l -> {
-                    Leg leg = (Leg) l;
-                    return leg.getRoute() != null ? leg.getRoute().getDistance() : Double.NaN;
-                })
-                // the following means legs with infinite distance are ignored
-                .filter(Double::isFinite)
-                .summaryStatistics();
-
-        DoubleSummaryStatistics tripStats = map.values()
-                .parallelStream()
-                .flatMap(plan -> TripStructureUtils.getTrips(plan).stream())
-                .mapToDouble(t -> {
-                    Trip trip = (Trip) t;
-                    return trip.getTripElements()
-                    .stream()
-                    .filter(Leg.class::isInstance)
-                    .collect(Collectors.summingDouble(l -> {
-                    	Leg leg = (Leg) l;
-                    	// TODO NaN handling of Collectors.summingDouble will lead to many NaNs... rethink
-                    	return leg.getRoute() != null ? leg.getRoute().getDistance() : Double.NaN;
-                    }));
-                })
-                // the following means trips with infinite distance are silently ignored.
-                .filter(Double::isFinite)
-                .summaryStatistics();
-        
+		for (Plan plan : map.values()) {
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Leg) {
+					addLeg((Leg) pe);
+				}
+			}
+			for (Trip trip : TripStructureUtils.getTrips(plan)) {
+				addTrip(trip);
+			}
+		}
+		addIteration(iteration, map.size());
+	}
+
+	private void addLeg(Leg leg) {
+		double distance = leg.getRoute() != null ? leg.getRoute().getDistance() : Double.NaN;
+		// the following means legs with infinite distance are ignored
+		if (Double.isFinite(distance)) {
+			this.legStats.accept(distance);
+		}
+	}
+
+	private void addTrip(Trip trip) {
+		double distance = 0.0;
+		for (Leg leg : trip.getLegsOnly()) {
+			// TODO NaN handling will lead to many NaNs... rethink
+			distance += leg.getRoute() != null ? leg.getRoute().getDistance() : Double.NaN;
+		}
+		// the following means trips with infinite distance are silently ignored.
+		if (Double.isFinite(distance)) {
+			this.tripStats.accept(distance);
+		}
+	}
+
+	/**
+	 * Writes the statistics of the legs and trips added since the previous iteration.
+	 *
+	 * @param numberOfPersons the number of persons the legs and trips belong to
+	 */
+	public void addIteration(int iteration, int numberOfPersons) {
+		DoubleSummaryStatistics legStats = this.legStats;
+		DoubleSummaryStatistics tripStats = this.tripStats;
+		this.legStats = new DoubleSummaryStatistics();
+		this.tripStats = new DoubleSummaryStatistics();
+
         log.info("-- average leg distance per plan (executed plans only): " + legStats.getAverage() + " meters");
-        log.info("average leg distance per Person (executed plans only): " + legStats.getSum() / map.size() + " meters (statistic on all " + legStats.getCount() + " legs which have a finite distance)");
+        log.info("average leg distance per Person (executed plans only): " + legStats.getSum() / numberOfPersons + " meters (statistic on all " + legStats.getCount() + " legs which have a finite distance)");
         log.info("-- average trip distance per plan (executed plans only): " + tripStats.getAverage() + " meters");
-        log.info("average trip distance per Person (executed plans only): " + tripStats.getSum() / map.size() + " meters (statistic on all " + tripStats.getCount() + " trips which have a finite distance)");
+        log.info("average trip distance per Person (executed plans only): " + tripStats.getSum() / numberOfPersons + " meters (statistic on all " + tripStats.getCount() + " trips which have a finite distance)");
         log.info("(TravelDistanceStats takes an average over all legs where the simulation reports travelled (network) distances");
 		log.info("(and teleported legs whose route contains a distance.)");// TODO: still valid?
 
@@ -0,0 +1,247 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TripsAndLegsArrowWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.analysis.TripsAndLegsRecords.LegRecord;
+import org.matsim.analysis.TripsAndLegsRecords.TripRecord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.utils.io.arrow.ArrowStreamWriter;
+import org.matsim.core.utils.io.arrow.ArrowStreamWriter.ColumnType;
+
+/**
+ * Writes the same trips and legs as {@link TripsAndLegsCSVWriter}, but as Apache Arrow IPC streams (see
+ * {@link ArrowStreamWriter}). The columns have the same names as in the CSV files. Times are written in seconds instead
+ * of hh:mm:ss, missing ids and stops are null, and ids, modes and activity types are dictionary-encoded. The values of
+ * the additional columns of the writer extensions are written as strings.
+ */
+public class TripsAndLegsArrowWriter {
+
+	private final TripsAndLegsRecords records;
+	private final TripsAndLegsCSVWriter.CustomTripsWriterExtension tripsWriterExtension;
+	private final TripsAndLegsCSVWriter.CustomLegsWriterExtension legsWriterExtension;
+
+	public TripsAndLegsArrowWriter(Scenario scenario, TripsAndLegsCSVWriter.CustomTripsWriterExtension tripsWriterExtension,
+			TripsAndLegsCSVWriter.CustomLegsWriterExtension legsWriterExtension) {
+		this.records = new TripsAndLegsRecords(scenario);
+		this.tripsWriterExtension = tripsWriterExtension;
+		this.legsWriterExtension = legsWriterExtension;
+	}
+
+	public void write(IdMap<Person, Plan> experiencedPlans, String tripsFilename, String legsFilename) {
+		try (ArrowStreamWriter tripsWriter = new ArrowStreamWriter(tripsFilename);
+				ArrowStreamWriter legsWriter = new ArrowStreamWriter(legsFilename)) {
+			TripColumns tripColumns = new TripColumns(tripsWriter);
+			LegColumns legColumns = new LegColumns(legsWriter);
+			TripsAndLegsRecords.RecordHandler handler = new TripsAndLegsRecords.RecordHandler() {
+				@Override
+				public void handleTrip(TripRecord trip) {
+					tripColumns.write(trip);
+				}
+
+				@Override
+				public void handleLeg(LegRecord leg) {
+					legColumns.write(leg);
+				}
+			};
+			for (Map.Entry<Id<Person>, Plan> entry : experiencedPlans.entrySet()) {
+				records.createRecords(entry.getValue(), entry.getKey(), handler);
+			}
+		}
+	}
+
+	private static String toString(Id<?> id) {
+		return id == null ? null : id.toString();
+	}
+
+	private final class TripColumns {
+		private final ArrowStreamWriter writer;
+		private final int person;
+		private final int tripNumber;
+		private final int tripIdColumn;
+		private final int depTime;
+		private final int travTime;
+		private final int waitTime;
+		private final int traveledDistance;
+		private final int euclideanDistance;
+		private final int longestDistanceMode;
+		private final int modesColumn;
+		private final int startActivityType;
+		private final int endActivityType;
+		private final int startFacilityId;
+		private final int startLink;
+		private final int startX;
+		private final int startY;
+		private final int endFacilityId;
+		private final int endLink;
+		private final int endX;
+		private final int endY;
+		private final int firstPtBoardingStop;
+		private final int lastPtEgressStop;
+		private final int[] additional;
+
+		TripColumns(ArrowStreamWriter writer) {
+			this.writer = writer;
+			this.person = writer.addColumn("person", ColumnType.DICTIONARY);
+			this.tripNumber = writer.addColumn("trip_number", ColumnType.INT);
+			this.tripIdColumn = writer.addColumn("trip_id", ColumnType.STRING);
+			this.depTime = writer.addColumn("dep_time", ColumnType.DOUBLE);
+			this.travTime = writer.addColumn("trav_time", ColumnType.DOUBLE);
+			this.waitTime = writer.addColumn("wait_time", ColumnType.DOUBLE);
+			this.traveledDistance = writer.addColumn("traveled_distance", ColumnType.INT);
+			this.euclideanDistance = writer.addColumn("euclidean_distance", ColumnType.INT);
+			this.longestDistanceMode = writer.addColumn("longest_distance_mode", ColumnType.DICTIONARY);
+			this.modesColumn = writer.addColumn("modes", ColumnType.DICTIONARY);
+			this.startActivityType = writer.addColumn("start_activity_type", ColumnType.DICTIONARY);
+			this.endActivityType = writer.addColumn("end_activity_type", ColumnType.DICTIONARY);
+			this.startFacilityId = writer.addColumn("start_facility_id", ColumnType.DICTIONARY);
+			this.startLink = writer.addColumn("start_link", ColumnType.DICTIONARY);
+			this.startX = writer.addColumn("start_x", ColumnType.DOUBLE);
+			this.startY = writer.addColumn("start_y", ColumnType.DOUBLE);
+			this.endFacilityId = writer.addColumn("end_facility_id", ColumnType.DICTIONARY);
+			this.endLink = writer.addColumn("end_link", ColumnType.DICTIONARY);
+			this.endX = writer.addColumn("end_x", ColumnType.DOUBLE);
+			this.endY = writer.addColumn("end_y", ColumnType.DOUBLE);
+			this.firstPtBoardingStop = writer.addColumn("first_pt_boarding_stop", ColumnType.DICTIONARY);
+			this.lastPtEgressStop = writer.addColumn("last_pt_egress_stop", ColumnType.DICTIONARY);
+			String[] header = tripsWriterExtension.getAdditionalTripHeader();
+			this.additional = new int[header.length];
+			for (int i = 0; i < header.length; i++) {
+				this.additional[i] = writer.addColumn(header[i], ColumnType.STRING);
+			}
+		}
+
+		void write(TripRecord record) {
+			writer.set(person, record.personId.toString());
+			writer.set(tripNumber, record.tripNumber);
+			writer.set(tripIdColumn, record.tripId);
+			writer.set(depTime, record.departureTime);
+			writer.set(travTime, record.travelTime);
+			writer.set(waitTime, record.waitingTime);
+			writer.set(traveledDistance, (int) Math.round(record.distance));
+			writer.set(euclideanDistance, record.euclideanDistance);
+			writer.set(longestDistanceMode, record.longestDistanceMode);
+			writer.set(modesColumn, record.modes);
+			writer.set(startActivityType, record.startActivity.getType());
+			writer.set(endActivityType, record.endActivity.getType());
+			writer.set(startFacilityId, TripsAndLegsArrowWriter.toString(record.startActivity.getFacilityId()));
+			writer.set(startLink, TripsAndLegsArrowWriter.toString(record.startActivity.getLinkId()));
+			writer.set(startX, record.startCoord.getX());
+			writer.set(startY, record.startCoord.getY());
+			writer.set(endFacilityId, TripsAndLegsArrowWriter.toString(record.endActivity.getFacilityId()));
+			writer.set(endLink, TripsAndLegsArrowWriter.toString(record.endActivity.getLinkId()));
+			writer.set(endX, record.endCoord.getX());
+			writer.set(endY, record.endCoord.getY());
+			writer.set(firstPtBoardingStop, TripsAndLegsArrowWriter.toString(record.firstPtBoardingStop));
+			writer.set(lastPtEgressStop, TripsAndLegsArrowWriter.toString(record.lastPtEgressStop));
+			List<String> additionalValues = tripsWriterExtension.getAdditionalTripColumns(record.trip);
+			if (additionalValues.size() != additional.length) {
+				throw new RuntimeException("Custom Writer Extension does not provide a sufficient number of additional columns. Must be " + additional.length + " , but is " + additionalValues.size());
+			}
+			for (int i = 0; i < additional.length; i++) {
+				writer.set(additional[i], additionalValues.get(i));
+			}
+			writer.endRow();
+		}
+	}
+
+	private final class LegColumns {
+		private final ArrowStreamWriter writer;
+		private final int person;
+		private final int tripIdColumn;
+		private final int depTime;
+		private final int travTime;
+		private final int waitTime;
+		private final int distance;
+		private final int mode;
+		private final int startLink;
+		private final int startX;
+		private final int startY;
+		private final int endLink;
+		private final int endX;
+		private final int endY;
+		private final int accessStopId;
+		private final int egressStopId;
+		private final int transitLine;
+		private final int transitRoute;
+		private final int[] additional;
+
+		LegColumns(ArrowStreamWriter writer) {
+			this.writer = writer;
+			this.person = writer.addColumn("person", ColumnType.DICTIONARY);
+			this.tripIdColumn = writer.addColumn("trip_id", ColumnType.STRING);
+			this.depTime = writer.addColumn("dep_time", ColumnType.DOUBLE);
+			this.travTime = writer.addColumn("trav_time", ColumnType.DOUBLE);
+			this.waitTime = writer.addColumn("wait_time", ColumnType.DOUBLE);
+			this.distance = writer.addColumn("distance", ColumnType.INT);
+			this.mode = writer.addColumn("mode", ColumnType.DICTIONARY);
+			this.startLink = writer.addColumn("start_link", ColumnType.DICTIONARY);
+			this.startX = writer.addColumn("start_x", ColumnType.DOUBLE);
+			this.startY = writer.addColumn("start_y", ColumnType.DOUBLE);
+			this.endLink = writer.addColumn("end_link", ColumnType.DICTIONARY);
+			this.endX = writer.addColumn("end_x", ColumnType.DOUBLE);
+			this.endY = writer.addColumn("end_y", ColumnType.DOUBLE);
+			this.accessStopId = writer.addColumn("access_stop_id", ColumnType.DICTIONARY);
+			this.egressStopId = writer.addColumn("egress_stop_id", ColumnType.DICTIONARY);
+			this.transitLine = writer.addColumn("transit_line", ColumnType.DICTIONARY);
+			this.transitRoute = writer.addColumn("transit_route", ColumnType.DICTIONARY);
+			String[] header = legsWriterExtension.getAdditionalLegHeader();
+			this.additional = new int[header.length];
+			for (int i = 0; i < header.length; i++) {
+				this.additional[i] = writer.addColumn(header[i], ColumnType.STRING);
+			}
+		}
+
+		void write(LegRecord record) {
+			writer.set(person, record.personId.toString());
+			writer.set(tripIdColumn, record.tripId);
+			writer.set(depTime, record.leg.getDepartureTime().seconds());
+			writer.set(travTime, record.leg.getTravelTime().seconds());
+			writer.set(waitTime, record.waitingTime);
+			writer.set(distance, (int) record.leg.getRoute().getDistance());
+			writer.set(mode, record.leg.getMode());
+			writer.set(startLink, record.leg.getRoute().getStartLinkId().toString());
+			writer.set(startX, record.startCoord.getX());
+			writer.set(startY, record.startCoord.getY());
+			writer.set(endLink, record.leg.getRoute().getEndLinkId().toString());
+			writer.set(endX, record.endCoord.getX());
+			writer.set(endY, record.endCoord.getY());
+			writer.set(accessStopId, TripsAndLegsArrowWriter.toString(record.accessStopId));
+			writer.set(egressStopId, TripsAndLegsArrowWriter.toString(record.egressStopId));
+			writer.set(transitLine, TripsAndLegsArrowWriter.toString(record.transitLineId));
+			writer.set(transitRoute, TripsAndLegsArrowWriter.toString(record.transitRouteId));
+			List<String> additionalValues = legsWriterExtension.getAdditionalLegColumns(record.trip, record.leg);
+			if (additionalValues.size() != additional.length) {
+				throw new RuntimeException("Custom Writer Extension does not provide a sufficient number of additional leg columns. Must be " + additional.length + " , but is " + additionalValues.size());
+			}
+			for (int i = 0; i < additional.length; i++) {
+				writer.set(additional[i], additionalValues.get(i));
+			}
+			writer.endRow();
+		}
+	}
+}
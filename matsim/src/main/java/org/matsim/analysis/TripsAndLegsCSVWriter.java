@@ -26,29 +26,22 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.lang3.ArrayUtils;
-import org.matsim.api.core.v01.Coord;
+import org.matsim.analysis.TripsAndLegsRecords.LegRecord;
+import org.matsim.analysis.TripsAndLegsRecords.TripRecord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
-import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.router.TripStructureUtils;
-import org.matsim.core.scoring.EventsToLegs;
 import org.matsim.core.utils.collections.Tuple;
-import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.misc.Time;
-import org.matsim.facilities.ActivityFacility;
-import org.matsim.pt.routes.TransitPassengerRoute;
 
 
 /**
@@ -68,12 +61,12 @@ public class TripsAndLegsCSVWriter {
 
     private final String separator;
     private final CustomTripsWriterExtension tripsWriterExtension;
-    private final Scenario scenario;
+    private final TripsAndLegsRecords records;
     private final CustomLegsWriterExtension legsWriterExtension;
 
 
     public TripsAndLegsCSVWriter(Scenario scenario, CustomTripsWriterExtension tripsWriterExtension, CustomLegsWriterExtension legWriterExtension) {
-        this.scenario = scenario;
+        this.records = new TripsAndLegsRecords(scenario);
         this.separator = scenario.getConfig().global().getDefaultDelimiter();
         TRIPSHEADER = ArrayUtils.addAll(TRIPSHEADER, tripsWriterExtension.getAdditionalTripHeader());
         LEGSHEADER = ArrayUtils.addAll(LEGSHEADER, legWriterExtension.getAdditionalLegHeader());
@@ -104,148 +97,73 @@ public class TripsAndLegsCSVWriter {
         List<List<String>> tripRecords = new ArrayList<>();
         List<List<String>> legRecords = new ArrayList<>();
         Tuple<Iterable<?>, Iterable<?>> record = new Tuple<>(tripRecords, legRecords);
-        List<TripStructureUtils.Trip> trips = TripStructureUtils.getTrips(experiencedPlan);
-
-        for (int i = 0; i < trips.size(); i++) {
-            TripStructureUtils.Trip trip = trips.get(i);
-            List<String> tripRecord = new ArrayList<>();
-            tripRecords.add(tripRecord);
-            tripRecord.add(personId.toString());
-            final String tripNo = Integer.toString(i + 1);
-            tripRecord.add(tripNo); // trip number, numbered starting with 0
-            String tripId = personId.toString() + "_" + tripNo;
-            tripRecord.add(tripId);
-            double distance = 0.0;
-            double departureTime = trip.getOriginActivity().getEndTime().orElse(0);
-            double travelTime = trip.getDestinationActivity().getStartTime().orElse(0) - departureTime;
-            //experienced plans have a start time
-
-            double totalWaitingTime = 0.0;
-            double currentLongestShareDistance = Double.MIN_VALUE;
-            String currentModeWithLongestShare = "";
-            List<String> modes = new ArrayList<>();
-            String lastActivityType = trip.getOriginActivity().getType();
-            String nextActivityType = trip.getDestinationActivity().getType();
-            Id<ActivityFacility> fromFacilityId = trip.getOriginActivity().getFacilityId();
-            Id<ActivityFacility> toFacilityId = trip.getDestinationActivity().getFacilityId();
-            Id<Link> fromLinkId = trip.getOriginActivity().getLinkId();
-            Id<Link> toLinkId = trip.getDestinationActivity().getLinkId();
-            Coord fromCoord = getCoordFromActivity(trip.getOriginActivity());
-            Coord toCoord = getCoordFromActivity(trip.getDestinationActivity());
-            int euclideanDistance = (int) CoordUtils.calcEuclideanDistance(fromCoord, toCoord);
-            String firstPtBoardingStop = null;
-            String lastPtEgressStop = null;
-
-
-            for (Leg leg : trip.getLegsOnly()) {
-                modes.add(leg.getMode());
-                final double legDist = leg.getRoute().getDistance();
-                distance += legDist;
-                Double boardingTime = (Double) leg.getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME);
-                if (boardingTime != null) {
-					double waitingTime = boardingTime - leg.getDepartureTime().seconds();
-                    totalWaitingTime += waitingTime;
-                }
-                if (legDist > currentLongestShareDistance) {
-                    currentLongestShareDistance = legDist;
-                    currentModeWithLongestShare = leg.getMode();
-
-                }
-                if (leg.getRoute() instanceof TransitPassengerRoute) {
-                    TransitPassengerRoute route = (TransitPassengerRoute) leg.getRoute();
-                    firstPtBoardingStop = firstPtBoardingStop != null ? firstPtBoardingStop : route.getAccessStopId().toString();
-                    lastPtEgressStop = route.getEgressStopId().toString();
-                }
-
-            }
-
-            tripRecord.add(Time.writeTime(departureTime));
-            tripRecord.add(Time.writeTime(travelTime));
-            tripRecord.add(Time.writeTime(totalWaitingTime));
-            tripRecord.add(Integer.toString((int) Math.round(distance)));
-            tripRecord.add(Integer.toString(euclideanDistance));
-            tripRecord.add(currentModeWithLongestShare);
-            tripRecord.add(modes.stream().collect(Collectors.joining("-")));
-            tripRecord.add(lastActivityType);
-            tripRecord.add(nextActivityType);
-            tripRecord.add(String.valueOf(fromFacilityId));
-            tripRecord.add(String.valueOf(fromLinkId));
-            tripRecord.add(Double.toString(fromCoord.getX()));
-            tripRecord.add(Double.toString(fromCoord.getY()));
-
-            tripRecord.add(String.valueOf(toFacilityId));
-            tripRecord.add(String.valueOf(toLinkId));
-            tripRecord.add(Double.toString(toCoord.getX()));
-            tripRecord.add(Double.toString(toCoord.getY()));
-            tripRecord.add(firstPtBoardingStop != null ? firstPtBoardingStop : "");
-            tripRecord.add(lastPtEgressStop != null ? lastPtEgressStop : "");
-            tripRecord.addAll(tripsWriterExtension.getAdditionalTripColumns(trip));
-            if (TRIPSHEADER.length != tripRecord.size()) {
-                throw new RuntimeException("Custom CSV Writer Extension does not provide a sufficient number of additional columns. Must be " + TRIPSHEADER.length + " , but is " + tripRecord.size());
+        records.createRecords(experiencedPlan, personId, new TripsAndLegsRecords.RecordHandler() {
+            @Override
+            public void handleTrip(TripRecord trip) {
+                tripRecords.add(getTripRecord(trip));
             }
-            Activity prevAct = null;
-            Leg prevLeg = null;
-            List<PlanElement> allElements = new ArrayList<>();
-            allElements.add(trip.getOriginActivity());
-            allElements.addAll(trip.getTripElements());
-            allElements.add(trip.getDestinationActivity());
-            for (PlanElement pe : allElements) {
-                if (pe instanceof Activity) {
-                    Activity currentAct = (Activity) pe;
-                    if (prevLeg != null) {
-                        List<String> legRecord = getLegRecord(prevLeg, personId.toString(), tripId, prevAct, currentAct, trip);
-                        legRecords.add(legRecord);
-                    }
-                    prevAct = currentAct;
 
-                } else if (pe instanceof Leg) {
-                    prevLeg = (Leg) pe;
-                }
+            @Override
+            public void handleLeg(LegRecord leg) {
+                legRecords.add(getLegRecord(leg));
             }
-        }
-
+        });
         return record;
     }
 
-    private List<String> getLegRecord(Leg leg, String personId, String tripId, Activity previousAct, Activity nextAct, TripStructureUtils.Trip trip) {
-        List<String> record = new ArrayList<>();
-        record.add(personId);
-        record.add(tripId);
-		record.add(Time.writeTime(leg.getDepartureTime().seconds()));
-		record.add(Time.writeTime(leg.getTravelTime().seconds()));
-        Double boardingTime = (Double) leg.getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME);
-        double waitingTime = 0.;
-        if (boardingTime != null) {
-			waitingTime = boardingTime - leg.getDepartureTime().seconds();
-        }
-        record.add(Time.writeTime(waitingTime));
-        record.add(Integer.toString((int) leg.getRoute().getDistance()));
-        record.add(leg.getMode());
-        record.add(leg.getRoute().getStartLinkId().toString());
-        Coord startCoord = getCoordFromActivity(previousAct);
-        Coord endCoord = getCoordFromActivity(nextAct);
-        record.add(Double.toString(startCoord.getX()));
-        record.add(Double.toString(startCoord.getY()));
-        record.add(leg.getRoute().getEndLinkId().toString());
-        record.add(Double.toString(endCoord.getX()));
-        record.add(Double.toString(endCoord.getY()));
-        String transitLine = "";
-        String transitRoute = "";
-        String ptAccessStop = "";
-        String ptEgressStop = "";
-        if (leg.getRoute() instanceof TransitPassengerRoute) {
-            TransitPassengerRoute route = (TransitPassengerRoute) leg.getRoute();
-            transitLine = route.getLineId().toString();
-            transitRoute = route.getRouteId().toString();
-            ptAccessStop = route.getAccessStopId().toString();
-            ptEgressStop = route.getEgressStopId().toString();
+    private List<String> getTripRecord(TripRecord trip) {
+        List<String> tripRecord = new ArrayList<>();
+        tripRecord.add(trip.personId.toString());
+        tripRecord.add(Integer.toString(trip.tripNumber));
+        tripRecord.add(trip.tripId);
+        tripRecord.add(Time.writeTime(trip.departureTime));
+        tripRecord.add(Time.writeTime(trip.travelTime));
+        tripRecord.add(Time.writeTime(trip.waitingTime));
+        tripRecord.add(Integer.toString((int) Math.round(trip.distance)));
+        tripRecord.add(Integer.toString(trip.euclideanDistance));
+        tripRecord.add(trip.longestDistanceMode);
+        tripRecord.add(trip.modes);
+        tripRecord.add(trip.startActivity.getType());
+        tripRecord.add(trip.endActivity.getType());
+        tripRecord.add(String.valueOf(trip.startActivity.getFacilityId()));
+        tripRecord.add(String.valueOf(trip.startActivity.getLinkId()));
+        tripRecord.add(Double.toString(trip.startCoord.getX()));
+        tripRecord.add(Double.toString(trip.startCoord.getY()));
+
+        tripRecord.add(String.valueOf(trip.endActivity.getFacilityId()));
+        tripRecord.add(String.valueOf(trip.endActivity.getLinkId()));
+        tripRecord.add(Double.toString(trip.endCoord.getX()));
+        tripRecord.add(Double.toString(trip.endCoord.getY()));
+        tripRecord.add(toStringOrEmpty(trip.firstPtBoardingStop));
+        tripRecord.add(toStringOrEmpty(trip.lastPtEgressStop));
+        tripRecord.addAll(tripsWriterExtension.getAdditionalTripColumns(trip.trip));
+        if (TRIPSHEADER.length != tripRecord.size()) {
+            throw new RuntimeException("Custom CSV Writer Extension does not provide a sufficient number of additional columns. Must be " + TRIPSHEADER.length + " , but is " + tripRecord.size());
         }
-        record.add(ptAccessStop);
-        record.add(ptEgressStop);
-        record.add(transitLine);
-        record.add(transitRoute);
+        return tripRecord;
+    }
 
-        record.addAll(legsWriterExtension.getAdditionalLegColumns(trip, leg));
+    private List<String> getLegRecord(LegRecord leg) {
+        List<String> record = new ArrayList<>();
+        record.add(leg.personId.toString());
+        record.add(leg.tripId);
+        record.add(Time.writeTime(leg.leg.getDepartureTime().seconds()));
+        record.add(Time.writeTime(leg.leg.getTravelTime().seconds()));
+        record.add(Time.writeTime(leg.waitingTime));
+        record.add(Integer.toString((int) leg.leg.getRoute().getDistance()));
+        record.add(leg.leg.getMode());
+        record.add(leg.leg.getRoute().getStartLinkId().toString());
+        record.add(Double.toString(leg.startCoord.getX()));
+        record.add(Double.toString(leg.startCoord.getY()));
+        record.add(leg.leg.getRoute().getEndLinkId().toString());
+        record.add(Double.toString(leg.endCoord.getX()));
+        record.add(Double.toString(leg.endCoord.getY()));
+        record.add(toStringOrEmpty(leg.accessStopId));
+        record.add(toStringOrEmpty(leg.egressStopId));
+        record.add(toStringOrEmpty(leg.transitLineId));
+        record.add(toStringOrEmpty(leg.transitRouteId));
+
+        record.addAll(legsWriterExtension.getAdditionalLegColumns(leg.trip, leg.leg));
         if (LEGSHEADER.length != record.size()) {
             throw new RuntimeException("Custom CSV Writer Extension does not provide a sufficient number of additional leg columns. Must be " + LEGSHEADER.length + " , but is " + record.size());
         }
@@ -253,18 +171,8 @@ public class TripsAndLegsCSVWriter {
         return record;
     }
 
-    private Coord getCoordFromActivity(Activity activity) {
-        if (activity.getCoord() != null) {
-            return activity.getCoord();
-        } else if (activity.getFacilityId() != null && scenario.getActivityFacilities().getFacilities().containsKey(activity.getFacilityId())) {
-            Coord coord = scenario.getActivityFacilities().getFacilities().get(activity.getFacilityId()).getCoord();
-            return coord != null ? coord : getCoordFromLink(activity.getLinkId());
-        } else return getCoordFromLink(activity.getLinkId());
-    }
-
-    //this is the least desirable way
-    private Coord getCoordFromLink(Id<Link> linkId) {
-        return scenario.getNetwork().getLinks().get(linkId).getToNode().getCoord();
+    private static String toStringOrEmpty(Id<?> id) {
+        return id != null ? id.toString() : "";
     }
 
 
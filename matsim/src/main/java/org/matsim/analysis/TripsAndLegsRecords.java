@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TripsAndLegsRecords.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scoring.EventsToLegs;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.TransitPassengerRoute;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Derives the rows written by {@link TripsAndLegsCSVWriter} and {@link TripsAndLegsArrowWriter} from an experienced
+ * plan, so that both writers only differ in how they format the values.
+ */
+final class TripsAndLegsRecords {
+
+	interface RecordHandler {
+		void handleTrip(TripRecord trip);
+
+		void handleLeg(LegRecord leg);
+	}
+
+	static final class TripRecord {
+		final TripStructureUtils.Trip trip;
+		final Id<Person> personId;
+		final int tripNumber;// starting with 1
+		final String tripId;
+		final double departureTime;
+		final double travelTime;
+		final double waitingTime;
+		final double distance;
+		final int euclideanDistance;
+		final String longestDistanceMode;
+		final String modes;// joined by "-"
+		final Activity startActivity;
+		final Activity endActivity;
+		final Coord startCoord;
+		final Coord endCoord;
+		final Id<TransitStopFacility> firstPtBoardingStop;// null without pt legs
+		final Id<TransitStopFacility> lastPtEgressStop;// null without pt legs
+
+		private TripRecord(TripStructureUtils.Trip trip, Id<Person> personId, int tripNumber, Coord startCoord,
+				Coord endCoord) {
+			this.trip = trip;
+			this.personId = personId;
+			this.tripNumber = tripNumber;
+			this.tripId = personId.toString() + "_" + tripNumber;
+			this.startActivity = trip.getOriginActivity();
+			this.endActivity = trip.getDestinationActivity();
+			this.startCoord = startCoord;
+			this.endCoord = endCoord;
+			this.euclideanDistance = (int) CoordUtils.calcEuclideanDistance(startCoord, endCoord);
+			//experienced plans have a start time
+			this.departureTime = startActivity.getEndTime().orElse(0);
+			this.travelTime = endActivity.getStartTime().orElse(0) - departureTime;
+
+			double distance = 0.0;
+			double waitingTime = 0.0;
+			double currentLongestShareDistance = Double.MIN_VALUE;
+			String currentModeWithLongestShare = "";
+			StringBuilder modes = new StringBuilder();
+			Id<TransitStopFacility> firstPtBoardingStop = null;
+			Id<TransitStopFacility> lastPtEgressStop = null;
+			for (Leg leg : trip.getLegsOnly()) {
+				if (modes.length() > 0) {
+					modes.append('-');
+				}
+				modes.append(leg.getMode());
+				double legDist = leg.getRoute().getDistance();
+				distance += legDist;
+				waitingTime += getWaitingTime(leg);
+				if (legDist > currentLongestShareDistance) {
+					currentLongestShareDistance = legDist;
+					currentModeWithLongestShare = leg.getMode();
+				}
+				if (leg.getRoute() instanceof TransitPassengerRoute) {
+					TransitPassengerRoute route = (TransitPassengerRoute) leg.getRoute();
+					firstPtBoardingStop = firstPtBoardingStop != null ? firstPtBoardingStop : route.getAccessStopId();
+					lastPtEgressStop = route.getEgressStopId();
+				}
+			}
+			this.distance = distance;
+			this.waitingTime = waitingTime;
+			this.longestDistanceMode = currentModeWithLongestShare;
+			this.modes = modes.toString();
+			this.firstPtBoardingStop = firstPtBoardingStop;
+			this.lastPtEgressStop = lastPtEgressStop;
+		}
+	}
+
+	static final class LegRecord {
+		final TripStructureUtils.Trip trip;
+		final Leg leg;
+		final Id<Person> personId;
+		final String tripId;
+		final double waitingTime;
+		final Coord startCoord;
+		final Coord endCoord;
+		// all null if the leg is not a pt leg
+		final Id<TransitStopFacility> accessStopId;
+		final Id<TransitStopFacility> egressStopId;
+		final Id<TransitLine> transitLineId;
+		final Id<TransitRoute> transitRouteId;
+
+		private LegRecord(TripRecord tripRecord, Leg leg, Coord startCoord, Coord endCoord) {
+			this.trip = tripRecord.trip;
+			this.leg = leg;
+			this.personId = tripRecord.personId;
+			this.tripId = tripRecord.tripId;
+			this.waitingTime = getWaitingTime(leg);
+			this.startCoord = startCoord;
+			this.endCoord = endCoord;
+			if (leg.getRoute() instanceof TransitPassengerRoute) {
+				TransitPassengerRoute route = (TransitPassengerRoute) leg.getRoute();
+				this.accessStopId = route.getAccessStopId();
+				this.egressStopId = route.getEgressStopId();
+				this.transitLineId = route.getLineId();
+				this.transitRouteId = route.getRouteId();
+			} else {
+				this.accessStopId = null;
+				this.egressStopId = null;
+				this.transitLineId = null;
+				this.transitRouteId = null;
+			}
+		}
+	}
+
+	private final Scenario scenario;
+
+	TripsAndLegsRecords(Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	/**
+	 * Passes the record of each trip of the plan to the handler, followed by the records of the legs of the trip.
+	 */
+	void createRecords(Plan experiencedPlan, Id<Person> personId, RecordHandler handler) {
+		List<TripStructureUtils.Trip> trips = TripStructureUtils.getTrips(experiencedPlan);
+		for (int i = 0; i < trips.size(); i++) {
+			TripStructureUtils.Trip trip = trips.get(i);
+			TripRecord tripRecord = new TripRecord(trip, personId, i + 1,
+					getCoordFromActivity(trip.getOriginActivity()),
+					getCoordFromActivity(trip.getDestinationActivity()));
+			handler.handleTrip(tripRecord);
+
+			Coord prevCoord = tripRecord.startCoord;
+			Leg prevLeg = null;
+			List<PlanElement> elements = new ArrayList<>(trip.getTripElements());
+			elements.add(trip.getDestinationActivity());
+			for (PlanElement pe : elements) {
+				if (pe instanceof Activity) {
+					Coord currentCoord = getCoordFromActivity((Activity) pe);
+					if (prevLeg != null) {
+						handler.handleLeg(new LegRecord(tripRecord, prevLeg, prevCoord, currentCoord));
+					}
+					prevCoord = currentCoord;
+				} else if (pe instanceof Leg) {
+					prevLeg = (Leg) pe;
+				}
+			}
+		}
+	}
+
+	private static double getWaitingTime(Leg leg) {
+		Double boardingTime = (Double) leg.getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME);
+		return boardingTime != null ? boardingTime - leg.getDepartureTime().seconds() : 0.0;
+	}
+
+	private Coord getCoordFromActivity(Activity activity) {
+		if (activity.getCoord() != null) {
+			return activity.getCoord();
+		} else if (activity.getFacilityId() != null && scenario.getActivityFacilities().getFacilities().containsKey(activity.getFacilityId())) {
+			Coord coord = scenario.getActivityFacilities().getFacilities().get(activity.getFacilityId()).getCoord();
+			return coord != null ? coord : getCoordFromLink(activity.getLinkId());
+		} else return getCoordFromLink(activity.getLinkId());
+	}
+
+	//this is the least desirable way
+	private Coord getCoordFromLink(Id<Link> linkId) {
+		return scenario.getNetwork().getLinks().get(linkId).getToNode().getCoord();
+	}
+}
@@ -0,0 +1,136 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A map from ids to primitive <code>long</code> values, stored in an array that is indexed by {@link Id#index()}.
+ * Compared to a <code>Map&lt;Id&lt;T&gt;, Long&gt;</code>, no objects are created when values are stored or updated.
+ * <p>
+ * Like {@link IdMap}, the map needs memory proportional to the largest index of the ids it contains, so it works best
+ * for ids of which most are contained in the map, e.g. all persons or all links.
+ */
+public class IdLongMap<T> {
+
+	private final Class<T> idClass;
+	private int size = 0;
+	private long[] data;
+	private final BitSet keys;
+
+	public IdLongMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), 100));
+	}
+
+	public IdLongMap(Class<T> idClass, int size) {
+		this.idClass = idClass;
+		this.data = new long[size];
+		this.keys = new BitSet(size);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		return this.keys.get(key.index());
+	}
+
+	/**
+	 * @return the value stored for the key, or <code>0</code> if the map does not contain the key
+	 */
+	public long get(Id<T> key) {
+		return getOrDefault(key, 0);
+	}
+
+	public long getOrDefault(Id<T> key, long defaultValue) {
+		int index = key.index();
+		return this.keys.get(index) ? this.data[index] : defaultValue;
+	}
+
+	/**
+	 * @return the previous value stored for the key, or <code>0</code> if the map did not contain the key
+	 */
+	public long put(Id<T> key, long value) {
+		int index = key.index();
+		ensureCapacity(index);
+		long oldValue = 0;
+		if (this.keys.get(index)) {
+			oldValue = this.data[index];
+		} else {
+			this.keys.set(index);
+			this.size++;
+		}
+		this.data[index] = value;
+		return oldValue;
+	}
+
+	/**
+	 * Adds the increment to the value stored for the key. If the map does not contain the key, the increment is stored.
+	 *
+	 * @return the new value stored for the key
+	 */
+	public long addTo(Id<T> key, long increment) {
+		int index = key.index();
+		ensureCapacity(index);
+		if (this.keys.get(index)) {
+			this.data[index] += increment;
+		} else {
+			this.keys.set(index);
+			this.size++;
+			this.data[index] = increment;
+		}
+		return this.data[index];
+	}
+
+	/**
+	 * @return the value that was stored for the key, or <code>0</code> if the map did not contain the key
+	 */
+	public long remove(Id<T> key) {
+		int index = key.index();
+		if (!this.keys.get(index)) {
+			return 0;
+		}
+		this.keys.clear(index);
+		this.size--;
+		long oldValue = this.data[index];
+		this.data[index] = 0;
+		return oldValue;
+	}
+
+	public void clear() {
+		Arrays.fill(this.data, 0);
+		this.keys.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Passes all entries to the action, in the order of the indices of their ids.
+	 */
+	public void forEach(ObjLongConsumer<Id<T>> action) {
+		for (int index = this.keys.nextSetBit(0); index >= 0; index = this.keys.nextSetBit(index + 1)) {
+			action.accept(Id.get(index, this.idClass), this.data[index]);
+		}
+	}
+
+	/**
+	 * @return a new set with the keys of this map
+	 */
+	public IdSet<T> keySet() {
+		IdSet<T> keySet = new IdSet<>(this.idClass, this.keys.length());
+		for (int index = this.keys.nextSetBit(0); index >= 0; index = this.keys.nextSetBit(index + 1)) {
+			keySet.add(Id.get(index, this.idClass));
+		}
+		return keySet;
+	}
+
+	private void ensureCapacity(int index) {
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, index + 100);
+		}
+	}
+}
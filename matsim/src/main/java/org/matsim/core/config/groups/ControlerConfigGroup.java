@@ -37,6 +37,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 
 	public enum EventsFileFormat {xml, pb, json}
 
+	public enum TabularFileFormat {csv, arrow}
+
 	public enum CompressionType {
 		none(""),
 		gzip(".gz"),
@@ -60,6 +62,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
+	private static final String TABULAR_FILE_FORMATS = "tabularFileFormats";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
     private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
@@ -67,11 +70,15 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
 	private static final String COMPRESSION_TYPE = "compressionType";
+	private static final String ZSTD_COMPRESSION_LEVEL = "zstdCompressionLevel";
+	private static final String ZSTD_WORKERS = "zstdWorkers";
 
 	/*package*/ static final String MOBSIM = "mobsim";
 	public enum MobsimType {qsim, JDEQSim}
 
 	private static final String WRITE_SNAPSHOTS_INTERVAL = "writeSnapshotsInterval";
+	private static final String WRITE_CHECKPOINT_INTERVAL = "writeCheckpointInterval";
+	private static final String RESUME_FROM_CHECKPOINT = "resumeFromCheckpoint";
 
 
 	private String outputDirectory = "./output";
@@ -84,15 +91,20 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private String runId = null;
 
 	private Set<EventsFileFormat> eventsFileFormats = Collections.unmodifiableSet(EnumSet.of(EventsFileFormat.xml));
+	private Set<TabularFileFormat> tabularFileFormats = Collections.unmodifiableSet(EnumSet.of(TabularFileFormat.csv));
 
 	private int writeEventsInterval=10;
 	private int writePlansInterval=10;
 	private int writeTripsInterval = 10;
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
+	private int writeCheckpointInterval = 0;
+	private String resumeFromCheckpoint = null;
 	private boolean createGraphs = true;
 	private boolean dumpDataAtEnd = true;
 	private CompressionType compressionType = CompressionType.gzip;
+	private int zstdCompressionLevel = IOUtils.DEFAULT_ZSTD_COMPRESSION_LEVEL;
+	private int zstdWorkers = 0;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
 
 	public ControlerConfigGroup() {
@@ -111,6 +123,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 				"to a file. `0' disables events writing completely.");
         map.put(WRITE_TRIPS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations trips CSV are written " +
                 "to a file. `0' disables trips writing completely.");
+		map.put(TABULAR_FILE_FORMATS, "Default="+TabularFileFormat.csv+"; Specifies the file formats for writing the trips, legs and link statistics. Currently supported: " + Arrays.toString(TabularFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
+				TabularFileFormat.arrow + " writes uncompressed Apache Arrow IPC streams (*.arrows) with dictionary-encoded ids, modes and activity types. " +
+				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
                 "written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
@@ -122,6 +137,10 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 				" The generation of graphs usually takes a small amount of time that does not have any weight in big simulations," +
 				" but add a significant overhead in smaller runs or in test cases where the graphical output is not even requested." );
 		map.put(COMPRESSION_TYPE, "Compression algorithm to use when writing out data to files. Possible values: " + Arrays.toString(CompressionType.values()));
+		map.put(ZSTD_COMPRESSION_LEVEL, "Default=" + IOUtils.DEFAULT_ZSTD_COMPRESSION_LEVEL + ". Compression level used when writing " + CompressionType.zst + " files. " +
+				"Higher levels result in smaller files, but take more time to write.");
+		map.put(ZSTD_WORKERS, "Default=0. Number of background threads used to compress a single " + CompressionType.zst + " file. " +
+				"`0' compresses on the writing thread.");
 
 		StringBuilder mobsimTypes = new StringBuilder();
 		for ( MobsimType mtype : MobsimType.values() ) {
@@ -132,9 +151,17 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 				"Depending on the chosen mobsim, you'll have to add additional config modules to configure the corresponding mobsim." + IOUtils.NATIVE_NEWLINE + "\t\t" +
 				"For 'qsim', add a module 'qsim' to the config.");
 		
-		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims', `googleearth', and `otfvis'.");
+		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims', `googleearth', `otfvis', `positionevents', and `vehiclepositions'. "
+				+ "`vehiclepositions' exports the vehicle positions from the mobsim through an off-heap buffer and writes them on a separate thread.");
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
+		map.put(WRITE_CHECKPOINT_INTERVAL, "Default=0. iterationNumber % " + WRITE_CHECKPOINT_INTERVAL + " == 0 defines in which iterations a checkpoint " +
+				"(plans, observed travel times and strategy weights) is written to the checkpoints directory, from which a run can be resumed. " +
+				"`0' disables checkpoints completely.");
+		map.put(RESUME_FROM_CHECKPOINT, "Path to a checkpoint file written by a previous run with the same input. If set, the run continues " +
+				"with the iteration after the checkpoint, instead of starting at the first iteration. " +
+				"The global random numbers are reset in every iteration, but random number generators which are kept over iterations " +
+				"and the state of other listeners are not stored, so in general the resumed run is not bit-identical to an uninterrupted one.");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
 		return map;
 	}
@@ -190,6 +217,26 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.compressionType = type;
 	}
 
+	@StringGetter( ZSTD_COMPRESSION_LEVEL )
+	public int getZstdCompressionLevel() {
+		return this.zstdCompressionLevel;
+	}
+
+	@StringSetter( ZSTD_COMPRESSION_LEVEL )
+	public void setZstdCompressionLevel(int zstdCompressionLevel) {
+		this.zstdCompressionLevel = zstdCompressionLevel;
+	}
+
+	@StringGetter( ZSTD_WORKERS )
+	public int getZstdWorkers() {
+		return this.zstdWorkers;
+	}
+
+	@StringSetter( ZSTD_WORKERS )
+	public void setZstdWorkers(int zstdWorkers) {
+		this.zstdWorkers = zstdWorkers;
+	}
+
 	@StringGetter( RUNID )
 	public String getRunId() {
 		return this.runId;
@@ -265,7 +312,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.eventsFileFormats = Collections.unmodifiableSet(EnumSet.copyOf(eventsFileFormats));
 	}
 	// ---
-	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents }
+	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents, vehiclepositions }
 	private Set<SnapshotFormat> snapshotFormat = Collections.emptySet();
 
 	@StringSetter( SNAPSHOT_FORMAT )
@@ -303,6 +350,41 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		return this.snapshotFormat;
 	}
 	// ---
+	@StringGetter( TABULAR_FILE_FORMATS )
+	private String getTabularFileFormatsAsString() {
+		boolean isFirst = true;
+		StringBuilder str = new StringBuilder();
+		for (TabularFileFormat format : this.tabularFileFormats) {
+			if (!isFirst) {
+				str.append(',');
+			}
+			str.append(format.name());
+			isFirst = false;
+		}
+		return str.toString();
+	}
+
+	@StringSetter( TABULAR_FILE_FORMATS )
+	private void setTabularFileFormats( final String value ) {
+		String[] parts = StringUtils.explode(value, ',');
+		Set<TabularFileFormat> formats = EnumSet.noneOf(TabularFileFormat.class);
+		for (String part : parts) {
+			String trimmed = part.trim();
+			if (trimmed.length() > 0) {
+				formats.add(TabularFileFormat.valueOf(trimmed));
+			}
+		}
+		this.tabularFileFormats = formats;
+	}
+
+	public Set<TabularFileFormat> getTabularFileFormats() {
+		return this.tabularFileFormats;
+	}
+
+	public void setTabularFileFormats(final Set<TabularFileFormat> tabularFileFormats) {
+		this.tabularFileFormats = Collections.unmodifiableSet(EnumSet.copyOf(tabularFileFormats));
+	}
+	// ---
 	@StringGetter( WRITE_EVENTS_INTERVAL )
 	public int getWriteEventsInterval() {
 		return this.writeEventsInterval;
@@ -343,6 +425,26 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writeSnapshotsInterval = writeSnapshotsInterval;
 	}
 
+	@StringGetter( WRITE_CHECKPOINT_INTERVAL )
+	public int getWriteCheckpointInterval() {
+		return this.writeCheckpointInterval;
+	}
+
+	@StringSetter( WRITE_CHECKPOINT_INTERVAL )
+	public void setWriteCheckpointInterval(final int writeCheckpointInterval) {
+		this.writeCheckpointInterval = writeCheckpointInterval;
+	}
+
+	@StringGetter( RESUME_FROM_CHECKPOINT )
+	public String getResumeFromCheckpoint() {
+		return this.resumeFromCheckpoint;
+	}
+
+	@StringSetter( RESUME_FROM_CHECKPOINT )
+	public void setResumeFromCheckpoint(final String resumeFromCheckpoint) {
+		this.resumeFromCheckpoint = resumeFromCheckpoint == null || resumeFromCheckpoint.isEmpty() ? null : resumeFromCheckpoint;
+	}
+
 	@StringGetter( CREATE_GRAPHS )
 	public boolean isCreateGraphs() {
 		return createGraphs;
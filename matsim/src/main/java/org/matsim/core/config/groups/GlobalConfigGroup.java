@@ -39,6 +39,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(PER_PERSON_RANDOM_STREAMS, PER_PERSON_RANDOM_STREAMS_CMT ) ;
 		return map ;
 	}
 
@@ -94,6 +95,26 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	private boolean perPersonRandomStreams = false ;
+	private static final String PER_PERSON_RANDOM_STREAMS = "perPersonRandomStreams" ;
+	private static final String PER_PERSON_RANDOM_STREAMS_CMT = "If true, replanning draws the random numbers for each person from a stream "
+							     + "that only depends on the random seed, the iteration and the person.  "
+							     + "The results then no longer depend on the number of threads, but differ from runs with the default (false).";
+	/**
+	 * @return {@link #PER_PERSON_RANDOM_STREAMS_CMT}
+	 */
+	@StringGetter( PER_PERSON_RANDOM_STREAMS )
+	public boolean isPerPersonRandomStreams() {
+		return this.perPersonRandomStreams;
+	}
+	/**
+	 * @param perPersonRandomStreams -- {@link #PER_PERSON_RANDOM_STREAMS_CMT}
+	 */
+	@StringSetter( PER_PERSON_RANDOM_STREAMS )
+	public void setPerPersonRandomStreams(final boolean perPersonRandomStreams) {
+		this.perPersonRandomStreams = perPersonRandomStreams;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
@@ -32,18 +32,21 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 
 	public static final String GROUP_NAME = "parallelEventHandling";
 
-	private final static String NUMBER_OF_THREADS = "numberOfThreads";
+	public final static String NUMBER_OF_THREADS = "numberOfThreads";
 	private Integer numberOfThreads = null;
 	public final static String NUMBER_OF_THREADS_COMMENT = "Number of threads for parallel events handler. _null_ means the framework decides by itself. 0 is currently not possible.";
 
 	private final static String ESTIMATED_NUMBER_OF_EVENTS = "estimatedNumberOfEvents";
 	private Long estimatedNumberOfEvents = null;
 
-	private final static String SYNCHRONIZE_ON_SIMSTEPS = "synchronizeOnSimSteps"; 
+	public final static String SYNCHRONIZE_ON_SIMSTEPS = "synchronizeOnSimSteps"; 
 	private Boolean synchronizeOnSimSteps = true;
 	
-	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
+	public final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
+
+	public final static String SHARD_EVENTS = "shardEvents";
+	private Boolean shardEvents = false;
 	
 	private boolean locked = false;
 
@@ -60,6 +63,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(SHARD_EVENTS, "If enabled, events are only handed to the threads that have handlers for them, in batches instead of one by one. "
+				+ "The mobsim does not wait for the events of a time step to be processed, so " + SYNCHRONIZE_ON_SIMSTEPS + " must be set to false. "
+				+ "Uses " + NUMBER_OF_THREADS + " threads (1 if not set), cannot be combined with " + ONE_THREAD_PER_HANDLER + ". This feature is still experimental!");
 		return comments;
 	}
 
@@ -127,6 +133,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( SHARD_EVENTS )
+	public Boolean getShardEvents() {
+		return this.shardEvents;
+	}
+
+	@StringSetter( SHARD_EVENTS )
+	public void setShardEvents(Boolean shardEvents) {
+		if ( !this.locked ) {
+			this.shardEvents = shardEvents;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -24,6 +24,7 @@ import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.listener.ControlerListener;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.utils.MemoryObserver;
 
 /*package*/ abstract class AbstractController {
@@ -70,6 +71,10 @@ import org.matsim.utils.MemoryObserver;
 
     protected final void run(final Config config) {
         MemoryObserver.start(60);
+        // (the zstd settings and the per-person random streams are static, so they are restored after the run, also if it fails)
+        final int previousZstdCompressionLevel = IOUtils.getZstdCompressionLevel();
+        final int previousZstdWorkers = IOUtils.getZstdWorkers();
+        final boolean previousPersonStreams = MatsimRandom.isUsingPersonStreams();
         MatsimRuntimeModifications.MyRunnable runnable = new MatsimRuntimeModifications.MyRunnable() {
             @Override
             public void run() throws MatsimRuntimeModifications.UnexpectedShutdownException {
@@ -77,7 +82,7 @@ import org.matsim.utils.MemoryObserver;
                 controlerListenerManagerImpl.fireControlerStartupEvent();
                 ControlerUtils.checkConfigConsistencyAndWriteToLog(config, "config dump before iterations start");
                 prepareForSim();
-                doIterations(config);
+                doIterations(config, resumeFromCheckpoint());
             }
 
             @Override
@@ -85,7 +90,16 @@ import org.matsim.utils.MemoryObserver;
                 controlerListenerManagerImpl.fireControlerShutdownEvent(unexpected);
             }
         };
-        MatsimRuntimeModifications.run(runnable);
+        try {
+            IOUtils.setZstdCompressionLevel(config.controler().getZstdCompressionLevel());
+            IOUtils.setZstdWorkers(config.controler().getZstdWorkers());
+            MatsimRandom.setPersonStreams(config.global().isPerPersonRandomStreams());
+            MatsimRuntimeModifications.run(runnable);
+        } finally {
+            IOUtils.setZstdCompressionLevel(previousZstdCompressionLevel);
+            IOUtils.setZstdWorkers(previousZstdWorkers);
+            MatsimRandom.setPersonStreams(previousPersonStreams);
+        }
         OutputDirectoryLogging.closeOutputDirLogging();
         MemoryObserver.stop();
     }
@@ -98,6 +112,16 @@ import org.matsim.utils.MemoryObserver;
     
     protected abstract void prepareForMobsim() ;
 
+    /**
+     * Restores the state of a previous run if a checkpoint is configured.  This is done after {@link #prepareForSim()},
+     * since the restored plans are complete already.
+     *
+     * @return the iteration to start with
+     */
+    protected abstract int resumeFromCheckpoint();
+
+    protected abstract void writeCheckpoint(int iteration);
+
     /**
      * Stopping criterion for iterations.  Design thoughts:<ul>
      * <li> AbstractController only controls process, not content.  Stopping iterations controls process based on content.
@@ -108,8 +132,9 @@ import org.matsim.utils.MemoryObserver;
      */
     protected abstract boolean continueIterations(int iteration);
 
-    private void doIterations(Config config) throws MatsimRuntimeModifications.UnexpectedShutdownException {
-        for (int iteration = config.controler().getFirstIteration(); continueIterations(iteration); iteration++) {
+    private void doIterations(Config config, int firstIteration) throws MatsimRuntimeModifications.UnexpectedShutdownException {
+        // (replanning is only skipped in config.controler().getFirstIteration(), so it also takes place in the first iteration after a checkpoint)
+        for (int iteration = firstIteration; continueIterations(iteration); iteration++) {
             iteration(config, iteration);
         }
     }
@@ -160,6 +185,16 @@ import org.matsim.utils.MemoryObserver;
             }
         });
 
+        int checkpointInterval = config.controler().getWriteCheckpointInterval();
+        if (checkpointInterval > 0 && iteration % checkpointInterval == 0) {
+            iterationStep("checkpoint", new Runnable() {
+                @Override
+                public void run() {
+                    writeCheckpoint(iteration);
+                }
+            });
+        }
+
         this.getStopwatch().endIteration();
         this.getStopwatch().writeTextFile(this.getControlerIO().getOutputFilename("stopwatch"));
         if (config.controler().isCreateGraphs()) {
@@ -0,0 +1,654 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Checkpoints.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdLongMap;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdSet;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.replanning.GenericPlanStrategy;
+import org.matsim.core.replanning.StrategyManager;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+/**
+ * Writes the state of a run between two iterations to a checkpoint file, and restores it when a run is resumed from
+ * such a file, see {@link org.matsim.core.config.groups.ControlerConfigGroup#getWriteCheckpointInterval()} and
+ * {@link org.matsim.core.config.groups.ControlerConfigGroup#getResumeFromCheckpoint()}.
+ * <p></p>
+ * A checkpoint contains:<ul>
+ * <li> the iteration, the first iteration and the random seed.  The global random numbers are reset from the seed at
+ * the beginning of every iteration, so they are not stored, but the seed of their last reset and the number of local
+ * instances created since are, so that local instances created after resuming are seeded the same way.
+ * <li> the persons with their plans.  Only the persons whose attributes or plans changed since the previous checkpoint
+ * of the run are written, together with the ids of the removed persons.  Of their plans, only the contents of new or
+ * modified plans are written; unchanged plans are referenced by their index in the previous checkpoint.  Changes are
+ * detected with 64 bit hashes of the written bytes.  The first checkpoint of a run contains all persons and plans, and
+ * so does the next one whenever the deltas since the last full checkpoint add up to more than its size.
+ * <li> the scores and the selected plan of every person.  Since they change in every iteration, they are written
+ * separately, so that they do not make the persons count as changed.
+ * <li> the weights of the replanning strategies.  When resuming, the pending change requests up to the checkpoint are
+ * applied first, so that later ones still take effect.
+ * <li> the data of the {@link TravelTimeCalculator}s, from which the travel times for the next iteration are computed.
+ * </ul>
+ * The state of other listeners, e.g. the history of the score statistics, is not part of a checkpoint.  Neither are
+ * random number generators which are created once and then kept over iterations, so a resumed run is only the same as
+ * an uninterrupted one if no such generators are used.
+ * <p></p>
+ * At the end of the iteration, a snapshot of the state is taken, since it changes in the next one.  Of the persons, the
+ * snapshot only contains the serialized contents of the new or modified plans, and the scores.  The file is written
+ * from the snapshot on a separate thread, while the next iteration runs, with the persons streamed into the compressed
+ * file one by one.  It is written under a temporary name and renamed when complete.
+ */
+@Singleton
+public final class Checkpoints implements ShutdownListener {
+
+	private static final Logger log = Logger.getLogger(Checkpoints.class);
+
+	static final String DIRECTORY = "checkpoints";
+
+	private static final int MAGIC = 0x4d435054; // "MCPT"
+	private static final int VERSION = 3;
+	private static final Pattern FILENAME = Pattern.compile("(.*checkpoint\\.)(\\d+)(\\.bin.*)");
+
+	private final Config config;
+	private final Scenario scenario;
+	private final Provider<StrategyManager> strategyManager;
+	private final com.google.inject.Injector injector;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final PlanCheckpointCodec codec;
+
+	/** hashes of the attributes and plans of the persons, and of the contents of their plans, as written to the previous checkpoint */
+	private final IdLongMap<Person> personHashes = new IdLongMap<>(Person.class);
+	private final IdMap<Person, long[]> planHashes = new IdMap<>(Person.class);
+	private int previousCheckpoint = -1;
+	/** bytes of the persons in the last full checkpoint, and in the deltas written since then */
+	private long fullSize = 0;
+	private long deltaSize = 0;
+
+	private ExecutorService writer = null;
+	private Future<?> pendingWrite = null;
+
+	@Inject
+	Checkpoints(Config config, Scenario scenario, Provider<StrategyManager> strategyManager, com.google.inject.Injector injector,
+			OutputDirectoryHierarchy controlerIO, Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		this.config = config;
+		this.scenario = scenario;
+		this.strategyManager = strategyManager;
+		this.injector = injector;
+		this.controlerIO = controlerIO;
+		this.codec = new PlanCheckpointCodec(scenario.getPopulation().getFactory(), attributeConverters);
+	}
+
+	/**
+	 * Takes a snapshot of the current state and writes it to a file in the background.  Waits for the previous checkpoint
+	 * to be written first, so there is at most one snapshot in memory.
+	 */
+	void write(final int iteration) {
+		awaitPendingWrite();
+		try {
+			Snapshot snapshot = new Snapshot();
+			snapshot.iteration = iteration;
+			snapshot.firstIteration = this.config.controler().getFirstIteration();
+			snapshot.randomSeed = this.config.global().getRandomSeed();
+			snapshot.lastUsedSeed = MatsimRandom.getLastUsedSeed();
+			snapshot.numberOfLocalInstances = MatsimRandom.getNumberOfLocalInstances();
+			// once the deltas add up to more than a full checkpoint, reading the chain would take longer than reading a full one
+			boolean full = this.previousCheckpoint < 0 || this.deltaSize > this.fullSize;
+			snapshot.previousCheckpoint = full ? -1 : this.previousCheckpoint;
+			long size = takePersons(snapshot, full);
+			if (full) {
+				this.fullSize = size;
+				this.deltaSize = 0;
+			} else {
+				this.deltaSize += size;
+			}
+			log.info("checkpoint of iteration " + iteration + " contains " + snapshot.persons.size() + " persons"
+					+ (full ? "" : " changed since iteration " + this.previousCheckpoint + " and " + snapshot.removed.size() + " removed persons"));
+
+			ByteArrayOutputStream state = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(state);
+			writeStrategyWeights(out);
+			writeTravelTimes(out);
+			out.flush();
+			snapshot.state = state.toByteArray();
+
+			this.previousCheckpoint = iteration;
+			String filename = getFilename(iteration);
+			if (this.writer == null) {
+				this.writer = Executors.newSingleThreadExecutor(r -> {
+					Thread thread = new Thread(r, "checkpoint writer");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			this.pendingWrite = this.writer.submit(() -> writeFile(filename, snapshot));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Adds the persons which changed since the previous checkpoint, or all persons if <code>full</code> is set, to the
+	 * snapshot, as well as the scores and selected plans of all persons.  Of the plans of a changed person whose content
+	 * did not change, only their index in the previous checkpoint is written.
+	 *
+	 * @return the number of bytes of the written persons
+	 */
+	private long takePersons(final Snapshot snapshot, final boolean full) throws IOException {
+		Population population = this.scenario.getPopulation();
+		int size = population.getPersons().size();
+		IdLongMap<Person> newPersonHashes = new IdLongMap<>(Person.class, size);
+		IdMap<Person, long[]> newPlanHashes = new IdMap<>(Person.class, size);
+		snapshot.personIds = new ArrayList<>(size);
+		snapshot.numberOfPlans = new int[size];
+		snapshot.selected = new int[size];
+		int numberOfPlans = 0;
+		for (Person person : population.getPersons().values()) {
+			numberOfPlans += person.getPlans().size();
+		}
+		snapshot.scores = new double[numberOfPlans];
+		snapshot.missingScores = new BitSet(numberOfPlans);
+		Buffer scratch = new Buffer();
+		Buffer record = new Buffer();
+		int planIndex = 0;
+		long written = 0;
+		for (Person person : population.getPersons().values()) {
+			List<? extends Plan> plans = person.getPlans();
+			int index = snapshot.personIds.size();
+			snapshot.personIds.add(person.getId());
+			snapshot.numberOfPlans[index] = plans.size();
+			snapshot.selected[index] = plans.indexOf(person.getSelectedPlan());
+			for (Plan plan : plans) {
+				if (plan.getScore() == null) {
+					snapshot.missingScores.set(planIndex);
+				} else {
+					snapshot.scores[planIndex] = plan.getScore();
+				}
+				planIndex++;
+			}
+
+			scratch.reset();
+			this.codec.writeAttributes(person.getAttributes(), scratch.data);
+			int attributesEnd = scratch.size();
+			long personHash = Buffer.hash(scratch.hash(0, attributesEnd), plans.size());
+			int[] planEnds = new int[plans.size()];
+			long[] hashes = new long[plans.size()];
+			for (int i = 0; i < plans.size(); i++) {
+				int start = scratch.size();
+				this.codec.writePlan(plans.get(i), scratch.data);
+				planEnds[i] = scratch.size();
+				hashes[i] = scratch.hash(start, planEnds[i]);
+				personHash = Buffer.hash(personHash, hashes[i]);
+			}
+			newPersonHashes.put(person.getId(), personHash);
+			newPlanHashes.put(person.getId(), hashes);
+
+			long[] previousHashes = full ? null : this.planHashes.get(person.getId());
+			if (previousHashes != null && this.personHashes.get(person.getId()) == personHash) {
+				continue;
+			}
+			record.reset();
+			DataOutputStream out = record.data;
+			PlanCheckpointCodec.writeString(person.getId().toString(), out);
+			scratch.writeTo(out, 0, attributesEnd);
+			out.writeInt(plans.size());
+			boolean[] referenced = previousHashes == null ? null : new boolean[previousHashes.length];
+			for (int i = 0; i < plans.size(); i++) {
+				int reference = -1;
+				for (int j = 0; previousHashes != null && j < previousHashes.length && reference < 0; j++) {
+					if (!referenced[j] && previousHashes[j] == hashes[i]) {
+						reference = j;
+						referenced[j] = true;
+					}
+				}
+				out.writeInt(reference);
+				if (reference < 0) {
+					scratch.writeTo(out, i == 0 ? attributesEnd : planEnds[i - 1], planEnds[i]);
+				}
+			}
+			snapshot.persons.add(record.toByteArray());
+			written += record.size();
+		}
+		if (!full) {
+			for (Id<Person> personId : this.personHashes.keySet()) {
+				if (!newPersonHashes.containsKey(personId)) {
+					snapshot.removed.add(personId);
+				}
+			}
+		}
+		this.personHashes.clear();
+		newPersonHashes.forEach(this.personHashes::put);
+		this.planHashes.clear();
+		this.planHashes.putAll(newPlanHashes);
+		return written;
+	}
+
+	private void writeStrategyWeights(final DataOutput out) throws IOException {
+		StrategyManager strategyManager = this.strategyManager.get();
+		Set<String> subpopulations = strategyManager.getSubpopulations();
+		out.writeInt(subpopulations.size());
+		for (String subpopulation : subpopulations) {
+			PlanCheckpointCodec.writeString(subpopulation, out);
+			List<GenericPlanStrategy<Plan, Person>> strategies = strategyManager.getStrategies(subpopulation);
+			List<Double> weights = strategyManager.getWeights(subpopulation);
+			out.writeInt(strategies.size());
+			for (int i = 0; i < strategies.size(); i++) {
+				PlanCheckpointCodec.writeString(strategies.get(i).toString(), out);
+				out.writeDouble(weights.get(i));
+			}
+		}
+	}
+
+	private void writeTravelTimes(final DataOutput out) throws IOException {
+		Map<String, TravelTimeCalculator> calculators = getTravelTimeCalculators();
+		out.writeInt(calculators.size());
+		for (Map.Entry<String, TravelTimeCalculator> entry : calculators.entrySet()) {
+			PlanCheckpointCodec.writeString(entry.getKey(), out);
+			entry.getValue().writeCheckpoint(out);
+		}
+	}
+
+	/**
+	 * @return the bound travel time calculators by mode, or with the key <code>null</code> if all modes are observed together
+	 */
+	private Map<String, TravelTimeCalculator> getTravelTimeCalculators() {
+		Map<String, TravelTimeCalculator> calculators = new LinkedHashMap<>();
+		if (this.config.travelTimeCalculator().getSeparateModes()) {
+			for (String mode : this.config.plansCalcRoute().getNetworkModes()) {
+				Key<TravelTimeCalculator> key = Key.get(TravelTimeCalculator.class, Names.named(mode));
+				if (this.injector.getExistingBinding(key) != null) {
+					calculators.put(mode, this.injector.getInstance(key));
+				}
+			}
+		} else if (this.injector.getExistingBinding(Key.get(TravelTimeCalculator.class)) != null) {
+			calculators.put(null, this.injector.getInstance(TravelTimeCalculator.class));
+		}
+		return calculators;
+	}
+
+	private String getFilename(final int iteration) {
+		String directory = this.controlerIO.getOutputPath() + "/" + DIRECTORY;
+		new File(directory).mkdirs();
+		String runId = this.config.controler().getRunId();
+		return directory + "/" + (runId == null ? "" : runId + ".") + "checkpoint." + iteration + ".bin"
+				+ this.config.controler().getCompressionType().fileEnding;
+	}
+
+	private static void writeFile(final String filename, final Snapshot snapshot) {
+		File file = new File(filename);
+		File partial = new File(file.getParentFile(), "partial." + file.getName());
+		try (DataOutputStream out = new DataOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(partial.getPath()), false))) {
+			snapshot.writeTo(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		try {
+			Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("checkpoint written to " + filename);
+	}
+
+	private void awaitPendingWrite() {
+		if (this.pendingWrite != null) {
+			try {
+				this.pendingWrite.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("writing the checkpoint failed", e.getCause());
+			}
+			this.pendingWrite = null;
+		}
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		try {
+			awaitPendingWrite();
+		} finally {
+			if (this.writer != null) {
+				this.writer.shutdown();
+				this.writer = null;
+			}
+		}
+	}
+
+	/**
+	 * Restores the state of the checkpoint configured by
+	 * {@link org.matsim.core.config.groups.ControlerConfigGroup#getResumeFromCheckpoint()}, if any.  The population
+	 * is restored from the chain of checkpoints the configured one is based on, which must be in the same directory.
+	 *
+	 * @return the iteration to start with
+	 */
+	int restore() {
+		String filename = this.config.controler().getResumeFromCheckpoint();
+		if (filename == null) {
+			return this.config.controler().getFirstIteration();
+		}
+		try {
+			LinkedList<String> chain = new LinkedList<>();
+			chain.add(filename);
+			int previous;
+			while ((previous = readHeader(chain.getFirst()).previousCheckpoint) >= 0) {
+				Matcher matcher = FILENAME.matcher(chain.getFirst());
+				if (!matcher.matches()) {
+					throw new RuntimeException("Cannot find the checkpoint of iteration " + previous + " on which " + chain.getFirst() + " is based.");
+				}
+				chain.addFirst(matcher.group(1) + previous + matcher.group(3));
+			}
+
+			Header header = null;
+			for (String file : chain) {
+				boolean last = file.equals(chain.getLast());
+				log.info("reading checkpoint " + file);
+				try (DataInputStream in = new DataInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(file)))) {
+					header = readHeader(in, file);
+					readPersons(in, header.previousCheckpoint < 0);
+					if (last) {
+						readScores(in, file);
+						readStrategyWeights(in, header.iteration);
+						readTravelTimes(in);
+					}
+				}
+			}
+			if (header.firstIteration != this.config.controler().getFirstIteration()) {
+				log.warn("The checkpoint was written by a run starting with iteration " + header.firstIteration + ", this one starts with "
+						+ this.config.controler().getFirstIteration() + ". The strategies may be switched off in different iterations.");
+			}
+			MatsimRandom.reset(header.lastUsedSeed, header.numberOfLocalInstances);
+			log.info("resuming the run after iteration " + header.iteration + " from checkpoint " + filename);
+			return header.iteration + 1;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Header readHeader(final String filename) throws IOException {
+		try (DataInputStream in = new DataInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(filename)))) {
+			return readHeader(in, filename);
+		}
+	}
+
+	private Header readHeader(final DataInputStream in, final String filename) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new RuntimeException(filename + " is not a checkpoint file.");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new RuntimeException(filename + " has version " + version + ", but only version " + VERSION + " can be read.");
+		}
+		Header header = new Header();
+		header.iteration = in.readInt();
+		header.firstIteration = in.readInt();
+		long randomSeed = in.readLong();
+		if (randomSeed != this.config.global().getRandomSeed()) {
+			throw new RuntimeException("The checkpoint " + filename + " was written with random seed " + randomSeed + ", but this run uses "
+					+ this.config.global().getRandomSeed() + ". The run would not continue the same way.");
+		}
+		header.lastUsedSeed = in.readLong();
+		header.numberOfLocalInstances = in.readInt();
+		header.previousCheckpoint = in.readInt();
+		return header;
+	}
+
+	private void readPersons(final DataInputStream in, final boolean full) throws IOException {
+		Population population = this.scenario.getPopulation();
+		if (!full) {
+			int removed = in.readInt();
+			for (int i = 0; i < removed; i++) {
+				population.removePerson(Id.createPersonId(PlanCheckpointCodec.readString(in)));
+			}
+		}
+		IdSet<Person> read = new IdSet<>(Person.class);
+		int persons = in.readInt();
+		for (int i = 0; i < persons; i++) {
+			Id<Person> personId = Id.createPersonId(PlanCheckpointCodec.readString(in));
+			read.add(personId);
+			// keep existing person objects, since they may be referenced elsewhere, and keep the order of the population
+			Person person = population.getPersons().get(personId);
+			if (person == null) {
+				person = population.getFactory().createPerson(personId);
+				population.addPerson(person);
+			}
+			// the scores and the selected plan are restored from the last checkpoint of the chain
+			List<Plan> previousPlans = new ArrayList<>(person.getPlans());
+			person.setSelectedPlan(null);
+			person.getPlans().clear();
+			// attributes the codec cannot write, e.g. the vehicles assigned in prepareForSim, are kept as they are
+			this.codec.removeConvertibleAttributes(person.getAttributes());
+			this.codec.readAttributes(person.getAttributes(), in);
+			int plans = in.readInt();
+			for (int p = 0; p < plans; p++) {
+				int reference = in.readInt();
+				person.addPlan(reference < 0 ? this.codec.readPlan(in) : previousPlans.get(reference));
+			}
+		}
+		if (full) {
+			for (Id<Person> personId : new ArrayList<>(population.getPersons().keySet())) {
+				if (!read.contains(personId)) {
+					population.removePerson(personId);
+				}
+			}
+		}
+	}
+
+	private void readScores(final DataInputStream in, final String filename) throws IOException {
+		Population population = this.scenario.getPopulation();
+		int persons = in.readInt();
+		if (persons != population.getPersons().size()) {
+			throw new RuntimeException("The checkpoint " + filename + " contains the scores of " + persons + " persons, but "
+					+ population.getPersons().size() + " persons were restored.");
+		}
+		for (int i = 0; i < persons; i++) {
+			String personId = PlanCheckpointCodec.readString(in);
+			Person person = population.getPersons().get(Id.createPersonId(personId));
+			int plans = in.readInt();
+			if (person == null || person.getPlans().size() != plans) {
+				throw new RuntimeException("The checkpoint " + filename + " contains the scores of " + plans + " plans of person " + personId
+						+ ", which do not match the restored plans.");
+			}
+			for (Plan plan : person.getPlans()) {
+				plan.setScore(in.readBoolean() ? in.readDouble() : null);
+			}
+			int selected = in.readInt();
+			person.setSelectedPlan(selected < 0 ? null : person.getPlans().get(selected));
+		}
+	}
+
+	private void readStrategyWeights(final DataInputStream in, final int iteration) throws IOException {
+		StrategyManager strategyManager = this.strategyManager.get();
+		// the change requests up to the checkpoint are already contained in the weights
+		strategyManager.handleChangeRequests(iteration);
+		int subpopulations = in.readInt();
+		for (int s = 0; s < subpopulations; s++) {
+			String subpopulation = PlanCheckpointCodec.readString(in);
+			List<GenericPlanStrategy<Plan, Person>> strategies = strategyManager.getStrategies(subpopulation);
+			int size = in.readInt();
+			if (size != strategies.size()) {
+				throw new RuntimeException("The checkpoint contains " + size + " strategies for subpopulation " + subpopulation + ", but "
+						+ strategies.size() + " are configured.");
+			}
+			for (int i = 0; i < size; i++) {
+				String name = PlanCheckpointCodec.readString(in);
+				double weight = in.readDouble();
+				if (!name.equals(strategies.get(i).toString())) {
+					throw new RuntimeException("The checkpoint contains strategy " + name + " for subpopulation " + subpopulation + ", but "
+							+ strategies.get(i) + " is configured.");
+				}
+				strategyManager.changeWeightOfStrategy(strategies.get(i), subpopulation, weight);
+			}
+		}
+	}
+
+	private void readTravelTimes(final DataInputStream in) throws IOException {
+		Map<String, TravelTimeCalculator> calculators = getTravelTimeCalculators();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			String mode = PlanCheckpointCodec.readString(in);
+			TravelTimeCalculator calculator = calculators.get(mode);
+			if (calculator == null) {
+				throw new RuntimeException("The checkpoint contains travel times for mode " + mode + ", but there is no travel time calculator for it.");
+			}
+			calculator.readCheckpoint(in);
+		}
+	}
+
+	private static final class Header {
+		int iteration;
+		int firstIteration;
+		long lastUsedSeed;
+		int numberOfLocalInstances;
+		int previousCheckpoint;
+	}
+
+	/**
+	 * The state of a checkpoint which does not change any more, so that it can be written while the next iteration runs.
+	 */
+	private static final class Snapshot {
+		int iteration;
+		int firstIteration;
+		long randomSeed;
+		long lastUsedSeed;
+		int numberOfLocalInstances;
+		int previousCheckpoint;
+		final List<Id<Person>> removed = new ArrayList<>();
+		/** the serialized persons, without their scores and selected plans */
+		final List<byte[]> persons = new ArrayList<>();
+		/** ids, number of plans and selected plan of all persons, and the scores of all their plans */
+		List<Id<Person>> personIds;
+		int[] numberOfPlans;
+		int[] selected;
+		double[] scores;
+		BitSet missingScores;
+		/** the serialized strategy weights and travel times */
+		byte[] state;
+
+		void writeTo(final DataOutputStream out) throws IOException {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(this.iteration);
+			out.writeInt(this.firstIteration);
+			out.writeLong(this.randomSeed);
+			out.writeLong(this.lastUsedSeed);
+			out.writeInt(this.numberOfLocalInstances);
+			out.writeInt(this.previousCheckpoint);
+			if (this.previousCheckpoint >= 0) {
+				out.writeInt(this.removed.size());
+				for (Id<Person> personId : this.removed) {
+					PlanCheckpointCodec.writeString(personId.toString(), out);
+				}
+			}
+			out.writeInt(this.persons.size());
+			for (byte[] person : this.persons) {
+				out.write(person);
+			}
+			out.writeInt(this.personIds.size());
+			int planIndex = 0;
+			for (int i = 0; i < this.personIds.size(); i++) {
+				PlanCheckpointCodec.writeString(this.personIds.get(i).toString(), out);
+				out.writeInt(this.numberOfPlans[i]);
+				for (int p = 0; p < this.numberOfPlans[i]; p++, planIndex++) {
+					boolean hasScore = !this.missingScores.get(planIndex);
+					out.writeBoolean(hasScore);
+					if (hasScore) {
+						out.writeDouble(this.scores[planIndex]);
+					}
+				}
+				out.writeInt(this.selected[i]);
+			}
+			out.write(this.state);
+		}
+	}
+
+	private static final class Buffer extends ByteArrayOutputStream {
+		private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+		private static final long FNV_PRIME = 0x100000001b3L;
+
+		final DataOutputStream data = new DataOutputStream(this);
+
+		/** FNV-1a over the bytes in the given range */
+		long hash(final int from, final int to) {
+			long hash = FNV_OFFSET_BASIS;
+			for (int i = from; i < to; i++) {
+				hash ^= this.buf[i] & 0xff;
+				hash *= FNV_PRIME;
+			}
+			return hash;
+		}
+
+		static long hash(long hash, final long value) {
+			for (int i = 0; i < 8; i++) {
+				hash ^= (value >>> (8 * i)) & 0xff;
+				hash *= FNV_PRIME;
+			}
+			return hash;
+		}
+
+		void writeTo(final DataOutput out, final int from, final int to) throws IOException {
+			out.write(this.buf, from, to - from);
+		}
+	}
+
+}
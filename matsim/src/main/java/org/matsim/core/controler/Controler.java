@@ -90,9 +90,12 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 		vehicles("vehicles.xml"),
 		allVehicles("allVehicles.xml"),
 		linkstats("linkstats.txt"),
+		linkstatsarrow("linkstats.arrows"),
 		tripscsv("trips.csv"),
+		tripsarrow("trips.arrows"),
         personscsv("persons.csv"),
         legscsv("legs.csv"),
+        legsarrow("legs.arrows"),
         ;
 
 		final String filename;
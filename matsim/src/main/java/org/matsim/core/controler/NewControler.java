@@ -49,6 +49,7 @@ class NewControler extends AbstractController implements ControlerI {
 	private final Set<ControlerListener> controlerListenersDeclaredByModules;
 	private final ControlerConfigGroup controlerConfigGroup;
 	private final OutputDirectoryHierarchy outputDirectoryHierarchy;
+	private final Provider<Checkpoints> checkpoints;
 	
 	@Inject
 	NewControler(Config config, ControlerListenerManagerImpl controlerListenerManager, MatsimServices matsimServices,
@@ -57,7 +58,7 @@ class NewControler extends AbstractController implements ControlerI {
 			 PlansScoring plansScoring, TerminationCriterion terminationCriterion, DumpDataAtEnd dumpDataAtEnd,
 			 Set<ControlerListener> controlerListenersDeclaredByModules, ControlerConfigGroup controlerConfigGroup,
 			 OutputDirectoryHierarchy outputDirectoryHierarchy
-			, PrepareForMobsim prepareForMobsim
+			, PrepareForMobsim prepareForMobsim, Provider<Checkpoints> checkpoints
  ) {
 		super(controlerListenerManager, stopWatch, matsimServices);
 		this.config = config;
@@ -74,6 +75,7 @@ class NewControler extends AbstractController implements ControlerI {
 		this.controlerListenersDeclaredByModules = controlerListenersDeclaredByModules;
 		this.controlerConfigGroup = controlerConfigGroup;
 		this.outputDirectoryHierarchy = outputDirectoryHierarchy;
+		this.checkpoints = checkpoints;
 	}
 
 	@Override
@@ -93,6 +95,11 @@ class NewControler extends AbstractController implements ControlerI {
 		 * IMPORTANT: The execution order is reverse to the order the listeners
 		 * are added to the list.
 		 */
+		if (controlerConfigGroup.getWriteCheckpointInterval() > 0) {
+			// waits for the last checkpoint to be written
+			this.addCoreControlerListener(this.checkpoints.get());
+		}
+
 		if (controlerConfigGroup.getDumpDataAtEnd()) {
 			this.addCoreControlerListener(this.dumpDataAtEnd);
 		}
@@ -119,6 +126,19 @@ class NewControler extends AbstractController implements ControlerI {
 //		this.prepareForSim.run() ;
 	}
 
+	@Override
+	protected final int resumeFromCheckpoint() {
+		if (controlerConfigGroup.getResumeFromCheckpoint() == null) {
+			return controlerConfigGroup.getFirstIteration();
+		}
+		return this.checkpoints.get().restore();
+	}
+
+	@Override
+	protected final void writeCheckpoint(int iteration) {
+		this.checkpoints.get().write(iteration);
+	}
+
 	@Override
 	protected final void runMobSim() {
 		this.mobsimProvider.get().run();
@@ -41,5 +41,7 @@ public final class NewControlerModule extends AbstractModule {
 
 		bind(PrepareForSim.class).to(PrepareForSimImpl.class);
 		bind(PrepareForMobsim.class).to(PrepareForMobsimImpl.class);
+
+		bind(Checkpoints.class);
 	}
 }
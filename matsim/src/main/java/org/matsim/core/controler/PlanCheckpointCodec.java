@@ -0,0 +1,282 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanCheckpointCodec.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Writes plans and attributes in a compact binary form for {@link Checkpoints}, and reads them again.  The content is
+ * the same as in the plans file (v6), i.e. routes are stored with their description, and attributes are converted to
+ * strings with the registered {@link AttributeConverter}s; attributes without converter are lost, as in the plans
+ * file.
+ */
+final class PlanCheckpointCodec {
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private final PopulationFactory factory;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	PlanCheckpointCodec(final PopulationFactory factory, final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		this.factory = factory;
+		this.converter.putAttributeConverters(attributeConverters);
+	}
+
+	/**
+	 * Writes the content of the plan, i.e. everything except its score.
+	 */
+	void writePlan(final Plan plan, final DataOutput out) throws IOException {
+		writeString(plan.getType(), out);
+		writeAttributes(plan.getAttributes(), out);
+		out.writeInt(plan.getPlanElements().size());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				out.writeByte(ACTIVITY);
+				writeActivity((Activity) pe, out);
+			} else if (pe instanceof Leg) {
+				out.writeByte(LEG);
+				writeLeg((Leg) pe, out);
+			} else {
+				throw new IllegalArgumentException("Unknown plan element " + pe);
+			}
+		}
+	}
+
+	private void writeActivity(final Activity act, final DataOutput out) throws IOException {
+		writeString(act.getType(), out);
+		writeString(act.getLinkId() == null ? null : act.getLinkId().toString(), out);
+		writeString(act.getFacilityId() == null ? null : act.getFacilityId().toString(), out);
+		Coord coord = act.getCoord();
+		if (coord == null) {
+			out.writeByte(0);
+		} else {
+			out.writeByte(coord.hasZ() ? 3 : 2);
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				out.writeDouble(coord.getZ());
+			}
+		}
+		writeTime(act.getStartTime(), out);
+		writeTime(act.getMaximumDuration(), out);
+		writeTime(act.getEndTime(), out);
+		writeAttributes(act.getAttributes(), out);
+	}
+
+	private void writeLeg(final Leg leg, final DataOutput out) throws IOException {
+		writeString(leg.getMode(), out);
+		writeTime(leg.getDepartureTime(), out);
+		writeTime(leg.getTravelTime(), out);
+		writeAttributes(leg.getAttributes(), out);
+		Route route = leg.getRoute();
+		out.writeBoolean(route != null);
+		if (route != null) {
+			writeString(route.getRouteType(), out);
+			writeString(route.getStartLinkId() == null ? null : route.getStartLinkId().toString(), out);
+			writeString(route.getEndLinkId() == null ? null : route.getEndLinkId().toString(), out);
+			writeString(route.getRouteDescription(), out);
+			out.writeDouble(route.getDistance());
+			writeTime(route.getTravelTime(), out);
+			Id<Vehicle> vehicleId = route instanceof NetworkRoute ? ((NetworkRoute) route).getVehicleId() : null;
+			writeString(vehicleId == null ? null : vehicleId.toString(), out);
+		}
+	}
+
+	void writeAttributes(final Attributes attributes, final DataOutput out) throws IOException {
+		List<String[]> converted = new ArrayList<>(attributes.size());
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			Object o = entry.getValue();
+			String value = this.converter.convertToString(o);
+			if (value != null) {
+				converted.add(new String[] {entry.getKey(), o instanceof Map ? Map.class.getName() : o.getClass().getName(), value});
+			}
+		}
+		out.writeInt(converted.size());
+		for (String[] attribute : converted) {
+			for (String s : attribute) {
+				writeString(s, out);
+			}
+		}
+	}
+
+	private static void writeTime(final OptionalTime time, final DataOutput out) throws IOException {
+		out.writeDouble(time.isDefined() ? time.seconds() : Double.NaN);
+	}
+
+	/**
+	 * Writes strings with a length prefix instead of {@link DataOutput#writeUTF(String)}, since route descriptions may
+	 * be longer than 64k.
+	 */
+	static void writeString(final String s, final DataOutput out) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	Plan readPlan(final DataInput in) throws IOException {
+		Plan plan = this.factory.createPlan();
+		String type = readString(in);
+		if (type != null) {
+			plan.setType(type);
+		}
+		readAttributes(plan.getAttributes(), in);
+		int elements = in.readInt();
+		for (int e = 0; e < elements; e++) {
+			byte kind = in.readByte();
+			if (kind == ACTIVITY) {
+				plan.addActivity(readActivity(in));
+			} else if (kind == LEG) {
+				plan.addLeg(readLeg(in));
+			} else {
+				throw new IOException("Unknown plan element type " + kind);
+			}
+		}
+		return plan;
+	}
+
+	private Activity readActivity(final DataInput in) throws IOException {
+		String type = readString(in);
+		String linkId = readString(in);
+		String facilityId = readString(in);
+		byte dimensions = in.readByte();
+		Coord coord = null;
+		if (dimensions == 2) {
+			coord = new Coord(in.readDouble(), in.readDouble());
+		} else if (dimensions == 3) {
+			coord = new Coord(in.readDouble(), in.readDouble(), in.readDouble());
+		}
+
+		Activity act;
+		if (linkId != null) {
+			act = this.factory.createActivityFromLinkId(type, Id.createLinkId(linkId));
+			if (coord != null) {
+				act.setCoord(coord);
+			}
+		} else if (coord != null) {
+			act = this.factory.createActivityFromCoord(type, coord);
+		} else {
+			act = this.factory.createActivityFromActivityFacilityId(type, Id.create(facilityId, ActivityFacility.class));
+		}
+		if (facilityId != null) {
+			act.setFacilityId(Id.create(facilityId, ActivityFacility.class));
+		}
+		readTime(in).ifDefinedOrElse(act::setStartTime, act::setStartTimeUndefined);
+		readTime(in).ifDefinedOrElse(act::setMaximumDuration, act::setMaximumDurationUndefined);
+		readTime(in).ifDefinedOrElse(act::setEndTime, act::setEndTimeUndefined);
+		readAttributes(act.getAttributes(), in);
+		return act;
+	}
+
+	private Leg readLeg(final DataInput in) throws IOException {
+		Leg leg = this.factory.createLeg(readString(in));
+		readTime(in).ifDefinedOrElse(leg::setDepartureTime, leg::setDepartureTimeUndefined);
+		readTime(in).ifDefinedOrElse(leg::setTravelTime, leg::setTravelTimeUndefined);
+		readAttributes(leg.getAttributes(), in);
+		if (in.readBoolean()) {
+			Class<? extends Route> routeClass = this.factory.getRouteFactories().getRouteClassForType(readString(in));
+			String startLinkId = readString(in);
+			String endLinkId = readString(in);
+			Route route = this.factory.getRouteFactories().createRoute(routeClass,
+					startLinkId == null ? null : Id.create(startLinkId, Link.class),
+					endLinkId == null ? null : Id.create(endLinkId, Link.class));
+			String description = readString(in);
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+			route.setDistance(in.readDouble());
+			readTime(in).ifDefinedOrElse(route::setTravelTime, route::setTravelTimeUndefined);
+			String vehicleId = readString(in);
+			if (vehicleId != null && route instanceof NetworkRoute) {
+				((NetworkRoute) route).setVehicleId(Id.create(vehicleId, Vehicle.class));
+			}
+			leg.setRoute(route);
+		}
+		return leg;
+	}
+
+	/**
+	 * Removes the attributes which {@link #writeAttributes(Attributes, DataOutput)} would write, so that reading them
+	 * back does not leave stale values, but attributes without a converter survive.
+	 */
+	void removeConvertibleAttributes(final Attributes attributes) {
+		for (String name : new ArrayList<>(attributes.getAsMap().keySet())) {
+			if (this.converter.convertToString(attributes.getAttribute(name)) != null) {
+				attributes.removeAttribute(name);
+			}
+		}
+	}
+
+	void readAttributes(final Attributes attributes, final DataInput in) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			String name = readString(in);
+			String className = readString(in);
+			Object value = this.converter.convert(className, readString(in));
+			if (value != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+
+	private static OptionalTime readTime(final DataInput in) throws IOException {
+		double seconds = in.readDouble();
+		return Double.isNaN(seconds) ? OptionalTime.undefined() : OptionalTime.defined(seconds);
+	}
+
+	static String readString(final DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -175,35 +175,38 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 	}
 
 	private void dumpOutputTrips() {
+		if (this.controlerConfigGroup.getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.csv)) {
+			dumpOutputTripsFile(Controler.DefaultFiles.tripscsv, this.controlerConfigGroup.getCompressionType());
+		}
+		if (this.controlerConfigGroup.getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.arrow)) {
+			dumpOutputTripsFile(Controler.DefaultFiles.tripsarrow, ControlerConfigGroup.CompressionType.none);
+		}
+	}
+
+    private void dumpOutputLegs() {
+		if (this.controlerConfigGroup.getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.csv)) {
+			dumpOutputTripsFile(Controler.DefaultFiles.legscsv, this.controlerConfigGroup.getCompressionType());
+		}
+		if (this.controlerConfigGroup.getTabularFileFormats().contains(ControlerConfigGroup.TabularFileFormat.arrow)) {
+			dumpOutputTripsFile(Controler.DefaultFiles.legsarrow, ControlerConfigGroup.CompressionType.none);
+		}
+    }
+
+	private void dumpOutputTripsFile(Controler.DefaultFiles file, ControlerConfigGroup.CompressionType compression) {
 		try {
-			File toFile = new File(this.controlerIO.getOutputFilename(Controler.DefaultFiles.tripscsv));
-			File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), Controler.DefaultFiles.tripscsv));
+			File toFile = new File(this.controlerIO.getOutputFilename(file, compression));
+			File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), file, compression));
 			try {
 				Files.copy(fromFile.toPath(), toFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
 			} catch (IOException e) {
 				throw new UncheckedIOException(e);
 			}
 		} catch (Exception ee) {
-			Logger.getLogger(this.getClass()).error("writing output trips did not work; probably parameters were such that no trips CSV were "
-					+ "generated in the final iteration");
+			Logger.getLogger(this.getClass()).error("writing output " + file + " did not work; probably parameters were such that no trips were "
+					+ "written in the final iteration");
 		}
 	}
 
-    private void dumpOutputLegs() {
-        try {
-            File toFile = new File(this.controlerIO.getOutputFilename(Controler.DefaultFiles.legscsv));
-            File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), Controler.DefaultFiles.legscsv));
-            try {
-                Files.copy(fromFile.toPath(), toFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        } catch (Exception ee) {
-            Logger.getLogger(this.getClass()).error("writing output trips did not work; probably parameters were such that no trips CSV were "
-                    + "generated in the final iteration");
-        }
-    }
-
 	private void dumpExperiencedPlans() {
 		if (this.config.planCalcScore().isWriteExperiencedPlans() ) {
 			try {
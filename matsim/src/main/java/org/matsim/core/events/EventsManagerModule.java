@@ -21,7 +21,9 @@
 
  package org.matsim.core.events;
 
+import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.events.handler.EventHandler;
 
@@ -29,11 +31,17 @@ import javax.inject.Inject;
 import java.util.Set;
 
 public final class EventsManagerModule extends AbstractModule {
+	private static final Logger log = Logger.getLogger(EventsManagerModule.class);
 
 	@Override
 	public void install() {
+		if (getConfig().parallelEventHandling().getShardEvents() != null && getConfig().parallelEventHandling().getShardEvents()) {
+			checkShardEventsSettings(getConfig().parallelEventHandling());
+		}
 		if (getConfig().parallelEventHandling().getOneThreadPerHandler() != null && getConfig().parallelEventHandling().getOneThreadPerHandler()) {
 			bindEventsManager().to(ParallelEventsManager.class).asEagerSingleton();
+		} else if (getConfig().parallelEventHandling().getShardEvents() != null && getConfig().parallelEventHandling().getShardEvents()) {
+			bindEventsManager().to(ShardedParallelEventsManagerImpl.class).asEagerSingleton();
 		} else if (getConfig().parallelEventHandling().getNumberOfThreads() != null) {
 			if (getConfig().parallelEventHandling().getSynchronizeOnSimSteps() != null && getConfig().parallelEventHandling().getSynchronizeOnSimSteps()) {
 				bindEventsManager().to(SimStepParallelEventsManagerImpl.class).asEagerSingleton();
@@ -46,6 +54,22 @@ public final class EventsManagerModule extends AbstractModule {
 		bind(EventHandlerRegistrator.class).asEagerSingleton();
 	}
 
+	private static void checkShardEventsSettings(ParallelEventHandlingConfigGroup config) {
+		if (config.getOneThreadPerHandler() != null && config.getOneThreadPerHandler()) {
+			throw new RuntimeException(ParallelEventHandlingConfigGroup.SHARD_EVENTS + " and " + ParallelEventHandlingConfigGroup.ONE_THREAD_PER_HANDLER
+					+ " cannot be used together. Set one of them to false.");
+		}
+		if (config.getSynchronizeOnSimSteps() != null && config.getSynchronizeOnSimSteps()) {
+			throw new RuntimeException("The events manager with " + ParallelEventHandlingConfigGroup.SHARD_EVENTS
+					+ " does not synchronize on sim steps. Set " + ParallelEventHandlingConfigGroup.SYNCHRONIZE_ON_SIMSTEPS
+					+ " to false, or " + ParallelEventHandlingConfigGroup.SHARD_EVENTS + " to false if the events of a time step must be processed before the next one.");
+		}
+		if (config.getNumberOfThreads() == null) {
+			log.warn(ParallelEventHandlingConfigGroup.SHARD_EVENTS + " is set, but " + ParallelEventHandlingConfigGroup.NUMBER_OF_THREADS
+					+ " is not. All events are handled by a single thread.");
+		}
+	}
+
 	public static class EventHandlerRegistrator {
 		@Inject
 		EventHandlerRegistrator(EventsManager eventsManager, Set<EventHandler> eventHandlersDeclaredByModules) {
@@ -0,0 +1,649 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ShardedParallelEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.api.internal.HasVehicleId;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.utils.misc.ClassUtils;
+
+/**
+ * Parallel events manager that, in contrast to {@link ParallelEventsManagerImpl}, does not broadcast every event to
+ * every thread, but only hands it to the threads that have at least one handler for the event's class.
+ * <p></p>
+ * Handlers are distributed round-robin to the threads ("shards"), just like in {@link ParallelEventsManagerImpl}.
+ * Every producing thread collects its events per shard into batches of its own, without any locking, and full
+ * batches are handed over to the shard's thread via a ring buffer under the lock of the shard. Partially filled
+ * batches are handed over at the end of every time step, so {@link #afterSimStep(double)} and
+ * {@link #finishProcessing()} must only be called while no other thread adds events, which is how the mobsim calls
+ * them. Events created by handlers on the threads of the shards are appended to a batch of the shard under its lock.
+ * <p></p>
+ * If the handlers of a shard fall behind, the producer waits until the shard has caught up (back-pressure), so the
+ * number of pending events is bounded. The threads of the shards never wait for other shards, as this could deadlock
+ * when handlers create events themselves; the events created by handlers are thus not bounded.
+ * <p></p>
+ * Handlers that are expensive but can work on a subset of the agents can be split with
+ * {@link #addPartitionedHandler(Partitioning, List)}: every copy of the handler then only receives the events of the
+ * persons (or vehicles) of its partition, and the copies run on different threads.
+ * <p></p>
+ * The events of each handler are delivered in the order in which they were handed to this events manager; events of
+ * concurrent producers may be interleaved differently for handlers on different threads. At the end of the mobsim,
+ * {@link #finishProcessing()} waits until all batches are processed, including the events created by handlers while
+ * doing so, before events are processed directly again. Like
+ * {@link ParallelEventsManagerImpl}, the mobsim does not wait for the events of a time step to be processed; use
+ * {@link SimStepParallelEventsManagerImpl} if this is required (e.g. for within-day replanning).
+ */
+public final class ShardedParallelEventsManagerImpl implements EventsManager {
+	private final static Logger log = Logger.getLogger(ShardedParallelEventsManagerImpl.class);
+
+	/*package*/ static final int BATCH_SIZE = 1024;
+	private static final int RING_CAPACITY = 256; // batches per shard, must be a power of 2
+	private static final int MAX_OVERFLOW = 256; // batches per shard that wait for space in the ring before producers wait
+	private static final int SPIN_ROUNDS = 100;
+
+	public enum Partitioning { PERSON, VEHICLE }
+
+	private final int numberOfThreads;
+	private final EventsManagerImpl[] regularManagers;
+	private final List<List<EventHandler>> regularHandlers = new ArrayList<>();
+	private final List<PartitionedHandler> partitionedHandlers = new ArrayList<>();
+	private final Map<Class<?>, Route> routes = new ConcurrentHashMap<>();
+	private final ThreadLocal<Producer> producer = new ThreadLocal<>();
+	private final List<Producer> producers = new ArrayList<>(); // guarded by itself
+	private int numberOfAddedEventsHandler = 0;
+
+	// not null while the threads are running
+	private volatile Shard[] shards = null;
+	private Thread[] threads = null;
+	private final AtomicBoolean hadException = new AtomicBoolean(false);
+	private final UncaughtExceptionHandler uncaughtExceptionHandler = (t, e) -> {
+		log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+		this.hadException.set(true);
+	};
+
+	@Inject
+	ShardedParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
+	}
+
+	public ShardedParallelEventsManagerImpl(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be at least 1, but is " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+		this.regularManagers = new EventsManagerImpl[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; i++) {
+			this.regularManagers[i] = new EventsManagerImpl();
+			this.regularHandlers.add(new ArrayList<>());
+		}
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		Route route = getRoute(event.getClass());
+		Shard[] currentShards = this.shards;
+		if (currentShards != null && !(Thread.currentThread() instanceof ShardThread)) {
+			Producer p = getProducer(currentShards);
+			for (int shard : route.regularShards) {
+				p.add(shard, event, this.regularManagers[shard]);
+			}
+			for (PartitionedHandler handler : route.partitionedHandlers) {
+				int partition = handler.getPartition(event);
+				p.add(handler.shards[partition], event, handler.managers[partition]);
+			}
+		} else if (currentShards != null) {
+			for (int shard : route.regularShards) {
+				if (!currentShards[shard].add(event, this.regularManagers[shard])) {
+					this.regularManagers[shard].processEvent(event);
+				}
+			}
+			for (PartitionedHandler handler : route.partitionedHandlers) {
+				int partition = handler.getPartition(event);
+				if (!currentShards[handler.shards[partition]].add(event, handler.managers[partition])) {
+					handler.managers[partition].processEvent(event);
+				}
+			}
+		} else {
+			// Outside of the mobsim, events are processed directly. This is thread-safe as EventsManagerImpl
+			// synchronizes on the handlers.
+			for (int shard : route.regularShards) {
+				this.regularManagers[shard].processEvent(event);
+			}
+			for (PartitionedHandler handler : route.partitionedHandlers) {
+				handler.managers[handler.getPartition(event)].processEvent(event);
+			}
+		}
+	}
+
+	private Producer getProducer(Shard[] currentShards) {
+		Producer p = this.producer.get();
+		if (p == null || p.shards != currentShards) {
+			p = new Producer(currentShards);
+			this.producer.set(p);
+			synchronized (this.producers) {
+				this.producers.add(p);
+			}
+		}
+		return p;
+	}
+
+	private void flushProducers() {
+		List<Producer> currentProducers;
+		synchronized (this.producers) {
+			currentProducers = new ArrayList<>(this.producers);
+		}
+		for (Producer p : currentProducers) {
+			p.flush();
+		}
+	}
+
+	@Override
+	public synchronized void addHandler(final EventHandler handler) {
+		log.info("adding Event-Handler " + handler.getClass().getName() + " to thread " + this.numberOfAddedEventsHandler);
+		this.regularManagers[this.numberOfAddedEventsHandler].addHandler(handler);
+		this.regularHandlers.get(this.numberOfAddedEventsHandler).add(handler);
+		this.numberOfAddedEventsHandler = (this.numberOfAddedEventsHandler + 1) % this.numberOfThreads;
+		this.routes.clear();
+	}
+
+	/**
+	 * Adds several copies of a handler, each of which only receives the events of one partition of the persons or
+	 * vehicles. The events are assigned to the partitions by the index of their person or vehicle id; events without
+	 * such an id are all given to the first copy. The copies are distributed over the threads.
+	 */
+	public synchronized void addPartitionedHandler(final Partitioning partitioning, final List<? extends EventHandler> handlerCopies) {
+		if (handlerCopies.isEmpty()) {
+			throw new IllegalArgumentException("at least one handler is required.");
+		}
+		PartitionedHandler partitioned = new PartitionedHandler(partitioning, handlerCopies.size());
+		for (int i = 0; i < handlerCopies.size(); i++) {
+			EventHandler handler = handlerCopies.get(i);
+			log.info("adding partitioned Event-Handler " + handler.getClass().getName() + " (partition " + i + ") to thread " + this.numberOfAddedEventsHandler);
+			partitioned.handlers[i] = handler;
+			partitioned.managers[i] = new EventsManagerImpl();
+			partitioned.managers[i].addHandler(handler);
+			partitioned.shards[i] = this.numberOfAddedEventsHandler;
+			this.numberOfAddedEventsHandler = (this.numberOfAddedEventsHandler + 1) % this.numberOfThreads;
+		}
+		this.partitionedHandlers.add(partitioned);
+		this.routes.clear();
+	}
+
+	@Override
+	public synchronized void removeHandler(final EventHandler handler) {
+		for (int i = 0; i < this.numberOfThreads; i++) {
+			this.regularManagers[i].removeHandler(handler);
+			this.regularHandlers.get(i).remove(handler);
+		}
+		this.partitionedHandlers.removeIf(partitioned -> {
+			for (EventHandler h : partitioned.handlers) {
+				if (h == handler) {
+					return true;
+				}
+			}
+			return false;
+		});
+		this.routes.clear();
+	}
+
+	@Override
+	public synchronized void resetHandlers(final int iteration) {
+		for (EventsManagerImpl manager : this.regularManagers) {
+			manager.resetHandlers(iteration);
+		}
+		for (PartitionedHandler partitioned : this.partitionedHandlers) {
+			for (EventsManagerImpl manager : partitioned.managers) {
+				manager.resetHandlers(iteration);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void initProcessing() {
+		this.hadException.set(false);
+		Shard[] newShards = new Shard[this.numberOfThreads];
+		this.threads = new Thread[this.numberOfThreads];
+		for (int i = 0; i < this.numberOfThreads; i++) {
+			newShards[i] = new Shard();
+			this.threads[i] = new ShardThread(newShards[i], "Events-" + i);
+			this.threads[i].setUncaughtExceptionHandler(this.uncaughtExceptionHandler);
+			newShards[i].consumer = this.threads[i];
+			this.threads[i].start();
+		}
+		this.shards = newShards;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		Shard[] currentShards = this.shards;
+		if (currentShards != null) {
+			flushProducers();
+			for (Shard shard : currentShards) {
+				shard.flush();
+			}
+		}
+	}
+
+	@Override
+	public void finishProcessing() {
+		Shard[] currentShards = this.shards;
+		if (currentShards == null) {
+			return;
+		}
+		flushProducers();
+		synchronized (this.producers) {
+			this.producers.clear();
+		}
+		// Not synchronized, as handlers which create events of a new type need the lock while this method waits.
+		// Handlers may create events while the batches are processed. Wait until a full round over all shards did
+		// not see any new event, so that no event can be processed directly before older events in the batches.
+		long before;
+		long after = countAddedEvents(currentShards);
+		do {
+			before = after;
+			for (Shard shard : currentShards) {
+				shard.awaitProcessed();
+			}
+			after = countAddedEvents(currentShards);
+		} while (after != before);
+
+		for (Shard shard : currentShards) {
+			shard.close();
+		}
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		// events created after the end of the mobsim (e.g. by controler listeners) are processed directly
+		this.shards = null;
+		this.threads = null;
+		log.info("handed over " + after + " events in batches to " + this.numberOfThreads + " threads.");
+		if (this.hadException.get()) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.");
+		}
+	}
+
+	private static long countAddedEvents(Shard[] shards) {
+		long count = 0;
+		for (Shard shard : shards) {
+			count += shard.getAdded();
+		}
+		return count;
+	}
+
+	private Route getRoute(Class<?> eventClass) {
+		Route route = this.routes.get(eventClass);
+		return route != null ? route : createRoute(eventClass);
+	}
+
+	private synchronized Route createRoute(Class<?> eventClass) {
+		Route route = this.routes.get(eventClass);
+		if (route == null) {
+			List<Integer> regularShards = new ArrayList<>();
+			for (int i = 0; i < this.numberOfThreads; i++) {
+				for (EventHandler handler : this.regularHandlers.get(i)) {
+					if (handles(handler, eventClass)) {
+						regularShards.add(i);
+						break;
+					}
+				}
+			}
+			List<PartitionedHandler> partitioned = new ArrayList<>();
+			for (PartitionedHandler handler : this.partitionedHandlers) {
+				if (handles(handler.handlers[0], eventClass)) {
+					partitioned.add(handler);
+				}
+			}
+			route = new Route(regularShards.stream().mapToInt(Integer::intValue).toArray(), partitioned.toArray(new PartitionedHandler[0]));
+			this.routes.put(eventClass, route);
+		}
+		return route;
+	}
+
+	/**
+	 * @return <code>true</code> if the handler has a <code>handleEvent</code> method for the event class or any of its
+	 * super types, the same way {@link EventsManagerImpl} looks up handlers.
+	 */
+	/*package*/ static boolean handles(EventHandler handler, Class<?> eventClass) {
+		for (Class<?> handlerInterface : ClassUtils.getAllInterfaces(handler.getClass())) {
+			for (Method method : handlerInterface.getMethods()) {
+				if (method.getName().equals("handleEvent") && method.getParameterCount() == 1
+						&& method.getParameterTypes()[0].isAssignableFrom(eventClass)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static final class Route {
+		final int[] regularShards;
+		final PartitionedHandler[] partitionedHandlers;
+
+		Route(int[] regularShards, PartitionedHandler[] partitionedHandlers) {
+			this.regularShards = regularShards;
+			this.partitionedHandlers = partitionedHandlers;
+		}
+	}
+
+	private static final class PartitionedHandler {
+		final Partitioning partitioning;
+		final EventHandler[] handlers;
+		final EventsManagerImpl[] managers;
+		final int[] shards;
+
+		PartitionedHandler(Partitioning partitioning, int partitions) {
+			this.partitioning = partitioning;
+			this.handlers = new EventHandler[partitions];
+			this.managers = new EventsManagerImpl[partitions];
+			this.shards = new int[partitions];
+		}
+
+		int getPartition(Event event) {
+			Id<?> id = null;
+			if (this.partitioning == Partitioning.PERSON && event instanceof HasPersonId) {
+				id = ((HasPersonId) event).getPersonId();
+			} else if (this.partitioning == Partitioning.VEHICLE && event instanceof HasVehicleId) {
+				id = ((HasVehicleId) event).getVehicleId();
+			}
+			return id == null ? 0 : id.index() % this.handlers.length;
+		}
+	}
+
+	/**
+	 * A batch of events, each with the events manager that should process it.
+	 */
+	private static final class Batch {
+		final Event[] events = new Event[BATCH_SIZE];
+		final EventsManager[] targets = new EventsManager[BATCH_SIZE];
+		int size = 0;
+		boolean last = false;
+	}
+
+	/**
+	 * The batches of one producing thread, one per shard. Only the producing thread appends to them; they are handed
+	 * over to the shards when full, and by {@link #flush()} while the producing thread does not add events.
+	 */
+	private static final class Producer {
+		final Shard[] shards;
+		private final Batch[] batches;
+
+		Producer(Shard[] shards) {
+			this.shards = shards;
+			this.batches = new Batch[shards.length];
+			for (int i = 0; i < shards.length; i++) {
+				this.batches[i] = new Batch();
+			}
+		}
+
+		void add(int shard, Event event, EventsManager target) {
+			Batch batch = this.batches[shard];
+			batch.events[batch.size] = event;
+			batch.targets[batch.size] = target;
+			batch.size++;
+			if (batch.size == BATCH_SIZE) {
+				handOver(shard);
+			}
+		}
+
+		void flush() {
+			for (int i = 0; i < this.batches.length; i++) {
+				if (this.batches[i].size > 0) {
+					handOver(i);
+				}
+			}
+		}
+
+		private void handOver(int shard) {
+			Batch batch = this.batches[shard];
+			this.batches[shard] = new Batch();
+			if (!this.shards[shard].publish(batch)) {
+				for (int i = 0; i < batch.size; i++) {
+					batch.targets[i].processEvent(batch.events[i]);
+				}
+			}
+		}
+	}
+
+	private static final class ShardThread extends Thread {
+		ShardThread(Runnable shard, String name) {
+			super(shard, name);
+		}
+	}
+
+	/**
+	 * The batches of one thread. Producers hand over their batches, and handlers append the events they create to the
+	 * current batch, while holding the lock of the shard, so the ring buffer has one producer at a time and exactly one
+	 * consumer (the shard's thread). Should the ring buffer
+	 * be full, batches go to an overflow queue; as long as it is not empty, all batches go there to keep them in order.
+	 * If the overflow queue is full, too, producers wait until the consumer has caught up, except for the threads of
+	 * the shards, which might otherwise wait for themselves.
+	 */
+	private static final class Shard implements Runnable {
+		private final AtomicReferenceArray<Batch> ring = new AtomicReferenceArray<>(RING_CAPACITY);
+		private final AtomicLong head = new AtomicLong(0); // next position to read, written by the consumer
+		private final AtomicLong tail = new AtomicLong(0); // next position to write, written under the lock
+		private volatile int overflowSize = 0;
+		private final AtomicLong processed = new AtomicLong(0);
+		private volatile boolean waiting = false;
+		private volatile boolean awaited = false;
+		private volatile boolean terminated = false;
+		private volatile Thread consumer;
+
+		// guarded by the lock of the shard:
+		private final Queue<Batch> overflow = new ArrayDeque<>();
+		private Batch current = new Batch();
+		private long added = 0;
+		private boolean closed = false;
+
+		/**
+		 * @return <code>false</code> if the shard is already closed
+		 */
+		synchronized boolean add(Event event, EventsManager target) {
+			if (this.closed) {
+				return false;
+			}
+			this.current.events[this.current.size] = event;
+			this.current.targets[this.current.size] = target;
+			this.current.size++;
+			this.added++;
+			if (this.current.size == BATCH_SIZE) {
+				publishCurrent();
+			}
+			return true;
+		}
+
+		/**
+		 * @return <code>false</code> if the shard is already closed
+		 */
+		synchronized boolean publish(Batch batch) {
+			if (this.closed) {
+				return false;
+			}
+			this.added += batch.size;
+			enqueue(batch);
+			return true;
+		}
+
+		synchronized void flush() {
+			if (!this.closed && this.current.size > 0) {
+				publishCurrent();
+			}
+		}
+
+		synchronized long getAdded() {
+			return this.added;
+		}
+
+		synchronized void close() {
+			this.closed = true;
+			this.current.last = true;
+			publishCurrent();
+		}
+
+		/**
+		 * Hands over the current batch and waits until all events added so far are processed.
+		 */
+		synchronized void awaitProcessed() {
+			flush();
+			// events added while waiting stay in the current batch and are seen by the next round of finishProcessing()
+			long target = this.added;
+			this.awaited = true;
+			try {
+				while (this.processed.get() < target && !this.terminated) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} finally {
+				this.awaited = false;
+			}
+		}
+
+		private void publishCurrent() {
+			Batch batch = this.current;
+			this.current = this.closed ? null : new Batch();
+			enqueue(batch);
+		}
+
+		private void enqueue(Batch batch) {
+			long t = this.tail.get();
+			if (this.overflow.isEmpty() && t - this.head.get() < RING_CAPACITY) {
+				this.ring.set((int) (t & (RING_CAPACITY - 1)), batch);
+				this.tail.set(t + 1);
+			} else {
+				this.overflow.add(batch);
+				this.overflowSize = this.overflow.size();
+			}
+			if (this.waiting) {
+				LockSupport.unpark(this.consumer);
+			}
+			if (!(Thread.currentThread() instanceof ShardThread)) {
+				// back-pressure; waiting releases the lock, so the consumer can refill the ring and other producers
+				// can append their events after this batch
+				try {
+					while (this.overflow.size() >= MAX_OVERFLOW && !this.terminated) {
+						wait();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+		}
+
+		/**
+		 * Moves batches from the overflow queue into the empty ring, called by the consumer.
+		 */
+		private synchronized void refill() {
+			long t = this.tail.get();
+			while (!this.overflow.isEmpty() && t - this.head.get() < RING_CAPACITY) {
+				this.ring.set((int) (t & (RING_CAPACITY - 1)), this.overflow.poll());
+				t++;
+			}
+			this.tail.set(t);
+			this.overflowSize = this.overflow.size();
+			notifyAll();
+		}
+
+		private Batch poll() {
+			long h = this.head.get();
+			if (h == this.tail.get()) {
+				if (this.overflowSize == 0) {
+					return null;
+				}
+				refill();
+			}
+			int index = (int) (h & (RING_CAPACITY - 1));
+			Batch batch = this.ring.get(index);
+			this.ring.lazySet(index, null);
+			this.head.set(h + 1);
+			return batch;
+		}
+
+		@Override
+		public void run() {
+			try {
+				int idleRounds = 0;
+				while (true) {
+					Batch batch = poll();
+					if (batch == null) {
+						// spin a bit before parking, the next batch is usually not far away
+						if (++idleRounds < SPIN_ROUNDS) {
+							Thread.onSpinWait();
+						} else {
+							// producers unpark the thread after publishing if they see the flag, and the flag is set
+							// before checking for batches once more, so no batch is missed
+							this.waiting = true;
+							if (this.head.get() == this.tail.get() && this.overflowSize == 0) {
+								LockSupport.park(this);
+							}
+							this.waiting = false;
+						}
+						continue;
+					}
+					idleRounds = 0;
+					for (int i = 0; i < batch.size; i++) {
+						batch.targets[i].processEvent(batch.events[i]);
+					}
+					this.processed.addAndGet(batch.size);
+					if (this.awaited) {
+						synchronized (this) {
+							notifyAll();
+						}
+					}
+					if (batch.last) {
+						return;
+					}
+				}
+			} finally {
+				this.terminated = true;
+				synchronized (this) {
+					notifyAll();
+				}
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@
 package org.matsim.core.events.algorithms;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
@@ -29,9 +30,6 @@ import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.vehicles.Vehicle;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * Basic event handler that collects the relation between vehicles and drivers.
  * Necessary since link enter and leave events do not contain the driver anymore.
@@ -40,7 +38,7 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public final class Vehicle2DriverEventHandler implements VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler {
 
-	private final Map<Id<Vehicle>, Id<Person>> driverAgents = new ConcurrentHashMap<>();
+	private final IdMap<Vehicle, Id<Person>> driverAgents = new IdMap<>(Vehicle.class);
 	
 	@Override
 	public void reset(int iteration) {
@@ -23,12 +23,19 @@ package org.matsim.core.gbl;
 import java.util.Random;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 
 
 /**
  * An abstract class, providing random numbers for MATSim. Also provides
  * Random Number Generators (RNG) for use in threads, which should all
  * use their own RNGs for deterministic behavior.
+ * <p></p>
+ * If per-person streams are switched on, code handling a single person can open a stream
+ * for that person with {@link #openPersonStream(Id, Class)}.  Until the stream is closed, all
+ * RNGs of this class draw from it on the calling thread.  The stream only depends on the last
+ * used seed, the person and the opening class, so the result no longer depends on how persons
+ * are distributed over threads.
  *
  * @author mrieser
  */
@@ -49,13 +56,45 @@ public abstract class MatsimRandom {
 		}
 	}
 
+	/**
+	 * Draws from the stream opened on the current thread, if there is one.
+	 */
+	private static final class StreamRandom extends Random {
+		StreamRandom(long seed) {
+			super(seed) ;
+		}
+		@Override protected int next(int bits) {
+			PersonStream stream = personStreams ? currentStream.get() : null ;
+			return stream == null ? super.next(bits) : stream.draw(bits) ;
+		}
+		@Override public double nextGaussian() {
+			// Random caches every second gaussian, which must not leak from one stream into another
+			PersonStream stream = personStreams ? currentStream.get() : null ;
+			return stream == null ? super.nextGaussian() : stream.nextGaussian() ;
+		}
+	}
+
+	private static final class PersonStream extends Random {
+		private final PersonStream previous ;
+		PersonStream(long seed, PersonStream previous) {
+			super(seed) ;
+			this.previous = previous ;
+		}
+		int draw(int bits) {
+			return next(bits) ;
+		}
+	}
+
 	private static final long DEFAULT_RANDOM_SEED = 4711;
 
 	private static long lastUsedSeed = DEFAULT_RANDOM_SEED;
 	private static int internalCounter = 0;
 
+	private static boolean personStreams = false;
+	private static final ThreadLocal<PersonStream> currentStream = new ThreadLocal<>();
+
 	/** the global random number generator */
-	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
+	private static final Random random = new StreamRandom(DEFAULT_RANDOM_SEED);
 //	private static final Random random = new InstrumentedRandom(DEFAULT_RANDOM_SEED);
 
 	/** Resets the random number generator with a default random seed. */
@@ -73,6 +112,30 @@ public abstract class MatsimRandom {
 		getRandom().setSeed(seed);
 //		prepareRNG(random);
 	}
+
+	/**
+	 * Resets the random number generator with the given seed, and continues the seeding of local instances as if the given
+	 * number of local instances had been created since, e.g. when a run is resumed.
+	 */
+	public static void reset(final long seed, final int numberOfLocalInstances) {
+		reset(seed);
+		internalCounter = numberOfLocalInstances;
+	}
+
+	/**
+	 * @return the seed used in the last reset
+	 */
+	public static long getLastUsedSeed() {
+		return lastUsedSeed;
+	}
+
+	/**
+	 * @return the number of local instances created since the last reset, which determines the seed of the next one
+	 */
+	public static int getNumberOfLocalInstances() {
+		return internalCounter;
+	}
+
 	public static Random getRandom() {
 		return random;
 	}
@@ -84,11 +147,75 @@ public abstract class MatsimRandom {
 	 */
 	public static Random getLocalInstance() {
 		internalCounter++;
-		Random r = new Random(lastUsedSeed + internalCounter*23l);
+		Random r = new StreamRandom(lastUsedSeed + internalCounter*23l);
 		prepareRNG(r);
 		return r;
 	}
 
+	/**
+	 * Switches per-person streams on or off.  If they are off, opening a stream has no effect.
+	 */
+	public static void setPersonStreams(final boolean enabled) {
+		personStreams = enabled;
+	}
+
+	public static boolean isUsingPersonStreams() {
+		return personStreams;
+	}
+
+	/**
+	 * Lets all random number generators of this class draw from the stream of the given person on the calling
+	 * thread, until {@link #closePersonStream()} is called.  Streams may be nested; closing one continues
+	 * with the enclosing stream.
+	 *
+	 * @param personId the person which is handled
+	 * @param user the class handling the person, so that different steps of the same person get different numbers
+	 */
+	public static void openPersonStream(final Id<?> personId, final Class<?> user) {
+		if (!personStreams) {
+			return;
+		}
+		long seed = mix(lastUsedSeed);
+		seed = mix(seed ^ hash(personId.toString()));
+		seed = mix(seed ^ hash(user.getName()));
+		currentStream.set(new PersonStream(seed, currentStream.get()));
+	}
+
+	/**
+	 * Closes the stream opened last on the calling thread.
+	 */
+	public static void closePersonStream() {
+		if (!personStreams) {
+			return;
+		}
+		PersonStream stream = currentStream.get();
+		if (stream == null) {
+			throw new IllegalStateException("there is no open stream on thread " + Thread.currentThread().getName());
+		}
+		if (stream.previous == null) {
+			currentStream.remove();
+		} else {
+			currentStream.set(stream.previous);
+		}
+	}
+
+	private static long hash(final String value) {
+		// FNV-1a, which, unlike String.hashCode(), keeps 64 bits
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static long mix(long value) {
+		// the SplitMix64 finalizer, so that similar seeds do not lead to similar streams
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
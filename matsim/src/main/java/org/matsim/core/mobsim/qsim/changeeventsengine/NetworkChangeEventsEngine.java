@@ -30,9 +30,11 @@ import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.TimeVariantLink;
 import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeSchedule;
 import org.matsim.core.network.NetworkUtils;
 
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Queue;
 
 class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
@@ -50,11 +52,36 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 
 	@Override
 	public void onPrepareSim() {
-		Queue<NetworkChangeEvent> changeEvents = NetworkUtils.getNetworkChangeEvents(this.network);
-		for (final NetworkChangeEvent changeEvent : changeEvents) {
-			addNetworkChangeEventToMessageQ(changeEvent);
+		// Compile the change events into one batch per distinct start time, so that every affected link is recalculated
+		// only once per time step, and the netsim links are looked up only once instead of for every change event.
+		NetworkChangeSchedule schedule = NetworkChangeSchedule.create(this.network);
+		for (int i = 0; i < schedule.getNumberOfChangeTimes(); i++) {
+			List<Link> changedLinks = schedule.getChangedLinks(i);
+			TimeVariantLink[] batch = new TimeVariantLink[changedLinks.size()];
+			for (int j = 0; j < batch.length; j++) {
+				batch[j] = getTimeVariantLink(changedLinks.get(j));
+			}
+			addChangeBatchToMessageQ(schedule.getChangeTime(i), batch);
 		}
 	}
+
+	private void addChangeBatchToMessageQ(double time, TimeVariantLink[] batch) {
+		Message m = new Message() {
+			@Override
+			public void processEvent() {
+
+			}
+
+			@Override
+			public void handleMessage() {
+				for (TimeVariantLink link : batch) {
+					link.recalcTimeVariantAttributes();
+				}
+			}
+		};
+		m.setMessageArrivalTime(time);
+		this.messageQueue.putMessage(m);
+	}
 	
 	private void addNetworkChangeEventToMessageQ(NetworkChangeEvent changeEvent) {
 		Message m = new Message() {
@@ -74,13 +101,16 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	
 	private void applyTheChangeEvent(NetworkChangeEvent changeEvent) {
 		for (Link link : changeEvent.getLinks()) {
-			final NetsimLink netsimLink = this.internalInterface.getMobsim().getNetsimNetwork().getNetsimLink(link.getId());
-			if ( netsimLink instanceof TimeVariantLink) {
-				((TimeVariantLink) netsimLink).recalcTimeVariantAttributes();
-			} else {
-				throw new RuntimeException("link not time variant") ;
-			}
+			getTimeVariantLink(link).recalcTimeVariantAttributes();
+		}
+	}
 
+	private TimeVariantLink getTimeVariantLink(Link link) {
+		final NetsimLink netsimLink = this.internalInterface.getMobsim().getNetsimNetwork().getNetsimLink(link.getId());
+		if ( netsimLink instanceof TimeVariantLink) {
+			return (TimeVariantLink) netsimLink;
+		} else {
+			throw new RuntimeException("link not time variant") ;
 		}
 	}
 	
@@ -34,4 +34,11 @@ public interface NetsimLink extends Customizable, VisLink, MatsimNetworkObject {
 	Collection<MobsimVehicle> getAllNonParkedVehicles();
 	// not terribly efficient, but a possible method also for general mobsims
 
+	/**
+	 * @return the size of {@link #getAllNonParkedVehicles()}; implementations should override this to avoid copying
+	 */
+	default int getNumberOfNonParkedVehicles() {
+		return getAllNonParkedVehicles().size();
+	}
+
 }
\ No newline at end of file
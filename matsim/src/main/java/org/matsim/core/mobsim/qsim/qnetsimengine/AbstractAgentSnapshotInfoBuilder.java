@@ -48,6 +48,7 @@ import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfoFactory;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
+import org.matsim.vis.snapshotwriters.VehiclePositionBuffer;
 import org.matsim.vis.snapshotwriters.VisVehicle;
 
 
@@ -98,6 +99,17 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 		return cnt2 ;
 	}
 
+	/**
+	 * Writes the vehicles from the waiting list or from a transit stop into the buffer, at the same position as
+	 * {@link #positionVehiclesFromWaitingList(Collection, Link, int, Queue)}.
+	 */
+	final void addStoppedVehiclePositions(final VehiclePositionBuffer positions, final int linkIndex,
+			final Collection<QVehicle> vehicles) {
+		for (QVehicle veh : vehicles) {
+			positions.addVehicle(veh.getId().index(), linkIndex, 0.9, getDriverState(veh.getDriver()), 0.);
+		}
+	}
+
 	public final int positionAgentsInActivities(final Collection<AgentSnapshotInfo> positions, Link link,
 			Collection<MobsimAgent> agentsInActivities,  int cnt2) {
 		for (MobsimAgent pa : agentsInActivities) {
@@ -161,22 +173,7 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 		AgentSnapshotInfo pos = snapshotInfoFactory.createAgentSnapshotInfo(driverAgent.getId(), startCoord, endCoord, 
 				distanceFromFromNode, lane, lengthOfCurve);
 		pos.setColorValueBetweenZeroAndOne(speedValueBetweenZeroAndOne);
-		if (driverAgent instanceof TransitDriverAgent){
-			pos.setAgentState(AgentState.TRANSIT_DRIVER);
-		} else if ( driverAgent.getMode().equals(TransportMode.car)) {
-			pos.setAgentState(AgentState.PERSON_DRIVING_CAR);
-		} else {
-			pos.setAgentState(AgentState.PERSON_OTHER_MODE );
-		}
-		if ( driverAgent instanceof HasPerson ){
-			if( PopulationUtils.getPersonAttribute( ((HasPerson) driverAgent).getPerson(), AgentSnapshotInfo.marker ) != null ){
-				pos.setAgentState( AgentState.MARKER );
-			}
-		}
-		final Person person = scenario.getPopulation().getPersons().get( driverAgent.getId() );
-		if ( person != null && person.getAttributes().getAttribute( AgentSnapshotInfo.marker ) != null ) {
-			pos.setAgentState( AgentState.MARKER );
-		}
+		pos.setAgentState( getDriverState( driverAgent ) );
 
 		this.positionPassengers(positions, veh.getPassengers(), distanceFromFromNode, startCoord, 
 				endCoord, lengthOfCurve, lane+5, speedValueBetweenZeroAndOne);
@@ -331,7 +328,40 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 		}
 	}
 
-	public abstract double calculateVehicleSpacing(double linkLength, double overallStorageCapacity, Collection<? extends VisVehicle> vehs);
+	/**
+	 * The state of a vehicle is the state of its driver.  Used both for {@link AgentSnapshotInfo}s and for the positions that
+	 * are written into a {@link org.matsim.vis.snapshotwriters.VehiclePositionBuffer}.
+	 */
+	final AgentState getDriverState( MobsimDriverAgent driverAgent ) {
+		AgentState state;
+		if (driverAgent instanceof TransitDriverAgent){
+			state = AgentState.TRANSIT_DRIVER;
+		} else if ( driverAgent.getMode().equals(TransportMode.car)) {
+			state = AgentState.PERSON_DRIVING_CAR;
+		} else {
+			state = AgentState.PERSON_OTHER_MODE;
+		}
+		if ( driverAgent instanceof HasPerson ){
+			if( PopulationUtils.getPersonAttribute( ((HasPerson) driverAgent).getPerson(), AgentSnapshotInfo.marker ) != null ){
+				state = AgentState.MARKER;
+			}
+		}
+		final Person person = scenario.getPopulation().getPersons().get( driverAgent.getId() );
+		if ( person != null && person.getAttributes().getAttribute( AgentSnapshotInfo.marker ) != null ) {
+			state = AgentState.MARKER;
+		}
+		return state;
+	}
+
+	public final double calculateVehicleSpacing(double linkLength, double overallStorageCapacity, Collection<? extends VisVehicle> vehs) {
+		double sumOfSizesInEquivalents = 0. ;
+		for ( VisVehicle veh : vehs ) {
+			sumOfSizesInEquivalents += veh.getSizeInEquivalents() ;
+		}
+		return this.calculateVehicleSpacing( linkLength, overallStorageCapacity, sumOfSizesInEquivalents );
+	}
+
+	public abstract double calculateVehicleSpacing(double linkLength, double overallStorageCapacity, double sumOfSizesInEquivalents);
 
 	public abstract double calculateOdometerDistanceFromFromNode(double length, double spacing, double lastDistanceFromFromNode, 
 			double now, double freespeedTraveltime, double remainingTravelTime);
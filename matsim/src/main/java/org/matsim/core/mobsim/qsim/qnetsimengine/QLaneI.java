@@ -27,6 +27,7 @@ import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.lanes.Lane;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.VehiclePositionBuffer;
 
 
 /**
@@ -53,6 +54,13 @@ public interface QLaneI extends Identifiable<Lane> {
 	
 	static interface VisData {
 		public Collection<AgentSnapshotInfo> addAgentSnapshotInfo(Collection<AgentSnapshotInfo> positions, double now ) ;
+
+		/**
+		 * @param laneStart the distance of the start of the lane from the from-node of the link
+		 */
+		public default void addVehiclePositions(VehiclePositionBuffer positions, int linkIndex, double laneStart,
+				double linkLength, double now) {
+		}
 	}
 
 	VisData getVisData();
@@ -76,6 +84,13 @@ public interface QLaneI extends Identifiable<Lane> {
 
 	Collection<MobsimVehicle> getAllVehicles();
 
+	/**
+	 * @return the size of {@link #getAllVehicles()}; implementations should override this to avoid copying
+	 */
+	default int getNumberOfVehicles() {
+		return getAllVehicles().size();
+	}
+
 	void addFromUpstream(final QVehicle veh);
 
 	boolean isNotOfferingVehicle();
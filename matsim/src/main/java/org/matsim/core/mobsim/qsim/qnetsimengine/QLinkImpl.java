@@ -42,6 +42,7 @@ import org.matsim.lanes.VisLaneModelBuilder;
 import org.matsim.lanes.VisLinkWLanes;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.VehiclePositionBuffer;
 import org.matsim.vis.snapshotwriters.VisData;
 
 /**
@@ -213,6 +214,11 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		return vehicles;
 	}
 
+	@Override public int getNumberOfNonParkedVehicles(){
+		return this.getTransitQLink().getTransitVehicleStopQueue().size() + this.getWaitingList().size()
+				+ qlane.getNumberOfVehicles();
+	}
+
 	/**
 	 * @return the total space capacity available on that link (includes the space on lanes if available)
 	 */
@@ -318,6 +324,15 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 			return positions;
 		}
 
+		@Override
+		public void addVehiclePositions(VehiclePositionBuffer positions, double now) {
+			int linkIndex = getLink().getId().index();
+			getAcceptingQLane().getVisData().addVehiclePositions(positions, linkIndex, 0., getLink().getLength(), now);
+			context.snapshotInfoBuilder.addStoppedVehiclePositions(positions, linkIndex,
+					getTransitQLink().getTransitVehicleStopQueue());
+			context.snapshotInfoBuilder.addStoppedVehiclePositions(positions, linkIndex, getWaitingList());
+		}
+
 	}
 
 	@Override
@@ -50,6 +50,7 @@ import org.matsim.lanes.VisLaneModelBuilder;
 import org.matsim.lanes.VisLinkWLanes;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.VehiclePositionBuffer;
 import org.matsim.vis.snapshotwriters.VisData;
 
 /**
@@ -475,6 +476,15 @@ public final class QLinkLanesImpl extends AbstractQLink {
 		return ret;
 	}
 
+	@Override
+	public final int getNumberOfNonParkedVehicles() {
+		int count = this.getWaitingList().size();
+		for (QLaneI lane : this.laneQueues.values()) {
+			count += lane.getNumberOfVehicles();
+		}
+		return count;
+	}
+
 	/**
 	 * @return the total space capacity available on that link (includes the space on lanes if
 	 *         available)
@@ -579,6 +589,20 @@ public final class QLinkLanesImpl extends AbstractQLink {
 
 			return positions;
 		}
+
+		@Override
+		public void addVehiclePositions(VehiclePositionBuffer positions, double now) {
+			int linkIndex = getLink().getId().index();
+			double linkLength = getLink().getLength();
+			for (ModelLane lane : lanes) {
+				QLaneI road = laneQueues.get(lane.getLaneData().getId());
+				double laneStart = linkLength - lane.getLaneData().getStartsAtMeterFromLinkEnd();
+				road.getVisData().addVehiclePositions(positions, linkIndex, laneStart, linkLength, now);
+			}
+			context.snapshotInfoBuilder.addStoppedVehiclePositions(positions, linkIndex,
+					getTransitQLink().getTransitVehicleStopQueue());
+			context.snapshotInfoBuilder.addStoppedVehiclePositions(positions, linkIndex, getWaitingList());
+		}
 	}
 	
 	@Override
@@ -54,6 +54,7 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.VehicleQ;
 import org.matsim.lanes.Lane;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.VehiclePositionBuffer;
 import org.matsim.vis.snapshotwriters.VisVehicle;
 
 /**
@@ -675,6 +676,11 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		return vehicles ;
 	}
 
+	@Override
+	public final int getNumberOfVehicles() {
+		return buffer.size() + vehQueue.size();
+	}
+
 	@Override
 	public final QVehicle popFirstVehicle() {
 		double now = context.getSimTimer().getTimeOfDay() ;
@@ -946,6 +952,50 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 			return positions ;
 		}
 
+		/**
+		 * Same positions as with the queue or equiDist snapshot style of {@link #addAgentSnapshotInfo(Collection, double)},
+		 * but without holes and without any objects per vehicle.
+		 */
+		@Override
+		public final void addVehiclePositions(VehiclePositionBuffer positions, int linkIndex, double laneStart,
+				double linkLength, double now) {
+			if ( buffer.isEmpty() && vehQueue.isEmpty() ) {
+				return;
+			}
+			double sizeInEquivalents = 0. ;
+			for ( QVehicle veh : buffer ) {
+				sizeInEquivalents += veh.getSizeInEquivalents() ;
+			}
+			for ( QVehicle veh : vehQueue ) {
+				sizeInEquivalents += veh.getSizeInEquivalents() ;
+			}
+			double spacingOfOnePCE = context.snapshotInfoBuilder.calculateVehicleSpacing( length,
+					storageCapacity + getBufferStorageCapacity(), sizeInEquivalents ) ;
+			double freeSpeed = qLink.getFreespeed( now ) ;
+
+			// (vehicles in the buffer are downstream of the ones in the queue, and the first vehicle is the most downstream one)
+			double distanceFromFromNode = Double.NaN ;
+			for ( QVehicle veh : buffer ) {
+				distanceFromFromNode = addVehiclePosition( positions, veh, linkIndex, laneStart, linkLength, spacingOfOnePCE,
+						freeSpeed, distanceFromFromNode, now ) ;
+			}
+			for ( QVehicle veh : vehQueue ) {
+				distanceFromFromNode = addVehiclePosition( positions, veh, linkIndex, laneStart, linkLength, spacingOfOnePCE,
+						freeSpeed, distanceFromFromNode, now ) ;
+			}
+		}
+
+		private double addVehiclePosition(VehiclePositionBuffer positions, QVehicle veh, int linkIndex, double laneStart,
+				double linkLength, double spacingOfOnePCE, double freeSpeed, double lastDistanceFromFromNode, double now) {
+			double distanceFromFromNode = context.snapshotInfoBuilder.calculateOdometerDistanceFromFromNode( length,
+					veh.getSizeInEquivalents() * spacingOfOnePCE, lastDistanceFromFromNode, now, length / freeSpeed,
+					veh.getEarliestLinkExitTime() - now ) ;
+			positions.addVehicle( veh.getId().index(), linkIndex, (laneStart + distanceFromFromNode) / linkLength,
+					context.snapshotInfoBuilder.getDriverState( veh.getDriver() ),
+					VisUtils.calcSpeedValueBetweenZeroAndOne( veh, inverseFlowCapacityPerTimeStep, now, freeSpeed ) ) ;
+			return distanceFromFromNode ;
+		}
+
 		void setVisInfo(Coord upstreamCoord, Coord downstreamCoord) {
 			this.upstreamCoord = upstreamCoord;
 			this.downstreamCoord = downstreamCoord;
@@ -0,0 +1,756 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MemoryMappedNetwork.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A read-only {@link Network} backed by a memory-mapped snapshot file written by {@link NetworkSnapshotWriter}.
+ * <p></p>
+ * Opening a snapshot only creates the ids of all nodes and links; the node and link data stays in the mapped file
+ * and is thus shared by all processes that open the same snapshot (e.g. several simulation runs on the same
+ * machine), and is loaded lazily by the operating system. {@link Node} and {@link Link} objects are small flyweights
+ * that are created on every access and not kept by the network, so the heap does not grow when the whole network is
+ * traversed. Flyweights of the same node or link are {@link Object#equals(Object) equal}, but not identical; code
+ * comparing nodes or links with <code>==</code> does not work with this network. The network can safely be read by
+ * multiple threads.
+ * <p></p>
+ * All methods modifying the network, its nodes or its links throw an {@link UnsupportedOperationException}. The
+ * attributes of nodes and links are decoded into new {@link Attributes} on every access, so changes to them are
+ * lost; the attributes of the network are decoded once, but are not written back to the snapshot either. The network
+ * is not time-variant: the time-dependent getters of the links return the base values.
+ */
+public final class MemoryMappedNetwork implements Network {
+	private static final Logger log = Logger.getLogger(MemoryMappedNetwork.class);
+
+	private static final String READ_ONLY_MESSAGE = "The memory mapped network is read-only.";
+
+	private final ObjectAttributesConverter converter;
+
+	private final ByteBuffer nodeData;
+	private final ByteBuffer linkData;
+	private final ByteBuffer adjacencyData;
+	private final ByteBuffer stringOffsets;
+	private final ByteBuffer stringData;
+	private final ByteBuffer attributeData;
+
+	private final double capacityPeriod;
+	private final double effectiveLaneWidth;
+	private final double effectiveCellSize;
+	private final String name;
+	private final Attributes attributes;
+
+	private final List<Id<Node>> nodeIds;
+	private final List<Id<Link>> linkIds;
+	// snapshot indices of nodes and links, indexed by Id.index(); -1 for ids not contained in the snapshot
+	private final int[] nodeIndices;
+	private final int[] linkIndices;
+
+	// allowed modes by the string index of the comma-separated modes; networks only have few distinct mode combinations
+	private final ConcurrentMap<Integer, Set<String>> modes = new ConcurrentHashMap<>();
+
+	private final NodesMap nodesMap = new NodesMap();
+	private final LinksMap linksMap = new LinksMap();
+
+	public static MemoryMappedNetwork open(final String filename) throws UncheckedIOException {
+		return open(Paths.get(filename), Collections.emptyMap());
+	}
+
+	/**
+	 * @param converters the converters for custom attribute types, as used when writing the snapshot.
+	 */
+	public static MemoryMappedNetwork open(final Path path, final Map<Class<?>, AttributeConverter<?>> converters) throws UncheckedIOException {
+		log.info("opening network snapshot " + path);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new MemoryMappedNetwork(channel, new ObjectAttributesConverter(converters));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private MemoryMappedNetwork(FileChannel channel, ObjectAttributesConverter converter) throws IOException {
+		this.converter = converter;
+
+		ByteBuffer header = map(channel, 0, NetworkSnapshotFormat.HEADER_SIZE);
+		if (header.getLong() != NetworkSnapshotFormat.MAGIC) {
+			throw new IllegalArgumentException("Not a network snapshot file.");
+		}
+		int version = header.getInt();
+		if (version != NetworkSnapshotFormat.VERSION) {
+			throw new IllegalArgumentException("Unsupported network snapshot version " + version + ".");
+		}
+		int nodeCount = header.getInt();
+		int linkCount = header.getInt();
+		int stringCount = header.getInt();
+		this.capacityPeriod = header.getDouble();
+		this.effectiveLaneWidth = header.getDouble();
+		this.effectiveCellSize = header.getDouble();
+		int nameString = header.getInt();
+		int networkAttributes = header.getInt();
+		long nodesOffset = header.getLong();
+		long linksOffset = header.getLong();
+		long adjacencyOffset = header.getLong();
+		long stringsOffset = header.getLong();
+		long attributesOffset = header.getLong();
+		long attributesSize = header.getLong();
+
+		this.nodeData = map(channel, nodesOffset, (long) nodeCount * NetworkSnapshotFormat.NODE_RECORD_SIZE);
+		this.linkData = map(channel, linksOffset, (long) linkCount * NetworkSnapshotFormat.LINK_RECORD_SIZE);
+		this.adjacencyData = map(channel, adjacencyOffset, 2L * linkCount * Integer.BYTES);
+		long stringOffsetsSize = (stringCount + 1L) * Long.BYTES;
+		this.stringOffsets = map(channel, stringsOffset, stringOffsetsSize);
+		this.stringData = map(channel, stringsOffset + stringOffsetsSize, this.stringOffsets.getLong(stringCount * Long.BYTES));
+		this.attributeData = map(channel, attributesOffset, attributesSize);
+
+		this.name = nameString < 0 ? null : getString(nameString);
+		this.attributes = new Attributes();
+		readAttributes(networkAttributes, this.attributes);
+
+		this.nodeIds = new ArrayList<>(nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			this.nodeIds.add(Id.create(getString(this.nodeData.getInt(i * NetworkSnapshotFormat.NODE_RECORD_SIZE + NetworkSnapshotFormat.NODE_ID)), Node.class));
+		}
+		this.linkIds = new ArrayList<>(linkCount);
+		for (int i = 0; i < linkCount; i++) {
+			this.linkIds.add(Id.create(getString(this.linkData.getInt(i * NetworkSnapshotFormat.LINK_RECORD_SIZE + NetworkSnapshotFormat.LINK_ID)), Link.class));
+		}
+		this.nodeIndices = createIndices(this.nodeIds, Id.getNumberOfIds(Node.class));
+		this.linkIndices = createIndices(this.linkIds, Id.getNumberOfIds(Link.class));
+
+		log.info("network snapshot with " + nodeCount + " nodes and " + linkCount + " links opened.");
+	}
+
+	private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Network snapshot section too large to be mapped: " + size + " bytes.");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+	}
+
+	private static int[] createIndices(List<? extends Id<?>> ids, int idCount) {
+		int[] indices = new int[idCount];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < ids.size(); i++) {
+			indices[ids.get(i).index()] = i;
+		}
+		return indices;
+	}
+
+	// only absolute accessors are used on the shared buffers, which keeps concurrent reads safe.
+
+	private String getString(int index) {
+		int start = (int) this.stringOffsets.getLong(index * Long.BYTES);
+		int end = (int) this.stringOffsets.getLong((index + 1) * Long.BYTES);
+		byte[] bytes = new byte[end - start];
+		ByteBuffer data = this.stringData.duplicate();
+		data.position(start);
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void readAttributes(int offset, Attributes target) {
+		if (offset < 0) {
+			return;
+		}
+		int count = this.attributeData.getInt(offset);
+		int position = offset + Integer.BYTES;
+		for (int i = 0; i < count; i++) {
+			String key = getString(this.attributeData.getInt(position));
+			String className = getString(this.attributeData.getInt(position + Integer.BYTES));
+			String value = getString(this.attributeData.getInt(position + 2 * Integer.BYTES));
+			position += 3 * Integer.BYTES;
+			Object object = this.converter.convert(className, value);
+			if (object != null) {
+				target.putAttribute(key, object);
+			}
+		}
+	}
+
+	private Set<String> getModes(int stringIndex) {
+		return this.modes.computeIfAbsent(stringIndex, index -> {
+			Set<String> set = new LinkedHashSet<>();
+			for (String mode : getString(index).split(",")) {
+				if (!mode.isEmpty()) {
+					set.add(mode.intern());
+				}
+			}
+			return Collections.unmodifiableSet(set);
+		});
+	}
+
+	private MappedNode getNode(int index) {
+		return new MappedNode(index);
+	}
+
+	private MappedLink getLink(int index) {
+		return new MappedLink(index);
+	}
+
+	private int getNodeIndex(Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		int idIndex = ((Id<?>) key).index();
+		if (idIndex >= this.nodeIndices.length) {
+			return -1;
+		}
+		int index = this.nodeIndices[idIndex];
+		// ids are unique per type, so a matching index of an id of another type is caught by the identity check
+		return index >= 0 && this.nodeIds.get(index) == key ? index : -1;
+	}
+
+	private int getLinkIndex(Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		int idIndex = ((Id<?>) key).index();
+		if (idIndex >= this.linkIndices.length) {
+			return -1;
+		}
+		int index = this.linkIndices[idIndex];
+		return index >= 0 && this.linkIds.get(index) == key ? index : -1;
+	}
+
+	@Override
+	public NetworkFactory getFactory() {
+		return new NetworkFactoryImpl(this);
+	}
+
+	@Override
+	public Map<Id<Node>, ? extends Node> getNodes() {
+		return this.nodesMap;
+	}
+
+	@Override
+	public Map<Id<Link>, ? extends Link> getLinks() {
+		return this.linksMap;
+	}
+
+	@Override
+	public double getCapacityPeriod() {
+		return this.capacityPeriod;
+	}
+
+	@Override
+	public double getEffectiveLaneWidth() {
+		return this.effectiveLaneWidth;
+	}
+
+	@Override
+	public double getEffectiveCellSize() {
+		return this.effectiveCellSize;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	@Override
+	public void addNode(Node nn) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public void addLink(Link ll) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public Node removeNode(Id<Node> nodeId) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public Link removeLink(Id<Link> linkId) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public void setCapacityPeriod(double capPeriod) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public void setEffectiveCellSize(double effectiveCellSize) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public void setEffectiveLaneWidth(double effectiveLaneWidth) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public void setName(String name) {
+		throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() +
+				"[name=" + this.name + "]" +
+				"[nof_nodes=" + this.nodeIds.size() + "]" +
+				"[nof_links=" + this.linkIds.size() + "]";
+	}
+
+	private final class MappedNode implements Node {
+		private final int index;
+		private final int offset;
+
+		MappedNode(int index) {
+			this.index = index;
+			this.offset = index * NetworkSnapshotFormat.NODE_RECORD_SIZE;
+		}
+
+		@Override
+		public Id<Node> getId() {
+			return nodeIds.get(this.index);
+		}
+
+		@Override
+		public Coord getCoord() {
+			double x = nodeData.getDouble(this.offset + NetworkSnapshotFormat.NODE_X);
+			double y = nodeData.getDouble(this.offset + NetworkSnapshotFormat.NODE_Y);
+			double z = nodeData.getDouble(this.offset + NetworkSnapshotFormat.NODE_Z);
+			return Double.isNaN(z) ? new Coord(x, y) : new Coord(x, y, z);
+		}
+
+		@Override
+		public Map<Id<Link>, ? extends Link> getInLinks() {
+			return new LinkRangeMap(linkIds.size() + nodeData.getInt(this.offset + NetworkSnapshotFormat.NODE_IN_START),
+					nodeData.getInt(this.offset + NetworkSnapshotFormat.NODE_IN_COUNT));
+		}
+
+		@Override
+		public Map<Id<Link>, ? extends Link> getOutLinks() {
+			return new LinkRangeMap(nodeData.getInt(this.offset + NetworkSnapshotFormat.NODE_OUT_START),
+					nodeData.getInt(this.offset + NetworkSnapshotFormat.NODE_OUT_COUNT));
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			Attributes attributes = new Attributes();
+			readAttributes(nodeData.getInt(this.offset + NetworkSnapshotFormat.NODE_ATTRIBUTES), attributes);
+			return attributes;
+		}
+
+		private MemoryMappedNetwork getNetwork() {
+			return MemoryMappedNetwork.this;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof MappedNode && ((MappedNode) obj).index == this.index
+					&& ((MappedNode) obj).getNetwork() == MemoryMappedNetwork.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.index;
+		}
+
+		@Override
+		public boolean addInLink(Link link) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public boolean addOutLink(Link link) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public Link removeInLink(Id<Link> linkId) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public Link removeOutLink(Id<Link> outLinkId) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public void setCoord(Coord coord) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public String toString() {
+			return "[id=" + getId() + "]" +
+					"[coord=" + getCoord() + "]" +
+					"[nof_inlinks=" + getInLinks().size() + "]" +
+					"[nof_outlinks=" + getOutLinks().size() + "]";
+		}
+	}
+
+	private final class MappedLink implements Link {
+		private final int index;
+		private final int offset;
+
+		MappedLink(int index) {
+			this.index = index;
+			this.offset = index * NetworkSnapshotFormat.LINK_RECORD_SIZE;
+		}
+
+		@Override
+		public Id<Link> getId() {
+			return linkIds.get(this.index);
+		}
+
+		@Override
+		public Node getFromNode() {
+			return getNode(linkData.getInt(this.offset + NetworkSnapshotFormat.LINK_FROM));
+		}
+
+		@Override
+		public Node getToNode() {
+			return getNode(linkData.getInt(this.offset + NetworkSnapshotFormat.LINK_TO));
+		}
+
+		@Override
+		public Coord getCoord() {
+			Coord from = getFromNode().getCoord();
+			Coord to = getToNode().getCoord();
+			return new Coord((from.getX() + to.getX()) / 2.0, (from.getY() + to.getY()) / 2.0);
+		}
+
+		@Override
+		public double getLength() {
+			return linkData.getDouble(this.offset + NetworkSnapshotFormat.LINK_LENGTH);
+		}
+
+		@Override
+		public double getNumberOfLanes() {
+			return linkData.getDouble(this.offset + NetworkSnapshotFormat.LINK_LANES);
+		}
+
+		@Override
+		public double getNumberOfLanes(double time) {
+			return getNumberOfLanes();
+		}
+
+		@Override
+		public double getFreespeed() {
+			return linkData.getDouble(this.offset + NetworkSnapshotFormat.LINK_FREESPEED);
+		}
+
+		@Override
+		public double getFreespeed(double time) {
+			return getFreespeed();
+		}
+
+		@Override
+		public double getCapacity() {
+			return linkData.getDouble(this.offset + NetworkSnapshotFormat.LINK_CAPACITY);
+		}
+
+		@Override
+		public double getCapacity(double time) {
+			return getCapacity();
+		}
+
+		@Override
+		public double getFlowCapacityPerSec() {
+			return getCapacity() / capacityPeriod;
+		}
+
+		@Override
+		public double getFlowCapacityPerSec(double time) {
+			return getFlowCapacityPerSec();
+		}
+
+		@Override
+		public Set<String> getAllowedModes() {
+			return getModes(linkData.getInt(this.offset + NetworkSnapshotFormat.LINK_MODES));
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			Attributes attributes = new Attributes();
+			readAttributes(linkData.getInt(this.offset + NetworkSnapshotFormat.LINK_ATTRIBUTES), attributes);
+			return attributes;
+		}
+
+		private MemoryMappedNetwork getNetwork() {
+			return MemoryMappedNetwork.this;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof MappedLink && ((MappedLink) obj).index == this.index
+					&& ((MappedLink) obj).getNetwork() == MemoryMappedNetwork.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.index;
+		}
+
+		@Override
+		public boolean setFromNode(Node node) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public boolean setToNode(Node node) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public void setFreespeed(double freespeed) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public void setLength(double length) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public void setNumberOfLanes(double lanes) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public void setCapacity(double capacity) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public void setAllowedModes(Set<String> modes) {
+			throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+		}
+
+		@Override
+		public String toString() {
+			return "[id=" + getId() + "]" +
+					"[from_id=" + getFromNode().getId() + "]" +
+					"[to_id=" + getToNode().getId() + "]" +
+					"[length=" + getLength() + "]" +
+					"[freespeed=" + getFreespeed() + "]" +
+					"[capacity=" + getCapacity() + "]" +
+					"[permlanes=" + getNumberOfLanes() + "]" +
+					"[modes=" + getAllowedModes() + "]";
+		}
+	}
+
+	private final class NodesMap extends AbstractMap<Id<Node>, Node> {
+		private final Set<Entry<Id<Node>, Node>> entries = new AbstractSet<Entry<Id<Node>, Node>>() {
+			@Override
+			public Iterator<Entry<Id<Node>, Node>> iterator() {
+				return new RangeIterator<Entry<Id<Node>, Node>>(0, nodeIds.size()) {
+					@Override
+					Entry<Id<Node>, Node> get(int position) {
+						return new SimpleImmutableEntry<>(nodeIds.get(position), getNode(position));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return nodeIds.size();
+			}
+		};
+
+		@Override
+		public Node get(Object key) {
+			int index = getNodeIndex(key);
+			return index < 0 ? null : getNode(index);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return getNodeIndex(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return nodeIds.size();
+		}
+
+		@Override
+		public Set<Entry<Id<Node>, Node>> entrySet() {
+			return this.entries;
+		}
+	}
+
+	private final class LinksMap extends AbstractMap<Id<Link>, Link> {
+		private final Set<Entry<Id<Link>, Link>> entries = new AbstractSet<Entry<Id<Link>, Link>>() {
+			@Override
+			public Iterator<Entry<Id<Link>, Link>> iterator() {
+				return new RangeIterator<Entry<Id<Link>, Link>>(0, linkIds.size()) {
+					@Override
+					Entry<Id<Link>, Link> get(int position) {
+						return new SimpleImmutableEntry<>(linkIds.get(position), getLink(position));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return linkIds.size();
+			}
+		};
+
+		@Override
+		public Link get(Object key) {
+			int index = getLinkIndex(key);
+			return index < 0 ? null : getLink(index);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return getLinkIndex(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return linkIds.size();
+		}
+
+		@Override
+		public Set<Entry<Id<Link>, Link>> entrySet() {
+			return this.entries;
+		}
+	}
+
+	/**
+	 * The in- or out-links of a node, i.e. a consecutive range in the adjacency section of the snapshot.
+	 */
+	private final class LinkRangeMap extends AbstractMap<Id<Link>, Link> {
+		private final int start;
+		private final int count;
+
+		private final Set<Entry<Id<Link>, Link>> entries = new AbstractSet<Entry<Id<Link>, Link>>() {
+			@Override
+			public Iterator<Entry<Id<Link>, Link>> iterator() {
+				return new RangeIterator<Entry<Id<Link>, Link>>(start, start + count) {
+					@Override
+					Entry<Id<Link>, Link> get(int position) {
+						int linkIndex = adjacencyData.getInt(position * Integer.BYTES);
+						return new SimpleImmutableEntry<>(linkIds.get(linkIndex), getLink(linkIndex));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+
+		LinkRangeMap(int start, int count) {
+			this.start = start;
+			this.count = count;
+		}
+
+		@Override
+		public Link get(Object key) {
+			int linkIndex = getLinkIndex(key);
+			if (linkIndex >= 0) {
+				// nodes have few in- and out-links, so a linear scan is fine
+				for (int position = this.start; position < this.start + this.count; position++) {
+					if (adjacencyData.getInt(position * Integer.BYTES) == linkIndex) {
+						return getLink(linkIndex);
+					}
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public int size() {
+			return this.count;
+		}
+
+		@Override
+		public Set<Entry<Id<Link>, Link>> entrySet() {
+			return this.entries;
+		}
+	}
+
+	private static abstract class RangeIterator<T> implements Iterator<T> {
+		private int position;
+		private final int end;
+
+		RangeIterator(int start, int end) {
+			this.position = start;
+			this.end = end;
+		}
+
+		abstract T get(int position);
+
+		@Override
+		public boolean hasNext() {
+			return this.position < this.end;
+		}
+
+		@Override
+		public T next() {
+			if (this.position >= this.end) {
+				throw new NoSuchElementException();
+			}
+			return get(this.position++);
+		}
+	}
+}
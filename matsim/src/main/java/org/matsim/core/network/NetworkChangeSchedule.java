@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkChangeSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * A precompiled, time-indexed view on the network change events of a network: the distinct start times of all change
+ * events together with the links that change at each of these times, so that a mobsim can apply all changes of one
+ * time step as a single batch.
+ * <p></p>
+ * Time-dependent link attributes are still looked up at the links themselves.
+ * <p></p>
+ * The schedule is a snapshot of the change events at the time it was created. Change events that are added to the
+ * network afterwards (e.g. within-day) are not reflected; create a new schedule in that case.
+ */
+public final class NetworkChangeSchedule {
+
+	private final double[] changeTimes;
+	private final Link[][] changedLinks;
+	// indexed by Id<Link>.index()
+	private final BitSet linksWithChanges;
+
+	private NetworkChangeSchedule(double[] changeTimes, Link[][] changedLinks, BitSet linksWithChanges) {
+		this.changeTimes = changeTimes;
+		this.changedLinks = changedLinks;
+		this.linksWithChanges = linksWithChanges;
+	}
+
+	/**
+	 * Compiles the schedule from the network change events currently registered with the network.
+	 */
+	public static NetworkChangeSchedule create(Network network) {
+		return create(NetworkUtils.getNetworkChangeEvents(network));
+	}
+
+	/**
+	 * Compiles the schedule from the given change events.
+	 */
+	public static NetworkChangeSchedule create(Iterable<NetworkChangeEvent> changeEvents) {
+		TreeMap<Double, Set<Link>> linksByTime = new TreeMap<>();
+		BitSet linksWithChanges = new BitSet();
+		if (changeEvents != null) {
+			for (NetworkChangeEvent event : changeEvents) {
+				Set<Link> links = linksByTime.computeIfAbsent(event.getStartTime(), t -> new LinkedHashSet<>());
+				for (Link link : event.getLinks()) {
+					links.add(link);
+					linksWithChanges.set(link.getId().index());
+				}
+			}
+		}
+
+		double[] changeTimes = new double[linksByTime.size()];
+		Link[][] changedLinks = new Link[linksByTime.size()][];
+		int i = 0;
+		for (Map.Entry<Double, Set<Link>> e : linksByTime.entrySet()) {
+			changeTimes[i] = e.getKey();
+			changedLinks[i] = e.getValue().toArray(new Link[0]);
+			i++;
+		}
+		return new NetworkChangeSchedule(changeTimes, changedLinks, linksWithChanges);
+	}
+
+	/**
+	 * @return the number of distinct points in time at which at least one link changes.
+	 */
+	public int getNumberOfChangeTimes() {
+		return this.changeTimes.length;
+	}
+
+	/**
+	 * @return the <code>timeIndex</code>-th distinct change time, in ascending order.
+	 */
+	public double getChangeTime(int timeIndex) {
+		return this.changeTimes[timeIndex];
+	}
+
+	/**
+	 * @return all links that have at least one change event starting at the <code>timeIndex</code>-th change time.
+	 * Every link is contained at most once.
+	 */
+	public List<Link> getChangedLinks(int timeIndex) {
+		return Collections.unmodifiableList(Arrays.asList(this.changedLinks[timeIndex]));
+	}
+
+	/**
+	 * @return <code>true</code> if at least one change event affects the given link.
+	 */
+	public boolean hasChanges(Id<Link> linkId) {
+		return this.linksWithChanges.get(linkId.index());
+	}
+}
@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkSnapshotFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+/**
+ * Layout constants of the binary network snapshot, shared by {@link NetworkSnapshotWriter} and
+ * {@link MemoryMappedNetwork}. All values are stored big-endian.
+ * <pre>
+ * header     magic, version, #nodes, #links, #strings, capacity period, lane width, cell size, name, network attributes,
+ *            offsets of the node, link, adjacency, string and attribute sections, size of the attribute section
+ * nodes      id, x, y, z (NaN if not set), attributes, first out-link, #out-links, first in-link, #in-links
+ * links      id, from node, to node, length, freespeed, capacity, #lanes, allowed modes, attributes
+ * adjacency  link indices of all out-links grouped by node, followed by all in-links grouped by node
+ * strings    #strings + 1 offsets into the string data, followed by the utf-8 encoded string data
+ * attributes per attributable: #attributes, followed by (key, class name, value) string indices
+ * </pre>
+ * Strings are referenced by their index, attributes by their offset within the attribute section; -1 stands for
+ * "none" in both cases.
+ */
+final class NetworkSnapshotFormat {
+
+	static final long MAGIC = 0x4d4154534e455431L; // "MATSNET1"
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 104;
+	static final int NODE_RECORD_SIZE = 48;
+	static final int LINK_RECORD_SIZE = 52;
+
+	static final int NODE_ID = 0;
+	static final int NODE_X = 4;
+	static final int NODE_Y = 12;
+	static final int NODE_Z = 20;
+	static final int NODE_ATTRIBUTES = 28;
+	static final int NODE_OUT_START = 32;
+	static final int NODE_OUT_COUNT = 36;
+	static final int NODE_IN_START = 40;
+	static final int NODE_IN_COUNT = 44;
+
+	static final int LINK_ID = 0;
+	static final int LINK_FROM = 4;
+	static final int LINK_TO = 8;
+	static final int LINK_LENGTH = 12;
+	static final int LINK_FREESPEED = 20;
+	static final int LINK_CAPACITY = 28;
+	static final int LINK_LANES = 36;
+	static final int LINK_MODES = 44;
+	static final int LINK_ATTRIBUTES = 48;
+
+	private NetworkSnapshotFormat() {
+	}
+}
@@ -0,0 +1,256 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.internal.MatsimSomeWriter;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes a network into the compact binary snapshot format that can be opened with
+ * {@link MemoryMappedNetwork#open(String)}.
+ * <p></p>
+ * The snapshot contains nodes, links, allowed modes and all attributes of the network, its nodes and its links.
+ * Attribute values are stored as strings using the same {@link AttributeConverter}s as the xml writers, so custom
+ * attribute types need converters both when writing and when reading the snapshot. Time-variant attributes (network
+ * change events) are not part of the snapshot.
+ * <p></p>
+ * The snapshot is not compressed, as it is meant to be memory mapped.
+ */
+public final class NetworkSnapshotWriter implements MatsimSomeWriter {
+	private static final Logger log = Logger.getLogger(NetworkSnapshotWriter.class);
+
+	private final Network network;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	private final Map<String, Integer> stringIndices = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final ByteArrayOutputStream attributesBuffer = new ByteArrayOutputStream();
+	private final DataOutputStream attributesOut = new DataOutputStream(this.attributesBuffer);
+
+	public NetworkSnapshotWriter(final Network network) {
+		this.network = network;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converter.putAttributeConverters(converters);
+	}
+
+	public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
+		this.converter.putAttributeConverter(clazz, converter);
+	}
+
+	public void write(final String filename) throws UncheckedIOException {
+		log.info("writing network snapshot to " + filename);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			writeData(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeData(DataOutputStream out) throws IOException {
+		// the writer may be used more than once, so nothing collected for an earlier file must remain
+		this.stringIndices.clear();
+		this.strings.clear();
+		this.attributesBuffer.reset();
+
+		List<Node> nodes = new ArrayList<>(this.network.getNodes().values());
+		List<Link> links = new ArrayList<>(this.network.getLinks().values());
+		Map<Id<Node>, Integer> nodeIndices = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			nodeIndices.put(nodes.get(i).getId(), i);
+		}
+		Map<Id<Link>, Integer> linkIndices = new HashMap<>();
+		for (int i = 0; i < links.size(); i++) {
+			linkIndices.put(links.get(i).getId(), i);
+		}
+
+		// The variable-sized data (strings and attributes) goes to the end of the file, but has to be collected first
+		// as the fixed-sized node and link records reference it.
+		int nameString = this.network.getName() == null ? -1 : getStringIndex(this.network.getName());
+		int networkAttributes = collectAttributes(this.network.getAttributes());
+		int[] nodeIdStrings = new int[nodes.size()];
+		int[] nodeAttributes = new int[nodes.size()];
+		for (int i = 0; i < nodes.size(); i++) {
+			nodeIdStrings[i] = getStringIndex(nodes.get(i).getId().toString());
+			nodeAttributes[i] = collectAttributes(nodes.get(i).getAttributes());
+		}
+		int[] linkIdStrings = new int[links.size()];
+		int[] linkModeStrings = new int[links.size()];
+		int[] linkAttributes = new int[links.size()];
+		for (int i = 0; i < links.size(); i++) {
+			Link link = links.get(i);
+			linkIdStrings[i] = getStringIndex(link.getId().toString());
+			linkModeStrings[i] = getStringIndex(String.join(",", new TreeSet<>(link.getAllowedModes())));
+			linkAttributes[i] = collectAttributes(link.getAttributes());
+		}
+		byte[][] encodedStrings = new byte[this.strings.size()][];
+		long stringDataSize = 0;
+		for (int i = 0; i < encodedStrings.length; i++) {
+			encodedStrings[i] = this.strings.get(i).getBytes(StandardCharsets.UTF_8);
+			stringDataSize += encodedStrings[i].length;
+		}
+
+		long nodesOffset = NetworkSnapshotFormat.HEADER_SIZE;
+		long linksOffset = nodesOffset + (long) nodes.size() * NetworkSnapshotFormat.NODE_RECORD_SIZE;
+		long adjacencyOffset = linksOffset + (long) links.size() * NetworkSnapshotFormat.LINK_RECORD_SIZE;
+		long stringsOffset = adjacencyOffset + 2L * links.size() * Integer.BYTES;
+		long attributesOffset = stringsOffset + (long) (encodedStrings.length + 1) * Long.BYTES + stringDataSize;
+
+		// header
+		out.writeLong(NetworkSnapshotFormat.MAGIC);
+		out.writeInt(NetworkSnapshotFormat.VERSION);
+		out.writeInt(nodes.size());
+		out.writeInt(links.size());
+		out.writeInt(encodedStrings.length);
+		out.writeDouble(this.network.getCapacityPeriod());
+		out.writeDouble(this.network.getEffectiveLaneWidth());
+		out.writeDouble(this.network.getEffectiveCellSize());
+		out.writeInt(nameString);
+		out.writeInt(networkAttributes);
+		out.writeLong(nodesOffset);
+		out.writeLong(linksOffset);
+		out.writeLong(adjacencyOffset);
+		out.writeLong(stringsOffset);
+		out.writeLong(attributesOffset);
+		out.writeLong(this.attributesBuffer.size());
+
+		// nodes, including the position of their in- and out-links in the adjacency lists
+		int outPosition = 0;
+		int inPosition = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			Node node = nodes.get(i);
+			Coord coord = node.getCoord();
+			out.writeInt(nodeIdStrings[i]);
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			out.writeDouble(coord.hasZ() ? coord.getZ() : Double.NaN);
+			out.writeInt(nodeAttributes[i]);
+			out.writeInt(outPosition);
+			out.writeInt(node.getOutLinks().size());
+			out.writeInt(inPosition);
+			out.writeInt(node.getInLinks().size());
+			outPosition += node.getOutLinks().size();
+			inPosition += node.getInLinks().size();
+		}
+
+		// links
+		for (int i = 0; i < links.size(); i++) {
+			Link link = links.get(i);
+			out.writeInt(linkIdStrings[i]);
+			out.writeInt(nodeIndices.get(link.getFromNode().getId()));
+			out.writeInt(nodeIndices.get(link.getToNode().getId()));
+			out.writeDouble(link.getLength());
+			out.writeDouble(link.getFreespeed());
+			out.writeDouble(link.getCapacity());
+			out.writeDouble(link.getNumberOfLanes());
+			out.writeInt(linkModeStrings[i]);
+			out.writeInt(linkAttributes[i]);
+		}
+
+		// adjacency: first all out-links, then all in-links, grouped by node
+		for (Node node : nodes) {
+			for (Link link : node.getOutLinks().values()) {
+				out.writeInt(linkIndices.get(link.getId()));
+			}
+		}
+		for (Node node : nodes) {
+			for (Link link : node.getInLinks().values()) {
+				out.writeInt(linkIndices.get(link.getId()));
+			}
+		}
+
+		// strings: offset table (with one additional entry marking the end), then the utf-8 encoded data
+		long position = 0;
+		for (byte[] s : encodedStrings) {
+			out.writeLong(position);
+			position += s.length;
+		}
+		out.writeLong(position);
+		for (byte[] s : encodedStrings) {
+			out.write(s);
+		}
+
+		this.attributesBuffer.writeTo(out);
+		log.info("network snapshot with " + nodes.size() + " nodes and " + links.size() + " links written.");
+	}
+
+	private int getStringIndex(String s) {
+		Integer index = this.stringIndices.get(s);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.add(s);
+			this.stringIndices.put(s, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the offset of the attributes within the attributes section, or -1 if there are no attributes.
+	 */
+	private int collectAttributes(Attributes attributes) throws IOException {
+		if (attributes.isEmpty()) {
+			return -1;
+		}
+		List<Map.Entry<String, Object>> entries = new ArrayList<>();
+		List<String> values = new ArrayList<>();
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			String value = this.converter.convertToString(entry.getValue());
+			if (value != null) {
+				entries.add(entry);
+				values.add(value);
+			}
+		}
+		if (entries.isEmpty()) {
+			return -1;
+		}
+		int offset = this.attributesBuffer.size();
+		this.attributesOut.writeInt(entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			Map.Entry<String, Object> entry = entries.get(i);
+			this.attributesOut.writeInt(getStringIndex(entry.getKey()));
+			this.attributesOut.writeInt(getStringIndex(entry.getValue().getClass().getName()));
+			this.attributesOut.writeInt(getStringIndex(values.get(i)));
+		}
+		return offset;
+	}
+}
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
@@ -196,26 +197,13 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 
 		// then go through the population and ...
 		for (HasPlansAndId<PL, AG> person : persons ) {
-
-			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
-			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
-				removePlans( person, this.maxPlansPerAgent);
+			// (with per-person streams, the choices of a person do not depend on the persons handled before)
+			MatsimRandom.openPersonStream(person.getId(), GenericStrategyManager.class);
+			try {
+				replan(person);
+			} finally {
+				MatsimRandom.closePersonStream();
 			}
-
-			// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
-//			String subpopName = null;
-//			if (this.subpopulationAttributeName != null) {
-//				subpopName = (String) PopulationUtils.getPersonAttribute( person, this.subpopulationAttributeName) ;
-//			}
-			String subpopName = PopulationUtils.getSubpopulation( person );
-			GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
-
-			if (strategy==null) {
-				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
-			}
-			
-			// ... and run the strategy:
-			strategy.run(person);
 		}
 
 		// finally make sure all strategies have finished there work
@@ -225,6 +213,28 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 
 	}
 
+	private void replan(final HasPlansAndId<PL, AG> person) {
+		// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
+		if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+			removePlans( person, this.maxPlansPerAgent);
+		}
+
+		// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
+//			String subpopName = null;
+//			if (this.subpopulationAttributeName != null) {
+//				subpopName = (String) PopulationUtils.getPersonAttribute( person, this.subpopulationAttributeName) ;
+//			}
+		String subpopName = PopulationUtils.getSubpopulation( person );
+		GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
+
+		if (strategy==null) {
+			throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
+		}
+		
+		// ... and run the strategy:
+		strategy.run(person);
+	}
+
 	private Collection<GenericPlanStrategy<PL, AG>> distinctStrategies() {
 		// Leaving out duplicate strategies in different subpopulations
 		Collection<GenericPlanStrategy<PL, AG>> strategies = new LinkedHashSet<>();
@@ -378,4 +388,8 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 		return getStrategyWeights( subpopulation ).unmodifiableWeights;
 	}
 
+	final Set<String> getSubpopulations() {
+		return Collections.unmodifiableSet( weightsPerSubpopulation.keySet() );
+	}
+
 }
@@ -35,6 +35,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages and applies strategies to agents for re-planning.
@@ -173,6 +174,15 @@ public class StrategyManager implements MatsimManager {
 		run(population, replanningContext);
 	}
 
+	/**
+	 * Adapts the strategies to all pending change requests up to and including the specified iteration, without running
+	 * them.  This is what {@link #run(Population, int, ReplanningContext)} does first; it is needed when a run is resumed
+	 * from a checkpoint, so that the weights of the checkpoint are not overridden by change requests of earlier iterations.
+	 */
+	public final void handleChangeRequests(final int iteration) {
+		delegate.handleChangeRequests(iteration);
+	}
+
 	/**
 	 * @param population  
 	 * @param replanningContext 
@@ -283,6 +293,13 @@ public class StrategyManager implements MatsimManager {
 		return getStrategies(null);
 	}
 
+	/**
+	 * @return the subpopulations for which strategies have been added, including <code>null</code> for the default subpopulation
+	 */
+	public final Set<String> getSubpopulations() {
+		return delegate.getSubpopulations();
+	}
+
 	public final List<GenericPlanStrategy<Plan, Person>> getStrategies(final String subpopulation) {
 		return delegate.getStrategies(subpopulation) ;
 	}
@@ -24,6 +24,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
@@ -50,6 +51,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With per-person random streams (see {@link MatsimRandom#openPersonStream}), each plan is handled
+ * with the stream of its person, so the results are also the same for any number of threads.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -121,7 +125,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
 			this.count++;
 		} else {
-			this.directAlgo.run(plan);
+			run(this.directAlgo, plan, getClass());
 		}
 	}
 
@@ -185,7 +189,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter, getClass());
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,6 +197,20 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private static void run(final PlanAlgorithm algo, final Plan plan, final Class<?> module) {
+		if (plan.getPerson() == null) {
+			// (no person, no stream; such plans draw from the generators of the thread)
+			algo.run(plan);
+			return;
+		}
+		MatsimRandom.openPersonStream(plan.getPerson().getId(), module);
+		try {
+			algo.run(plan);
+		} finally {
+			MatsimRandom.closePersonStream();
+		}
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -218,10 +236,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private final Class<?> module;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final Class<?> module) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.module = module;
 		}
 
 		public void addPlanToThread(final Plan plan) {
@@ -231,7 +251,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		@Override
 		public void run() {
 			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
+				AbstractMultithreadedModule.run(this.planAlgo, plan, this.module);
 				this.counter.incCounter();
 			}
 		}
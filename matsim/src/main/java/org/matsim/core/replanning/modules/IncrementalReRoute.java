@@ -0,0 +1,366 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRoute.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Provider;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.router.PlanRouter;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.facilities.ActivityFacilities;
+
+/**
+ * Like {@link ReRoute}, but only re-routes plans whose network routes use at least one link whose travel time changed
+ * noticeably since the previous replanning. Plans of which all legs keep their routes would most likely get the
+ * same routes again, so routing them is mostly wasted effort in later iterations where travel times stabilize.
+ * <p></p>
+ * To detect changes, the module keeps the travel times of the previous replanning (per link and network mode) and
+ * compares them with the current travel times, link by link and in parallel. Links with the same travel time in all
+ * time bins (typically all uncongested links) only keep a single value, so the memory grows with the number of
+ * congested links rather than with the size of the network. Persons are looked up via an index from links to the
+ * persons having a plan that uses the link; the index is only updated for persons whose plans changed since the
+ * previous replanning. Plans of persons not using any changed link
+ * are left untouched, except for a configurable random share of them, which is re-routed to still discover
+ * alternatives that became faster elsewhere in the network. Plans with legs without a route are always re-routed,
+ * as are all plans in the first replanning.
+ * <p></p>
+ * Legs of modes that are not routed on the network do not trigger re-routing; they are still re-routed together
+ * with the network legs of the same plan.
+ */
+public class IncrementalReRoute extends AbstractMultithreadedModule {
+	private static final Logger log = Logger.getLogger(IncrementalReRoute.class);
+
+	private final ActivityFacilities facilities;
+	private final Provider<TripRouter> tripRouterProvider;
+	private final Network network;
+	private final Population population;
+	private final Map<String, TravelTime> travelTimes;
+	private final Collection<String> networkModes;
+	private final int binSize;
+	private final int numberOfBins;
+	private final double threshold;
+	private final double unaffectedPlansShare;
+
+	// per mode and link (by position in links): travel times of the previous replanning, either one value per time bin
+	// or a single value if the travel time is the same in all time bins
+	private final Map<String, float[][]> previousTravelTimes = new HashMap<>();
+	private Link[] links = null;
+	private final BitSet changedLinks = new BitSet();
+	private boolean firstReplanning = true;
+	private ExecutorService executor = null;
+
+	// link index -> persons with a plan using the link; person -> indexed plans and their links
+	private final List<Set<Id<Person>>> personsByLink = new ArrayList<>();
+	private final Map<Id<Person>, IndexedPerson> indexedPersons = new HashMap<>();
+	private final BitSet affectedPersons = new BitSet();
+
+	private final AtomicInteger reroutedPlans = new AtomicInteger();
+	private final AtomicInteger skippedPlans = new AtomicInteger();
+
+	public IncrementalReRoute(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup,
+			Network network, Population population, Map<String, TravelTime> travelTimes, Collection<String> networkModes,
+			int travelTimeBinSize, int maxTime, IncrementalReRouteConfigGroup incrementalReRouteConfigGroup) {
+		super(globalConfigGroup);
+		this.facilities = facilities;
+		this.tripRouterProvider = tripRouterProvider;
+		this.network = network;
+		this.population = population;
+		this.travelTimes = travelTimes;
+		this.networkModes = networkModes;
+		this.binSize = travelTimeBinSize;
+		this.numberOfBins = maxTime / travelTimeBinSize + 1;
+		this.threshold = incrementalReRouteConfigGroup.getTravelTimeChangeThreshold();
+		this.unaffectedPlansShare = incrementalReRouteConfigGroup.getUnaffectedPlansShare();
+	}
+
+	@Override
+	protected void beforePrepareReplanningHook(ReplanningContext replanningContextTmp) {
+		updateChangedLinks();
+		updateAffectedPersons();
+		this.reroutedPlans.set(0);
+		this.skippedPlans.set(0);
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		log.info("re-routed " + this.reroutedPlans.get() + " plans, skipped " + this.skippedPlans.get()
+				+ " plans not using any of the " + this.changedLinks.cardinality() + " changed links.");
+	}
+
+	/*package*/ void updateChangedLinks() {
+		this.changedLinks.clear();
+		if (this.links == null || this.links.length != this.network.getLinks().size()) {
+			this.links = this.network.getLinks().values().toArray(new Link[0]);
+			this.previousTravelTimes.clear();
+		}
+		boolean hadPreviousTravelTimes = !this.previousTravelTimes.isEmpty();
+		for (String mode : this.networkModes) {
+			TravelTime travelTime = this.travelTimes.get(mode);
+			if (travelTime == null) {
+				continue;
+			}
+			float[][] previous = this.previousTravelTimes.get(mode);
+			boolean compare = previous != null;
+			if (previous == null) {
+				previous = new float[this.links.length][];
+				this.previousTravelTimes.put(mode, previous);
+			}
+			updateChangedLinks(travelTime, previous, compare);
+		}
+		this.firstReplanning = !hadPreviousTravelTimes;
+	}
+
+	private void updateChangedLinks(TravelTime travelTime, float[][] previous, boolean compare) {
+		int threads = Math.max(1, getNumOfThreads());
+		if (threads == 1) {
+			updateChangedLinks(travelTime, previous, compare, 0, 1, this.changedLinks);
+			return;
+		}
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(threads, r -> {
+				Thread thread = new Thread(r, IncrementalReRoute.class.getSimpleName());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		// the links are distributed over the threads in a round-robin fashion, every thread collects its changed links
+		List<Callable<BitSet>> tasks = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			final int first = i;
+			tasks.add(() -> {
+				BitSet changed = new BitSet();
+				updateChangedLinks(travelTime, previous, compare, first, threads, changed);
+				return changed;
+			});
+		}
+		try {
+			for (Future<BitSet> changed : this.executor.invokeAll(tasks)) {
+				this.changedLinks.or(changed.get());
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Could not compare the travel times.", e.getCause());
+		}
+	}
+
+	private void updateChangedLinks(TravelTime travelTime, float[][] previous, boolean compare, int first, int step, BitSet changed) {
+		float[] current = new float[this.numberOfBins];
+		for (int i = first; i < this.links.length; i += step) {
+			Link link = this.links[i];
+			boolean constant = true;
+			for (int bin = 0; bin < this.numberOfBins; bin++) {
+				current[bin] = (float) travelTime.getLinkTravelTime(link, bin * this.binSize, null, null);
+				constant = constant && current[bin] == current[0];
+			}
+
+			float[] before = previous[i];
+			if (!compare || hasChanged(before, current)) {
+				changed.set(link.getId().index());
+			}
+
+			int length = constant ? 1 : this.numberOfBins;
+			if (before == null || before.length != length) {
+				before = previous[i] = new float[length];
+			}
+			System.arraycopy(current, 0, before, 0, length);
+		}
+	}
+
+	private boolean hasChanged(float[] before, float[] current) {
+		for (int bin = 0; bin < current.length; bin++) {
+			float tt = before[before.length == 1 ? 0 : bin];
+			if (Math.abs(current[bin] - tt) > this.threshold * tt) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Updates the index for persons whose plans were added or removed since the previous replanning (plans are not
+	 * modified once they are replanned, since strategies always work on copies), and collects the persons using any of
+	 * the changed links.
+	 */
+	/*package*/ void updateAffectedPersons() {
+		for (Person person : this.population.getPersons().values()) {
+			IndexedPerson indexed = this.indexedPersons.get(person.getId());
+			if (indexed == null || !indexed.hasSamePlans(person)) {
+				if (indexed != null) {
+					removeFromIndex(person.getId(), indexed);
+				}
+				indexed = new IndexedPerson(person, collectLinks(person));
+				this.indexedPersons.put(person.getId(), indexed);
+				for (int linkIndex : indexed.links) {
+					while (this.personsByLink.size() <= linkIndex) {
+						this.personsByLink.add(null);
+					}
+					Set<Id<Person>> persons = this.personsByLink.get(linkIndex);
+					if (persons == null) {
+						this.personsByLink.set(linkIndex, persons = new HashSet<>());
+					}
+					persons.add(person.getId());
+				}
+			}
+		}
+		if (this.indexedPersons.size() > this.population.getPersons().size()) {
+			Iterator<Map.Entry<Id<Person>, IndexedPerson>> iterator = this.indexedPersons.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<Id<Person>, IndexedPerson> entry = iterator.next();
+				if (!this.population.getPersons().containsKey(entry.getKey())) {
+					removeFromIndex(entry.getKey(), entry.getValue());
+					iterator.remove();
+				}
+			}
+		}
+
+		this.affectedPersons.clear();
+		for (int linkIndex = this.changedLinks.nextSetBit(0); linkIndex >= 0 && linkIndex < this.personsByLink.size();
+				linkIndex = this.changedLinks.nextSetBit(linkIndex + 1)) {
+			Set<Id<Person>> persons = this.personsByLink.get(linkIndex);
+			if (persons != null) {
+				for (Id<Person> personId : persons) {
+					this.affectedPersons.set(personId.index());
+				}
+			}
+		}
+	}
+
+	private void removeFromIndex(Id<Person> personId, IndexedPerson indexed) {
+		for (int linkIndex : indexed.links) {
+			this.personsByLink.get(linkIndex).remove(personId);
+		}
+	}
+
+	private int[] collectLinks(Person person) {
+		BitSet links = new BitSet();
+		for (Plan plan : person.getPlans()) {
+			for (Leg leg : TripStructureUtils.getLegs(plan)) {
+				Route route = leg.getRoute();
+				if (route instanceof NetworkRoute && this.networkModes.contains(leg.getMode())) {
+					NetworkRoute networkRoute = (NetworkRoute) route;
+					addLink(links, networkRoute.getStartLinkId());
+					addLink(links, networkRoute.getEndLinkId());
+					for (Id<Link> linkId : networkRoute.getLinkIds()) {
+						addLink(links, linkId);
+					}
+				}
+			}
+		}
+		return links.stream().toArray();
+	}
+
+	private static void addLink(BitSet links, Id<Link> linkId) {
+		if (linkId != null) {
+			links.set(linkId.index());
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the plan contains a leg without route, or its person has a plan with a network route
+	 * using a changed link (the plan to re-route is a copy of one of these plans).
+	 */
+	/*package*/ boolean isAffected(Plan plan) {
+		if (this.firstReplanning) {
+			return true;
+		}
+		Person person = plan.getPerson();
+		if (person == null || !this.indexedPersons.containsKey(person.getId())
+				|| this.affectedPersons.get(person.getId().index())) {
+			return true;
+		}
+		for (Leg leg : TripStructureUtils.getLegs(plan)) {
+			if (leg.getRoute() == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public final PlanAlgorithm getPlanAlgoInstance() {
+		PlanRouter planRouter = new PlanRouter(this.tripRouterProvider.get(), this.facilities);
+		Random random = MatsimRandom.getLocalInstance();
+		return plan -> {
+			if (isAffected(plan) || random.nextDouble() < this.unaffectedPlansShare) {
+				this.reroutedPlans.incrementAndGet();
+				planRouter.run(plan);
+			} else {
+				this.skippedPlans.incrementAndGet();
+			}
+		};
+	}
+
+	private static final class IndexedPerson {
+		private final Plan[] plans;
+		private final int[] links;
+
+		private IndexedPerson(Person person, int[] links) {
+			this.plans = person.getPlans().toArray(new Plan[0]);
+			this.links = links;
+		}
+
+		private boolean hasSamePlans(Person person) {
+			List<? extends Plan> currentPlans = person.getPlans();
+			if (currentPlans.size() != this.plans.length) {
+				return false;
+			}
+			for (int i = 0; i < this.plans.length; i++) {
+				if (currentPlans.get(i) != this.plans[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
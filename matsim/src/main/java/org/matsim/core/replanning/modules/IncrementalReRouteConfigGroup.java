@@ -0,0 +1,79 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRouteConfigGroup.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.Map;
+
+import org.matsim.core.config.ReflectiveConfigGroup;
+
+/**
+ * Settings of the {@link IncrementalReRoute} strategy module.
+ */
+public final class IncrementalReRouteConfigGroup extends ReflectiveConfigGroup {
+
+	public static final String GROUP_NAME = "incrementalReRoute";
+
+	private static final String TRAVEL_TIME_CHANGE_THRESHOLD = "travelTimeChangeThreshold";
+	private static final String UNAFFECTED_PLANS_SHARE = "unaffectedPlansShare";
+
+	private double travelTimeChangeThreshold = 0.05;
+	private double unaffectedPlansShare = 0.1;
+
+	public IncrementalReRouteConfigGroup() {
+		super(GROUP_NAME);
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> comments = super.getComments();
+		comments.put(TRAVEL_TIME_CHANGE_THRESHOLD, "Default:0.05; Relative change of a link travel time (in any time bin) since the "
+				+ "previous iteration above which the link is considered as changed. Only plans using changed links are re-routed.");
+		comments.put(UNAFFECTED_PLANS_SHARE, "Default:0.1; Share of the plans not using any changed link that are re-routed nevertheless, "
+				+ "so that agents can discover alternatives that became faster elsewhere in the network.");
+		return comments;
+	}
+
+	@StringGetter(TRAVEL_TIME_CHANGE_THRESHOLD)
+	public double getTravelTimeChangeThreshold() {
+		return this.travelTimeChangeThreshold;
+	}
+
+	@StringSetter(TRAVEL_TIME_CHANGE_THRESHOLD)
+	public void setTravelTimeChangeThreshold(double travelTimeChangeThreshold) {
+		if (travelTimeChangeThreshold < 0) {
+			throw new IllegalArgumentException("travelTimeChangeThreshold must not be negative, but is " + travelTimeChangeThreshold);
+		}
+		this.travelTimeChangeThreshold = travelTimeChangeThreshold;
+	}
+
+	@StringGetter(UNAFFECTED_PLANS_SHARE)
+	public double getUnaffectedPlansShare() {
+		return this.unaffectedPlansShare;
+	}
+
+	@StringSetter(UNAFFECTED_PLANS_SHARE)
+	public void setUnaffectedPlansShare(double unaffectedPlansShare) {
+		if (unaffectedPlansShare < 0 || unaffectedPlansShare > 1) {
+			throw new IllegalArgumentException("unaffectedPlansShare must be between 0 and 1, but is " + unaffectedPlansShare);
+		}
+		this.unaffectedPlansShare = unaffectedPlansShare;
+	}
+}
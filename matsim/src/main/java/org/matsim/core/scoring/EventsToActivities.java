@@ -53,6 +53,12 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
 	
 	public interface ActivityHandler {
 	    void handleActivity(PersonExperiencedActivity activity);
+
+	    /**
+	     * Called by {@link EventsToActivities#finish()} after the last activities of all agents have been passed on.
+	     */
+	    default void finishActivities() {
+	    }
 	}
 
     private final IdMap<Person, Activity> activities = new IdMap<>(Person.class);
@@ -115,6 +121,9 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
                 activityHandler.handleActivity(new PersonExperiencedActivity(id, activity));
             }
         });
+        for (ActivityHandler activityHandler : this.activityHandlers) {
+            activityHandler.finishActivities();
+        }
     }
 
 }
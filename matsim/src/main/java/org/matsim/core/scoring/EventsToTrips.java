@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsToTrips.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.StageActivityTypeIdentifier;
+import org.matsim.core.router.TripStructureUtils;
+
+/**
+ * Assembles the legs and activities of {@link EventsToLegs} and {@link EventsToActivities} into trips while the events
+ * are processed, and passes each completed trip to the registered {@link TripHandler}s. Analyses that look at trips can
+ * thus be fed during the iteration, instead of each of them deriving the trips from the experienced plans afterwards.
+ * <p>
+ * A trip is passed on as soon as its destination activity has ended, because only then the activity is known to
+ * {@link EventsToActivities}. The last trip of an agent is passed on after the mobsim. The legs and stage activities of
+ * agents that are still travelling at the end of the mobsim, e.g. because they are stuck, are passed on as incomplete
+ * trips, so that analyses can still count them like the legs of the experienced plans. Per agent, only the last
+ * activity and the legs and stage activities since then are kept in memory.
+ * <p>
+ * Legs and activities must arrive in the order of the events, i.e. both delegates must be fed by the same
+ * {@link EventsToLegsAndActivities}.
+ */
+public final class EventsToTrips {
+
+	public interface TripHandler {
+		void handleTrip(PersonExperiencedTrip trip);
+
+		/**
+		 * Called after the mobsim for an agent that did not reach the destination of its last trip.
+		 *
+		 * @param origin the origin activity of the trip
+		 * @param tripElements the legs and stage activities that the agent completed on the trip
+		 */
+		default void handleIncompleteTrip(Id<Person> agentId, Activity origin, List<PlanElement> tripElements) {
+		}
+	}
+
+	private final IdMap<Person, PendingTrip> pendingTrips = new IdMap<>(Person.class);
+	private final List<TripHandler> tripHandlers = new ArrayList<>();
+
+	public EventsToTrips(EventsToActivities eventsToActivities, EventsToLegs eventsToLegs) {
+		eventsToActivities.addActivityHandler(new EventsToActivities.ActivityHandler() {
+			@Override
+			public void handleActivity(PersonExperiencedActivity activity) {
+				EventsToTrips.this.handleActivity(activity);
+			}
+
+			@Override
+			public void finishActivities() {
+				finishTrips();
+			}
+		});
+		eventsToLegs.addLegHandler(this::handleLeg);
+	}
+
+	@Inject
+	EventsToTrips(ControlerListenerManager controlerListenerManager, EventsToActivities eventsToActivities,
+			EventsToLegs eventsToLegs) {
+		this(eventsToActivities, eventsToLegs);
+		controlerListenerManager.addControlerListener((IterationStartsListener)event -> reset());
+	}
+
+	public void addTripHandler(TripHandler tripHandler) {
+		this.tripHandlers.add(tripHandler);
+	}
+
+	/**
+	 * Forgets the trips that have not been completed, e.g. before the next iteration.
+	 */
+	public void reset() {
+		this.pendingTrips.clear();
+	}
+
+	private void handleActivity(PersonExperiencedActivity experiencedActivity) {
+		Activity activity = experiencedActivity.getActivity();
+		PendingTrip pendingTrip = this.pendingTrips.get(experiencedActivity.getAgentId());
+		if (StageActivityTypeIdentifier.isStageActivity(activity.getType())) {
+			if (pendingTrip != null) {
+				pendingTrip.elements.add(activity);
+			}
+			return;
+		}
+
+		if (pendingTrip == null) {
+			pendingTrip = new PendingTrip();
+			this.pendingTrips.put(experiencedActivity.getAgentId(), pendingTrip);
+		} else if (!pendingTrip.elements.isEmpty()) {
+			pendingTrip.elements.add(0, pendingTrip.origin);
+			pendingTrip.elements.add(activity);
+			// the list contains exactly one trip, which is copied by getTrips
+			PersonExperiencedTrip trip = new PersonExperiencedTrip(experiencedActivity.getAgentId(),
+					TripStructureUtils.getTrips(pendingTrip.elements).get(0));
+			for (TripHandler tripHandler : this.tripHandlers) {
+				tripHandler.handleTrip(trip);
+			}
+			pendingTrip.elements.clear();
+		}
+		pendingTrip.origin = activity;
+	}
+
+	private void finishTrips() {
+		this.pendingTrips.forEach((agentId, pendingTrip) -> {
+			if (!pendingTrip.elements.isEmpty()) {
+				List<PlanElement> tripElements = Collections.unmodifiableList(new ArrayList<>(pendingTrip.elements));
+				for (TripHandler tripHandler : this.tripHandlers) {
+					tripHandler.handleIncompleteTrip(agentId, pendingTrip.origin, tripElements);
+				}
+				pendingTrip.elements.clear();
+			}
+		});
+	}
+
+	private void handleLeg(PersonExperiencedLeg experiencedLeg) {
+		PendingTrip pendingTrip = this.pendingTrips.get(experiencedLeg.getAgentId());
+		if (pendingTrip != null) {
+			pendingTrip.elements.add(experiencedLeg.getLeg());
+		}
+	}
+
+	private static final class PendingTrip {
+		private Activity origin;
+		// legs and stage activities since the origin activity
+		private final List<PlanElement> elements = new ArrayList<>();
+	}
+}
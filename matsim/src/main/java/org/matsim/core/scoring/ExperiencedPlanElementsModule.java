@@ -29,6 +29,7 @@ public final class ExperiencedPlanElementsModule extends AbstractModule {
 		bind(EventsToActivities.class).asEagerSingleton();
 		bind(EventsToLegs.class).asEagerSingleton();
 		bind(EventsToLegsAndActivities.class).asEagerSingleton();
+		bind(EventsToTrips.class).asEagerSingleton();
 		addEventHandlerBinding().to(EventsToLegsAndActivities.class);
 	}
 }
@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PersonExperiencedTrip.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.TripStructureUtils.Trip;
+
+public final class PersonExperiencedTrip {
+	private final Id<Person> agentId;
+	private final Trip trip;
+
+	public PersonExperiencedTrip(Id<Person> agentId, Trip trip) {
+		this.agentId = agentId;
+		this.trip = trip;
+	}
+
+	public Id<Person> getAgentId() {
+		return agentId;
+	}
+
+	public Trip getTrip() {
+		return trip;
+	}
+}
@@ -19,13 +19,17 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdSet;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.VehicleAbortsEvent;
@@ -88,9 +92,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private final DataContainerProvider dataContainerProvider;
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	private final IdMap<Vehicle, LinkEnterEvent> linkEnterEvents;
 
-	private final Set<Id<Vehicle>> vehiclesToIgnore;
+	private final IdSet<Vehicle> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -256,11 +260,11 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterEvents = new IdMap<>(Vehicle.class);
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new IdSet<>(Vehicle.class);
 
 
 		this.reset(0);
@@ -439,6 +443,81 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		this.vehiclesToIgnore.clear();
 	}
 
+	/**
+	 * Writes the travel times collected so far in a binary form, from which {@link #readCheckpoint(DataInput)} restores
+	 * them exactly.  Vehicles which are currently on a link are not included, so this is meant to be called between
+	 * iterations.
+	 */
+	public void writeCheckpoint(final DataOutput out) throws IOException {
+		out.writeInt(this.timeSlice);
+		out.writeInt(this.numSlots);
+		out.writeUTF(this.ttDataFactory.getClass().getName());
+		if (this.calculateLinkTravelTimes) {
+			out.writeInt(this.linkData.size());
+			for (Map.Entry<Id<Link>, TravelTimeData> entry : this.linkData.entrySet()) {
+				out.writeUTF(entry.getKey().toString());
+				writeCheckpoint(entry.getValue(), out);
+			}
+		} else {
+			out.writeInt(0);
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			out.writeInt(this.linkToLinkData.size());
+			for (Map.Entry<Tuple<Id<Link>, Id<Link>>, TravelTimeData> entry : this.linkToLinkData.entrySet()) {
+				out.writeUTF(entry.getKey().getFirst().toString());
+				out.writeUTF(entry.getKey().getSecond().toString());
+				writeCheckpoint(entry.getValue(), out);
+			}
+		} else {
+			out.writeInt(0);
+		}
+	}
+
+	private static void writeCheckpoint(final TravelTimeData data, final DataOutput out) throws IOException {
+		synchronized (data) {
+			out.writeBoolean(data.isNeedingConsolidation());
+			data.writeState(out);
+		}
+	}
+
+	/**
+	 * Replaces the collected travel times by the ones written by {@link #writeCheckpoint(DataOutput)}.
+	 */
+	public void readCheckpoint(final DataInput in) throws IOException {
+		int timeSlice = in.readInt();
+		int numSlots = in.readInt();
+		String factory = in.readUTF();
+		if (timeSlice != this.timeSlice || numSlots != this.numSlots || !factory.equals(this.ttDataFactory.getClass().getName())) {
+			throw new RuntimeException("The checkpoint was written with time bins of " + timeSlice + "s (" + numSlots + " bins, " + factory
+					+ "), but this calculator uses " + this.timeSlice + "s (" + this.numSlots + " bins, " + this.ttDataFactory.getClass().getName() + ").");
+		}
+		this.reset(0);
+		int links = in.readInt();
+		if (links > 0 && !this.calculateLinkTravelTimes) {
+			throw new RuntimeException("The checkpoint contains link travel times, but their calculation is switched off.");
+		}
+		for (int i = 0; i < links; i++) {
+			Id<Link> linkId = Id.createLinkId(in.readUTF());
+			readCheckpoint(this.dataContainerProvider.getTravelTimeData(linkId, true), in);
+		}
+		int linkToLinks = in.readInt();
+		if (linkToLinks > 0 && !this.calculateLinkToLinkTravelTimes) {
+			throw new RuntimeException("The checkpoint contains link to link travel times, but their calculation is switched off.");
+		}
+		for (int i = 0; i < linkToLinks; i++) {
+			Id<Link> fromLinkId = Id.createLinkId(in.readUTF());
+			Id<Link> toLinkId = Id.createLinkId(in.readUTF());
+			readCheckpoint(getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId)), in);
+		}
+	}
+
+	private static void readCheckpoint(final TravelTimeData data, final DataInput in) throws IOException {
+		synchronized (data) {
+			data.setNeedsConsolidation(in.readBoolean());
+			data.readState(in);
+		}
+	}
+
 	/**
 	 * Makes sure that the travel times "make sense".
 	 * <p></p>
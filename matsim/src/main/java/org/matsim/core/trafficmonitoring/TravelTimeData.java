@@ -20,6 +20,10 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 abstract class TravelTimeData {
 	// yyyy My (relative strong) intuition would be that the methods of this should accept time in seconds, and do the conversion to bins internally.  Otherwise, we bind the
 	// information of TravelTimeData to uniform time slices forever.  kai, feb'19
@@ -59,6 +63,14 @@ abstract class TravelTimeData {
 	 */
 	abstract double getTravelTime(final int timeSlot, final double now);
 
+	/**
+	 * Writes the raw data of the time slots which are not in their reset state, such that {@link #readState(DataInput)}
+	 * restores them exactly.  Only meant for checkpoints, i.e. the data is read by the same implementation.
+	 */
+	abstract void writeState(final DataOutput out) throws IOException;
+
+	abstract void readState(final DataInput in) throws IOException;
+
 	void setNeedsConsolidation( boolean flag ) {
 		this.needsConsolidation = flag ;
 	}
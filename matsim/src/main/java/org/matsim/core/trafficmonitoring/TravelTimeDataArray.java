@@ -20,6 +20,10 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.matsim.api.core.v01.network.Link;
 
 /**
@@ -79,4 +83,33 @@ class TravelTimeDataArray extends TravelTimeData {
 		return freespeed;
 	}
 
+	@Override
+	void writeState(final DataOutput out) throws IOException {
+		int slots = 0;
+		for (int i = 0; i < this.travelTimes.length; i++) {
+			if (this.timeCnt[i] != 0 || this.travelTimes[i] != -1.0) {
+				slots++;
+			}
+		}
+		out.writeInt(slots);
+		for (int i = 0; i < this.travelTimes.length; i++) {
+			if (this.timeCnt[i] != 0 || this.travelTimes[i] != -1.0) {
+				out.writeInt(i);
+				out.writeShort(this.timeCnt[i]);
+				out.writeDouble(this.travelTimes[i]);
+			}
+		}
+	}
+
+	@Override
+	void readState(final DataInput in) throws IOException {
+		resetTravelTimes();
+		int slots = in.readInt();
+		for (int j = 0; j < slots; j++) {
+			int i = in.readInt();
+			this.timeCnt[i] = in.readShort();
+			this.travelTimes[i] = in.readDouble();
+		}
+	}
+
 }
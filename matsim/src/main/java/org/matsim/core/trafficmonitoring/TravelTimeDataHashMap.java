@@ -20,6 +20,9 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -85,6 +88,27 @@ class TravelTimeDataHashMap extends TravelTimeData {
 		return ts.timeSum / ts.cnt;
 	}
 
+	@Override
+	void writeState(final DataOutput out) throws IOException {
+		out.writeInt(this.travelTimes.size());
+		for (Map.Entry<Integer, TimeStruct> entry : this.travelTimes.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeInt(entry.getValue().cnt);
+			out.writeDouble(entry.getValue().timeSum);
+		}
+	}
+
+	@Override
+	void readState(final DataInput in) throws IOException {
+		this.travelTimes.clear();
+		int slots = in.readInt();
+		for (int j = 0; j < slots; j++) {
+			int timeSlice = in.readInt();
+			int cnt = in.readInt();
+			this.travelTimes.put(IntegerCache.getInteger(timeSlice), new TimeStruct(in.readDouble(), cnt));
+		}
+	}
+
 	private static class TimeStruct {
 		public double timeSum;
 		public int cnt;
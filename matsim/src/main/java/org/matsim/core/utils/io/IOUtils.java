@@ -20,6 +20,7 @@
 
 package org.matsim.core.utils.io;
 
+import com.github.luben.zstd.Zstd;
 import com.github.luben.zstd.ZstdInputStream;
 import com.github.luben.zstd.ZstdOutputStream;
 import net.jpountz.lz4.LZ4BlockInputStream;
@@ -112,6 +113,10 @@ import java.util.zip.GZIPOutputStream;
  * <li><code>*.bz2</code>: Bzip2 compression</li>
  * <li><code>*.zst</code>: ZStandard compression</li>
  * </ul>
+ * 
+ * The compression level and the number of worker threads used for writing
+ * ZStandard files can be adjusted using {@link #setZstdCompressionLevel(int)}
+ * and {@link #setZstdWorkers(int)}.
  */
 final public class IOUtils {
 	/**
@@ -132,6 +137,11 @@ final public class IOUtils {
 		COMPRESSION_EXTENSIONS.put("zst", CompressionType.ZSTD);
 	}
 
+	// Settings for writing ZStandard compressed files.
+	public static final int DEFAULT_ZSTD_COMPRESSION_LEVEL = 6;
+	private static int zstdCompressionLevel = DEFAULT_ZSTD_COMPRESSION_LEVEL;
+	private static int zstdWorkers = 0;
+
 	// Define a number of charsets that are / have been used.
 	public static final Charset CHARSET_UTF8 = StandardCharsets.UTF_8;
 	public static final Charset CHARSET_WINDOWS_ISO88591 = StandardCharsets.ISO_8859_1;
@@ -213,6 +223,51 @@ final public class IOUtils {
 		}
 	}
 
+	/**
+	 * Sets the compression level used when writing ZStandard compressed files.
+	 * Higher levels result in smaller files, but take more time to compress. The
+	 * default is {@value #DEFAULT_ZSTD_COMPRESSION_LEVEL}.
+	 */
+	public static void setZstdCompressionLevel(int level) {
+		if (level < 1 || level > Zstd.maxCompressionLevel()) {
+			throw new IllegalArgumentException("ZStandard compression level must be between 1 and " + Zstd.maxCompressionLevel() + ", but is " + level);
+		}
+		zstdCompressionLevel = level;
+	}
+
+	public static int getZstdCompressionLevel() {
+		return zstdCompressionLevel;
+	}
+
+	/**
+	 * Sets the number of background threads used to compress a single
+	 * ZStandard output file. A value of 0 disables multithreaded compression, in
+	 * which case compression happens on the writing thread.
+	 */
+	public static void setZstdWorkers(int workers) {
+		if (workers < 0) {
+			throw new IllegalArgumentException("Number of ZStandard workers must not be negative, but is " + workers);
+		}
+		zstdWorkers = workers;
+	}
+
+	public static int getZstdWorkers() {
+		return zstdWorkers;
+	}
+
+	/**
+	 * Returns the given file name without a trailing compression extension (e.g.
+	 * <code>network.xml.gz</code> becomes <code>network.xml</code>). If the file
+	 * name has no known compression extension, it is returned as is.
+	 */
+	public static String removeCompressionExtension(String filename) {
+		int index = filename.lastIndexOf('.');
+		if (index >= 0 && COMPRESSION_EXTENSIONS.containsKey(filename.substring(index + 1).toLowerCase(Locale.ROOT))) {
+			return filename.substring(0, index);
+		}
+		return filename;
+	}
+
 	/**
 	 * Gets the compression of a certain URL by file extension. May return null if
 	 * not compression is assumed.
@@ -223,6 +278,14 @@ final public class IOUtils {
 		return COMPRESSION_EXTENSIONS.get(lastExtension.toLowerCase(Locale.ROOT));
 	}
 
+	/**
+	 * Returns whether the URL has a file extension for one of the supported
+	 * compression algorithms.
+	 */
+	public static boolean isCompressed(URL url) {
+		return getCompression(url) != null;
+	}
+
 	/**
 	 * Opens an input stream for a given URL. If the URL has a compression
 	 * extension, the method will try to open the compressed file using the proper
@@ -316,7 +379,11 @@ final public class IOUtils {
 						outputStream = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.BZIP2, outputStream);
 						break;
 					case ZSTD:
-						outputStream = new ZstdOutputStream(outputStream, 6);
+						ZstdOutputStream zstdOutputStream = new ZstdOutputStream(outputStream, zstdCompressionLevel);
+						if (zstdWorkers > 0) {
+							zstdOutputStream.setWorkers(zstdWorkers);
+						}
+						outputStream = zstdOutputStream;
 						break;
 				}
 			}
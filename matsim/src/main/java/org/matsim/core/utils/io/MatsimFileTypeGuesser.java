@@ -60,8 +60,8 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 	private String xmlSystemId = null;
 
 	public MatsimFileTypeGuesser(final String fileName) throws UncheckedIOException {
-		String name = fileName.toLowerCase(Locale.ROOT);
-		if (name.endsWith(".xml.gz") || name.endsWith(".xml")) {
+		String name = IOUtils.removeCompressionExtension(fileName.toLowerCase(Locale.ROOT));
+		if (name.endsWith(".xml")) {
 			guessFileTypeXml(fileName);
 			// I think the following would also be useful for the API, but with which name?
 			String shortSystemId = null;
@@ -92,11 +92,11 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 				}
 			}
 
-		} else if (name.endsWith(".txt.gz") || name.endsWith(".txt")) {
+		} else if (name.endsWith(".txt")) {
 			this.fileType = FileType.Events;
-		} else if (name.endsWith(".mvi.gz") || name.endsWith(".mvi")) {
+		} else if (name.endsWith(".mvi")) {
 			this.fileType = FileType.OTFVis;
-		} else if (name.endsWith(".veh.gz") || name.endsWith(".veh")) {
+		} else if (name.endsWith(".veh")) {
 			this.fileType = FileType.TransimsVehicle;
 		}
 	}
@@ -35,7 +35,6 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Stack;
-import java.util.zip.GZIPInputStream;
 
 /**
  * An abstract XML-Parser which can be easily extended for reading custom XML-formats. This class handles all the low level
@@ -134,12 +133,12 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	}
 
 	/**
-	 * Parses the specified file. The file can be gzip-compressed and is decompressed on-the-fly while parsing. A gzip-compressed
-	 * file must have the ending ".gz" to be correctly recognized. The passed filename may or may not contain the ending ".gz". If
-	 * no uncompressed file is found with the specified name, the ending ".gz" will be added to the filename and a compressed file
-	 * will be searched for and read if found.
+	 * Parses the specified file. The file can be compressed and is decompressed on-the-fly while parsing. A compressed
+	 * file must have one of the endings supported by {@link IOUtils} (e.g. ".gz" or ".zst") to be correctly recognized. The passed
+	 * filename may or may not contain the compression ending. If no uncompressed file is found with the specified name, the
+	 * compression endings will be added to the filename and a compressed file will be searched for and read if found.
 	 *
-	 * @param filename The filename of the file to read, optionally ending with ".gz" to force reading a gzip-compressed file.
+	 * @param filename The filename of the file to read, optionally ending with a compression ending to force reading a compressed file.
 	 * @throws UncheckedIOException
 	 */
 	@Override
@@ -159,12 +158,8 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		this.theSource = url.toString();
 		log.info("starting to parse xml from url " + this.theSource + " ...");
 		System.out.flush();
-		if (url.getFile().endsWith(".gz")) {
-			try {
-				parse(new InputSource(new GZIPInputStream(url.openStream())));
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
+		if (IOUtils.isCompressed(url)) {
+			parse(new InputSource(IOUtils.getInputStream(url)));
 		} else {
 			parse(new InputSource(url.toExternalForm()));
 		}
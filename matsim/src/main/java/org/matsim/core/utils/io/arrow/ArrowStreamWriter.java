@@ -0,0 +1,530 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrowStreamWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io.arrow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes tables in the <a href="https://arrow.apache.org/docs/format/Columnar.html">Apache Arrow</a> IPC streaming
+ * format (usually with the file ending <code>.arrows</code>), which can be read e.g. by pyarrow, R's arrow package or
+ * pandas without parsing any text.
+ * <p>
+ * The columns are defined before the first row. Rows are then added by setting the value of each column and calling
+ * {@link #endRow()}; columns without a value in a row are null. Every <code>batchSize</code> rows, the collected
+ * values are written to the stream as one record batch, so memory usage does not depend on the number of rows.
+ * <p>
+ * {@link ColumnType#DICTIONARY} columns store each distinct string only once, the rows only contain an index into the
+ * dictionary. This should be used for columns with few distinct values, like modes, activity types or ids. Strings that
+ * were not seen before are written as delta dictionary batches before the record batch that uses them.
+ */
+public final class ArrowStreamWriter implements Closeable {
+
+	public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+	public enum ColumnType {INT, DOUBLE, STRING, DICTIONARY}
+
+	private static final short METADATA_VERSION_V5 = 4;
+
+	// Message.header union
+	private static final byte MESSAGE_SCHEMA = 1;
+	private static final byte MESSAGE_DICTIONARY_BATCH = 2;
+	private static final byte MESSAGE_RECORD_BATCH = 3;
+
+	// Field.type union
+	private static final byte TYPE_INT = 2;
+	private static final byte TYPE_FLOATING_POINT = 3;
+	private static final byte TYPE_UTF8 = 5;
+
+	private static final short PRECISION_DOUBLE = 2;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final OutputStream out;
+	private final int batchSize;
+	private final List<Column> columns = new ArrayList<>();
+
+	// number of rows in the current batch
+	private int rows = 0;
+	private boolean started = false;
+	private boolean preambleWritten = false;
+	private boolean closed = false;
+
+	/**
+	 * Writes to a file, which is compressed if the filename ends with a compression extension. Note that most Arrow
+	 * readers cannot read compressed streams directly.
+	 */
+	public ArrowStreamWriter(String filename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false), DEFAULT_BATCH_SIZE);
+	}
+
+	public ArrowStreamWriter(OutputStream out, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be positive, but is " + batchSize);
+		}
+		this.out = out;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return the index of the column, to be used for setting its values
+	 */
+	public int addColumn(String name, ColumnType type) {
+		if (started) {
+			throw new IllegalStateException("Columns must be added before the first row.");
+		}
+		columns.add(new Column(name, type, columns.size()));
+		return columns.size() - 1;
+	}
+
+	public void set(int column, int value) {
+		Column c = getColumn(column, ColumnType.INT);
+		c.ensureCapacity(rows);
+		c.ints[rows] = value;
+		c.lastSetRow = rows;
+	}
+
+	public void set(int column, double value) {
+		Column c = getColumn(column, ColumnType.DOUBLE);
+		c.ensureCapacity(rows);
+		c.doubles[rows] = value;
+		c.lastSetRow = rows;
+	}
+
+	/**
+	 * Sets the value of a {@link ColumnType#STRING} or {@link ColumnType#DICTIONARY} column. <code>null</code> leaves
+	 * the value null.
+	 */
+	public void set(int column, String value) {
+		Column c = columns.get(column);
+		if (c.type != ColumnType.DICTIONARY && c.type != ColumnType.STRING) {
+			throw new IllegalArgumentException("Column " + c.name + " is of type " + c.type + ", not a string column.");
+		}
+		if (value == null) {
+			return;
+		}
+		c.ensureCapacity(rows);
+		if (c.type == ColumnType.DICTIONARY) {
+			c.ints[rows] = c.dictionary.getIndex(value);
+		} else if (c.lastSetRow == rows) {
+			c.strings.set(rows, value);
+		} else {
+			c.strings.add(value);
+		}
+		c.lastSetRow = rows;
+	}
+
+	private Column getColumn(int column, ColumnType type) {
+		Column c = columns.get(column);
+		if (c.type != type) {
+			throw new IllegalArgumentException("Column " + c.name + " is of type " + c.type + ", not " + type);
+		}
+		return c;
+	}
+
+	public void endRow() {
+		started = true;
+		for (Column c : columns) {
+			if (c.lastSetRow != rows) {
+				c.setNull(rows);
+			}
+		}
+		rows++;
+		if (rows == batchSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the rows added since the last flush as one record batch.
+	 */
+	public void flush() {
+		try {
+			writePreamble();
+			if (rows > 0) {
+				for (Column c : columns) {
+					if (c.type == ColumnType.DICTIONARY && !c.dictionary.newEntries.isEmpty()) {
+						writeDictionaryBatch(c, true);
+					}
+				}
+				writeRecordBatch();
+				for (Column c : columns) {
+					c.clear();
+				}
+				rows = 0;
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the schema and the initial dictionaries, which readers expect before the first record batch.
+	 */
+	private void writePreamble() throws IOException {
+		if (preambleWritten) {
+			return;
+		}
+		if (columns.isEmpty()) {
+			throw new IllegalStateException("No columns have been added.");
+		}
+		started = true;
+		preambleWritten = true;
+		writeSchema();
+		for (Column c : columns) {
+			if (c.type == ColumnType.DICTIONARY) {
+				writeDictionaryBatch(c, false);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		flush();
+		try {
+			// end-of-stream marker: continuation token followed by a metadata length of 0
+			writeInt(0xFFFFFFFF);
+			writeInt(0);
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeSchema() throws IOException {
+		FlatBufferBuilder fb = new FlatBufferBuilder();
+		int[] fields = new int[columns.size()];
+		for (int i = 0; i < fields.length; i++) {
+			Column c = columns.get(i);
+			int name = fb.createString(c.name);
+			byte typeType;
+			int type;
+			if (c.type == ColumnType.INT) {
+				typeType = TYPE_INT;
+				type = createIntType(fb);
+			} else if (c.type == ColumnType.DOUBLE) {
+				typeType = TYPE_FLOATING_POINT;
+				fb.startTable(1);
+				fb.addShort(0, PRECISION_DOUBLE);
+				type = fb.endTable();
+			} else {
+				// a dictionary column has the type of its values
+				typeType = TYPE_UTF8;
+				fb.startTable(0);
+				type = fb.endTable();
+			}
+			int dictionary = 0;
+			if (c.type == ColumnType.DICTIONARY) {
+				int indexType = createIntType(fb);
+				fb.startTable(4);
+				fb.addLong(0, c.dictionary.id);
+				fb.addOffset(1, indexType);
+				fb.addBoolean(2, false);
+				dictionary = fb.endTable();
+			}
+			int children = fb.createOffsetVector(new int[0]);
+
+			fb.startTable(7);
+			fb.addOffset(0, name);
+			fb.addBoolean(1, true);
+			fb.addByte(2, typeType);
+			fb.addOffset(3, type);
+			if (dictionary != 0) {
+				fb.addOffset(4, dictionary);
+			}
+			fb.addOffset(5, children);
+			fields[i] = fb.endTable();
+		}
+		int fieldVector = fb.createOffsetVector(fields);
+		fb.startTable(4);
+		fb.addShort(0, (short) 0); // little endian
+		fb.addOffset(1, fieldVector);
+		int schema = fb.endTable();
+		writeMessage(fb, MESSAGE_SCHEMA, schema, new Body());
+	}
+
+	private static int createIntType(FlatBufferBuilder fb) {
+		fb.startTable(2);
+		fb.addInt(0, 32);
+		fb.addBoolean(1, true);
+		return fb.endTable();
+	}
+
+	private void writeDictionaryBatch(Column c, boolean isDelta) throws IOException {
+		List<String> entries = c.dictionary.newEntries;
+		Body body = new Body();
+		body.addNode(entries.size(), 0);
+		body.addBuffer(null);
+		addStrings(body, entries);
+
+		FlatBufferBuilder fb = new FlatBufferBuilder();
+		int recordBatch = createRecordBatch(fb, entries.size(), body);
+		fb.startTable(3);
+		fb.addLong(0, c.dictionary.id);
+		fb.addOffset(1, recordBatch);
+		fb.addBoolean(2, isDelta);
+		int dictionaryBatch = fb.endTable();
+		writeMessage(fb, MESSAGE_DICTIONARY_BATCH, dictionaryBatch, body);
+		entries.clear();
+	}
+
+	private void writeRecordBatch() throws IOException {
+		Body body = new Body();
+		for (Column c : columns) {
+			body.addNode(rows, c.nullCount);
+			body.addBuffer(c.nullCount == 0 ? null : toBytes(c.validity, (rows + 7) / 8));
+			switch (c.type) {
+				case INT:
+				case DICTIONARY:
+					ByteBuffer ints = ByteBuffer.allocate(4 * rows).order(ByteOrder.LITTLE_ENDIAN);
+					ints.asIntBuffer().put(c.ints, 0, rows);
+					body.addBuffer(ints.array());
+					break;
+				case DOUBLE:
+					ByteBuffer doubles = ByteBuffer.allocate(8 * rows).order(ByteOrder.LITTLE_ENDIAN);
+					doubles.asDoubleBuffer().put(c.doubles, 0, rows);
+					body.addBuffer(doubles.array());
+					break;
+				case STRING:
+					addStrings(body, c.strings);
+					break;
+			}
+		}
+		FlatBufferBuilder fb = new FlatBufferBuilder();
+		int recordBatch = createRecordBatch(fb, rows, body);
+		writeMessage(fb, MESSAGE_RECORD_BATCH, recordBatch, body);
+	}
+
+	private static void addStrings(Body body, List<String> strings) {
+		ByteBuffer offsets = ByteBuffer.allocate(4 * (strings.size() + 1)).order(ByteOrder.LITTLE_ENDIAN);
+		byte[][] bytes = new byte[strings.size()][];
+		int length = 0;
+		offsets.putInt(0);
+		for (int i = 0; i < bytes.length; i++) {
+			String s = strings.get(i);
+			bytes[i] = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+			length += bytes[i].length;
+			offsets.putInt(length);
+		}
+		byte[] data = new byte[length];
+		int position = 0;
+		for (byte[] b : bytes) {
+			System.arraycopy(b, 0, data, position, b.length);
+			position += b.length;
+		}
+		body.addBuffer(offsets.array());
+		body.addBuffer(data);
+	}
+
+	private static byte[] toBytes(long[] bits, int numberOfBytes) {
+		byte[] bytes = new byte[numberOfBytes];
+		for (int i = 0; i < numberOfBytes; i++) {
+			bytes[i] = (byte) (bits[i >> 3] >>> ((i & 7) * 8));
+		}
+		return bytes;
+	}
+
+	private static int createRecordBatch(FlatBufferBuilder fb, int length, Body body) {
+		int nodes = fb.createLongPairVector(body.getNodes());
+		int buffers = fb.createLongPairVector(body.getBuffers());
+		fb.startTable(4);
+		fb.addLong(0, length);
+		fb.addOffset(1, nodes);
+		fb.addOffset(2, buffers);
+		return fb.endTable();
+	}
+
+	private void writeMessage(FlatBufferBuilder fb, byte headerType, int header, Body body) throws IOException {
+		fb.startTable(5);
+		fb.addShort(0, METADATA_VERSION_V5);
+		fb.addByte(1, headerType);
+		fb.addOffset(2, header);
+		fb.addLong(3, body.length);
+		byte[] metadata = fb.finish(fb.endTable());
+
+		// the metadata is padded to a multiple of 8 bytes, so the body starts aligned
+		writeInt(0xFFFFFFFF);
+		writeInt(metadata.length);
+		out.write(metadata);
+		body.writeTo(out);
+	}
+
+	private void writeInt(int value) throws IOException {
+		out.write(value);
+		out.write(value >> 8);
+		out.write(value >> 16);
+		out.write(value >> 24);
+	}
+
+	/**
+	 * The buffers of a message body, each padded to a multiple of 8 bytes, and the nodes describing the arrays.
+	 */
+	private static final class Body {
+		private final List<byte[]> buffers = new ArrayList<>();
+		private final List<long[]> bufferPositions = new ArrayList<>();
+		private final List<long[]> nodes = new ArrayList<>();
+		private long length = 0;
+
+		void addNode(long length, long nullCount) {
+			nodes.add(new long[] {length, nullCount});
+		}
+
+		/**
+		 * @param buffer the content of the buffer, or <code>null</code> for an empty buffer
+		 */
+		void addBuffer(byte[] buffer) {
+			byte[] content = buffer == null ? new byte[0] : buffer;
+			buffers.add(content);
+			bufferPositions.add(new long[] {length, content.length});
+			length += (content.length + 7) & ~7;
+		}
+
+		long[] getNodes() {
+			return flatten(nodes);
+		}
+
+		long[] getBuffers() {
+			return flatten(bufferPositions);
+		}
+
+		private static long[] flatten(List<long[]> pairs) {
+			long[] values = new long[2 * pairs.size()];
+			for (int i = 0; i < pairs.size(); i++) {
+				values[2 * i] = pairs.get(i)[0];
+				values[2 * i + 1] = pairs.get(i)[1];
+			}
+			return values;
+		}
+
+		void writeTo(OutputStream out) throws IOException {
+			byte[] padding = new byte[8];
+			for (byte[] buffer : buffers) {
+				out.write(buffer);
+				out.write(padding, 0, ((buffer.length + 7) & ~7) - buffer.length);
+			}
+		}
+	}
+
+	private final class Column {
+		private final String name;
+		private final ColumnType type;
+		private final Dictionary dictionary;
+
+		// values of the current batch, depending on the type
+		private int[] ints;
+		private double[] doubles;
+		private List<String> strings;
+
+		private int capacity;
+		// set bits denote valid (non-null) values of the current batch
+		private long[] validity;
+		private int nullCount = 0;
+		private int lastSetRow = -1;
+
+		Column(String name, ColumnType type, long id) {
+			this.name = name;
+			this.type = type;
+			this.dictionary = type == ColumnType.DICTIONARY ? new Dictionary(id) : null;
+			this.capacity = Math.min(INITIAL_CAPACITY, batchSize);
+			if (type == ColumnType.INT || type == ColumnType.DICTIONARY) {
+				this.ints = new int[capacity];
+			} else if (type == ColumnType.DOUBLE) {
+				this.doubles = new double[capacity];
+			} else {
+				this.strings = new ArrayList<>(capacity);
+			}
+			this.validity = new long[(capacity + 63) / 64];
+			Arrays.fill(this.validity, -1L);
+		}
+
+		void ensureCapacity(int row) {
+			if (row < capacity) {
+				return;
+			}
+			capacity = Math.min(Math.max(2 * capacity, row + 1), batchSize);
+			if (ints != null) {
+				ints = Arrays.copyOf(ints, capacity);
+			}
+			if (doubles != null) {
+				doubles = Arrays.copyOf(doubles, capacity);
+			}
+			int oldLength = validity.length;
+			validity = Arrays.copyOf(validity, (capacity + 63) / 64);
+			Arrays.fill(validity, oldLength, validity.length, -1L);
+		}
+
+		void setNull(int row) {
+			ensureCapacity(row);
+			validity[row >> 6] &= ~(1L << (row & 63));
+			nullCount++;
+			if (strings != null) {
+				strings.add(null);
+			}
+		}
+
+		void clear() {
+			Arrays.fill(validity, -1L);
+			nullCount = 0;
+			lastSetRow = -1;
+			if (strings != null) {
+				strings.clear();
+			}
+		}
+	}
+
+	private static final class Dictionary {
+		private final long id;
+		private final Map<String, Integer> indices = new HashMap<>();
+		// entries that have not been written yet
+		private final List<String> newEntries = new ArrayList<>();
+
+		Dictionary(long id) {
+			this.id = id;
+		}
+
+		int getIndex(String value) {
+			Integer index = indices.get(value);
+			if (index == null) {
+				index = indices.size();
+				indices.put(value, index);
+				newEntries.add(value);
+			}
+			return index;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FlatBufferBuilder.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io.arrow;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal builder for <a href="https://google.github.io/flatbuffers/">FlatBuffers</a>, as far as they are needed for
+ * the metadata of Arrow IPC messages: tables with scalar and offset fields, strings, and vectors of offsets or of
+ * structs consisting of two longs.
+ * <p>
+ * Like the reference implementation, the buffer is built from the back to the front, so objects have to be created
+ * before the tables referencing them. Positions of objects are returned as their distance from the end of the buffer.
+ */
+final class FlatBufferBuilder {
+
+	private byte[] buffer = new byte[256];
+	// position of the first used byte in the buffer
+	private int head = buffer.length;
+	private int minAlign = 1;
+
+	// offsets of the fields of the current table, or 0 if not set
+	private int[] fieldOffsets = null;
+	private int tableStart;
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	private int offset() {
+		return buffer.length - head;
+	}
+
+	/**
+	 * Adds padding, so that after writing <code>additionalBytes</code>, the next value of <code>size</code> bytes is
+	 * aligned to its size.
+	 */
+	private void prep(int size, int additionalBytes) {
+		minAlign = Math.max(minAlign, size);
+		int padding = (-(offset() + additionalBytes)) & (size - 1);
+		ensureSpace(padding + size + additionalBytes);
+		head -= padding;
+		Arrays.fill(buffer, head, head + padding, (byte) 0);
+	}
+
+	private void ensureSpace(int bytes) {
+		if (head < bytes) {
+			int used = offset();
+			int newLength = Math.max(buffer.length * 2, used + bytes);
+			byte[] newBuffer = new byte[newLength];
+			System.arraycopy(buffer, head, newBuffer, newLength - used, used);
+			buffer = newBuffer;
+			head = newLength - used;
+		}
+	}
+
+	private void putByte(byte value) {
+		buffer[--head] = value;
+	}
+
+	private void putShort(short value) {
+		putByte((byte) (value >> 8));
+		putByte((byte) value);
+	}
+
+	private void putInt(int value) {
+		putByte((byte) (value >> 24));
+		putByte((byte) (value >> 16));
+		putByte((byte) (value >> 8));
+		putByte((byte) value);
+	}
+
+	private void putLong(long value) {
+		putInt((int) (value >> 32));
+		putInt((int) value);
+	}
+
+	private void addOffset(int target) {
+		prep(4, 0);
+		putInt(offset() - target + 4);
+	}
+
+	int createString(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		prep(4, bytes.length + 1);
+		putByte((byte) 0);
+		head -= bytes.length;
+		System.arraycopy(bytes, 0, buffer, head, bytes.length);
+		putInt(bytes.length);
+		return offset();
+	}
+
+	int createOffsetVector(int[] targets) {
+		prep(4, 4 * targets.length);
+		for (int i = targets.length - 1; i >= 0; i--) {
+			addOffset(targets[i]);
+		}
+		putInt(targets.length);
+		return offset();
+	}
+
+	/**
+	 * Creates a vector of structs of two longs each, i.e. Arrow's <code>FieldNode</code> and <code>Buffer</code>.
+	 *
+	 * @param values the first and the second value of each struct, one struct after the other
+	 */
+	int createLongPairVector(long[] values) {
+		prep(4, 8 * values.length);
+		prep(8, 8 * values.length);
+		for (int i = values.length - 1; i >= 0; i--) {
+			putLong(values[i]);
+		}
+		prep(4, 0);
+		putInt(values.length / 2);
+		return offset();
+	}
+
+	void startTable(int numberOfFields) {
+		if (fieldOffsets != null) {
+			throw new IllegalStateException("Tables cannot be nested, create the referenced objects first.");
+		}
+		fieldOffsets = new int[numberOfFields];
+		tableStart = offset();
+	}
+
+	void addBoolean(int field, boolean value) {
+		prep(1, 0);
+		putByte((byte) (value ? 1 : 0));
+		fieldOffsets[field] = offset();
+	}
+
+	void addByte(int field, byte value) {
+		prep(1, 0);
+		putByte(value);
+		fieldOffsets[field] = offset();
+	}
+
+	void addShort(int field, short value) {
+		prep(2, 0);
+		putShort(value);
+		fieldOffsets[field] = offset();
+	}
+
+	void addInt(int field, int value) {
+		prep(4, 0);
+		putInt(value);
+		fieldOffsets[field] = offset();
+	}
+
+	void addLong(int field, long value) {
+		prep(8, 0);
+		putLong(value);
+		fieldOffsets[field] = offset();
+	}
+
+	void addOffset(int field, int target) {
+		addOffset(target);
+		fieldOffsets[field] = offset();
+	}
+
+	int endTable() {
+		// placeholder for the offset to the vtable
+		prep(4, 0);
+		putInt(0);
+		int tableOffset = offset();
+
+		ensureSpace((fieldOffsets.length + 2) * 2);
+		for (int field = fieldOffsets.length - 1; field >= 0; field--) {
+			putShort((short) (fieldOffsets[field] == 0 ? 0 : tableOffset - fieldOffsets[field]));
+		}
+		putShort((short) (tableOffset - tableStart));
+		putShort((short) ((fieldOffsets.length + 2) * 2));
+		int vtableOffset = offset();
+
+		// the vtable is located before the table, i.e. at a lower address
+		int tablePosition = buffer.length - tableOffset;
+		int soffset = vtableOffset - tableOffset;
+		buffer[tablePosition] = (byte) soffset;
+		buffer[tablePosition + 1] = (byte) (soffset >> 8);
+		buffer[tablePosition + 2] = (byte) (soffset >> 16);
+		buffer[tablePosition + 3] = (byte) (soffset >> 24);
+
+		fieldOffsets = null;
+		return tableOffset;
+	}
+
+	/**
+	 * Writes the offset to the root table and returns the finished buffer, padded to a multiple of 8 bytes.
+	 */
+	byte[] finish(int rootTable) {
+		prep(Math.max(minAlign, 8), 4);
+		addOffset(rootTable);
+		return Arrays.copyOfRange(buffer, head, buffer.length);
+	}
+}
@@ -23,7 +23,9 @@ package org.matsim.pt.counts;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdIntMap;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdSet;
 import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
@@ -38,8 +40,6 @@ import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityE
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -59,13 +59,12 @@ public class OccupancyAnalyzer implements PersonEntersVehicleEventHandler, Perso
 	private Map<Id<TransitStopFacility>, int[]> boards, alights, occupancies;
 
 	/** Map< vehId,stopFacilityId> */
-//	private final IdMap<Vehicle, Id<TransitStopFacility>> vehStops = new IdMap<>(Vehicle.class, Id.class);
-	private final Map<Id<Vehicle>, Id<TransitStopFacility>> vehStops = new HashMap<>();
+	private final IdMap<Vehicle, Id<TransitStopFacility>> vehStops = new IdMap<>(Vehicle.class);
 	/** Map<vehId,passengersNo. in Veh> */
-	private final Map<Id<Vehicle>, Integer> vehPassengers = new HashMap<>();
+	private final IdIntMap<Vehicle> vehPassengers = new IdIntMap<>(Vehicle.class);
 	private StringBuffer occupancyRecord = new StringBuffer("time\tvehId\tStopId\tno.ofPassengersInVeh\n");
-	private final Set<Id<Person>> transitDrivers = new HashSet<>();
-	private final Set<Id<Vehicle>> transitVehicles = new HashSet<>();
+	private final IdSet<Person> transitDrivers = new IdSet<>(Person.class);
+	private final IdSet<Vehicle> transitVehicles = new IdSet<>(Vehicle.class);
 
 	public OccupancyAnalyzer(final int timeBinSize, final double maxTime) {
 		log.setLevel( Level.INFO ) ;
@@ -132,9 +131,8 @@ public class OccupancyAnalyzer implements PersonEntersVehicleEventHandler, Perso
 		}
 		getOn[getTimeSlotIndex(time)]++;
 		// ------------------------veh_passenger---------------------------
-		Integer nPassengers = this.vehPassengers.get(vehId);
-		this.vehPassengers.put(vehId, (nPassengers != null) ? (nPassengers + 1) : 1);
-		this.occupancyRecord.append("time :\t").append(time).append(" veh :\t").append(vehId).append(" has Passenger\t").append(this.vehPassengers.get(vehId)).append(" \tat stop :\t").append(stopId).append(" ENTERING PERSON :\t").append(event.getPersonId()).append("\n");
+		int nPassengers = this.vehPassengers.addTo(vehId, 1);
+		this.occupancyRecord.append("time :\t").append(time).append(" veh :\t").append(vehId).append(" has Passenger\t").append(nPassengers).append(" \tat stop :\t").append(stopId).append(" ENTERING PERSON :\t").append(event.getPersonId()).append("\n");
 	}
 
 	@Override
@@ -154,18 +152,16 @@ public class OccupancyAnalyzer implements PersonEntersVehicleEventHandler, Perso
 		}
 		getDown[getTimeSlotIndex(time)]++;
 		// ------------------------veh_passenger---------------------------
-		Integer nPassengers = this.vehPassengers.get(vehId);
-		if (nPassengers == null) {
+		if (!this.vehPassengers.containsKey(vehId)) {
 			log.error( "tests for `null' but exception says 'negative'???  kai, oct'10 ") ;
 			throw new RuntimeException("negative passenger-No. in vehicle?");
 		}
-		this.vehPassengers.put(vehId, nPassengers - 1);
-		if (this.vehPassengers.get(vehId).intValue() == 0) {
+		int passengers = this.vehPassengers.addTo(vehId, -1);
+		if (passengers == 0) {
 			this.vehPassengers.remove(vehId);
 		}
 
-		Integer passengers = this.vehPassengers.get(vehId);
-		this.occupancyRecord.append("time :\t").append(time).append(" veh :\t").append(vehId).append(" has Passenger\t").append((passengers != null) ? passengers : 0).append("\n");
+		this.occupancyRecord.append("time :\t").append(time).append(" veh :\t").append(vehId).append(" has Passenger\t").append(passengers).append("\n");
 	}
 
 	@Override
@@ -188,9 +184,8 @@ public class OccupancyAnalyzer implements PersonEntersVehicleEventHandler, Perso
 			this.occupancies.put(stopId, occupancyAtStop);
 		}
 
-		Integer noPassengersInVeh = this.vehPassengers.get(vehId);
-
-		if (noPassengersInVeh != null) {
+		if (this.vehPassengers.containsKey(vehId)) {
+			int noPassengersInVeh = this.vehPassengers.get(vehId);
 			occupancyAtStop[this.getTimeSlotIndex(event.getTime())] += noPassengersInVeh;
 
 			this.occupancyRecord.append(event.getTime());
@@ -0,0 +1,230 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitScheduleSnapshotReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.transitSchedule;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.internal.MatsimSomeReader;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads a transit schedule snapshot written by {@link TransitScheduleSnapshotWriter} into a transit schedule.
+ *
+ * @see TransitScheduleSnapshotWriter
+ */
+public final class TransitScheduleSnapshotReader implements MatsimSomeReader {
+	private static final Logger log = Logger.getLogger(TransitScheduleSnapshotReader.class);
+
+	private final TransitSchedule schedule;
+	private final RouteFactories routeFactory;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+	private final List<String> strings = new ArrayList<>();
+
+	public TransitScheduleSnapshotReader(final TransitSchedule schedule, final RouteFactories routeFactory) {
+		this.schedule = schedule;
+		this.routeFactory = routeFactory;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converter.putAttributeConverters(converters);
+	}
+
+	public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
+		this.converter.putAttributeConverter(clazz, converter);
+	}
+
+	public void readFile(final String filename) throws UncheckedIOException {
+		readURL(IOUtils.getFileUrl(filename));
+	}
+
+	public void readURL(final URL url) throws UncheckedIOException {
+		log.info("reading transit schedule snapshot from " + url);
+		this.strings.clear();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(url), 1 << 16))) {
+			readData(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readData(DataInputStream in) throws IOException {
+		if (in.readLong() != TransitScheduleSnapshotWriter.MAGIC) {
+			throw new IllegalArgumentException("Not a transit schedule snapshot.");
+		}
+		int version = in.readInt();
+		if (version != TransitScheduleSnapshotWriter.VERSION) {
+			throw new IllegalArgumentException("Unsupported transit schedule snapshot version " + version + ".");
+		}
+		TransitScheduleFactory factory = this.schedule.getFactory();
+		readAttributes(in, this.schedule.getAttributes());
+
+		int stopCount = in.readInt();
+		TransitStopFacility[] stops = new TransitStopFacility[stopCount];
+		for (int i = 0; i < stopCount; i++) {
+			Id<TransitStopFacility> id = Id.create(readString(in), TransitStopFacility.class);
+			double x = in.readDouble();
+			double y = in.readDouble();
+			double z = in.readDouble();
+			Coord coord = Double.isNaN(z) ? new Coord(x, y) : new Coord(x, y, z);
+			TransitStopFacility stop = factory.createTransitStopFacility(id, coord, in.readBoolean());
+			String linkId = readString(in);
+			if (linkId != null) {
+				stop.setLinkId(Id.create(linkId, Link.class));
+			}
+			stop.setName(readString(in));
+			String stopAreaId = readString(in);
+			if (stopAreaId != null) {
+				stop.setStopAreaId(Id.create(stopAreaId, TransitStopArea.class));
+			}
+			readAttributes(in, stop.getAttributes());
+			this.schedule.addStopFacility(stop);
+			stops[i] = stop;
+		}
+
+		while (in.readBoolean()) {
+			Id<TransitStopFacility> fromStop = Id.create(readString(in), TransitStopFacility.class);
+			Id<TransitStopFacility> toStop = Id.create(readString(in), TransitStopFacility.class);
+			this.schedule.getMinimalTransferTimes().set(fromStop, toStop, in.readDouble());
+		}
+
+		int lineCount = in.readInt();
+		for (int i = 0; i < lineCount; i++) {
+			TransitLine line = factory.createTransitLine(Id.create(readString(in), TransitLine.class));
+			line.setName(readString(in));
+			readAttributes(in, line.getAttributes());
+			int routeCount = in.readInt();
+			for (int r = 0; r < routeCount; r++) {
+				line.addRoute(readTransitRoute(in, factory, stops));
+			}
+			this.schedule.addTransitLine(line);
+		}
+		log.info("transit schedule snapshot with " + stopCount + " stops and " + lineCount + " lines read.");
+	}
+
+	private TransitRoute readTransitRoute(DataInputStream in, TransitScheduleFactory factory, TransitStopFacility[] facilities) throws IOException {
+		Id<TransitRoute> id = Id.create(readString(in), TransitRoute.class);
+		String mode = readString(in).intern();
+		String description = readString(in);
+		Attributes attributes = new Attributes();
+		readAttributes(in, attributes);
+
+		int stopCount = in.readInt();
+		List<TransitRouteStop> stops = new ArrayList<>(stopCount);
+		for (int i = 0; i < stopCount; i++) {
+			TransitRouteStopImpl.Builder stopBuilder = new TransitRouteStopImpl.Builder().stop(facilities[in.readInt()]);
+			double arrivalOffset = in.readDouble();
+			double departureOffset = in.readDouble();
+			if (!Double.isNaN(arrivalOffset)) {
+				stopBuilder.arrivalOffset(arrivalOffset);
+			}
+			if (!Double.isNaN(departureOffset)) {
+				stopBuilder.departureOffset(departureOffset);
+			}
+			stopBuilder.awaitDepartureTime(in.readBoolean());
+			stops.add(stopBuilder.build());
+		}
+
+		NetworkRoute networkRoute = null;
+		int linkCount = in.readInt();
+		if (linkCount >= 0) {
+			Id<Link> startLinkId = Id.create(readString(in), Link.class);
+			List<Id<Link>> linkIds = new ArrayList<>(linkCount - 2);
+			for (int i = 0; i < linkCount - 2; i++) {
+				linkIds.add(Id.create(readString(in), Link.class));
+			}
+			Id<Link> endLinkId = Id.create(readString(in), Link.class);
+			networkRoute = this.routeFactory.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+		}
+
+		TransitRoute route = factory.createTransitRoute(id, networkRoute, stops, mode);
+		route.setDescription(description);
+		AttributesUtils.copyTo(attributes, route.getAttributes());
+
+		int departureCount = in.readInt();
+		for (int i = 0; i < departureCount; i++) {
+			Departure departure = factory.createDeparture(Id.create(readString(in), Departure.class), in.readDouble());
+			String vehicleId = readString(in);
+			if (vehicleId != null) {
+				departure.setVehicleId(Id.create(vehicleId, Vehicle.class));
+			}
+			readAttributes(in, departure.getAttributes());
+			route.addDeparture(departure);
+		}
+		return route;
+	}
+
+	private void readAttributes(DataInputStream in, Attributes target) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String key = readString(in);
+			String className = readString(in);
+			String value = readString(in);
+			Object object = this.converter.convert(className, value);
+			if (object != null) {
+				target.putAttribute(key, object);
+			}
+		}
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		int index = in.readInt();
+		if (index < 0) {
+			return null;
+		}
+		if (index < this.strings.size()) {
+			return this.strings.get(index);
+		}
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		String s = new String(bytes, StandardCharsets.UTF_8);
+		this.strings.add(s);
+		return s;
+	}
+}
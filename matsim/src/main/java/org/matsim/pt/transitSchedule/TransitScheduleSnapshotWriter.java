@@ -0,0 +1,219 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitScheduleSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.transitSchedule;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.internal.MatsimSomeWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes a transit schedule into a compact binary snapshot, which can be loaded considerably faster than the xml
+ * format using {@link TransitScheduleSnapshotReader}.
+ * <p></p>
+ * All strings (ids, names, modes, attributes) are written only once and referenced afterwards, stops are referenced by
+ * their position in the schedule. The snapshot can be compressed like any other MATSim file by using a file name
+ * ending in <code>.gz</code> or <code>.zst</code>.
+ *
+ * @see TransitScheduleSnapshotReader
+ */
+public final class TransitScheduleSnapshotWriter implements MatsimSomeWriter {
+	private static final Logger log = Logger.getLogger(TransitScheduleSnapshotWriter.class);
+
+	static final long MAGIC = 0x4d41545350543031L; // "MATSPT01"
+	static final int VERSION = 1;
+
+	private final TransitSchedule schedule;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+	private final Map<String, Integer> strings = new HashMap<>();
+
+	public TransitScheduleSnapshotWriter(final TransitSchedule schedule) {
+		this.schedule = schedule;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converter.putAttributeConverters(converters);
+	}
+
+	public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
+		this.converter.putAttributeConverter(clazz, converter);
+	}
+
+	public void write(final String filename) throws UncheckedIOException {
+		log.info("writing transit schedule snapshot to " + filename);
+		this.strings.clear();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false), 1 << 16))) {
+			writeData(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeData(DataOutputStream out) throws IOException {
+		out.writeLong(MAGIC);
+		out.writeInt(VERSION);
+		writeAttributes(out, this.schedule.getAttributes());
+
+		Map<Id<TransitStopFacility>, Integer> stopIndices = new HashMap<>();
+		out.writeInt(this.schedule.getFacilities().size());
+		for (TransitStopFacility stop : this.schedule.getFacilities().values()) {
+			stopIndices.put(stop.getId(), stopIndices.size());
+			writeString(out, stop.getId().toString());
+			Coord coord = stop.getCoord();
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			out.writeDouble(coord.hasZ() ? coord.getZ() : Double.NaN);
+			out.writeBoolean(stop.getIsBlockingLane());
+			writeString(out, stop.getLinkId() == null ? null : stop.getLinkId().toString());
+			writeString(out, stop.getName());
+			writeString(out, stop.getStopAreaId() == null ? null : stop.getStopAreaId().toString());
+			writeAttributes(out, stop.getAttributes());
+		}
+
+		MinimalTransferTimes.MinimalTransferTimesIterator iter = this.schedule.getMinimalTransferTimes().iterator();
+		while (iter.hasNext()) {
+			iter.next();
+			out.writeBoolean(true);
+			writeString(out, iter.getFromStopId().toString());
+			writeString(out, iter.getToStopId().toString());
+			out.writeDouble(iter.getSeconds());
+		}
+		out.writeBoolean(false);
+
+		out.writeInt(this.schedule.getTransitLines().size());
+		for (TransitLine line : this.schedule.getTransitLines().values()) {
+			writeString(out, line.getId().toString());
+			writeString(out, line.getName());
+			writeAttributes(out, line.getAttributes());
+			out.writeInt(line.getRoutes().size());
+			for (TransitRoute route : line.getRoutes().values()) {
+				writeTransitRoute(out, route, stopIndices);
+			}
+		}
+		log.info("transit schedule snapshot with " + stopIndices.size() + " stops and "
+				+ this.schedule.getTransitLines().size() + " lines written.");
+	}
+
+	private void writeTransitRoute(DataOutputStream out, TransitRoute route, Map<Id<TransitStopFacility>, Integer> stopIndices) throws IOException {
+		writeString(out, route.getId().toString());
+		writeString(out, route.getTransportMode());
+		writeString(out, route.getDescription());
+		writeAttributes(out, route.getAttributes());
+
+		List<TransitRouteStop> stops = route.getStops();
+		out.writeInt(stops.size());
+		for (TransitRouteStop stop : stops) {
+			out.writeInt(stopIndices.get(stop.getStopFacility().getId()));
+			out.writeDouble(stop.getArrivalOffset().orElse(Double.NaN));
+			out.writeDouble(stop.getDepartureOffset().orElse(Double.NaN));
+			out.writeBoolean(stop.isAwaitDepartureTime());
+		}
+
+		NetworkRoute networkRoute = route.getRoute();
+		if (networkRoute == null) {
+			out.writeInt(-1);
+		} else {
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			out.writeInt(linkIds.size() + 2);
+			writeString(out, networkRoute.getStartLinkId().toString());
+			for (Id<Link> linkId : linkIds) {
+				writeString(out, linkId.toString());
+			}
+			writeString(out, networkRoute.getEndLinkId().toString());
+		}
+
+		out.writeInt(route.getDepartures().size());
+		for (Departure departure : route.getDepartures().values()) {
+			writeString(out, departure.getId().toString());
+			out.writeDouble(departure.getDepartureTime());
+			writeString(out, departure.getVehicleId() == null ? null : departure.getVehicleId().toString());
+			writeAttributes(out, departure.getAttributes());
+		}
+	}
+
+	private void writeAttributes(DataOutputStream out, Attributes attributes) throws IOException {
+		int count = 0;
+		String[] values = new String[attributes.size()];
+		int i = 0;
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			values[i] = this.converter.convertToString(entry.getValue());
+			if (values[i] != null) {
+				count++;
+			}
+			i++;
+		}
+		out.writeInt(count);
+		i = 0;
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			if (values[i] != null) {
+				writeString(out, entry.getKey());
+				writeString(out, entry.getValue().getClass().getName());
+				writeString(out, values[i]);
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Writes the index of an already known string, or the next free index followed by the string itself if it is
+	 * written for the first time. <code>null</code> is written as -1.
+	 */
+	private void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		Integer index = this.strings.get(s);
+		if (index != null) {
+			out.writeInt(index);
+			return;
+		}
+		index = this.strings.size();
+		this.strings.put(s, index);
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(index);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
@@ -225,6 +225,7 @@ public class Events2Snapshot {
 				case otfvis:
 					// this was not filled in when I found it, but I think it should.  kai, feb'20
 				case positionevents:
+				case vehiclepositions:
 				default:
 					throw new IllegalStateException( "Unexpected value: " + snapshotFormat );
 			}
@@ -25,6 +25,7 @@ package org.matsim.vis.snapshotwriters;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.replanning.ReplanningContext;
 
@@ -48,9 +49,45 @@ public class SnapshotWritersModule extends AbstractModule {
 		}
 		if (getConfig().controler().getWriteSnapshotsInterval() != 0) {
 			addMobsimListenerBinding().toProvider(SnapshotWriterManagerProvider.class);
+			if (getConfig().controler().getSnapshotFormat().contains( SnapshotFormat.vehiclepositions )) {
+				addMobsimListenerBinding().toProvider(VehiclePositionExporterProvider.class);
+			}
+		}
+	}
+
+	private static class VehiclePositionExporterProvider implements Provider<MobsimListener> {
+
+		private final Config config;
+		private final ControlerConfigGroup controlerConfigGroup;
+		private final ReplanningContext iterationContext;
+		private final OutputDirectoryHierarchy controlerIO;
+
+		@Inject
+		private VehiclePositionExporterProvider(Config config, ControlerConfigGroup controlerConfigGroup,
+												ReplanningContext iterationContext, OutputDirectoryHierarchy controlerIO) {
+			this.config = config;
+			this.controlerConfigGroup = controlerConfigGroup;
+			this.iterationContext = iterationContext;
+			this.controlerIO = controlerIO;
+		}
+
+		@Override
+		public MobsimListener get() {
+			int iteration = iterationContext.getIteration();
+			if (iteration % controlerConfigGroup.getWriteSnapshotsInterval() == 0) {
+				VehiclePositionExporter exporter = new VehiclePositionExporter(config);
+				exporter.addVehiclePositionWriter(new VehiclePositionsFileWriter(
+						controlerIO.getIterationFilename(iteration, "vehiclePositions.txt.gz")));
+				return exporter;
+			} else {
+				return new NoopMobsimListener();
+			}
 		}
 	}
 
+	private static class NoopMobsimListener implements MobsimListener {
+	}
+
 	private static class SnapshotWriterManagerProvider implements Provider<MobsimListener> {
 
 		private final Config config;
@@ -80,7 +117,4 @@ public class SnapshotWritersModule extends AbstractModule {
 				return new NoopMobsimListener();
 			}
 		}
-
-		private static class NoopMobsimListener implements MobsimListener {
-		}
 	}}
@@ -0,0 +1,196 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehiclePositionBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+
+/**
+ * A ring buffer for vehicle positions that lives outside of the java heap. One thread (usually the mobsim) writes
+ * snapshots into the buffer, another thread reads them and hands them over to a {@link VehiclePositionWriter}.
+ * <p>
+ * Each vehicle position is stored as a fixed-size record containing the index of the vehicle id, the index of the link
+ * id, the relative position on the link (0 at the from-node, 1 at the to-node), the agent state and the speed value
+ * used for coloring. Writing a position does not create any objects. If the buffer is full, the writing thread waits
+ * until the reader has caught up.
+ * <p>
+ * The buffer supports exactly one writing and one reading thread.
+ */
+public final class VehiclePositionBuffer {
+
+	private static final int RECORD_SIZE = 24;
+	private static final int VEHICLE_OFFSET = 0;
+	private static final int LINK_OFFSET = 4;
+	private static final int VALUE_OFFSET = 8;
+	private static final int COLOR_OFFSET = 16;
+	private static final int STATE_OFFSET = 20;
+
+	// record types, stored instead of a vehicle index
+	private static final int BEGIN_SNAPSHOT = -1;
+	private static final int END_SNAPSHOT = -2;
+	private static final int END_OF_STREAM = -3;
+
+	private static final long WAIT_NANOS = 50_000;
+
+	private static final AgentState[] AGENT_STATES = AgentState.values();
+
+	private final ByteBuffer records;
+	private final int capacity;
+	private final int mask;
+
+	// number of records that may be read
+	private final AtomicLong published = new AtomicLong();
+	// number of records that have been read
+	private final AtomicLong consumed = new AtomicLong();
+	private volatile boolean aborted = false;
+
+	// only accessed by the writing thread
+	private long writeSequence = 0;
+	private long consumedCache = 0;
+
+	/**
+	 * @param capacity the number of vehicle positions the buffer can hold; is rounded up to the next power of two
+	 */
+	public VehiclePositionBuffer(int capacity) {
+		if (capacity < 2 || capacity > (1 << 26)) {
+			throw new IllegalArgumentException("capacity must be between 2 and 2^26, but is " + capacity);
+		}
+		this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = this.capacity - 1;
+		this.records = ByteBuffer.allocateDirect(this.capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void beginSnapshot(double time) {
+		int offset = claimRecord();
+		records.putInt(offset + VEHICLE_OFFSET, BEGIN_SNAPSHOT);
+		records.putDouble(offset + VALUE_OFFSET, time);
+		writeSequence++;
+	}
+
+	/**
+	 * @param relativePosition the distance from the from-node divided by the length of the link
+	 */
+	public void addVehicle(int vehicleIndex, int linkIndex, double relativePosition, AgentState state,
+			double colorValueBetweenZeroAndOne) {
+		int offset = claimRecord();
+		records.putInt(offset + VEHICLE_OFFSET, vehicleIndex);
+		records.putInt(offset + LINK_OFFSET, linkIndex);
+		records.putDouble(offset + VALUE_OFFSET, relativePosition);
+		records.putFloat(offset + COLOR_OFFSET, (float) colorValueBetweenZeroAndOne);
+		records.putInt(offset + STATE_OFFSET, state.ordinal());
+		writeSequence++;
+	}
+
+	/**
+	 * Ends the current snapshot and makes it visible to the reader.
+	 */
+	public void endSnapshot() {
+		int offset = claimRecord();
+		records.putInt(offset + VEHICLE_OFFSET, END_SNAPSHOT);
+		writeSequence++;
+		published.lazySet(writeSequence);
+	}
+
+	/**
+	 * Tells the reader that no more snapshots will follow. The reader returns as soon as it has read everything that
+	 * was written before.
+	 */
+	public void close() {
+		int offset = claimRecord();
+		records.putInt(offset + VEHICLE_OFFSET, END_OF_STREAM);
+		writeSequence++;
+		published.lazySet(writeSequence);
+	}
+
+	/**
+	 * Makes both threads stop waiting for each other, e.g. because the reader has failed. As soon as an aborted buffer
+	 * is full, writing into it throws an exception.
+	 */
+	public void abort() {
+		aborted = true;
+	}
+
+	/**
+	 * Reads snapshots and passes them to the writer until the buffer is closed or aborted. Must be called by the
+	 * reading thread only. Does not call {@link VehiclePositionWriter#finish()}.
+	 */
+	public void readAll(VehiclePositionWriter writer) {
+		long readSequence = consumed.get();
+		while (true) {
+			long available = published.get();
+			if (readSequence == available) {
+				if (aborted) {
+					return;
+				}
+				LockSupport.parkNanos(WAIT_NANOS);
+				continue;
+			}
+			for (; readSequence < available; readSequence++) {
+				int offset = (int) (readSequence & mask) * RECORD_SIZE;
+				int vehicleIndex = records.getInt(offset + VEHICLE_OFFSET);
+				switch (vehicleIndex) {
+					case BEGIN_SNAPSHOT:
+						writer.beginSnapshot(records.getDouble(offset + VALUE_OFFSET));
+						break;
+					case END_SNAPSHOT:
+						writer.endSnapshot();
+						break;
+					case END_OF_STREAM:
+						consumed.lazySet(readSequence + 1);
+						return;
+					default:
+						writer.addVehicle(vehicleIndex, records.getInt(offset + LINK_OFFSET),
+								records.getDouble(offset + VALUE_OFFSET),
+								AGENT_STATES[records.getInt(offset + STATE_OFFSET)],
+								records.getFloat(offset + COLOR_OFFSET));
+				}
+			}
+			consumed.lazySet(readSequence);
+		}
+	}
+
+	/**
+	 * @return the byte offset of the next record, after waiting for the reader if the buffer is full
+	 */
+	private int claimRecord() {
+		if (writeSequence - consumedCache >= capacity) {
+			// let the reader see what has been written so far, otherwise it cannot make room
+			published.lazySet(writeSequence);
+			consumedCache = consumed.get();
+			while (writeSequence - consumedCache >= capacity) {
+				if (aborted) {
+					throw new IllegalStateException("The vehicle position buffer has been aborted.");
+				}
+				LockSupport.parkNanos(WAIT_NANOS);
+				consumedCache = consumed.get();
+			}
+		}
+		return (int) (writeSequence & mask) * RECORD_SIZE;
+	}
+}
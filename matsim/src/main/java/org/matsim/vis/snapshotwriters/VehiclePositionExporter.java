@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehiclePositionExporter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.mobsim.qsim.interfaces.Netsim;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+
+/**
+ * Exports the positions of the vehicles on the network every snapshot period, without creating
+ * {@link AgentSnapshotInfo} objects. The links write the positions directly into a {@link VehiclePositionBuffer}
+ * (see {@link VisData#addVehiclePositions(VehiclePositionBuffer, double)}), and a separate thread passes them on to the
+ * {@link VehiclePositionWriter}s. The mobsim thread thus only waits for the writers if they fall behind by more than
+ * the capacity of the buffer.
+ * <p>
+ * Agents at activities and teleported agents are not exported.
+ */
+public final class VehiclePositionExporter implements MobsimInitializedListener, MobsimAfterSimStepListener,
+		MobsimBeforeCleanupListener {
+
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	private final List<VehiclePositionWriter> writers = new ArrayList<>();
+	private final VehiclePositionBuffer buffer;
+	private final int snapshotPeriod;
+
+	/** time of the next snapshot */
+	private double snapshotTime = 0.0;
+
+	private Thread readerThread;
+	private volatile Throwable readerFailure;
+
+	public VehiclePositionExporter(Config config) {
+		this(config, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of vehicle positions the buffer between the mobsim and the writers can hold
+	 */
+	public VehiclePositionExporter(Config config, int capacity) {
+		this.snapshotPeriod = (int) config.qsim().getSnapshotPeriod();
+		this.buffer = new VehiclePositionBuffer(capacity);
+	}
+
+	public void addVehiclePositionWriter(VehiclePositionWriter writer) {
+		this.writers.add(writer);
+	}
+
+	@Override
+	public void notifyMobsimInitialized(MobsimInitializedEvent e) {
+		Netsim mobsim = (Netsim) e.getQueueSimulation();
+		this.snapshotTime = Math.floor(mobsim.getSimTimer().getSimStartTime() / this.snapshotPeriod) * this.snapshotPeriod;
+		if (this.snapshotTime < mobsim.getSimTimer().getSimStartTime()) {
+			this.snapshotTime += this.snapshotPeriod;
+		}
+
+		this.readerThread = new Thread(this::read, "VehiclePositionExporter");
+		this.readerThread.setDaemon(true);
+		this.readerThread.start();
+	}
+
+	@Override
+	public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+		double time = e.getSimulationTime();
+		if (time >= this.snapshotTime) {
+			this.snapshotTime += this.snapshotPeriod;
+			try {
+				export(time, (VisMobsim) e.getQueueSimulation());
+			} catch (IllegalStateException ex) {
+				checkReaderFailure();
+				throw ex;
+			}
+		}
+	}
+
+	private void export(double time, VisMobsim visMobsim) {
+		buffer.beginSnapshot(time);
+		for (VisLink link : visMobsim.getVisNetwork().getVisLinks().values()) {
+			link.getVisData().addVehiclePositions(buffer, time);
+		}
+		buffer.endSnapshot();
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
+		try {
+			buffer.close();
+		} catch (IllegalStateException ex) {
+			// the reader has failed, which is reported below
+		}
+		try {
+			readerThread.join();
+		} catch (InterruptedException ex) {
+			throw new RuntimeException(ex);
+		}
+		checkReaderFailure();
+	}
+
+	private void checkReaderFailure() {
+		if (readerFailure != null) {
+			throw new RuntimeException("Writing the vehicle positions failed.", readerFailure);
+		}
+	}
+
+	private void read() {
+		try {
+			buffer.readAll(new VehiclePositionWriter() {
+				@Override
+				public void beginSnapshot(double time) {
+					for (VehiclePositionWriter writer : writers) {
+						writer.beginSnapshot(time);
+					}
+				}
+
+				@Override
+				public void addVehicle(int vehicleIndex, int linkIndex, double relativePosition, AgentState state,
+						double colorValueBetweenZeroAndOne) {
+					for (VehiclePositionWriter writer : writers) {
+						writer.addVehicle(vehicleIndex, linkIndex, relativePosition, state, colorValueBetweenZeroAndOne);
+					}
+				}
+
+				@Override
+				public void endSnapshot() {
+					for (VehiclePositionWriter writer : writers) {
+						writer.endSnapshot();
+					}
+				}
+
+				@Override
+				public void finish() {
+				}
+			});
+			for (VehiclePositionWriter writer : writers) {
+				writer.finish();
+			}
+		} catch (Throwable t) {
+			readerFailure = t;
+			buffer.abort();
+		}
+	}
+}
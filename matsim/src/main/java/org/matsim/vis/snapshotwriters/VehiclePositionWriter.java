@@ -0,0 +1,57 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehiclePositionWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+
+/**
+ * Receives the vehicle positions exported by a {@link VehiclePositionExporter}. In contrast to {@link SnapshotWriter},
+ * vehicles and links are identified by the indices of their ids (see {@link org.matsim.api.core.v01.Id#index()}),
+ * and the position is given relative to the link.
+ * <p>
+ * All methods are called by the reader thread of the exporter, not by the mobsim thread.
+ */
+public interface VehiclePositionWriter {
+
+	/**
+	 * Tells the writer that a new snapshot begins at the specified time.
+	 */
+	public void beginSnapshot(double time);
+
+	/**
+	 * Adds a vehicle to the current snapshot.
+	 *
+	 * @param relativePosition the distance from the from-node divided by the length of the link
+	 */
+	public void addVehicle(int vehicleIndex, int linkIndex, double relativePosition, AgentState state,
+			double colorValueBetweenZeroAndOne);
+
+	/**
+	 * Tells the writer that no more vehicles will be added to the current snapshot.
+	 */
+	public void endSnapshot();
+
+	/**
+	 * Tells the writer that no more snapshots will be added.
+	 */
+	public void finish();
+
+}
@@ -0,0 +1,90 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehiclePositionsFileWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+
+/**
+ * Writes the exported vehicle positions into a tab-separated file with one line per vehicle and snapshot, containing
+ * the time, the vehicle id, the link id, the position relative to the link, the agent state and the color value.
+ */
+public final class VehiclePositionsFileWriter implements VehiclePositionWriter {
+
+	private final BufferedWriter out;
+	private String currentTime = null;
+
+	public VehiclePositionsFileWriter(String filename) {
+		this.out = IOUtils.getBufferedWriter(filename);
+		try {
+			this.out.write("TIME\tVEHICLE\tLINK\tPOSITION\tSTATE\tCOLOR\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void beginSnapshot(double time) {
+		this.currentTime = Integer.toString((int) time);
+	}
+
+	@Override
+	public void addVehicle(int vehicleIndex, int linkIndex, double relativePosition, AgentState state,
+			double colorValueBetweenZeroAndOne) {
+		try {
+			out.write(currentTime);
+			out.write('\t');
+			out.write(Id.get(vehicleIndex, Vehicle.class).toString());
+			out.write('\t');
+			out.write(Id.get(linkIndex, Link.class).toString());
+			out.write('\t');
+			out.write(Double.toString(relativePosition));
+			out.write('\t');
+			out.write(state.name());
+			out.write('\t');
+			out.write(Double.toString(colorValueBetweenZeroAndOne));
+			out.write('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void endSnapshot() {
+		this.currentTime = null;
+	}
+
+	@Override
+	public void finish() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -29,4 +29,11 @@ public interface VisData {
 
 	public Collection<AgentSnapshotInfo> addAgentSnapshotInfo(final Collection<AgentSnapshotInfo> positions);
 
+	/**
+	 * Writes the positions of the vehicles into the buffer, without creating {@link AgentSnapshotInfo} objects (see
+	 * {@link VehiclePositionExporter}). Does nothing by default.
+	 */
+	public default void addVehiclePositions(final VehiclePositionBuffer positions, final double now) {
+	}
+
 }
\ No newline at end of file
@@ -19,7 +19,11 @@
 
 package org.matsim.analysis;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import org.junit.Assert;
 import org.junit.Rule;
@@ -39,6 +43,8 @@ import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.arrow.ArrowStreamTestReader;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.vehicles.Vehicle;
 
@@ -282,4 +288,66 @@ public class CalcLinkStatsTest {
 		Assert.assertEquals(2.5, cls2.getAvgLinkVolumes(link1.getId())[1], 1e-8);
 		Assert.assertEquals(3.0, cls2.getAvgLinkVolumes(link2.getId())[1], 1e-8);
 	}
+
+	@Test
+	public void testWriteArrowFile() throws IOException {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = s.getNetwork();
+		NetworkFactory nf = network.getFactory();
+
+		Node node1 = nf.createNode(Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+		Node node2 = nf.createNode(Id.create("2", Node.class), new Coord((double) 1000, (double) 0));
+		Node node3 = nf.createNode(Id.create("3", Node.class), new Coord((double) 2000, (double) 0));
+		network.addNode(node1);
+		network.addNode(node2);
+		network.addNode(node3);
+		Link link1 = nf.createLink(Id.create("101", Link.class), node1, node2);
+		Link link2 = nf.createLink(Id.create("102", Link.class), node2, node3);
+		network.addLink(link1);
+		network.addLink(link2);
+
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(3600, 86400, network);
+		TravelTime ttimes = new FreeSpeedTravelTime();
+		CalcLinkStats cls = new CalcLinkStats(network);
+
+		Id<Vehicle> vehId = Id.create("1001", Vehicle.class);
+		analyzer.handleEvent(new LinkLeaveEvent(1000, vehId, link1.getId()));
+		analyzer.handleEvent(new LinkLeaveEvent(1010, vehId, link1.getId()));
+		analyzer.handleEvent(new LinkLeaveEvent(4010, vehId, link2.getId()));
+		cls.addData(analyzer, ttimes);
+		analyzer.reset(1);
+		analyzer.handleEvent(new LinkLeaveEvent(1000, vehId, link1.getId()));
+		analyzer.handleEvent(new LinkLeaveEvent(50000, vehId, link2.getId()));
+		cls.addData(analyzer, ttimes);
+
+		String filename = this.util.getOutputDirectory() + "linkstats.txt";
+		String arrowFilename = this.util.getOutputDirectory() + "linkstats.arrows";
+		cls.writeFile(filename);
+		cls.writeArrowFile(arrowFilename);
+
+		ArrowStreamTestReader arrow = new ArrowStreamTestReader(Files.readAllBytes(Paths.get(arrowFilename)));
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			String[] header = reader.readLine().split("\t");
+			Assert.assertEquals("all columns except ORIG_ID", header.length - 1, arrow.columns.size());
+			String line;
+			int row = 0;
+			while ((line = reader.readLine()) != null) {
+				String[] values = line.split("\t", -1);
+				for (int i = 0; i < header.length; i++) {
+					if (header[i].equals("ORIG_ID")) {
+						continue;
+					}
+					Object value = arrow.columns.get(header[i]).get(row);
+					if (value instanceof String) {
+						Assert.assertEquals(header[i], values[i], value);
+					} else {
+						Assert.assertEquals(header[i], Double.parseDouble(values[i]), (Double) value, 0.0);
+					}
+				}
+				row++;
+			}
+			Assert.assertEquals(2, row);
+			Assert.assertEquals(row, arrow.columns.get("LINK").size());
+		}
+	}
 }
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TripsAndLegsWritersTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.EventsToLegs;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.arrow.ArrowStreamTestReader;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.routes.DefaultTransitPassengerRoute;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class TripsAndLegsWritersTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCsvAndArrowContainTheSameRows() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(2000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node2, 1000, 10, 1800, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), node2, node3, 1000, 10, 1800, 1);
+
+		IdMap<Person, Plan> experiencedPlans = new IdMap<>(Person.class);
+		experiencedPlans.put(Id.createPersonId("walker"), createPtPlan(link1, link2));
+		experiencedPlans.put(Id.createPersonId("driver"), createCarPlan(link1, link2));
+
+		String csvTrips = utils.getOutputDirectory() + "trips.csv";
+		String csvLegs = utils.getOutputDirectory() + "legs.csv";
+		String arrowTrips = utils.getOutputDirectory() + "trips.arrows";
+		String arrowLegs = utils.getOutputDirectory() + "legs.arrows";
+		new TripsAndLegsCSVWriter(scenario, new TripsAndLegsCSVWriter.NoTripWriterExtension(),
+				new TripsAndLegsCSVWriter.NoLegsWriterExtension()).write(experiencedPlans, csvTrips, csvLegs);
+		new TripsAndLegsArrowWriter(scenario, new TripsAndLegsCSVWriter.NoTripWriterExtension(),
+				new TripsAndLegsCSVWriter.NoLegsWriterExtension()).write(experiencedPlans, arrowTrips, arrowLegs);
+
+		List<Map<String, String>> trips = assertSameRows(csvTrips, arrowTrips);
+		Assert.assertEquals(3, trips.size());
+		Assert.assertEquals("walker_1", trips.get(0).get("trip_id"));
+		Assert.assertEquals("walk-pt-walk", trips.get(0).get("modes"));
+		Assert.assertEquals(TransportMode.pt, trips.get(0).get("longest_distance_mode"));
+		Assert.assertEquals("00:02:00", trips.get(0).get("wait_time"));
+		Assert.assertEquals("1700", trips.get(0).get("traveled_distance"));
+		Assert.assertEquals("2000", trips.get(0).get("euclidean_distance"));
+		Assert.assertEquals("A", trips.get(0).get("first_pt_boarding_stop"));
+		Assert.assertEquals("B", trips.get(0).get("last_pt_egress_stop"));
+		Assert.assertEquals("", trips.get(1).get("first_pt_boarding_stop"));
+
+		List<Map<String, String>> legs = assertSameRows(csvLegs, arrowLegs);
+		Assert.assertEquals(5, legs.size());
+		Assert.assertEquals("1000.0", legs.get(1).get("start_x"));
+		Assert.assertEquals("1", legs.get(1).get("transit_line"));
+		Assert.assertEquals("00:02:00", legs.get(1).get("wait_time"));
+		Assert.assertEquals("", legs.get(3).get("transit_line"));
+	}
+
+	private static Plan createPtPlan(Link link1, Link link2) {
+		Plan plan = PopulationUtils.createPlan();
+		Activity home = PopulationUtils.createActivityFromCoordAndLinkId("home", new Coord(0, 0), link1.getId());
+		home.setEndTime(8 * 3600);
+		plan.addActivity(home);
+		plan.addLeg(createLeg(TransportMode.walk, 8 * 3600, 60, link1, link1, 100));
+		plan.addActivity(PopulationUtils.createActivityFromLinkId("pt interaction", link1.getId()));
+
+		Leg ptLeg = PopulationUtils.createLeg(TransportMode.pt);
+		ptLeg.setDepartureTime(8 * 3600 + 60);
+		ptLeg.setTravelTime(600);
+		DefaultTransitPassengerRoute route = new DefaultTransitPassengerRoute(link1.getId(), link2.getId(),
+				Id.create("A", TransitStopFacility.class), Id.create("B", TransitStopFacility.class),
+				Id.create("1", TransitLine.class), Id.create("1a", TransitRoute.class));
+		route.setDistance(1500);
+		ptLeg.setRoute(route);
+		ptLeg.getAttributes().putAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME, 8 * 3600 + 180.);
+		plan.addLeg(ptLeg);
+
+		plan.addActivity(PopulationUtils.createActivityFromLinkId("pt interaction", link2.getId()));
+		plan.addLeg(createLeg(TransportMode.walk, 8 * 3600 + 660, 60, link2, link2, 100));
+		Activity work = PopulationUtils.createActivityFromLinkId("work", link2.getId());
+		work.setStartTime(8 * 3600 + 720);
+		work.setEndTime(17 * 3600);
+		plan.addActivity(work);
+
+		plan.addLeg(createLeg(TransportMode.walk, 17 * 3600, 1200, link2, link1, 2000));
+		Activity home2 = PopulationUtils.createActivityFromCoordAndLinkId("home", new Coord(0, 0), link1.getId());
+		home2.setStartTime(17 * 3600 + 1200);
+		plan.addActivity(home2);
+		return plan;
+	}
+
+	private static Plan createCarPlan(Link link1, Link link2) {
+		Plan plan = PopulationUtils.createPlan();
+		Activity home = PopulationUtils.createActivityFromLinkId("home", link1.getId());
+		home.setEndTime(7 * 3600);
+		plan.addActivity(home);
+		plan.addLeg(createLeg(TransportMode.car, 7 * 3600, 300, link1, link2, 1000));
+		Activity work = PopulationUtils.createActivityFromLinkId("work", link2.getId());
+		work.setStartTime(7 * 3600 + 300);
+		plan.addActivity(work);
+		return plan;
+	}
+
+	private static Leg createLeg(String mode, double departureTime, double travelTime, Link from, Link to,
+			double distance) {
+		Leg leg = PopulationUtils.createLeg(mode);
+		leg.setDepartureTime(departureTime);
+		leg.setTravelTime(travelTime);
+		leg.setRoute(RouteUtils.createGenericRouteImpl(from.getId(), to.getId()));
+		leg.getRoute().setDistance(distance);
+		return leg;
+	}
+
+	/**
+	 * @return the rows of the CSV file, after checking that the Arrow stream has the same values
+	 */
+	private static List<Map<String, String>> assertSameRows(String csvFile, String arrowFile) throws IOException {
+		ArrowStreamTestReader arrow = new ArrowStreamTestReader(Files.readAllBytes(Paths.get(arrowFile)));
+		List<Map<String, String>> rows = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(csvFile)) {
+			String separator = ConfigUtils.createConfig().global().getDefaultDelimiter();
+			List<String> header = Arrays.asList(reader.readLine().split(separator));
+			Assert.assertEquals(header, new ArrayList<>(arrow.columns.keySet()));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] values = line.split(separator, -1);
+				Map<String, String> row = new LinkedHashMap<>();
+				for (int i = 0; i < header.size(); i++) {
+					String column = header.get(i);
+					Object arrowValue = arrow.columns.get(column).get(rows.size());
+					assertSameValue(column, values[i], arrowValue);
+					row.put(column, values[i]);
+				}
+				rows.add(row);
+			}
+		}
+		Assert.assertEquals(rows.size(), arrow.columns.get("person").size());
+		return rows;
+	}
+
+	private static void assertSameValue(String column, String csvValue, Object arrowValue) {
+		if (arrowValue == null) {
+			// missing stops are empty and missing facility ids "null" in the CSV files
+			Assert.assertTrue(column + ": " + csvValue, csvValue.isEmpty() || csvValue.equals("null"));
+		} else if (arrowValue instanceof Double) {
+			double csvDouble = column.endsWith("_time") ? Time.parseTime(csvValue) : Double.parseDouble(csvValue);
+			Assert.assertEquals(column, csvDouble, (Double) arrowValue, 0.0);
+		} else {
+			Assert.assertEquals(column, csvValue, arrowValue.toString());
+		}
+	}
+}
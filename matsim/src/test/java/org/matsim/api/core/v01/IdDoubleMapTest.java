@@ -0,0 +1,29 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class IdDoubleMapTest {
+
+	@Test
+	public void testPutGetAddToRemove() {
+		IdDoubleMap<Link> map = new IdDoubleMap<>(Link.class, 10);
+		Id<Link> id1 = Id.create("1", Link.class);
+		Id<Link> id2 = Id.create("2", Link.class);
+
+		Assert.assertEquals(0.0, map.put(id1, 1.5), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(1.5, map.get(id1), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(0.0, map.get(id2), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(Double.NaN, map.getOrDefault(id2, Double.NaN), MatsimTestUtils.EPSILON);
+
+		Assert.assertEquals(4.0, map.addTo(id1, 2.5), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(-1.0, map.addTo(id2, -1.0), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(2, map.size());
+
+		Assert.assertEquals(4.0, map.remove(id1), MatsimTestUtils.EPSILON);
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertEquals(1, map.size());
+	}
+}
@@ -0,0 +1,102 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Person;
+
+public class IdIntMapTest {
+
+	@Test
+	public void testPutGetRemoveSize() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 10);
+
+		Id<Person> id1 = Id.create("1", Person.class);
+		Id<Person> id2 = Id.create("2", Person.class);
+		Id<Person> id3 = Id.create("3", Person.class);
+
+		Assert.assertEquals(0, map.size());
+		Assert.assertTrue(map.isEmpty());
+
+		Assert.assertEquals(0, map.put(id1, 5));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.isEmpty());
+		Assert.assertTrue(map.containsKey(id1));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertEquals(5, map.get(id1));
+		Assert.assertEquals(0, map.get(id2));
+		Assert.assertEquals(-1, map.getOrDefault(id2, -1));
+
+		Assert.assertEquals(5, map.put(id1, 7));
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals(7, map.get(id1));
+
+		Assert.assertEquals(0, map.put(id3, 0));
+		Assert.assertEquals(2, map.size());
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertEquals(0, map.getOrDefault(id3, -1));
+
+		Assert.assertEquals(0, map.remove(id2));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(7, map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertEquals(0, map.get(id1));
+
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertFalse(map.containsKey(id3));
+	}
+
+	@Test
+	public void testAddTo() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create("1", Person.class);
+
+		Assert.assertEquals(3, map.addTo(id1, 3));
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals(5, map.addTo(id1, 2));
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals(0, map.addTo(id1, -5));
+		Assert.assertTrue(map.containsKey(id1));
+	}
+
+	@Test
+	public void testGrowsBeyondInitialSize() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 2);
+		for (int i = 0; i < 500; i++) {
+			map.put(Id.create("grow" + i, Person.class), i);
+		}
+		Assert.assertEquals(500, map.size());
+		for (int i = 0; i < 500; i++) {
+			Assert.assertEquals(i, map.get(Id.create("grow" + i, Person.class)));
+		}
+	}
+
+	@Test
+	public void testForEachAndKeySet() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create("1", Person.class);
+		Id<Person> id2 = Id.create("2", Person.class);
+		Id<Person> id3 = Id.create("3", Person.class);
+		map.put(id3, 30);
+		map.put(id1, 10);
+
+		List<String> entries = new ArrayList<>();
+		map.forEach((id, value) -> entries.add(id + "=" + value));
+		// in the order of the id indices, not in the order of insertion
+		Assert.assertEquals(List.of(id1 + "=10", id3 + "=30"), entries);
+
+		IdSet<Person> keySet = map.keySet();
+		Assert.assertEquals(2, keySet.size());
+		Assert.assertTrue(keySet.contains(id1));
+		Assert.assertFalse(keySet.contains(id2));
+		Assert.assertTrue(keySet.contains(id3));
+
+		// the key set is a copy
+		map.remove(id1);
+		Assert.assertTrue(keySet.contains(id1));
+	}
+}
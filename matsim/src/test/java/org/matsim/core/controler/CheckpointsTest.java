@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup.CompressionType;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.eventsfilecomparison.EventsFileComparator;
+
+public class CheckpointsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testResumeContinuesTheSameWay() throws IOException {
+		Config config = createConfig("full");
+		config.controler().setWriteCheckpointInterval(2);
+		Controler controler = new Controler(config);
+		controler.run();
+		byte[] expected = toBytes(controler.getScenario().getPopulation());
+
+		String checkpoints = config.controler().getOutputDirectory() + "/" + Checkpoints.DIRECTORY + "/";
+		for (int iteration = 0; iteration <= 6; iteration += 2) {
+			Assert.assertTrue(new File(checkpoints + "checkpoint." + iteration + ".bin.gz").exists());
+		}
+		Assert.assertFalse(new File(checkpoints + "checkpoint.1.bin.gz").exists());
+		Assert.assertTrue("the checkpoint of iteration 2 should only contain the changes",
+				new File(checkpoints + "checkpoint.2.bin.gz").length() < new File(checkpoints + "checkpoint.0.bin.gz").length());
+
+		Config resumedConfig = createConfig("resumed");
+		resumedConfig.controler().setResumeFromCheckpoint(checkpoints + "checkpoint.4.bin.gz");
+		Controler resumed = new Controler(resumedConfig);
+		resumed.run();
+
+		Assert.assertFalse("iterations before the checkpoint must not run again",
+				new File(resumedConfig.controler().getOutputDirectory() + "/ITERS/it.4").exists());
+		Assert.assertTrue(new File(resumedConfig.controler().getOutputDirectory() + "/ITERS/it.5").exists());
+		Assert.assertArrayEquals(expected, toBytes(resumed.getScenario().getPopulation()));
+	}
+
+	@Test
+	public void testResumedIterationsAreTheSameAsUninterrupted() throws IOException {
+		Config config = createConfig("full");
+		config.controler().setWriteCheckpointInterval(2);
+		config.controler().setWriteEventsInterval(1);
+		config.controler().setWritePlansInterval(1);
+		new Controler(config).run();
+
+		Config resumedConfig = createConfig("resumed");
+		resumedConfig.controler().setWriteEventsInterval(1);
+		resumedConfig.controler().setWritePlansInterval(1);
+		resumedConfig.controler().setResumeFromCheckpoint(config.controler().getOutputDirectory() + "/" + Checkpoints.DIRECTORY + "/checkpoint.4.bin.gz");
+		new Controler(resumedConfig).run();
+
+		OutputDirectoryHierarchy full = new OutputDirectoryHierarchy(config.controler().getOutputDirectory(), null,
+				OverwriteFileSetting.overwriteExistingFiles, false, CompressionType.gzip);
+		OutputDirectoryHierarchy resumed = new OutputDirectoryHierarchy(resumedConfig.controler().getOutputDirectory(), null,
+				OverwriteFileSetting.overwriteExistingFiles, false, CompressionType.gzip);
+		for (int iteration = 5; iteration <= 6; iteration++) {
+			String events = resumed.getIterationFilename(iteration, Controler.DefaultFiles.events);
+			Assert.assertEquals("events of iteration " + iteration, EventsFileComparator.Result.FILES_ARE_EQUAL,
+					EventsFileComparator.compare(full.getIterationFilename(iteration, Controler.DefaultFiles.events), events));
+			Assert.assertEquals("plans of iteration " + iteration, readLines(full.getIterationFilename(iteration, Controler.DefaultFiles.population)),
+					readLines(resumed.getIterationFilename(iteration, Controler.DefaultFiles.population)));
+		}
+	}
+
+	@Test( expected = RuntimeException.class )
+	public void testResumeWithOtherRandomSeedFails() {
+		Config config = createConfig("full");
+		config.controler().setLastIteration(0);
+		config.controler().setWriteCheckpointInterval(1);
+		new Controler(config).run();
+
+		Config resumedConfig = createConfig("resumed");
+		resumedConfig.global().setRandomSeed(config.global().getRandomSeed() + 1);
+		resumedConfig.controler().setResumeFromCheckpoint(config.controler().getOutputDirectory() + "/" + Checkpoints.DIRECTORY + "/checkpoint.0.bin.gz");
+		new Controler(resumedConfig).run();
+	}
+
+	private static List<String> readLines(String filename) throws IOException {
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			return reader.lines().collect(Collectors.toList());
+		}
+	}
+
+	private Config createConfig(String run) {
+		Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(6);
+		config.controler().setOutputDirectory(utils.getOutputDirectory() + run);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setCompressionType(CompressionType.gzip);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setCreateGraphs(false);
+		// ReRoute is switched off after iteration 4, i.e. by a change request after the checkpoint
+		config.strategy().setFractionOfIterationsToDisableInnovation(0.7);
+		return config;
+	}
+
+	/**
+	 * @return the plans, scores and selected plans of the population
+	 */
+	private static byte[] toBytes(Population population) throws IOException {
+		PlanCheckpointCodec codec = new PlanCheckpointCodec(population.getFactory(), Collections.emptyMap());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (Person person : population.getPersons().values()) {
+			out.writeUTF(person.getId().toString());
+			out.writeInt(person.getPlans().indexOf(person.getSelectedPlan()));
+			for (Plan plan : person.getPlans()) {
+				codec.writePlan(plan, out);
+				out.writeDouble(plan.getScore() == null ? Double.NaN : plan.getScore());
+			}
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -25,6 +25,9 @@ import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.testcases.MatsimTestCase;
 
 import java.util.ArrayList;
@@ -94,6 +97,29 @@ public class ControlerEventsTest extends MatsimTestCase {
 		assertEquals(0, finishIt.get(0).getIteration());
 	}
 
+	public void testStaticSettingsAreRestoredAfterFailedRun() {
+		Config config = loadConfig(getClassInputDirectory() + "config.xml");
+		config.controler().setZstdCompressionLevel(IOUtils.DEFAULT_ZSTD_COMPRESSION_LEVEL + 3);
+		config.controler().setZstdWorkers(2);
+		config.global().setPerPersonRandomStreams(true);
+
+		TestController controler = new TestController(config);
+		controler.addControlerListener((IterationStartsListener) event -> {
+			assertEquals(IOUtils.DEFAULT_ZSTD_COMPRESSION_LEVEL + 3, IOUtils.getZstdCompressionLevel());
+			assertTrue(MatsimRandom.isUsingPersonStreams());
+			throw new IllegalStateException("failing on purpose");
+		});
+		try {
+			controler.run(config);
+			fail("expected the run to fail");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(IOUtils.DEFAULT_ZSTD_COMPRESSION_LEVEL, IOUtils.getZstdCompressionLevel());
+		assertEquals(0, IOUtils.getZstdWorkers());
+		assertFalse(MatsimRandom.isUsingPersonStreams());
+	}
+
 	private static class TestController extends AbstractController {
 
 		private final Config config;
@@ -121,7 +147,16 @@ public class ControlerEventsTest extends MatsimTestCase {
 		@Override
 		protected void prepareForMobsim() {
 		}
-		
+
+		@Override
+		protected int resumeFromCheckpoint() {
+			return config.controler().getFirstIteration();
+		}
+
+		@Override
+		protected void writeCheckpoint(int iteration) {
+		}
+
 		@Override
 		protected boolean continueIterations(int iteration) {
 			return iteration <= config.controler().getLastIteration();
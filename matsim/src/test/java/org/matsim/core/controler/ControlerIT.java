@@ -23,13 +23,19 @@ package org.matsim.core.controler;
 import static org.junit.Assert.*;
 import static org.matsim.core.config.groups.ControlerConfigGroup.CompressionType;
 import static org.matsim.core.config.groups.ControlerConfigGroup.SnapshotFormat;
+import static org.matsim.core.config.groups.ControlerConfigGroup.TabularFileFormat;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.junit.Assert;
@@ -67,6 +73,7 @@ import org.matsim.core.scoring.ScoringFunction;
 import org.matsim.core.scoring.ScoringFunctionFactory;
 import org.matsim.core.scoring.SumScoringFunction;
 import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.arrow.ArrowStreamTestReader;
 import org.matsim.examples.ExamplesUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
@@ -947,6 +954,59 @@ public class ControlerIT {
 		assertTrue(new File(controler.getControlerIO().getIterationFilename(2, "T.veh.gz")).exists());
 	}
 
+	@Test
+	public void testVehiclePositionsWriterOnQSim() {
+		final Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config_plans1.xml"));
+		config.controler().setLastIteration(1);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+		config.controler().setMobsim("qsim");
+		config.controler().setSnapshotFormat( Collections.singletonList( SnapshotFormat.vehiclepositions ) );
+		config.controler().setOutputDirectory( utils.getOutputDirectory() );
+		config.qsim().setSnapshotPeriod(600);
+
+		final Controler controler = new Controler(config);
+		controler.getConfig().controler().setCreateGraphs(false);
+		controler.getConfig().controler().setDumpDataAtEnd(false);
+		controler.run();
+
+		assertTrue(new File(controler.getControlerIO().getIterationFilename(0, "vehiclePositions.txt.gz")).exists());
+		assertTrue(new File(controler.getControlerIO().getIterationFilename(1, "vehiclePositions.txt.gz")).exists());
+	}
+
+	@Test
+	public void testTabularOutputAsArrow() throws IOException {
+		final Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(0);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+		config.controler().setTabularFileFormats(EnumSet.of(TabularFileFormat.csv, TabularFileFormat.arrow));
+		config.controler().setOutputDirectory( utils.getOutputDirectory() );
+		config.linkStats().setAverageLinkStatsOverIterations(1);
+
+		final Controler controler = new Controler(config);
+		controler.getConfig().controler().setCreateGraphs(false);
+		controler.run();
+
+		OutputDirectoryHierarchy io = controler.getControlerIO();
+		assertTrue(new File(io.getIterationFilename(0, Controler.DefaultFiles.linkstatsarrow, CompressionType.none)).exists());
+		assertTrue(new File(io.getOutputFilename(Controler.DefaultFiles.tripsarrow, CompressionType.none)).exists());
+		assertTrue(new File(io.getOutputFilename(Controler.DefaultFiles.legsarrow, CompressionType.none)).exists());
+
+		ArrowStreamTestReader trips = new ArrowStreamTestReader(Files.readAllBytes(
+				Paths.get(io.getIterationFilename(0, Controler.DefaultFiles.tripsarrow, CompressionType.none))));
+		List<String> csvPersons = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(io.getIterationFilename(0, Controler.DefaultFiles.tripscsv))) {
+			String separator = config.global().getDefaultDelimiter();
+			String line = reader.readLine();
+			while ((line = reader.readLine()) != null) {
+				csvPersons.add(line.split(separator)[0]);
+			}
+		}
+		assertFalse(csvPersons.isEmpty());
+		assertEquals(csvPersons, trips.columns.get("person"));
+	}
+
 	/**
 	 * This might sound (or be) silly, but we had this problem in zurich when using a mix of old code and Guice-based code:
 	 * old code wrapped into Guice modules eventually called Controler.setScoringFunctionFactory(),
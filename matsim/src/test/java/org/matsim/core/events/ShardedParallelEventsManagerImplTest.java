@@ -0,0 +1,253 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ShardedParallelEventsManagerImplTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.ShardedParallelEventsManagerImpl.Partitioning;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class ShardedParallelEventsManagerImplTest {
+
+	@Test
+	public void testAllEventsInOrder() {
+		ShardedParallelEventsManagerImpl events = new ShardedParallelEventsManagerImpl(3);
+		LinkEnterCounter linkEnterCounter = new LinkEnterCounter();
+		DepartureCollector departureCollector = new DepartureCollector();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(linkEnterCounter);
+		events.addHandler(departureCollector);
+		events.addHandler(collector);
+
+		List<Event> expected = new ArrayList<>();
+		events.initProcessing();
+		for (int time = 0; time < 100; time++) {
+			for (int i = 0; i < 50; i++) {
+				Event event = i % 2 == 0 ?
+						new LinkEnterEvent(time, Id.createVehicleId(i), Id.createLinkId(i)) :
+						new PersonDepartureEvent(time, Id.createPersonId(i), Id.createLinkId(i), "car");
+				expected.add(event);
+				events.processEvent(event);
+			}
+			events.afterSimStep(time);
+		}
+		events.finishProcessing();
+
+		Assert.assertEquals(expected, collector.getEvents());
+		Assert.assertEquals(2500, linkEnterCounter.count);
+		Assert.assertEquals(2500, departureCollector.persons.size());
+		Assert.assertEquals(Id.createPersonId(1), departureCollector.persons.get(0));
+		Assert.assertEquals(Id.createPersonId(49), departureCollector.persons.get(2499));
+
+		// after the mobsim, events are processed directly
+		events.processEvent(new LinkEnterEvent(100, Id.createVehicleId(0), Id.createLinkId(0)));
+		Assert.assertEquals(2501, linkEnterCounter.count);
+	}
+
+	@Test
+	public void testPartitionedHandler() {
+		ShardedParallelEventsManagerImpl events = new ShardedParallelEventsManagerImpl(2);
+		List<DepartureCollector> copies = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			copies.add(new DepartureCollector());
+		}
+		events.addPartitionedHandler(Partitioning.PERSON, copies);
+
+		events.initProcessing();
+		for (int i = 0; i < 300; i++) {
+			events.processEvent(new PersonDepartureEvent(i, Id.createPersonId(i % 30), Id.createLinkId(0), "car"));
+		}
+		events.finishProcessing();
+
+		int total = 0;
+		Set<Id<Person>> seen = new HashSet<>();
+		for (DepartureCollector copy : copies) {
+			total += copy.persons.size();
+			Set<Id<Person>> persons = new HashSet<>(copy.persons);
+			for (Id<Person> personId : persons) {
+				Assert.assertTrue("person " + personId + " handled by more than one copy", seen.add(personId));
+			}
+			Assert.assertFalse(copy.persons.isEmpty());
+		}
+		Assert.assertEquals(300, total);
+		Assert.assertEquals(30, seen.size());
+	}
+
+	@Test
+	public void testHandlerCreatesEvents() {
+		ShardedParallelEventsManagerImpl events = new ShardedParallelEventsManagerImpl(2);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), event.getLinkId(), "car"));
+			}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		events.initProcessing();
+		for (int i = 0; i < 5000; i++) {
+			events.processEvent(new LinkEnterEvent(i, Id.createVehicleId(0), Id.createLinkId(0)));
+		}
+		events.afterSimStep(5000);
+		events.finishProcessing();
+
+		Assert.assertEquals(10000, collector.getEvents().size());
+	}
+
+	@Test
+	public void testSeveralProducers() throws InterruptedException {
+		ShardedParallelEventsManagerImpl events = new ShardedParallelEventsManagerImpl(2);
+		OrderChecker checker = new OrderChecker();
+		events.addHandler(checker);
+		LinkEnterCounter counter = new LinkEnterCounter();
+		events.addHandler(counter);
+
+		// the slow handler makes the producers wait for the shard now and then
+		int producers = 4;
+		int eventsPerProducer = 200000;
+		events.initProcessing();
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < eventsPerProducer; i++) {
+					events.processEvent(new LinkEnterEvent(i, Id.createVehicleId(producer), Id.createLinkId(0)));
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		events.finishProcessing();
+
+		Assert.assertEquals(producers * eventsPerProducer, checker.count);
+		Assert.assertEquals(producers * eventsPerProducer, counter.count);
+		Assert.assertFalse("events of a producer were reordered", checker.outOfOrder);
+	}
+
+	@Test
+	public void testDirectEventsAfterBatchedEvents() {
+		ShardedParallelEventsManagerImpl events = new ShardedParallelEventsManagerImpl(2);
+		// every link enter event creates a chain of 10 events, which are still being created after the end of the mobsim
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				if (event.getTime() < 10) {
+					events.processEvent(new LinkEnterEvent(event.getTime() + 1, event.getVehicleId(), event.getLinkId()));
+				}
+			}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		events.initProcessing();
+		for (int i = 0; i < 1000; i++) {
+			events.processEvent(new LinkEnterEvent(0, Id.createVehicleId(i), Id.createLinkId(0)));
+		}
+		events.finishProcessing();
+		events.processEvent(new PersonStuckEvent(11, Id.createPersonId(0), Id.createLinkId(0), "car"));
+
+		List<Event> collected = collector.getEvents();
+		Assert.assertEquals(11001, collected.size());
+		Assert.assertTrue(collected.get(11000) instanceof PersonStuckEvent);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testSynchronizeOnSimStepsConflicts() {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setShardEvents(true);
+		config.parallelEventHandling().setNumberOfThreads(2);
+		EventsUtils.createEventsManager(config);
+	}
+
+	@Test
+	public void testCreatedFromConfig() {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setShardEvents(true);
+		config.parallelEventHandling().setSynchronizeOnSimSteps(false);
+		config.parallelEventHandling().setNumberOfThreads(2);
+		Assert.assertTrue(EventsUtils.createEventsManager(config) instanceof ShardedParallelEventsManagerImpl);
+	}
+
+	@Test
+	public void testHandles() {
+		Assert.assertTrue(ShardedParallelEventsManagerImpl.handles(new LinkEnterCounter(), LinkEnterEvent.class));
+		Assert.assertFalse(ShardedParallelEventsManagerImpl.handles(new LinkEnterCounter(), PersonDepartureEvent.class));
+		Assert.assertTrue(ShardedParallelEventsManagerImpl.handles(new EventsCollector(), PersonDepartureEvent.class));
+		Assert.assertFalse(ShardedParallelEventsManagerImpl.handles(new EventHandler() {}, PersonDepartureEvent.class));
+	}
+
+	private static class LinkEnterCounter implements LinkEnterEventHandler {
+		int count = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+		}
+	}
+
+	private static class OrderChecker implements LinkEnterEventHandler {
+		final double[] lastTimes = new double[4];
+		int count = 0;
+		boolean outOfOrder = false;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			int producer = Integer.parseInt(event.getVehicleId().toString());
+			if (event.getTime() < this.lastTimes[producer]) {
+				this.outOfOrder = true;
+			}
+			this.lastTimes[producer] = event.getTime();
+			this.count++;
+			for (int i = 0; i < 20; i++) {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	private static class DepartureCollector implements PersonDepartureEventHandler {
+		final List<Id<Person>> persons = new ArrayList<>();
+
+		@Override
+		public void handleEvent(PersonDepartureEvent event) {
+			this.persons.add(event.getPersonId());
+		}
+	}
+}
@@ -22,6 +22,8 @@ package org.matsim.core.gbl;
 
 import java.util.Random;
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.testcases.MatsimTestCase;
 
 /**
@@ -109,6 +111,51 @@ public class MatsimRandomTest extends MatsimTestCase {
 		assertTrue(Math.abs(value1 - value2b) > EPSILON);
 	}
 
+	/**
+	 * Tests that all generators draw from the stream of a person, independent of what was drawn before,
+	 * and that they continue with their own numbers once the stream is closed.
+	 */
+	public void testPersonStreams() {
+		MatsimRandom.setPersonStreams(true);
+		try {
+			MatsimRandom.reset(123L);
+			Random local = MatsimRandom.getLocalInstance();
+
+			MatsimRandom.openPersonStream(Id.create("1", Person.class), MatsimRandomTest.class);
+			double value1 = local.nextDouble();
+			double value2 = MatsimRandom.getRandom().nextDouble();
+			MatsimRandom.closePersonStream();
+
+			MatsimRandom.getRandom().nextDouble();
+			MatsimRandom.openPersonStream(Id.create("2", Person.class), MatsimRandomTest.class);
+			assertTrue(Math.abs(value1 - MatsimRandom.getRandom().nextDouble()) > EPSILON);
+			MatsimRandom.openPersonStream(Id.create("1", Person.class), MatsimRandomTest.class);
+			assertEquals(value1, MatsimRandom.getRandom().nextDouble(), EPSILON);
+			assertEquals(value2, local.nextDouble(), EPSILON);
+			MatsimRandom.closePersonStream();
+			MatsimRandom.closePersonStream();
+
+			MatsimRandom.reset(123L);
+			// the streams did not change the numbers of the local instance
+			assertEqualRandomNumberGenerators(local, MatsimRandom.getLocalInstance());
+		} finally {
+			MatsimRandom.setPersonStreams(false);
+		}
+	}
+
+	/**
+	 * Tests that opening a stream has no effect if per-person streams are off.
+	 */
+	public void testPersonStreams_off() {
+		MatsimRandom.reset(123L);
+		double value1 = MatsimRandom.getRandom().nextDouble();
+		MatsimRandom.reset(123L);
+		MatsimRandom.openPersonStream(Id.create("1", Person.class), MatsimRandomTest.class);
+		double value2 = MatsimRandom.getRandom().nextDouble();
+		MatsimRandom.closePersonStream();
+		assertEquals(value1, value2, EPSILON);
+	}
+
 	/** Test that two (Pseudo)Random Number Generators are equil by
 	 * drawing a series of random numbers and comparing those.
 	 *
@@ -172,8 +172,10 @@ public final class QLinkTest extends MatsimTestCase {
 		f.qlink1.getAcceptingQLane().addFromUpstream(veh);
 		assertTrue(f.qlink1.isNotOfferingVehicle());
 		assertEquals(1, ((QueueWithBuffer) f.qlink1.getAcceptingQLane()).getAllVehicles().size());
+		assertEquals(1, f.qlink1.getAcceptingQLane().getNumberOfVehicles());
 		assertEquals("vehicle not found on link.", veh, f.qlink1.getVehicle(id1));
 		assertEquals(1, f.qlink1.getAllVehicles().size());
+		assertEquals(1, f.qlink1.getNumberOfNonParkedVehicles());
 
 		now = 1. ;
 		f.sim.getSimTimer().setTime(now);
@@ -185,6 +187,7 @@ public final class QLinkTest extends MatsimTestCase {
 //		assertEquals("vehicle not found in buffer.", veh, f.qlink1.getVehicle(id1));
 		assertEquals(1, f.qlink1.getAllVehicles().size());
 		assertEquals(veh, f.qlink1.getAllVehicles().iterator().next());
+		assertEquals(1, f.qlink1.getNumberOfNonParkedVehicles());
 		
 		now = 2. ;
 		f.sim.getSimTimer().setTime(now);
@@ -198,6 +201,7 @@ public final class QLinkTest extends MatsimTestCase {
 //		assertEquals(0, ((QueueWithBuffer) f.qlink1.qlane).vehInQueueCount());
 		assertNull("vehicle should not be on link anymore.", f.qlink1.getVehicle(id1));
 		assertEquals(0, f.qlink1.getAllVehicles().size());
+		assertEquals(0, f.qlink1.getNumberOfNonParkedVehicles());
 	}
 
 	/**
@@ -229,6 +233,7 @@ public final class QLinkTest extends MatsimTestCase {
 		assertEquals("vehicle not found in parking list.", veh, f.qlink1.getVehicle(id1));
 		assertEquals(1, f.qlink1.getAllVehicles().size()); // vehicle indeed on _link_
 		assertEquals(veh, f.qlink1.getAllVehicles().iterator().next());
+		assertEquals(0, f.qlink1.getNumberOfNonParkedVehicles());
 
 		assertEquals("removed wrong vehicle.", veh, f.qlink1.removeParkedVehicle(veh.getId()));
 		assertTrue(f.qlink1.isNotOfferingVehicle());
@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MemoryMappedNetworkTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.io.File;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class MemoryMappedNetworkTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteOpen() {
+		Network network = NetworkUtils.createNetwork();
+		network.setName("triangle");
+		network.setCapacityPeriod(1800.0);
+		network.getAttributes().putAttribute("source", "handmade");
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0, 50));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(500, 800));
+		node2.getAttributes().putAttribute("signalized", true);
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 1800, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 950, 20, 3600, 2);
+		Link link3 = NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), node3, node1, 900, 5, 900, 1.5);
+		link2.setAllowedModes(CollectionUtils.stringToSet("car,pt"));
+		link3.setAllowedModes(CollectionUtils.stringToSet("pt,car"));
+		link1.getAttributes().putAttribute("toll", 1.5);
+		NetworkUtils.setType(link1, "primary");
+
+		String filename = this.utils.getOutputDirectory() + "network.snapshot";
+		new NetworkSnapshotWriter(network).write(filename);
+		MemoryMappedNetwork mapped = MemoryMappedNetwork.open(filename);
+
+		Assert.assertEquals("triangle", mapped.getName());
+		Assert.assertEquals(1800.0, mapped.getCapacityPeriod(), 0.0);
+		Assert.assertEquals(network.getEffectiveLaneWidth(), mapped.getEffectiveLaneWidth(), 0.0);
+		Assert.assertEquals("handmade", mapped.getAttributes().getAttribute("source"));
+		Assert.assertEquals(3, mapped.getNodes().size());
+		Assert.assertEquals(3, mapped.getLinks().size());
+
+		Node mNode2 = mapped.getNodes().get(node2.getId());
+		Assert.assertEquals(node2.getCoord(), mNode2.getCoord());
+		Assert.assertEquals(50.0, mNode2.getCoord().getZ(), 0.0);
+		Assert.assertFalse(mapped.getNodes().get(node1.getId()).getCoord().hasZ());
+		Assert.assertEquals(Boolean.TRUE, mNode2.getAttributes().getAttribute("signalized"));
+		Assert.assertEquals(1, mNode2.getInLinks().size());
+		Assert.assertEquals(1, mNode2.getOutLinks().size());
+		Assert.assertTrue(mNode2.getInLinks().containsKey(link1.getId()));
+		Assert.assertNull(mNode2.getInLinks().get(link2.getId()));
+		Assert.assertEquals(mNode2, mNode2.getOutLinks().get(link2.getId()).getFromNode());
+		Assert.assertEquals(mNode2.hashCode(), mNode2.getOutLinks().get(link2.getId()).getFromNode().hashCode());
+
+		for (Link link : network.getLinks().values()) {
+			Link mLink = mapped.getLinks().get(link.getId());
+			Assert.assertEquals(link.getId(), mLink.getId());
+			Assert.assertEquals(link.getFromNode().getId(), mLink.getFromNode().getId());
+			Assert.assertEquals(link.getToNode().getId(), mLink.getToNode().getId());
+			Assert.assertEquals(link.getLength(), mLink.getLength(), 0.0);
+			Assert.assertEquals(link.getFreespeed(), mLink.getFreespeed(), 0.0);
+			Assert.assertEquals(link.getCapacity(), mLink.getCapacity(), 0.0);
+			Assert.assertEquals(link.getFlowCapacityPerSec(), mLink.getFlowCapacityPerSec(), 0.0);
+			Assert.assertEquals(link.getNumberOfLanes(), mLink.getNumberOfLanes(), 0.0);
+			Assert.assertEquals(link.getAllowedModes(), mLink.getAllowedModes());
+			Assert.assertEquals(link.getCoord(), mLink.getCoord());
+		}
+		Link mLink1 = mapped.getLinks().get(link1.getId());
+		Assert.assertEquals(1.5, (Double) mLink1.getAttributes().getAttribute("toll"), 0.0);
+		Assert.assertEquals("primary", NetworkUtils.getType(mLink1));
+
+		// links with the same modes share the same set, links are flyweights which are equal, but not the same
+		Set<String> modes2 = mapped.getLinks().get(link2.getId()).getAllowedModes();
+		Assert.assertSame(modes2, mapped.getLinks().get(link3.getId()).getAllowedModes());
+		Assert.assertTrue(modes2.contains(TransportMode.pt));
+		Assert.assertEquals(mLink1, mapped.getLinks().get(link1.getId()));
+		Assert.assertEquals(mLink1, mapped.getNodes().get(node1.getId()).getOutLinks().get(link1.getId()));
+		Assert.assertNotEquals(mLink1, mapped.getLinks().get(link2.getId()));
+
+		Assert.assertNull(mapped.getLinks().get(Id.create("unknown", Link.class)));
+		Assert.assertFalse(mapped.getLinks().containsKey(Id.create("1", Node.class)));
+		Assert.assertEquals(3, mapped.getLinks().keySet().size());
+	}
+
+	@Test
+	public void testWriteTwice() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Link link = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 1800, 1);
+		link.getAttributes().putAttribute("toll", 1.5);
+
+		NetworkSnapshotWriter writer = new NetworkSnapshotWriter(network);
+		writer.write(this.utils.getOutputDirectory() + "first.snapshot");
+		String filename = this.utils.getOutputDirectory() + "second.snapshot";
+		writer.write(filename);
+
+		Assert.assertEquals(new File(this.utils.getOutputDirectory() + "first.snapshot").length(), new File(filename).length());
+		Link mLink = MemoryMappedNetwork.open(filename).getLinks().get(link.getId());
+		Assert.assertEquals(node2.getId(), mLink.getToNode().getId());
+		Assert.assertEquals(1.5, (Double) mLink.getAttributes().getAttribute("toll"), 0.0);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 1800, 1);
+
+		String filename = this.utils.getOutputDirectory() + "network.snapshot";
+		new NetworkSnapshotWriter(network).write(filename);
+		MemoryMappedNetwork.open(filename).getLinks().get(Id.create("1", Link.class)).setFreespeed(20.0);
+	}
+}
@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkChangeScheduleTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.NetworkConfigGroup;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+
+public class NetworkChangeScheduleTest {
+
+	@Test
+	public void testChangeTimesAndBatches() {
+		Fixture f = new Fixture();
+
+		NetworkChangeEvent e1 = new NetworkChangeEvent(7 * 3600.0);
+		e1.addLink(f.link1);
+		e1.addLink(f.link2);
+		e1.setFreespeedChange(new ChangeValue(ChangeType.FACTOR, 0.5));
+		NetworkUtils.addNetworkChangeEvent(f.network, e1);
+
+		NetworkChangeEvent e2 = new NetworkChangeEvent(7 * 3600.0);
+		e2.addLink(f.link3);
+		e2.setFlowCapacityChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 0.25));
+		NetworkUtils.addNetworkChangeEvent(f.network, e2);
+
+		NetworkChangeEvent e3 = new NetworkChangeEvent(6 * 3600.0);
+		e3.addLink(f.link2);
+		e3.setLanesChange(new ChangeValue(ChangeType.OFFSET_IN_SI_UNITS, 1.0));
+		NetworkUtils.addNetworkChangeEvent(f.network, e3);
+
+		NetworkChangeSchedule schedule = NetworkChangeSchedule.create(f.network);
+
+		Assert.assertEquals(2, schedule.getNumberOfChangeTimes());
+		Assert.assertEquals(6 * 3600.0, schedule.getChangeTime(0), 0.0);
+		Assert.assertEquals(7 * 3600.0, schedule.getChangeTime(1), 0.0);
+		Assert.assertEquals(1, schedule.getChangedLinks(0).size());
+		Assert.assertTrue(schedule.getChangedLinks(0).contains(f.link2));
+		Assert.assertEquals(3, schedule.getChangedLinks(1).size());
+		Assert.assertTrue(schedule.getChangedLinks(1).contains(f.link1));
+		Assert.assertTrue(schedule.getChangedLinks(1).contains(f.link2));
+		Assert.assertTrue(schedule.getChangedLinks(1).contains(f.link3));
+
+		Assert.assertTrue(schedule.hasChanges(f.link1.getId()));
+		Assert.assertFalse(schedule.hasChanges(f.link4.getId()));
+	}
+
+	@Test
+	public void testEmpty() {
+		Fixture f = new Fixture();
+		NetworkChangeSchedule schedule = NetworkChangeSchedule.create(f.network);
+		Assert.assertEquals(0, schedule.getNumberOfChangeTimes());
+		Assert.assertFalse(schedule.hasChanges(f.link1.getId()));
+	}
+
+	private static class Fixture {
+		final Network network;
+		final Link link1;
+		final Link link2;
+		final Link link3;
+		final Link link4;
+
+		Fixture() {
+			NetworkConfigGroup config = ConfigUtils.createConfig().network();
+			config.setTimeVariantNetwork(true);
+			this.network = NetworkUtils.createNetwork(config);
+			Node node1 = NetworkUtils.createAndAddNode(this.network, Id.create("1", Node.class), new Coord(0, 0));
+			Node node2 = NetworkUtils.createAndAddNode(this.network, Id.create("2", Node.class), new Coord(1000, 0));
+			Node node3 = NetworkUtils.createAndAddNode(this.network, Id.create("3", Node.class), new Coord(2000, 0));
+			Node node4 = NetworkUtils.createAndAddNode(this.network, Id.create("4", Node.class), new Coord(3000, 0));
+			this.link1 = NetworkUtils.createAndAddLink(this.network, Id.create("1", Link.class), node1, node2, 1000, 10, 3600, 1);
+			this.link2 = NetworkUtils.createAndAddLink(this.network, Id.create("2", Link.class), node2, node3, 1000, 10, 3600, 1);
+			this.link3 = NetworkUtils.createAndAddLink(this.network, Id.create("3", Link.class), node3, node4, 1000, 10, 3600, 1);
+			this.link4 = NetworkUtils.createAndAddLink(this.network, Id.create("4", Link.class), node4, node1, 3000, 10, 3600, 1);
+		}
+	}
+}
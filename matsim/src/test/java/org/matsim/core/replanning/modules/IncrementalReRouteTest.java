@@ -0,0 +1,199 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.util.TravelTime;
+
+public class IncrementalReRouteTest {
+
+	@Test
+	public void testOnlyPlansOnChangedLinksAreAffected() {
+		Config config = ConfigUtils.createConfig();
+		Network network = createNetwork();
+		Link link1 = network.getLinks().get(Id.create("1", Link.class));
+		Link link2 = network.getLinks().get(Id.create("2", Link.class));
+		Link link3 = network.getLinks().get(Id.create("3", Link.class));
+		Population population = PopulationUtils.createPopulation(config);
+
+		Map<Id<Link>, Double> linkTravelTimes = new HashMap<>();
+		TravelTime travelTime = (link, time, person, vehicle) -> linkTravelTimes.getOrDefault(link.getId(), 100.0);
+		IncrementalReRouteConfigGroup incrementalConfig = new IncrementalReRouteConfigGroup();
+		incrementalConfig.setTravelTimeChangeThreshold(0.1);
+		IncrementalReRoute module = new IncrementalReRoute(null, null, config.global(), network, population,
+				Collections.singletonMap(TransportMode.car, travelTime), Collections.singleton(TransportMode.car),
+				900, 3600, incrementalConfig);
+
+		Plan planOnLink1 = createPlan(population, "1", link1, link2);
+		Plan planOnLink3 = createPlan(population, "2", link2, link3);
+		Plan planWithoutRoute = createPlan(population, "3", link2, link3);
+		((Leg) planWithoutRoute.getPlanElements().get(1)).setRoute(null);
+
+		// first replanning: no previous travel times, so everything is affected
+		module.beforePrepareReplanningHook(null);
+		Assert.assertTrue(module.isAffected(planOnLink1));
+		Assert.assertTrue(module.isAffected(planOnLink3));
+
+		// unchanged travel times
+		module.beforePrepareReplanningHook(null);
+		Assert.assertFalse(module.isAffected(planOnLink1));
+		Assert.assertFalse(module.isAffected(planOnLink3));
+		Assert.assertTrue(module.isAffected(planWithoutRoute));
+
+		// change below the threshold
+		linkTravelTimes.put(link1.getId(), 105.0);
+		module.beforePrepareReplanningHook(null);
+		Assert.assertFalse(module.isAffected(planOnLink1));
+
+		// change above the threshold
+		linkTravelTimes.put(link1.getId(), 150.0);
+		module.beforePrepareReplanningHook(null);
+		Assert.assertTrue(module.isAffected(planOnLink1));
+		Assert.assertFalse(module.isAffected(planOnLink3));
+
+		// the travel times are compared against the previous replanning, not against the first one
+		module.beforePrepareReplanningHook(null);
+		Assert.assertFalse(module.isAffected(planOnLink1));
+	}
+
+	@Test
+	public void testChangeInSingleTimeBin() {
+		Config config = ConfigUtils.createConfig();
+		Network network = createNetwork();
+		Link link1 = network.getLinks().get(Id.create("1", Link.class));
+		Link link2 = network.getLinks().get(Id.create("2", Link.class));
+		Population population = PopulationUtils.createPopulation(config);
+
+		Map<Id<Link>, Double> congestedTravelTimes = new HashMap<>();
+		// link 2 is congested between 900 and 1800
+		TravelTime travelTime = (link, time, person, vehicle) -> time >= 900 && time < 1800 ?
+				congestedTravelTimes.getOrDefault(link.getId(), 100.0) :
+				100.0;
+		IncrementalReRoute module = new IncrementalReRoute(null, null, config.global(), network, population,
+				Collections.singletonMap(TransportMode.car, travelTime), Collections.singleton(TransportMode.car),
+				900, 3600, new IncrementalReRouteConfigGroup());
+
+		Plan planOnLink1 = createPlan(population, "1", link1, link1);
+		Plan planOnLink2 = createPlan(population, "2", link2, link2);
+		congestedTravelTimes.put(link2.getId(), 200.0);
+		module.beforePrepareReplanningHook(null);
+
+		// a link with different travel times per time bin
+		congestedTravelTimes.put(link2.getId(), 300.0);
+		module.beforePrepareReplanningHook(null);
+		Assert.assertFalse(module.isAffected(planOnLink1));
+		Assert.assertTrue(module.isAffected(planOnLink2));
+
+		// a link that had the same travel time in all time bins becomes congested in one time bin
+		congestedTravelTimes.put(link1.getId(), 200.0);
+		module.beforePrepareReplanningHook(null);
+		Assert.assertTrue(module.isAffected(planOnLink1));
+		Assert.assertFalse(module.isAffected(planOnLink2));
+
+		// and uncongested again
+		congestedTravelTimes.put(link1.getId(), 100.0);
+		module.beforePrepareReplanningHook(null);
+		Assert.assertTrue(module.isAffected(planOnLink1));
+		module.beforePrepareReplanningHook(null);
+		Assert.assertFalse(module.isAffected(planOnLink1));
+	}
+
+	@Test
+	public void testNewPlansAreIndexed() {
+		Config config = ConfigUtils.createConfig();
+		Network network = createNetwork();
+		Link link1 = network.getLinks().get(Id.create("1", Link.class));
+		Link link3 = network.getLinks().get(Id.create("3", Link.class));
+		Population population = PopulationUtils.createPopulation(config);
+
+		Map<Id<Link>, Double> linkTravelTimes = new HashMap<>();
+		TravelTime travelTime = (link, time, person, vehicle) -> linkTravelTimes.getOrDefault(link.getId(), 100.0);
+		IncrementalReRoute module = new IncrementalReRoute(null, null, config.global(), network, population,
+				Collections.singletonMap(TransportMode.car, travelTime), Collections.singleton(TransportMode.car),
+				900, 3600, new IncrementalReRouteConfigGroup());
+
+		Plan planOnLink3 = createPlan(population, "1", link3, link3);
+		module.beforePrepareReplanningHook(null);
+
+		// another plan of the same person, e.g. added by another strategy, uses link 1
+		Person person = planOnLink3.getPerson();
+		createPlan(population, "1", link1, link1);
+		linkTravelTimes.put(link1.getId(), 150.0);
+		module.beforePrepareReplanningHook(null);
+		Assert.assertTrue(module.isAffected(planOnLink3));
+
+		// the plan is removed again
+		person.removePlan(person.getPlans().get(1));
+		linkTravelTimes.put(link1.getId(), 200.0);
+		module.beforePrepareReplanningHook(null);
+		Assert.assertFalse(module.isAffected(planOnLink3));
+	}
+
+	private static Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(3000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), node3, node4, 1000, 10, 3600, 1);
+		return network;
+	}
+
+	private static Plan createPlan(Population population, String personId, Link fromLink, Link toLink) {
+		PopulationFactory pf = population.getFactory();
+		Person person = population.getPersons().get(Id.create(personId, Person.class));
+		if (person == null) {
+			person = pf.createPerson(Id.create(personId, Person.class));
+			population.addPerson(person);
+		}
+		Plan plan = pf.createPlan();
+		person.addPlan(plan);
+		plan.addActivity(pf.createActivityFromLinkId("home", fromLink.getId()));
+		Leg leg = pf.createLeg(TransportMode.car);
+		leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(fromLink.getId(), toLink.getId()));
+		plan.addLeg(leg);
+		plan.addActivity(pf.createActivityFromLinkId("work", toLink.getId()));
+		return plan;
+	}
+}
@@ -267,6 +267,47 @@ public class DeterministicMultithreadedReplanningIT {
 		}
 	}
 
+	/**
+	 * Tests that {@link ReRoute} and {@link TimeAllocationMutatorModule} generate always the same results
+	 * REGARDLESS the number of threads if per-person random streams are used.
+	 */
+	@Test
+	public void testPerPersonRandomStreams() {
+		int lastIteration = 5;
+		Config config = testUtils.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setLastIteration(lastIteration);
+		config.global().setPerPersonRandomStreams(true);
+
+		for (int threads : new int[] { 4, 1, 0 }) {
+			config.global().setNumberOfThreads(threads);
+			StrategyManager strategyManager = new StrategyManager();
+			strategyManager.setMaxPlansPerAgent(5);
+			PlanStrategyImpl strategy = new PlanStrategyImpl(new RandomPlanSelector());
+			strategyManager.addStrategyForDefaultSubpopulation(strategy, 1.0);
+
+			config.controler().setOutputDirectory(testUtils.getOutputDirectory() + "/threads" + threads + "/");
+			TestControler controler = new TestControler(config, strategyManager);
+			strategy.addStrategyModule(new TimeAllocationMutatorModule(TripRouterFactoryBuilderWithDefaults.createDefaultTripRouterFactoryImpl(controler.getScenario() ), config.plans(), config.timeAllocationMutator(), config.global()) );
+			strategy.addStrategyModule(new ReRoute(controler.getScenario(), TripRouterFactoryBuilderWithDefaults.createDefaultTripRouterFactoryImpl(controler.getScenario())));
+			controler.run();
+		}
+
+		for (int threads : new int[] { 1, 0 }) {
+			for (int i = 0; i <= lastIteration; i++) {
+				long cksum1 = CRCChecksum.getCRCFromFile(testUtils.getOutputDirectory() + "/threads4/ITERS/it."+ i +"/"+ i +".events.xml.gz");
+				long cksum2 = CRCChecksum.getCRCFromFile(testUtils.getOutputDirectory() + "/threads" + threads + "/ITERS/it."+ i +"/"+ i +".events.xml.gz");
+
+				Assert.assertEquals("The checksums of events must be the same in iteration " + i + " with " + threads + " threads.", cksum1, cksum2);
+			}
+
+			for (int i = 0; i < 2; i++) {
+				long pcksum1 = CRCChecksum.getCRCFromFile(testUtils.getOutputDirectory() + "/threads4/ITERS/it."+ i +"/"+ i +".plans.xml.gz");
+				long pcksum2 = CRCChecksum.getCRCFromFile(testUtils.getOutputDirectory() + "/threads" + threads + "/ITERS/it."+ i +"/"+ i +".plans.xml.gz");
+				Assert.assertEquals("The checksums of plans must be the same in iteration " + i + " with " + threads + " threads.", pcksum1, pcksum2);
+			}
+		}
+	}
+
 	/**
 	 * A simple Controler for the tests above to overwrite the StrategyManager.
 	 *
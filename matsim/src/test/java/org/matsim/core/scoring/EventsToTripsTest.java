@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class EventsToTripsTest {
+
+	private final Id<Person> person1 = Id.createPersonId("1");
+	private final Id<Person> person2 = Id.createPersonId("2");
+	private final Id<Link> link1 = Id.createLinkId("l1");
+	private final Id<Link> link2 = Id.createLinkId("l2");
+	private final Id<Link> link3 = Id.createLinkId("l3");
+
+	private final EventsToActivities eventsToActivities = new EventsToActivities();
+	private final EventsToLegs eventsToLegs = new EventsToLegs(
+			ScenarioUtils.createScenario(ConfigUtils.createConfig()));
+	private final EventsToLegsAndActivities events = new EventsToLegsAndActivities(eventsToLegs, eventsToActivities);
+	private final EventsToTrips eventsToTrips = new EventsToTrips(eventsToActivities, eventsToLegs);
+	private final List<PersonExperiencedTrip> trips = new ArrayList<>();
+	private final List<Id<Person>> incompleteTripAgents = new ArrayList<>();
+	private final List<Activity> incompleteTripOrigins = new ArrayList<>();
+	private final List<List<PlanElement>> incompleteTripElements = new ArrayList<>();
+
+	{
+		eventsToTrips.addTripHandler(new EventsToTrips.TripHandler() {
+			@Override
+			public void handleTrip(PersonExperiencedTrip trip) {
+				trips.add(trip);
+			}
+
+			@Override
+			public void handleIncompleteTrip(Id<Person> agentId, Activity origin, List<PlanElement> tripElements) {
+				incompleteTripAgents.add(agentId);
+				incompleteTripOrigins.add(origin);
+				incompleteTripElements.add(tripElements);
+			}
+		});
+	}
+
+	@Test
+	public void testCreatesTrips() {
+		String interaction = TripStructureUtils.createStageActivityType(TransportMode.pt);
+		events.handleEvent(new ActivityEndEvent(100, person1, link1, null, "home"));
+		walk(100, 200, person1, link1, link2);
+		events.handleEvent(new ActivityStartEvent(200, person1, link2, null, interaction));
+		events.handleEvent(new ActivityEndEvent(210, person1, link2, null, interaction));
+		walk(210, 300, person1, link2, link3);
+		events.handleEvent(new ActivityStartEvent(300, person1, link3, null, "work"));
+		Assert.assertTrue("the trip is completed when the destination activity ends", trips.isEmpty());
+		events.handleEvent(new ActivityEndEvent(1000, person1, link3, null, "work"));
+
+		Assert.assertEquals(1, trips.size());
+		Assert.assertEquals(person1, trips.get(0).getAgentId());
+		Trip trip = trips.get(0).getTrip();
+		Assert.assertEquals("home", trip.getOriginActivity().getType());
+		Assert.assertEquals(100, trip.getOriginActivity().getEndTime().seconds(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals("work", trip.getDestinationActivity().getType());
+		Assert.assertEquals(300, trip.getDestinationActivity().getStartTime().seconds(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(1000, trip.getDestinationActivity().getEndTime().seconds(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(3, trip.getTripElements().size());
+		Assert.assertEquals(2, trip.getLegsOnly().size());
+		Assert.assertEquals(interaction, ((Activity) trip.getTripElements().get(1)).getType());
+
+		walk(1000, 1100, person1, link3, link1);
+		events.handleEvent(new ActivityStartEvent(1100, person1, link1, null, "home"));
+		eventsToActivities.finish();
+
+		Assert.assertEquals(2, trips.size());
+		trip = trips.get(1).getTrip();
+		Assert.assertEquals("work", trip.getOriginActivity().getType());
+		Assert.assertEquals("home", trip.getDestinationActivity().getType());
+		Assert.assertEquals(1, trip.getLegsOnly().size());
+	}
+
+	@Test
+	public void testPassesOnUnfinishedTrips() {
+		String interaction = TripStructureUtils.createStageActivityType(TransportMode.pt);
+		events.handleEvent(new ActivityEndEvent(100, person1, link1, null, "home"));
+		events.handleEvent(new ActivityEndEvent(100, person2, link1, null, "home"));
+		walk(100, 200, person1, link1, link2);
+		walk(100, 200, person2, link1, link2);
+		events.handleEvent(new ActivityStartEvent(200, person1, link2, null, "work"));
+		events.handleEvent(new ActivityStartEvent(200, person2, link2, null, interaction));
+		events.handleEvent(new ActivityEndEvent(210, person2, link2, null, interaction));
+		// person 2 is still travelling when the mobsim ends
+		events.handleEvent(new PersonDepartureEvent(210, person2, link2, TransportMode.walk));
+		eventsToActivities.finish();
+
+		Assert.assertEquals(1, trips.size());
+		Assert.assertEquals(person1, trips.get(0).getAgentId());
+		// the completed leg and stage activity of person 2 are passed on without a destination
+		Assert.assertEquals(Collections.singletonList(person2), incompleteTripAgents);
+		Assert.assertEquals("home", incompleteTripOrigins.get(0).getType());
+		List<PlanElement> elements = incompleteTripElements.get(0);
+		Assert.assertEquals(2, elements.size());
+		Assert.assertEquals(TransportMode.walk, ((Leg) elements.get(0)).getMode());
+		Assert.assertEquals(interaction, ((Activity) elements.get(1)).getType());
+
+		// nothing of the previous iteration is left over after a reset
+		eventsToTrips.reset();
+		events.reset(1);
+		events.handleEvent(new ActivityStartEvent(300, person2, link2, null, "work"));
+		eventsToActivities.finish();
+		Assert.assertEquals(1, trips.size());
+		Assert.assertEquals(1, incompleteTripAgents.size());
+	}
+
+	private void walk(double departureTime, double arrivalTime, Id<Person> personId, Id<Link> from, Id<Link> to) {
+		events.handleEvent(new PersonDepartureEvent(departureTime, personId, from, TransportMode.walk));
+		events.handleEvent(new TeleportationArrivalEvent(arrivalTime, personId, 100, TransportMode.walk));
+		events.handleEvent(new PersonArrivalEvent(arrivalTime, personId, to, TransportMode.walk));
+	}
+}
@@ -22,6 +22,10 @@ package org.matsim.core.trafficmonitoring;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 
@@ -276,6 +280,50 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(freeSpeedTT, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, firstTimeBinStart + 5*timeBinSize + offset, null, null), EPSILON);
 	}
 	
+	public void testCheckpoint() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		final Node fromNode = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		final Node toNode = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), fromNode, toNode, 1000.0, 100.0, 3600.0, 1.0 );
+		Link link2 = NetworkUtils.createAndAddLink(network,Id.create("2", Link.class), toNode, fromNode, 1000.0, 100.0, 3600.0, 1.0 );
+		Id<Vehicle> vehId = Id.create("1", Vehicle.class);
+
+		int timeBinSize = 15*60;
+		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		double firstTimeBinStart = 7.0 * 3600;
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 50.0 * 60, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart + 50.0 * 60, vehId, link2.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 53.0 * 60, vehId, link2.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart + 3*timeBinSize, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 3*timeBinSize + 10.0 * 60, vehId, link1.getId()));
+
+		ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+		ttcalc.writeCheckpoint(new DataOutputStream(checkpoint));
+
+		TravelTimeCalculator restored = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		// data of a previous iteration must be replaced
+		restored.handleEvent(new LinkEnterEvent(0, vehId, link2.getId()));
+		restored.handleEvent(new LinkLeaveEvent(2000, vehId, link2.getId()));
+		restored.readCheckpoint(new DataInputStream(new ByteArrayInputStream(checkpoint.toByteArray())));
+
+		for (Link link : new Link[] { link1, link2 }) {
+			for (double time = 0; time < 12 * 3600; time += timeBinSize / 2.0) {
+				assertEquals(ttcalc.getLinkTravelTimes().getLinkTravelTime(link, time, null, null),
+						restored.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 0.0);
+			}
+		}
+
+		TravelTimeCalculator otherBins = new TravelTimeCalculator(network, 5*60, 12*3600, scenario.getConfig().travelTimeCalculator());
+		try {
+			otherBins.readCheckpoint(new DataInputStream(new ByteArrayInputStream(checkpoint.toByteArray())));
+			fail("expected exception, the time bins differ");
+		} catch (RuntimeException e) {
+			log.info("catched expected exception: " + e.getMessage());
+		}
+	}
+
 	/**
 	 * Test linear interpolation of aggregated travel times at different positions of a time bin. (Previous tests only test the midpoint of each time bin.)
 	 * 
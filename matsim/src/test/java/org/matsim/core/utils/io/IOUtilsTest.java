@@ -287,6 +287,48 @@ public class IOUtilsTest {
 		Assert.assertEquals("compressed file should be equal 28 bytes, but is " + file.length(), 28, file.length());
 	}
 
+	@Test
+	public void testGetBufferedWriter_zst_levelAndWorkers() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.zst";
+		URL url = IOUtils.getFileUrl(filename);
+		IOUtils.setZstdCompressionLevel(19);
+		IOUtils.setZstdWorkers(2);
+		try {
+			BufferedWriter writer = IOUtils.getBufferedWriter(url);
+			for (int i = 0; i < 10000; i++) {
+				writer.write("12345678901234567890123456789012345678901234567890");
+				writer.newLine();
+			}
+			writer.close();
+		} finally {
+			IOUtils.setZstdCompressionLevel(IOUtils.DEFAULT_ZSTD_COMPRESSION_LEVEL);
+			IOUtils.setZstdWorkers(0);
+		}
+		BufferedReader reader = IOUtils.getBufferedReader(url);
+		int lines = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			Assert.assertEquals("12345678901234567890123456789012345678901234567890", line);
+			lines++;
+		}
+		reader.close();
+		Assert.assertEquals(10000, lines);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetZstdCompressionLevel_invalid() {
+		IOUtils.setZstdCompressionLevel(0);
+	}
+
+	@Test
+	public void testRemoveCompressionExtension() {
+		Assert.assertEquals("network.xml", IOUtils.removeCompressionExtension("network.xml.gz"));
+		Assert.assertEquals("network.xml", IOUtils.removeCompressionExtension("network.xml.zst"));
+		Assert.assertEquals("network.xml", IOUtils.removeCompressionExtension("network.xml.LZ4"));
+		Assert.assertEquals("network.xml", IOUtils.removeCompressionExtension("network.xml"));
+		Assert.assertEquals("network", IOUtils.removeCompressionExtension("network"));
+	}
+
 	@Test
 	public void testGetInputStream_UTFwithoutBOM() throws IOException {
 		String filename = utils.getOutputDirectory() + "test.txt";
@@ -0,0 +1,263 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrowStreamTestReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io.arrow;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+
+/**
+ * Reads the subset of the Arrow IPC streaming format written by {@link ArrowStreamWriter}, independently of the
+ * writer's code, and checks the framing of the messages on the way.
+ */
+public final class ArrowStreamTestReader {
+
+	/** the message types in the order they were read */
+	public final List<Byte> messageTypes = new ArrayList<>();
+	/** the isDelta flags of the dictionary batches in the order they were read */
+	public final List<Boolean> dictionaryDeltas = new ArrayList<>();
+	/** the values of each column, by column name in schema order */
+	public final Map<String, List<Object>> columns = new LinkedHashMap<>();
+
+	private final List<String> names = new ArrayList<>();
+	private final List<Byte> types = new ArrayList<>();
+	private final List<Long> dictionaryIds = new ArrayList<>();
+	private final Map<Long, List<Object>> dictionaries = new HashMap<>();
+
+	public ArrowStreamTestReader(byte[] stream) {
+		ByteBuffer bb = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+		int position = 0;
+		while (true) {
+			Assert.assertEquals("continuation token", -1, bb.getInt(position));
+			int metadataLength = bb.getInt(position + 4);
+			position += 8;
+			if (metadataLength == 0) {
+				Assert.assertEquals("no bytes after the end of the stream", stream.length, position);
+				return;
+			}
+			Assert.assertEquals("metadata must be padded to 8 bytes", 0, metadataLength % 8);
+			ByteBuffer metadata = slice(bb, position, metadataLength);
+			position += metadataLength;
+
+			Table message = new Table(metadata, metadata.getInt(0));
+			Assert.assertEquals("metadata version V5", 4, message.getShort(0));
+			byte type = message.getByte(1);
+			Table header = message.getTable(2);
+			int bodyLength = (int) message.getLong(3);
+			Assert.assertEquals("body must be padded to 8 bytes", 0, bodyLength % 8);
+			ByteBuffer body = slice(bb, position, bodyLength);
+			position += bodyLength;
+
+			messageTypes.add(type);
+			switch (type) {
+				case 1:
+					readSchema(header);
+					break;
+				case 2:
+					long id = header.getLong(0);
+					boolean isDelta = header.getByte(2) != 0;
+					dictionaryDeltas.add(isDelta);
+					List<Object> values = new ArrayList<>();
+					readArray(header.getTable(1), body, 0, 0, (byte) 5, values);
+					if (isDelta) {
+						dictionaries.get(id).addAll(values);
+					} else {
+						dictionaries.put(id, values);
+					}
+					break;
+				case 3:
+					readRecordBatch(header, body);
+					break;
+				default:
+					Assert.fail("unexpected message type " + type);
+			}
+		}
+	}
+
+	private void readSchema(Table schema) {
+		Assert.assertEquals("little endian", 0, schema.getShort(0));
+		int fields = schema.getVector(1);
+		int numberOfFields = schema.bb.getInt(fields);
+		for (int i = 0; i < numberOfFields; i++) {
+			Table field = schema.getVectorTable(fields, i);
+			String name = field.getString(0);
+			byte type = field.getByte(2);
+			Assert.assertEquals("empty children", 0, field.bb.getInt(field.getVector(5)));
+			Table dictionary = field.getTable(4);
+			if (dictionary != null) {
+				Table indexType = dictionary.getTable(1);
+				Assert.assertEquals(32, indexType.getInt(0));
+				dictionaryIds.add(dictionary.getLong(0));
+			} else {
+				dictionaryIds.add(null);
+			}
+			if (type == 3) {
+				Assert.assertEquals("double precision", 2, field.getTable(3).getShort(0));
+			}
+			names.add(name);
+			types.add(type);
+			columns.put(name, new ArrayList<>());
+		}
+	}
+
+	private void readRecordBatch(Table recordBatch, ByteBuffer body) {
+		int buffer = 0;
+		for (int column = 0; column < names.size(); column++) {
+			List<Object> values = new ArrayList<>();
+			Long dictionaryId = dictionaryIds.get(column);
+			buffer = readArray(recordBatch, body, column, buffer, dictionaryId != null ? 2 : types.get(column), values);
+			if (dictionaryId != null) {
+				List<Object> dictionary = dictionaries.get(dictionaryId);
+				values.replaceAll(index -> index == null ? null : dictionary.get((Integer) index));
+			}
+			Assert.assertEquals(recordBatch.getLong(0), values.size());
+			columns.get(names.get(column)).addAll(values);
+		}
+	}
+
+	/**
+	 * @return the index of the first buffer of the next array
+	 */
+	private static int readArray(Table recordBatch, ByteBuffer body, int node, int buffer, byte type, List<Object> values) {
+		int nodes = recordBatch.getVector(1);
+		int buffers = recordBatch.getVector(2);
+		ByteBuffer bb = recordBatch.bb;
+		Assert.assertEquals("structs are 8-byte aligned", 0, (nodes + 4) % 8);
+		long length = bb.getLong(nodes + 4 + 16 * node);
+		long nullCount = bb.getLong(nodes + 4 + 16 * node + 8);
+
+		ByteBuffer validity = getBuffer(bb, buffers, buffer, body);
+		ByteBuffer data = getBuffer(bb, buffers, buffer + 1, body);
+		int used = 2;
+		ByteBuffer strings = null;
+		if (type == 5) {
+			strings = getBuffer(bb, buffers, buffer + 2, body);
+			used = 3;
+		}
+		int nulls = 0;
+		for (int i = 0; i < length; i++) {
+			boolean valid = validity.capacity() == 0 || (validity.get(i >> 3) & (1 << (i & 7))) != 0;
+			if (!valid) {
+				nulls++;
+				values.add(null);
+			} else if (type == 2) {
+				values.add(data.getInt(4 * i));
+			} else if (type == 3) {
+				values.add(data.getDouble(8 * i));
+			} else {
+				int start = data.getInt(4 * i);
+				byte[] bytes = new byte[data.getInt(4 * i + 4) - start];
+				for (int j = 0; j < bytes.length; j++) {
+					bytes[j] = strings.get(start + j);
+				}
+				values.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+		}
+		Assert.assertEquals(nullCount, nulls);
+		return buffer + used;
+	}
+
+	private static ByteBuffer getBuffer(ByteBuffer bb, int buffers, int buffer, ByteBuffer body) {
+		long offset = bb.getLong(buffers + 4 + 16 * buffer);
+		long length = bb.getLong(buffers + 4 + 16 * buffer + 8);
+		Assert.assertEquals("buffers are 8-byte aligned", 0, offset % 8);
+		return slice(body, (int) offset, (int) length);
+	}
+
+	private static ByteBuffer slice(ByteBuffer bb, int position, int length) {
+		ByteBuffer duplicate = bb.duplicate();
+		duplicate.position(position).limit(position + length);
+		return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static final class Table {
+		private final ByteBuffer bb;
+		private final int position;
+
+		Table(ByteBuffer bb, int position) {
+			this.bb = bb;
+			this.position = position;
+		}
+
+		private int getFieldPosition(int field) {
+			int vtable = position - bb.getInt(position);
+			int vtableOffset = 4 + 2 * field;
+			if (vtableOffset >= bb.getShort(vtable)) {
+				return 0;
+			}
+			int offset = bb.getShort(vtable + vtableOffset);
+			return offset == 0 ? 0 : position + offset;
+		}
+
+		byte getByte(int field) {
+			int p = getFieldPosition(field);
+			return p == 0 ? 0 : bb.get(p);
+		}
+
+		short getShort(int field) {
+			int p = getFieldPosition(field);
+			return p == 0 ? 0 : bb.getShort(p);
+		}
+
+		int getInt(int field) {
+			int p = getFieldPosition(field);
+			return p == 0 ? 0 : bb.getInt(p);
+		}
+
+		long getLong(int field) {
+			int p = getFieldPosition(field);
+			Assert.assertEquals("longs are 8-byte aligned", 0, p % 8);
+			return p == 0 ? 0 : bb.getLong(p);
+		}
+
+		Table getTable(int field) {
+			int p = getFieldPosition(field);
+			return p == 0 ? null : new Table(bb, p + bb.getInt(p));
+		}
+
+		int getVector(int field) {
+			int p = getFieldPosition(field);
+			Assert.assertNotEquals("vector must be present", 0, p);
+			return p + bb.getInt(p);
+		}
+
+		Table getVectorTable(int vector, int index) {
+			int p = vector + 4 + 4 * index;
+			return new Table(bb, p + bb.getInt(p));
+		}
+
+		String getString(int field) {
+			int string = getVector(field);
+			byte[] bytes = new byte[bb.getInt(string)];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = bb.get(string + 4 + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
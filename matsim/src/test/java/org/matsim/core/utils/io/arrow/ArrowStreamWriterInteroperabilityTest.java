@@ -0,0 +1,146 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrowStreamWriterInteroperabilityTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io.arrow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.util.Text;
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.utils.io.arrow.ArrowStreamWriter.ColumnType;
+
+/**
+ * Reads the streams of {@link ArrowStreamWriter} with the Java implementation of Apache Arrow, so that the encoding is
+ * not only checked against {@link ArrowStreamTestReader}.
+ */
+public class ArrowStreamWriterInteroperabilityTest {
+
+	@Test
+	public void testReadWithApacheArrow() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrowStreamWriter writer = new ArrowStreamWriter(out, 2);
+		int id = writer.addColumn("id", ColumnType.DICTIONARY);
+		int n = writer.addColumn("n", ColumnType.INT);
+		int x = writer.addColumn("x", ColumnType.DOUBLE);
+		int s = writer.addColumn("s", ColumnType.STRING);
+
+		writer.set(id, "a");
+		writer.set(n, 1);
+		writer.set(x, 0.5);
+		writer.set(s, "foo");
+		writer.endRow();
+
+		writer.set(id, "b");
+		writer.set(n, -2);
+		writer.endRow();
+
+		writer.set(id, "a");
+		writer.set(n, 3);
+		writer.set(x, 1.5);
+		writer.set(s, "bar");
+		writer.endRow();
+
+		// the second batch adds a delta to the dictionary
+		writer.set(id, "c");
+		writer.set(x, 2.5);
+		writer.set(s, "über");
+		writer.endRow();
+
+		writer.set(n, 5);
+		writer.set(x, 3.5);
+		writer.set(s, "");
+		writer.endRow();
+		writer.close();
+
+		Map<String, List<Object>> columns = read(out.toByteArray());
+		Assert.assertEquals(Arrays.asList("id", "n", "x", "s"), new ArrayList<>(columns.keySet()));
+		Assert.assertEquals(Arrays.asList("a", "b", "a", "c", null), columns.get("id"));
+		Assert.assertEquals(Arrays.asList(1, -2, 3, null, 5), columns.get("n"));
+		Assert.assertEquals(Arrays.asList(0.5, null, 1.5, 2.5, 3.5), columns.get("x"));
+		Assert.assertEquals(Arrays.asList("foo", null, "bar", "über", ""), columns.get("s"));
+	}
+
+	@Test
+	public void testReadEmptyStreamWithApacheArrow() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrowStreamWriter writer = new ArrowStreamWriter(out, 10);
+		writer.addColumn("id", ColumnType.DICTIONARY);
+		writer.addColumn("x", ColumnType.DOUBLE);
+		writer.close();
+
+		Map<String, List<Object>> columns = read(out.toByteArray());
+		Assert.assertEquals(Arrays.asList("id", "x"), new ArrayList<>(columns.keySet()));
+		Assert.assertTrue(columns.get("x").isEmpty());
+	}
+
+	/**
+	 * @return the values of all batches per column, with dictionary encoded columns decoded and strings as {@link String}
+	 */
+	private static Map<String, List<Object>> read(byte[] stream) throws IOException {
+		Map<String, List<Object>> columns = new LinkedHashMap<>();
+		try (BufferAllocator allocator = new RootAllocator();
+				ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(stream), allocator)) {
+			VectorSchemaRoot root = reader.getVectorSchemaRoot();
+			for (Field field : root.getSchema().getFields()) {
+				columns.put(field.getName(), new ArrayList<>());
+			}
+			while (reader.loadNextBatch()) {
+				for (FieldVector vector : root.getFieldVectors()) {
+					List<Object> values = columns.get(vector.getName());
+					DictionaryEncoding encoding = vector.getField().getDictionary();
+					if (encoding == null) {
+						addValues(vector, values);
+					} else {
+						Dictionary dictionary = reader.getDictionaryVectors().get(encoding.getId());
+						try (ValueVector decoded = DictionaryEncoder.decode(vector, dictionary)) {
+							addValues(decoded, values);
+						}
+					}
+				}
+			}
+		}
+		return columns;
+	}
+
+	private static void addValues(ValueVector vector, List<Object> values) {
+		for (int i = 0; i < vector.getValueCount(); i++) {
+			Object value = vector.getObject(i);
+			values.add(value instanceof Text ? value.toString() : value);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrowStreamWriterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io.arrow;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.utils.io.arrow.ArrowStreamWriter.ColumnType;
+
+public class ArrowStreamWriterTest {
+
+	@Test
+	public void testWritesBatchesAndDictionaryDeltas() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrowStreamWriter writer = new ArrowStreamWriter(out, 2);
+		int id = writer.addColumn("id", ColumnType.DICTIONARY);
+		int n = writer.addColumn("n", ColumnType.INT);
+		int x = writer.addColumn("x", ColumnType.DOUBLE);
+		int s = writer.addColumn("s", ColumnType.STRING);
+
+		writer.set(id, "a");
+		writer.set(n, 1);
+		writer.set(x, 0.5);
+		writer.set(s, "foo");
+		writer.endRow();
+
+		writer.set(id, "b");
+		writer.set(n, 2);
+		writer.endRow();
+
+		writer.set(id, "a");
+		writer.set(n, 3);
+		writer.set(x, 1.5);
+		writer.set(s, "bar");
+		writer.endRow();
+
+		writer.set(id, "c");
+		writer.set(x, 2.5);
+		writer.set(s, "über");
+		writer.endRow();
+
+		writer.set(n, 5);
+		writer.set(x, 3.5);
+		writer.set(s, "");
+		writer.endRow();
+		writer.close();
+
+		ArrowStreamTestReader reader = new ArrowStreamTestReader(out.toByteArray());
+		// schema, initial dictionary, batch, delta dictionary, batch, batch
+		Assert.assertEquals(Arrays.asList((byte) 1, (byte) 2, (byte) 3, (byte) 2, (byte) 3, (byte) 3), reader.messageTypes);
+		Assert.assertEquals(Arrays.asList(false, true), reader.dictionaryDeltas);
+		Assert.assertEquals(Arrays.asList("id", "n", "x", "s"), Arrays.asList(reader.columns.keySet().toArray()));
+		Assert.assertEquals(Arrays.asList("a", "b", "a", "c", null), reader.columns.get("id"));
+		Assert.assertEquals(Arrays.asList(1, 2, 3, null, 5), reader.columns.get("n"));
+		Assert.assertEquals(Arrays.asList(0.5, null, 1.5, 2.5, 3.5), reader.columns.get("x"));
+		Assert.assertEquals(Arrays.asList("foo", null, "bar", "über", ""), reader.columns.get("s"));
+	}
+
+	@Test
+	public void testLargeBatches() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrowStreamWriter writer = new ArrowStreamWriter(out, 5000);
+		int id = writer.addColumn("id", ColumnType.DICTIONARY);
+		int n = writer.addColumn("n", ColumnType.INT);
+		for (int i = 0; i < 12345; i++) {
+			writer.set(id, "id" + (i % 100));
+			if (i % 7 != 0) {
+				writer.set(n, i);
+			}
+			writer.endRow();
+		}
+		writer.close();
+
+		ArrowStreamTestReader reader = new ArrowStreamTestReader(out.toByteArray());
+		Assert.assertEquals(12345, reader.columns.get("id").size());
+		for (int i = 0; i < 12345; i++) {
+			Assert.assertEquals("id" + (i % 100), reader.columns.get("id").get(i));
+			Assert.assertEquals(i % 7 == 0 ? null : i, reader.columns.get("n").get(i));
+		}
+		Assert.assertEquals("all ids are known after the first batch", Arrays.asList(false), reader.dictionaryDeltas);
+	}
+
+	@Test
+	public void testEmptyStream() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrowStreamWriter writer = new ArrowStreamWriter(out, 10);
+		writer.addColumn("id", ColumnType.DICTIONARY);
+		writer.addColumn("x", ColumnType.DOUBLE);
+		writer.close();
+
+		ArrowStreamTestReader reader = new ArrowStreamTestReader(out.toByteArray());
+		Assert.assertEquals(Arrays.asList((byte) 1, (byte) 2), reader.messageTypes);
+		Assert.assertTrue(reader.columns.get("x").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullStringInNumericColumnFails() {
+		ArrowStreamWriter writer = new ArrowStreamWriter(new ByteArrayOutputStream(), 10);
+		int n = writer.addColumn("n", ColumnType.INT);
+		writer.set(n, (String) null);
+	}
+
+	/**
+	 * Compares the complete stream with bytes which were decoded field by field against the Arrow columnar format
+	 * specification, so that a change of the layout is not hidden by the same change in {@link ArrowStreamTestReader}.
+	 */
+	@Test
+	public void testKnownGoodBytes() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrowStreamWriter writer = new ArrowStreamWriter(out, 10);
+		int id = writer.addColumn("id", ColumnType.DICTIONARY);
+		int n = writer.addColumn("n", ColumnType.INT);
+		int x = writer.addColumn("x", ColumnType.DOUBLE);
+		int s = writer.addColumn("s", ColumnType.STRING);
+
+		writer.set(id, "a");
+		writer.set(n, 1);
+		writer.set(x, 0.5);
+		writer.set(s, "foo");
+		writer.endRow();
+
+		writer.set(id, "b");
+		writer.set(n, -2);
+		writer.endRow();
+
+		writer.set(id, "a");
+		writer.set(x, 2.0);
+		writer.set(s, "\u00fc");
+		writer.endRow();
+		writer.close();
+
+		String expected = ""
+				// schema: id (utf8, dictionary encoded with int32 indices), n (int32), x (float64), s (utf8)
+				+ "ffffffff880100001400000000000e001400120011000c00040000000e000000"
+				+ "000000000000000014000000000104000c000c000a000400000000000c000000"
+				+ "080000000000000004000000e000000098000000540000001800000000001200"
+				+ "140010000f000e00080000000400000012000000100000001400000000000501"
+				+ "100000000000000004000400040000000100000073001200140010000f000e00"
+				+ "0800000004000000120000001000000018000000000003011800000000000000"
+				+ "000006000800060006000000000002000100000078001200140010000f000e00"
+				+ "0800000004000000120000001000000018000000000002011c00000000000000"
+				+ "08000c0008000700080000000000000120000000010000006e00120018001400"
+				+ "130012000c000800040000001200000014000000200000004c00000000000501"
+				+ "48000000000000000c0018000c000800070000000c0000000000000018000000"
+				+ "00000000000000000000000008000c0008000700080000000000000120000000"
+				+ "04000400040000000200000069640000"
+				// dictionary batch 0: "a", "b"
+				+ "ffffffffb80000001400000000000e001600140013000c00040000000e000000"
+				+ "1800000000000000140000000000000204000a0014000c00080007000a000000"
+				+ "000000001800000000000000000000000c0018000c000800040000000c000000"
+				+ "1400000048000000020000000000000000000000030000000000000000000000"
+				+ "000000000000000000000000000000000c000000000000001000000000000000"
+				+ "0200000000000000000000000100000002000000000000000000000000000000"
+				+ "000000000100000002000000000000006162000000000000"
+				// record batch of 3 rows
+				+ "ffffffff280100001400000000000e001400120011000c00040000000e000000"
+				+ "680000000000000014000000000304000c0018000c000800040000000c000000"
+				+ "14000000a8000000030000000000000000000000090000000000000000000000"
+				+ "000000000000000000000000000000000c000000000000001000000000000000"
+				+ "010000000000000018000000000000000c000000000000002800000000000000"
+				+ "0100000000000000300000000000000018000000000000004800000000000000"
+				+ "0100000000000000500000000000000010000000000000006000000000000000"
+				+ "0500000000000000000000000400000003000000000000000000000000000000"
+				+ "0300000000000000010000000000000003000000000000000100000000000000"
+				+ "0300000000000000010000000000000000000000010000000000000000000000"
+				+ "fb0000000000000001000000feffffff0000000000000000fd00000000000000"
+				+ "000000000000e03f00000000000000000000000000000040fd00000000000000"
+				+ "00000000030000000300000005000000666f6fc3bc000000"
+				// end of stream
+				+ "ffffffff00000000";
+		Assert.assertEquals(expected, toHex(out.toByteArray()));
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(2 * bytes.length);
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
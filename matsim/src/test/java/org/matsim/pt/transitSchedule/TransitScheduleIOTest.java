@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
@@ -43,13 +44,18 @@ import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
 import org.matsim.pt.transitSchedule.api.TransitStopArea;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser / SBB
  */
 public class TransitScheduleIOTest {
 
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	public void testWriteRead_V2() {
 		TransitScheduleFactory f = new TransitScheduleFactoryImpl();
@@ -153,4 +159,105 @@ public class TransitScheduleIOTest {
 		Assert.assertTrue(AttributesUtils.isEmpty(dep2.getAttributes()));
 
 	}
+
+	@Test
+	public void testWriteRead_Snapshot() {
+		TransitScheduleFactory f = new TransitScheduleFactoryImpl();
+		TransitSchedule schedule = new TransitScheduleImpl(f);
+		{ // prepare data
+			schedule.getAttributes().putAttribute("source", "myImagination");
+
+			TransitStopFacility stop1 = f.createTransitStopFacility(Id.create(1, TransitStopFacility.class), new Coord(123, 234), true);
+			stop1.setLinkId(Id.create("group", Link.class));
+			stop1.setName("ground floor");
+			TransitStopFacility stop2 = f.createTransitStopFacility(Id.create(2, TransitStopFacility.class), new Coord(987, 876, 98765), false);
+			stop2.getAttributes().putAttribute("air", "thin");
+			stop2.setStopAreaId(Id.create("GZ", TransitStopArea.class));
+			schedule.addStopFacility(stop1);
+			schedule.addStopFacility(stop2);
+
+			schedule.getMinimalTransferTimes().set(stop1.getId(), stop2.getId(), 300.0);
+
+			TransitLine line1 = f.createTransitLine(Id.create("blue", TransitLine.class));
+			line1.setName("Blue Line");
+			line1.getAttributes().putAttribute("color", "like the sky");
+
+			NetworkRoute netRoute = RouteUtils.createLinkNetworkRouteImpl(
+					Id.create("group", Link.class),
+					new Id[]{Id.create("aboveGround", Link.class), Id.create("belowSky", Link.class)},
+					Id.create("sky", Link.class));
+			List<TransitRouteStop> stops = new ArrayList<>();
+			stops.add(f.createTransitRouteStopBuilder(stop1).departureOffset(0.0).build());
+			stops.add(f.createTransitRouteStopBuilder(stop2).arrivalOffset(9999.9).awaitDepartureTime(true).build());
+			TransitRoute route1a = f.createTransitRoute(Id.create("upwards", TransitRoute.class), netRoute, stops, "elevator");
+			route1a.setDescription("goes up");
+			route1a.getAttributes().putAttribute("bidirectional", false);
+
+			Departure dep1 = f.createDeparture(Id.create("first", Departure.class), 100);
+			dep1.setVehicleId(Id.create("lift", Vehicle.class));
+			dep1.getAttributes().putAttribute("early", "yes");
+			route1a.addDeparture(dep1);
+			route1a.addDeparture(f.createDeparture(Id.create("last", Departure.class), 86300));
+
+			line1.addRoute(route1a);
+			schedule.addTransitLine(line1);
+		}
+
+		String filename = this.utils.getOutputDirectory() + "schedule.bin.gz";
+		new TransitScheduleSnapshotWriter(schedule).write(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new TransitScheduleSnapshotReader(scenario.getTransitSchedule(), scenario.getPopulation().getFactory().getRouteFactories()).readFile(filename);
+		TransitSchedule schedule2 = scenario.getTransitSchedule();
+
+		Assert.assertEquals("myImagination", schedule2.getAttributes().getAttribute("source"));
+
+		TransitStopFacility stop1 = schedule2.getFacilities().get(Id.create(1, TransitStopFacility.class));
+		Assert.assertTrue(stop1.getIsBlockingLane());
+		Assert.assertFalse(stop1.getCoord().hasZ());
+		Assert.assertEquals("group", stop1.getLinkId().toString());
+		Assert.assertEquals("ground floor", stop1.getName());
+		Assert.assertNull(stop1.getStopAreaId());
+		TransitStopFacility stop2 = schedule2.getFacilities().get(Id.create(2, TransitStopFacility.class));
+		Assert.assertEquals("thin", stop2.getAttributes().getAttribute("air"));
+		Assert.assertEquals(98765.0, stop2.getCoord().getZ(), 0.0);
+		Assert.assertEquals("GZ", stop2.getStopAreaId().toString());
+		Assert.assertNull(stop2.getLinkId());
+
+		Assert.assertEquals(300, schedule2.getMinimalTransferTimes().get(stop1.getId(), stop2.getId()), 0.0);
+		Assert.assertEquals(Double.NaN, schedule2.getMinimalTransferTimes().get(stop2.getId(), stop1.getId()), 0.0);
+
+		TransitLine line1 = schedule2.getTransitLines().get(Id.create("blue", TransitLine.class));
+		Assert.assertEquals("Blue Line", line1.getName());
+		Assert.assertEquals("like the sky", line1.getAttributes().getAttribute("color"));
+
+		TransitRoute route1 = line1.getRoutes().get(Id.create("upwards", TransitRoute.class));
+		Assert.assertEquals("elevator", route1.getTransportMode());
+		Assert.assertEquals("goes up", route1.getDescription());
+		Assert.assertEquals(Boolean.FALSE, route1.getAttributes().getAttribute("bidirectional"));
+		Assert.assertEquals("group", route1.getRoute().getStartLinkId().toString());
+		Assert.assertEquals(2, route1.getRoute().getLinkIds().size());
+		Assert.assertEquals("belowSky", route1.getRoute().getLinkIds().get(1).toString());
+		Assert.assertEquals("sky", route1.getRoute().getEndLinkId().toString());
+
+		Assert.assertEquals(2, route1.getStops().size());
+		TransitRouteStop rStop1 = route1.getStops().get(0);
+		Assert.assertSame(stop1, rStop1.getStopFacility());
+		Assert.assertEquals(0.0, rStop1.getDepartureOffset().seconds(), 0.0);
+		Assert.assertTrue(rStop1.getArrivalOffset().isUndefined());
+		Assert.assertFalse(rStop1.isAwaitDepartureTime());
+		TransitRouteStop rStop2 = route1.getStops().get(1);
+		Assert.assertSame(stop2, rStop2.getStopFacility());
+		Assert.assertEquals(9999.9, rStop2.getArrivalOffset().seconds(), 0.0);
+		Assert.assertTrue(rStop2.getDepartureOffset().isUndefined());
+		Assert.assertTrue(rStop2.isAwaitDepartureTime());
+
+		Departure dep1 = route1.getDepartures().get(Id.create("first", Departure.class));
+		Assert.assertEquals(100.0, dep1.getDepartureTime(), 0.0);
+		Assert.assertEquals("lift", dep1.getVehicleId().toString());
+		Assert.assertEquals("yes", dep1.getAttributes().getAttribute("early"));
+		Departure dep2 = route1.getDepartures().get(Id.create("last", Departure.class));
+		Assert.assertNull(dep2.getVehicleId());
+		Assert.assertTrue(AttributesUtils.isEmpty(dep2.getAttributes()));
+	}
 }
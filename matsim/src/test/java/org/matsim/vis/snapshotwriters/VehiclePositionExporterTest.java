@@ -0,0 +1,219 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehiclePositionExporterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+
+public class VehiclePositionExporterTest {
+
+	@Test
+	public void testBufferPassesAllPositionsInOrder() throws InterruptedException {
+		VehiclePositionBuffer buffer = new VehiclePositionBuffer(7);
+		Assert.assertEquals(8, buffer.getCapacity());
+
+		List<String> received = new ArrayList<>();
+		Thread reader = new Thread(() -> buffer.readAll(new RecordingWriter(received)));
+		reader.start();
+
+		List<String> expected = new ArrayList<>();
+		for (int snapshot = 0; snapshot < 100; snapshot++) {
+			buffer.beginSnapshot(snapshot * 10.);
+			expected.add("begin " + snapshot * 10.);
+			for (int vehicle = 0; vehicle < snapshot % 13; vehicle++) {
+				AgentState state = AgentState.values()[vehicle % AgentState.values().length];
+				buffer.addVehicle(vehicle, snapshot, vehicle / 16., state, 0.25);
+				expected.add(vehicle + " " + snapshot + " " + vehicle / 16. + " " + state + " " + 0.25);
+			}
+			buffer.endSnapshot();
+			expected.add("end");
+		}
+		buffer.close();
+		reader.join();
+
+		Assert.assertEquals(expected, received);
+	}
+
+	@Test
+	public void testSameVehiclesAsAgentSnapshotInfos() {
+		Scenario scenario = createScenario();
+		scenario.getConfig().qsim().setSnapshotPeriod(10);
+		EventsManager events = EventsUtils.createEventsManager();
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, events);
+
+		VehiclePositionExporter exporter = new VehiclePositionExporter(scenario.getConfig(), 16);
+		Map<Double, List<String>> exported = new HashMap<>();
+		exporter.addVehiclePositionWriter(new VehiclePositionWriter() {
+			private List<String> vehicles;
+
+			@Override
+			public void beginSnapshot(double time) {
+				vehicles = new ArrayList<>();
+				exported.put(time, vehicles);
+			}
+
+			@Override
+			public void addVehicle(int vehicleIndex, int linkIndex, double relativePosition, AgentState state,
+					double colorValueBetweenZeroAndOne) {
+				Assert.assertTrue(relativePosition >= 0 && relativePosition <= 1);
+				vehicles.add(Id.get(vehicleIndex, Vehicle.class) + " " + Id.get(linkIndex, Link.class) + " " + state);
+			}
+
+			@Override
+			public void endSnapshot() {
+				vehicles.sort(null);
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+
+		Map<Double, List<String>> snapshotInfos = new HashMap<>();
+		qsim.addQueueSimulationListeners(new MobsimAfterSimStepListener() {
+			@Override
+			public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+				if (e.getSimulationTime() % 10 != 0) {
+					return;
+				}
+				List<String> vehicles = new ArrayList<>();
+				for (VisLink link : qsim.getVisNetwork().getVisLinks().values()) {
+					for (AgentSnapshotInfo info : link.getVisData().addAgentSnapshotInfo(new ArrayList<>())) {
+						// the vehicles have the same ids as their drivers
+						if (info.getAgentState() == AgentState.PERSON_DRIVING_CAR) {
+							vehicles.add(info.getId() + " " + link.getLink().getId() + " " + info.getAgentState());
+						}
+					}
+				}
+				vehicles.sort(null);
+				snapshotInfos.put(e.getSimulationTime(), vehicles);
+			}
+		});
+		qsim.addQueueSimulationListeners(exporter);
+		qsim.run();
+
+		Assert.assertFalse(exported.isEmpty());
+		int maxNumberOfVehicles = 0;
+		for (Map.Entry<Double, List<String>> entry : exported.entrySet()) {
+			Assert.assertEquals("time " + entry.getKey(), snapshotInfos.get(entry.getKey()), entry.getValue());
+			maxNumberOfVehicles = Math.max(maxNumberOfVehicles, entry.getValue().size());
+		}
+		// more vehicles than fit into the buffer at once
+		Assert.assertTrue(maxNumberOfVehicles > 16);
+	}
+
+	private static Scenario createScenario() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		NetworkFactory nf = network.getFactory();
+		for (int i = 1; i <= 4; i++) {
+			network.addNode(nf.createNode(Id.create(i, Node.class), new Coord(500. * i, 0.)));
+		}
+		for (int i = 1; i <= 3; i++) {
+			Link link = nf.createLink(Id.create(i, Link.class), network.getNodes().get(Id.create(i, Node.class)),
+					network.getNodes().get(Id.create(i + 1, Node.class)));
+			link.setLength(500.0);
+			link.setCapacity(i == 2 ? 360 : 3600);
+			link.setFreespeed(10.0);
+			network.addLink(link);
+		}
+
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 50; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("h", Id.create(1, Link.class));
+			home.setEndTime(i * 2.);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.create(1, Link.class),
+					Arrays.asList(Id.create(2, Link.class)), Id.create(3, Link.class)));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("w", Id.create(3, Link.class)));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return scenario;
+	}
+
+	private static class RecordingWriter implements VehiclePositionWriter {
+		private final List<String> records;
+
+		RecordingWriter(List<String> records) {
+			this.records = records;
+		}
+
+		@Override
+		public void beginSnapshot(double time) {
+			records.add("begin " + time);
+		}
+
+		@Override
+		public void addVehicle(int vehicleIndex, int linkIndex, double relativePosition, AgentState state,
+				double colorValueBetweenZeroAndOne) {
+			records.add(vehicleIndex + " " + linkIndex + " " + relativePosition + " " + state + " "
+					+ colorValueBetweenZeroAndOne);
+		}
+
+		@Override
+		public void endSnapshot() {
+			records.add("end");
+		}
+
+		@Override
+		public void finish() {
+		}
+	}
+}